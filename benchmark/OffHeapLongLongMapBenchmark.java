@@ -0,0 +1,98 @@
+import java.util.Random;
+import propel.core.collections.maps.primitive.LongHashMap;
+import propel.core.collections.maps.primitive.OffHeapLongLongMap;
+
+/**
+ * Compares the OffHeapLongLongMap against the heap-based LongHashMap: insertion and lookup throughput, and Java heap retained. Run with
+ * e.g. -Xmx8g -XX:MaxDirectMemorySize=8g and the number of entries as the first argument.
+ */
+public class OffHeapLongLongMapBenchmark
+{
+
+  public static void main(String[] args)
+      throws Exception
+  {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+
+    // identifiers 1..count, in random order
+    long[] keys = new long[count];
+    for (int i = 0; i < count; i++)
+      keys[i] = i + 1;
+    Random random = new Random(1);
+    for (int i = count - 1; i > 0; i--)
+    {
+      int j = random.nextInt(i + 1);
+      long swap = keys[i];
+      keys[i] = keys[j];
+      keys[j] = swap;
+    }
+
+    for (int round = 0; round < 3; round++)
+    {
+      System.out.println("Round " + (round + 1) + ", " + count + " entries");
+      benchmarkHeap(keys);
+      benchmarkOffHeap(keys);
+    }
+  }
+
+  private static void benchmarkHeap(long[] keys)
+  {
+    long heapBefore = usedHeap();
+
+    long start = System.nanoTime();
+    LongHashMap<Long> map = new LongHashMap<Long>(keys.length, Long.class);
+    for (long key : keys)
+      map.put(key, key * 2);
+    long insert = System.nanoTime() - start;
+
+    long heap = usedHeap() - heapBefore;
+
+    start = System.nanoTime();
+    long checksum = 0;
+    for (long key : keys)
+      checksum += map.get(key);
+    long lookup = System.nanoTime() - start;
+
+    report("LongHashMap       ", keys.length, insert, lookup, heap, checksum);
+  }
+
+  private static void benchmarkOffHeap(long[] keys)
+      throws Exception
+  {
+    long heapBefore = usedHeap();
+
+    long start = System.nanoTime();
+    OffHeapLongLongMap map = new OffHeapLongLongMap(keys.length);
+    for (long key : keys)
+      map.put(key, key * 2);
+    long insert = System.nanoTime() - start;
+
+    long heap = usedHeap() - heapBefore;
+
+    start = System.nanoTime();
+    long checksum = 0;
+    for (long key : keys)
+      checksum += map.get(key, 0);
+    long lookup = System.nanoTime() - start;
+
+    report("OffHeapLongLongMap", keys.length, insert, lookup, heap, checksum);
+    System.out.println("  off-heap bytes: " + map.capacity() * 16);
+    map.close();
+  }
+
+  private static void report(String name, int count, long insertNanos, long lookupNanos, long heapBytes, long checksum)
+  {
+    System.out.println("  " + name + ": put " + insertNanos / count + " ns/op, get " + lookupNanos / count + " ns/op, heap retained "
+                       + heapBytes / (1024 * 1024) + " MB (checksum " + checksum + ")");
+  }
+
+  private static long usedHeap()
+  {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++)
+      System.gc();
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
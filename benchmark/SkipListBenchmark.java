@@ -0,0 +1,91 @@
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import propel.core.collections.IValueStore;
+import propel.core.collections.sets.SharedAvlTreeSet;
+import propel.core.collections.sets.SharedSkipListSet;
+
+/**
+ * Compares the lock-free SharedSkipListSet against the lock-based SharedAvlTreeSet as threads are added: each thread adds, looks up and
+ * removes random identifiers. Run with the number of operations per thread as the first argument.
+ */
+public class SkipListBenchmark
+{
+  private static final int MAX_THREADS = 64;
+  private static final long KEY_RANGE = 1 << 20;
+
+  public static void main(String[] args)
+      throws Exception
+  {
+    int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+    for (int round = 0; round < 3; round++)
+    {
+      System.out.println("Round " + (round + 1) + ", " + operations + " operations per thread");
+      for (int threads = 1; threads <= MAX_THREADS; threads *= 2)
+      {
+        long avl = benchmark(new SharedAvlTreeSet<Long>(Long.class), threads, operations);
+        long skipList = benchmark(new SharedSkipListSet<Long>(Long.class), threads, operations);
+        report(threads, operations, avl, skipList);
+      }
+    }
+  }
+
+  private static long benchmark(final IValueStore<Long> set, int threads, final int operations)
+      throws InterruptedException
+  {
+    // half full, so that adds and removes mostly succeed
+    Random random = new Random(1);
+    for (int i = 0; i < KEY_RANGE / 2; i++)
+      set.add((long) random.nextInt((int) KEY_RANGE));
+
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++)
+    {
+      final int seed = t + 2;
+      new Thread(new Runnable() {
+        @Override
+        public void run()
+        {
+          Random random = new Random(seed);
+          try
+          {
+            start.await();
+            for (int i = 0; i < operations; i++)
+            {
+              Long key = (long) random.nextInt((int) KEY_RANGE);
+              int op = random.nextInt(4);
+              if (op == 0)
+                set.add(key);
+              else if (op == 1)
+                set.remove(key);
+              else
+                set.contains(key);
+            }
+          }
+          catch(InterruptedException e)
+          {
+            Thread.currentThread().interrupt();
+          }
+          finally
+          {
+            done.countDown();
+          }
+        }
+      }).start();
+    }
+
+    long begin = System.nanoTime();
+    start.countDown();
+    done.await();
+    return System.nanoTime() - begin;
+  }
+
+  private static void report(int threads, int operations, long avlNanos, long skipListNanos)
+  {
+    long total = (long) threads * operations;
+    System.out.println("  " + threads + " threads: SharedAvlTreeSet " + total * 1000000 / avlNanos + " ops/ms, SharedSkipListSet "
+                       + total * 1000000 / skipListNanos + " ops/ms");
+  }
+
+}
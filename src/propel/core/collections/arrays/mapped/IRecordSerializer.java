@@ -0,0 +1,43 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.arrays.mapped;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface of a serializer of fixed-size records, used by the MappedReifiedArray. Implementations must use the absolute get/put methods
+ * of the buffer and must not change its position or limit, as buffers are shared between threads.
+ */
+public interface IRecordSerializer<T>
+{
+  /**
+   * Returns the size of each record in bytes.
+   */
+  int getRecordSize();
+
+  /**
+   * Reads the record starting at the given offset of the buffer.
+   */
+  T read(ByteBuffer buffer, int offset);
+
+  /**
+   * Writes a record starting at the given offset of the buffer, using at most getRecordSize() bytes.
+   */
+  void write(ByteBuffer buffer, int offset, T record);
+}
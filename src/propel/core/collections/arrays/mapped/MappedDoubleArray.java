@@ -0,0 +1,147 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.arrays.mapped;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+
+/**
+ * A fixed-length array of double primitives, indexed by long, backed by a memory-mapped file of big-endian double values (e.g. as written by
+ * a DataOutputStream). Files larger than 2GB are mapped as several regions. Opening is near-instant regardless of the file size, as pages
+ * are loaded lazily by the operating system, and processes mapping the same file read-only share its pages in the page cache.
+ * 
+ * Reads and writes of distinct indices are safe to perform from multiple threads. Once closed, the array must no longer be used; its
+ * regions are unmapped when garbage collected.
+ */
+public final class MappedDoubleArray
+    implements Closeable
+{
+  private final MappedRegions regions;
+
+  /**
+   * Maps an existing file, for reading only or for reading and writing. The length of the array is derived from the file size.
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws FileNotFoundException The file was not found, or it was a directory
+   * @throws IOException An I/O error occurs, or the file size is not a multiple of 8 bytes.
+   * @throws SecurityException Access to filesystem is denied by a SecurityManager
+   */
+  public MappedDoubleArray(File file, boolean readOnly)
+      throws IOException
+  {
+    regions = new MappedRegions(file, 8, readOnly);
+  }
+
+  /**
+   * Maps a file for reading and writing, creating or extending it so that it holds the given number of values. Extended regions read as
+   * zero.
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws IllegalArgumentException The length is negative.
+   * @throws FileNotFoundException The file could not be created, or it was a directory
+   * @throws IOException An I/O error occurs
+   * @throws SecurityException Access to filesystem is denied by a SecurityManager
+   */
+  public MappedDoubleArray(File file, long length)
+      throws IOException
+  {
+    regions = new MappedRegions(file, 8, length);
+  }
+
+  /**
+   * Returns the value at the given index. This is an O(1) operation, plus a page fault if the page is not resident.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  public double get(long index)
+  {
+    regions.check(index);
+    return regions.region(index).getDouble(regions.offset(index));
+  }
+
+  /**
+   * Sets the value at the given index. The write reaches the file eventually, or when force() is called. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   * @throws ReadOnlyBufferException When the array was mapped for reading only.
+   */
+  public void set(long index, double value)
+  {
+    regions.check(index);
+    regions.region(index).putDouble(regions.offset(index), value);
+  }
+
+  /**
+   * Returns the number of values. This is an O(1) operation.
+   */
+  public long length()
+  {
+    return regions.length();
+  }
+
+  /**
+   * Returns true if the array was mapped for reading only. This is an O(1) operation.
+   */
+  public boolean isReadOnly()
+  {
+    return regions.isReadOnly();
+  }
+
+  /**
+   * Writes all modifications through to the storage device. Does nothing if the array is read-only.
+   */
+  public void force()
+  {
+    regions.force();
+  }
+
+  /**
+   * Hints that the given range of values is about to be read sequentially, by faulting in its pages ahead of time. The starting index is
+   * inclusive, the ending index is exclusive.
+   * 
+   * @throws IndexOutOfBoundsException When the range is out of bounds.
+   */
+  public void prefetch(long fromIndex, long toIndex)
+  {
+    regions.prefetch(fromIndex, toIndex);
+  }
+
+  /**
+   * Loads the entire array in physical memory, as far as the operating system permits. This is an O(n) operation.
+   */
+  public void load()
+  {
+    regions.load();
+  }
+
+  /**
+   * Closes the backing file. Modifications not yet forced are written back by the operating system.
+   * 
+   * @throws IOException An I/O error occurs
+   */
+  @Override
+  public void close()
+      throws IOException
+  {
+    regions.close();
+  }
+}
@@ -0,0 +1,228 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.arrays.mapped;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Maps a file of fixed-size elements as a sequence of memory-mapped regions of up to 1GB each, so that files larger than 2GB can be
+ * addressed by a long element index. Each region holds a power-of-two number of elements and no element straddles two regions.
+ */
+final class MappedRegions
+    implements Closeable
+{
+  /**
+   * The maximum number of bytes mapped per region
+   */
+  private static final int MAXIMUM_REGION_SIZE = 1 << 30;
+  /**
+   * The granularity at which prefetching touches pages
+   */
+  private static final int PAGE_SIZE = 4096;
+  private final RandomAccessFile file;
+  private final MappedByteBuffer[] regions;
+  private final int elementSize;
+  private final int regionShift;
+  private final long regionMask;
+  private final long length;
+  private final boolean readOnly;
+
+  /**
+   * Maps an existing file, whose size must be a multiple of the element size.
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws IllegalArgumentException The element size is not positive or exceeds the maximum region size.
+   * @throws FileNotFoundException The file was not found, or it was a directory
+   * @throws IOException An I/O error occurs, or the file size is not a multiple of the element size.
+   */
+  MappedRegions(File file, int elementSize, boolean readOnly)
+      throws IOException
+  {
+    this(file, elementSize, -1, readOnly);
+  }
+
+  /**
+   * Maps a file for reading and writing, creating or extending it as needed so that it holds the given number of elements.
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws IllegalArgumentException The element size is not positive or exceeds the maximum region size, or the length is negative.
+   * @throws FileNotFoundException The file could not be created, or it was a directory
+   * @throws IOException An I/O error occurs
+   */
+  MappedRegions(File file, int elementSize, long length)
+      throws IOException
+  {
+    this(file, elementSize, checkLength(length), false);
+  }
+
+  private MappedRegions(File file, int elementSize, long length, boolean readOnly)
+      throws IOException
+  {
+    if (file == null)
+      throw new NullPointerException("file");
+    if (elementSize <= 0 || elementSize > MAXIMUM_REGION_SIZE)
+      throw new IllegalArgumentException("elementSize=" + elementSize);
+    if (readOnly && !file.isFile())
+      throw new FileNotFoundException("The specified path is not referring to a file: " + file.getAbsolutePath());
+
+    this.elementSize = elementSize;
+    this.readOnly = readOnly;
+
+    // the number of elements per region is the largest power of two fitting in a region
+    int shift = 0;
+    while ((((long) elementSize) << (shift + 1)) <= MAXIMUM_REGION_SIZE)
+      shift++;
+    regionShift = shift;
+    regionMask = (1L << shift) - 1;
+
+    this.file = new RandomAccessFile(file, readOnly ? "r" : "rw");
+    try
+    {
+      long fileSize = this.file.length();
+      if (length < 0)
+      {
+        if (fileSize % elementSize != 0)
+          throw new IOException("The file size " + fileSize + " is not a multiple of the element size " + elementSize + ": "
+                                + file.getAbsolutePath());
+        length = fileSize / elementSize;
+      } else if (fileSize < length * elementSize)
+        this.file.setLength(length * elementSize);
+
+      this.length = length;
+      FileChannel channel = this.file.getChannel();
+
+      int count = (int) ((length + regionMask) >>> regionShift);
+      regions = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++)
+      {
+        long first = (long) i << regionShift;
+        long bytes = Math.min(regionMask + 1, length - first) * elementSize;
+        regions[i] = channel.map(readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE, first * elementSize, bytes);
+      }
+    }
+    catch(IOException e)
+    {
+      this.file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the region holding the element at the given index
+   */
+  MappedByteBuffer region(long index)
+  {
+    return regions[(int) (index >>> regionShift)];
+  }
+
+  /**
+   * Returns the byte offset of the element at the given index, within its region
+   */
+  int offset(long index)
+  {
+    return (int) (index & regionMask) * elementSize;
+  }
+
+  /**
+   * Returns the number of elements
+   */
+  long length()
+  {
+    return length;
+  }
+
+  boolean isReadOnly()
+  {
+    return readOnly;
+  }
+
+  /**
+   * Throws an IndexOutOfBoundsException if the index is out of range
+   */
+  void check(long index)
+  {
+    if (index < 0 || index >= length)
+      throw new IndexOutOfBoundsException("index=" + index + " length=" + length);
+  }
+
+  /**
+   * Writes any modifications of read-write regions to the storage device
+   */
+  void force()
+  {
+    if (!readOnly)
+      for (MappedByteBuffer region : regions)
+        region.force();
+  }
+
+  /**
+   * Touches one byte per page in the given element range, so that the pages are faulted in (and the operating system's read-ahead is
+   * triggered) before they are accessed
+   */
+  void prefetch(long fromIndex, long toIndex)
+  {
+    if (fromIndex < 0 || fromIndex > toIndex || toIndex > length)
+      throw new IndexOutOfBoundsException("fromIndex=" + fromIndex + " toIndex=" + toIndex + " length=" + length);
+
+    long index = fromIndex;
+    while (index < toIndex)
+    {
+      MappedByteBuffer region = region(index);
+      int end = index >>> regionShift == (toIndex - 1) >>> regionShift ? offset(toIndex - 1) + elementSize : region.capacity();
+      for (int position = offset(index); position < end; position += PAGE_SIZE)
+        region.get(position);
+
+      index = ((index >>> regionShift) + 1) << regionShift;
+    }
+  }
+
+  /**
+   * Loads all regions in physical memory
+   */
+  void load()
+  {
+    for (MappedByteBuffer region : regions)
+      region.load();
+  }
+
+  /**
+   * Closes the file. The regions remain mapped until they are garbage collected.
+   */
+  @Override
+  public void close()
+      throws IOException
+  {
+    file.close();
+  }
+
+  private static long checkLength(long length)
+  {
+    if (length < 0)
+      throw new IllegalArgumentException("length=" + length);
+
+    return length;
+  }
+}
@@ -0,0 +1,265 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.arrays.mapped;
+
+import propel.core.collections.ReifiedIterable;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware fixed-length array of records, indexed by long, backed by a memory-mapped file of fixed-size records. Records are read and
+ * written through an IRecordSerializer. Files larger than 2GB are mapped as several regions. Opening is near-instant regardless of the file
+ * size, as pages are loaded lazily by the operating system, and processes mapping the same file read-only share its pages in the page
+ * cache.
+ * 
+ * Reads and writes of distinct indices are safe to perform from multiple threads, provided the serializer is. Once closed, the array must
+ * no longer be used; its regions are unmapped when garbage collected.
+ * 
+ * Instantiate using e.g.: new MappedReifiedArray&lt;Point&gt;(file, true, serializer){}; -OR- new MappedReifiedArray&lt;Point&gt;(file, true,
+ * serializer, Point.class);
+ */
+public class MappedReifiedArray<T>
+    implements ReifiedIterable<T>, Closeable
+{
+  private final Class<?> genericTypeParameter;
+  private final IRecordSerializer<T> serializer;
+  private final MappedRegions regions;
+
+  /**
+   * Maps an existing file, for reading only or for reading and writing. The length of the array is derived from the file size.
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException An argument is null
+   * @throws IllegalArgumentException The record size is not positive.
+   * @throws FileNotFoundException The file was not found, or it was a directory
+   * @throws IOException An I/O error occurs, or the file size is not a multiple of the record size.
+   */
+  public MappedReifiedArray(File file, boolean readOnly, IRecordSerializer<T> serializer)
+      throws IOException
+  {
+    if (serializer == null)
+      throw new NullPointerException("serializer");
+
+    genericTypeParameter = SuperTypeToken.getClazz(this.getClass());
+    this.serializer = serializer;
+    regions = new MappedRegions(file, serializer.getRecordSize(), readOnly);
+  }
+
+  /**
+   * Maps an existing file, for reading only or for reading and writing, with the given generic type parameter. The length of the array is
+   * derived from the file size.
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws IllegalArgumentException The record size is not positive.
+   * @throws FileNotFoundException The file was not found, or it was a directory
+   * @throws IOException An I/O error occurs, or the file size is not a multiple of the record size.
+   */
+  public MappedReifiedArray(File file, boolean readOnly, IRecordSerializer<T> serializer, Class<?> genericTypeParameter)
+      throws IOException
+  {
+    if (serializer == null)
+      throw new NullPointerException("serializer");
+    if (genericTypeParameter == null)
+      throw new NullPointerException("genericTypeParameter");
+
+    this.genericTypeParameter = genericTypeParameter;
+    this.serializer = serializer;
+    regions = new MappedRegions(file, serializer.getRecordSize(), readOnly);
+  }
+
+  /**
+   * Maps a file for reading and writing, creating or extending it so that it holds the given number of records. Extended regions are
+   * zero-filled.
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException An argument is null
+   * @throws IllegalArgumentException The length is negative, or the record size is not positive.
+   * @throws FileNotFoundException The file could not be created, or it was a directory
+   * @throws IOException An I/O error occurs
+   */
+  public MappedReifiedArray(File file, long length, IRecordSerializer<T> serializer)
+      throws IOException
+  {
+    if (serializer == null)
+      throw new NullPointerException("serializer");
+
+    genericTypeParameter = SuperTypeToken.getClazz(this.getClass());
+    this.serializer = serializer;
+    regions = new MappedRegions(file, serializer.getRecordSize(), length);
+  }
+
+  /**
+   * Maps a file for reading and writing, with the given generic type parameter, creating or extending it so that it holds the given number
+   * of records. Extended regions are zero-filled.
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws IllegalArgumentException The length is negative, or the record size is not positive.
+   * @throws FileNotFoundException The file could not be created, or it was a directory
+   * @throws IOException An I/O error occurs
+   */
+  public MappedReifiedArray(File file, long length, IRecordSerializer<T> serializer, Class<?> genericTypeParameter)
+      throws IOException
+  {
+    if (serializer == null)
+      throw new NullPointerException("serializer");
+    if (genericTypeParameter == null)
+      throw new NullPointerException("genericTypeParameter");
+
+    this.genericTypeParameter = genericTypeParameter;
+    this.serializer = serializer;
+    regions = new MappedRegions(file, serializer.getRecordSize(), length);
+  }
+
+  /**
+   * Deserializes and returns the record at the given index. This is an O(1) operation, plus a page fault if the page is not resident.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  public T get(long index)
+  {
+    regions.check(index);
+    return serializer.read(regions.region(index), regions.offset(index));
+  }
+
+  /**
+   * Serializes a record at the given index. The write reaches the file eventually, or when force() is called. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   * @throws ReadOnlyBufferException When the array was mapped for reading only.
+   */
+  public void set(long index, T record)
+  {
+    regions.check(index);
+    serializer.write(regions.region(index), regions.offset(index), record);
+  }
+
+  /**
+   * Returns the number of records. This is an O(1) operation.
+   */
+  public long length()
+  {
+    return regions.length();
+  }
+
+  /**
+   * Returns true if the array was mapped for reading only. This is an O(1) operation.
+   */
+  public boolean isReadOnly()
+  {
+    return regions.isReadOnly();
+  }
+
+  /**
+   * Writes all modifications through to the storage device. Does nothing if the array is read-only.
+   */
+  public void force()
+  {
+    regions.force();
+  }
+
+  /**
+   * Hints that the given range of records is about to be read sequentially, by faulting in its pages ahead of time. The starting index is
+   * inclusive, the ending index is exclusive.
+   * 
+   * @throws IndexOutOfBoundsException When the range is out of bounds.
+   */
+  public void prefetch(long fromIndex, long toIndex)
+  {
+    regions.prefetch(fromIndex, toIndex);
+  }
+
+  /**
+   * Loads the entire array in physical memory, as far as the operating system permits. This is an O(n) operation.
+   */
+  public void load()
+  {
+    regions.load();
+  }
+
+  /**
+   * Returns an iterator deserializing each record in index order.
+   */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new Iterator<T>() {
+      private long next;
+
+      @Override
+      public boolean hasNext()
+      {
+        return next < regions.length();
+      }
+
+      @Override
+      public T next()
+      {
+        if (!hasNext())
+          throw new NoSuchElementException("There is no next element.");
+
+        return get(next++);
+      }
+
+      @Override
+      @Deprecated
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameter()
+  {
+    return genericTypeParameter;
+  }
+
+  /**
+   * Closes the backing file. Modifications not yet forced are written back by the operating system.
+   * 
+   * @throws IOException An I/O error occurs
+   */
+  @Override
+  public void close()
+      throws IOException
+  {
+    regions.close();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+}
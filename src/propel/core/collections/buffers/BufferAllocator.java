@@ -0,0 +1,323 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.buffers;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe allocator of heap and direct byte buffers for I/O paths, so that steady-state reads, writes and copies reuse buffers rather
+ * than allocating new ones. Requested sizes are rounded up to power-of-two size classes, each with its own pool of released buffers.
+ * 
+ * Each thread keeps a small magazine of released buffers per size class, so that most allocations and releases touch no shared state; a
+ * full or empty magazine exchanges half its buffers with a lock-protected depot shared by all threads. Depots hold up to a maximum number
+ * of buffers per size class, and requests larger than the largest size class are allocated without pooling.
+ * 
+ * Buffers are reference-counted, see PooledBuffer.
+ */
+public final class BufferAllocator
+{
+  /**
+   * The default smallest size class
+   */
+  public static final int DEFAULT_MIN_SIZE = 256;
+  /**
+   * The default largest size class
+   */
+  public static final int DEFAULT_MAX_SIZE = 1024 * 1024;
+  /**
+   * The default maximum number of buffers held by each depot
+   */
+  public static final int DEFAULT_MAX_POOLED = 64;
+  // the per thread, per size class limits of magazines
+  private static final int MAGAZINE_CAPACITY = 8;
+  private static final int MAGAZINE_BYTES = 256 * 1024;
+  private final int minShift;
+  private final int classCount;
+  private final int maxPooled;
+  private final Depot[] depots;
+  private final ThreadLocal<Magazine[]> magazines;
+  private final AtomicLong allocationCount;
+  private final AtomicLong reuseCount;
+  private final AtomicLong unpooledCount;
+
+  /**
+   * Default constructor, initializes size classes from 256 bytes to 1MB
+   */
+  public BufferAllocator()
+  {
+    this(DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_MAX_POOLED);
+  }
+
+  /**
+   * Constructor initializes with the range of size classes, and the maximum number of released buffers shared by all threads per size class
+   * and kind (heap or direct).
+   * 
+   * @throws IllegalArgumentException When a size is not a power of two, the minimum size exceeds the maximum size, or the maximum number of
+   *           pooled buffers is negative.
+   */
+  public BufferAllocator(int minSize, int maxSize, int maxPooled)
+  {
+    if (minSize <= 0 || Integer.bitCount(minSize) != 1)
+      throw new IllegalArgumentException("minSize=" + minSize);
+    if (maxSize < minSize || Integer.bitCount(maxSize) != 1)
+      throw new IllegalArgumentException("minSize=" + minSize + " maxSize=" + maxSize);
+    if (maxPooled < 0)
+      throw new IllegalArgumentException("maxPooled=" + maxPooled);
+
+    minShift = Integer.numberOfTrailingZeros(minSize);
+    classCount = Integer.numberOfTrailingZeros(maxSize) - minShift + 1;
+    this.maxPooled = maxPooled;
+
+    // heap size classes, followed by direct ones
+    depots = new Depot[classCount * 2];
+    for (int i = 0; i < depots.length; i++)
+      depots[i] = new Depot();
+
+    magazines = new ThreadLocal<Magazine[]>() {
+      @Override
+      protected Magazine[] initialValue()
+      {
+        Magazine[] result = new Magazine[classCount * 2];
+        for (int i = 0; i < result.length; i++)
+          result[i] = new Magazine(Math.max(1, Math.min(MAGAZINE_CAPACITY, MAGAZINE_BYTES >> (minShift + i % classCount))));
+
+        return result;
+      }
+    };
+
+    allocationCount = new AtomicLong();
+    reuseCount = new AtomicLong();
+    unpooledCount = new AtomicLong();
+  }
+
+  /**
+   * Allocates a heap buffer of at least the given size, backed by an array. This is an O(1) operation, when reusing a buffer.
+   * 
+   * @throws IllegalArgumentException When the size is negative.
+   */
+  public PooledBuffer allocateHeap(int size)
+  {
+    return allocate(size, false);
+  }
+
+  /**
+   * Allocates a direct buffer of at least the given size. This is an O(1) operation, when reusing a buffer.
+   * 
+   * @throws IllegalArgumentException When the size is negative.
+   */
+  public PooledBuffer allocateDirect(int size)
+  {
+    return allocate(size, true);
+  }
+
+  /**
+   * Returns the number of buffers allocated
+   */
+  public long getAllocationCount()
+  {
+    return allocationCount.get();
+  }
+
+  /**
+   * Returns the number of allocations which reused a released buffer
+   */
+  public long getReuseCount()
+  {
+    return reuseCount.get();
+  }
+
+  /**
+   * Returns the number of allocations too large to be pooled
+   */
+  public long getUnpooledCount()
+  {
+    return unpooledCount.get();
+  }
+
+  /**
+   * Returns the fraction of allocations which reused a released buffer, or 0 if nothing has been allocated
+   */
+  public double getReuseRate()
+  {
+    long allocations = allocationCount.get();
+    return allocations == 0 ? 0 : (double) reuseCount.get() / allocations;
+  }
+
+  /**
+   * Returns the number of released buffers shared by all threads, excluding those kept by each thread
+   */
+  public int getPooledCount()
+  {
+    int result = 0;
+    for (Depot depot : depots)
+    {
+      depot.lock.lock();
+      try
+      {
+        result += depot.buffers.size();
+      }
+      finally
+      {
+        depot.lock.unlock();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the capacity of the smallest size class
+   */
+  public int getMinSize()
+  {
+    return 1 << minShift;
+  }
+
+  /**
+   * Returns the capacity of the largest size class
+   */
+  public int getMaxSize()
+  {
+    return 1 << (minShift + classCount - 1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "allocated=" + getAllocationCount() + " reused=" + getReuseCount() + " unpooled=" + getUnpooledCount() + " pooled="
+           + getPooledCount();
+  }
+
+  /**
+   * Takes back a buffer whose reference count has reached zero
+   */
+  void recycle(PooledBuffer buffer)
+  {
+    int sizeClass = buffer.getSizeClass();
+    if (sizeClass < 0)
+      return;
+
+    int index = buffer.isDirect() ? classCount + sizeClass : sizeClass;
+    Magazine magazine = magazines.get()[index];
+    if (magazine.count == magazine.buffers.length)
+    {
+      // move half the magazine to the depot, dropping what does not fit
+      Depot depot = depots[index];
+      int moved = (magazine.count + 1) / 2;
+      depot.lock.lock();
+      try
+      {
+        for (int i = 0; i < moved; i++)
+        {
+          PooledBuffer item = magazine.buffers[--magazine.count];
+          magazine.buffers[magazine.count] = null;
+          if (depot.buffers.size() < maxPooled)
+            depot.buffers.push(item);
+        }
+      }
+      finally
+      {
+        depot.lock.unlock();
+      }
+    }
+
+    magazine.buffers[magazine.count++] = buffer;
+  }
+
+  private PooledBuffer allocate(int size, boolean direct)
+  {
+    if (size < 0)
+      throw new IllegalArgumentException("size=" + size);
+
+    allocationCount.incrementAndGet();
+    if (size > getMaxSize())
+    {
+      unpooledCount.incrementAndGet();
+      PooledBuffer result = new PooledBuffer(this, create(size, direct), -1);
+      result.reset(size);
+      return result;
+    }
+
+    int sizeClass = size <= (1 << minShift) ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1) - minShift;
+    int index = direct ? classCount + sizeClass : sizeClass;
+    Magazine magazine = magazines.get()[index];
+    if (magazine.count == 0)
+    {
+      // refill half the magazine from the depot
+      Depot depot = depots[index];
+      depot.lock.lock();
+      try
+      {
+        int wanted = (magazine.buffers.length + 1) / 2;
+        while (magazine.count < wanted && !depot.buffers.isEmpty())
+          magazine.buffers[magazine.count++] = depot.buffers.pop();
+      }
+      finally
+      {
+        depot.lock.unlock();
+      }
+    }
+
+    PooledBuffer result;
+    if (magazine.count > 0)
+    {
+      result = magazine.buffers[--magazine.count];
+      magazine.buffers[magazine.count] = null;
+      reuseCount.incrementAndGet();
+    } else
+      result = new PooledBuffer(this, create(1 << (minShift + sizeClass), direct), sizeClass);
+
+    result.reset(size);
+    return result;
+  }
+
+  private static ByteBuffer create(int capacity, boolean direct)
+  {
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+  }
+
+  /**
+   * The released buffers of a size class kept by a thread
+   */
+  private static final class Magazine
+  {
+    final PooledBuffer[] buffers;
+    int count;
+
+    Magazine(int capacity)
+    {
+      buffers = new PooledBuffer[capacity];
+    }
+  }
+
+  /**
+   * The released buffers of a size class shared by all threads
+   */
+  private static final class Depot
+  {
+    final ReentrantLock lock = new ReentrantLock();
+    final ArrayDeque<PooledBuffer> buffers = new ArrayDeque<PooledBuffer>();
+  }
+}
@@ -0,0 +1,161 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.buffers;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference-counted buffer obtained from a BufferAllocator. The buffer starts with a reference count of one; each additional owner should
+ * call retain(), and every owner should call release() once done, the last release returning the buffer to its allocator for reuse. The
+ * buffer must not be used after its last release.
+ */
+public final class PooledBuffer
+{
+  private final BufferAllocator allocator;
+  private final ByteBuffer buffer;
+  private final int sizeClass;
+  private final AtomicInteger referenceCount;
+
+  /**
+   * Constructor initializes with the owning allocator, the underlying buffer and its size class, or -1 if not pooled
+   */
+  PooledBuffer(BufferAllocator allocator, ByteBuffer buffer, int sizeClass)
+  {
+    this.allocator = allocator;
+    this.buffer = buffer;
+    this.sizeClass = sizeClass;
+    referenceCount = new AtomicInteger();
+  }
+
+  /**
+   * Returns the underlying buffer. On allocation its position is zero and its limit is the requested size, which may be less than its
+   * capacity.
+   */
+  public ByteBuffer getBuffer()
+  {
+    return buffer;
+  }
+
+  /**
+   * Returns the array backing a heap buffer, whose length is the capacity of the buffer.
+   * 
+   * @throws UnsupportedOperationException When the buffer is direct.
+   */
+  public byte[] getArray()
+  {
+    if (buffer.isDirect())
+      throw new UnsupportedOperationException("The buffer is direct");
+
+    return buffer.array();
+  }
+
+  /**
+   * Returns the capacity of the buffer, i.e. the size class it was allocated from
+   */
+  public int capacity()
+  {
+    return buffer.capacity();
+  }
+
+  /**
+   * Returns true if the buffer is allocated outside the heap
+   */
+  public boolean isDirect()
+  {
+    return buffer.isDirect();
+  }
+
+  /**
+   * Returns the number of owners of the buffer
+   */
+  public int getReferenceCount()
+  {
+    return referenceCount.get();
+  }
+
+  /**
+   * Adds an owner to the buffer.
+   * 
+   * @throws IllegalStateException When the buffer has already been released.
+   */
+  public void retain()
+  {
+    while (true)
+    {
+      int count = referenceCount.get();
+      if (count <= 0)
+        throw new IllegalStateException("The buffer has been released");
+      if (referenceCount.compareAndSet(count, count + 1))
+        return;
+    }
+  }
+
+  /**
+   * Removes an owner from the buffer, returning it to the allocator if it was the last one.
+   * 
+   * @return True if the buffer was returned to the allocator.
+   * 
+   * @throws IllegalStateException When the buffer has already been released.
+   */
+  public boolean release()
+  {
+    while (true)
+    {
+      int count = referenceCount.get();
+      if (count <= 0)
+        throw new IllegalStateException("The buffer has been released");
+      if (referenceCount.compareAndSet(count, count - 1))
+      {
+        if (count > 1)
+          return false;
+
+        allocator.recycle(this);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "capacity=" + capacity() + " direct=" + isDirect() + " references=" + getReferenceCount();
+  }
+
+  /**
+   * Returns the size class of the buffer, or -1 if not pooled
+   */
+  int getSizeClass()
+  {
+    return sizeClass;
+  }
+
+  /**
+   * Prepares the buffer for a new owner, with the given limit
+   */
+  void reset(int size)
+  {
+    buffer.clear();
+    buffer.limit(size);
+    referenceCount.set(1);
+  }
+}
@@ -21,16 +21,23 @@ package propel.core.collections.buffers.primitive;
 import java.util.Arrays;
 import lombok.Validate;
 import lombok.Validate.NotNull;
+import propel.core.counters.IModuloIndexer;
 import propel.core.counters.SharedModuloIndexerLight;
+import propel.core.counters.SharedStripedIndexer;
 
 /**
  * Thread-safe class implementing a fixed-size buffer of Long primitives.
+ * 
+ * Buffers that are large compared to the number of processors hand out slots to writers in small per-thread blocks, so that concurrent
+ * writers do not contend. The buffer then holds approximately, rather than exactly, the most recent values: a thread writes the remainder
+ * of its block before moving on, so a rarely writing thread may overwrite a slot more recent than the oldest one. Small buffers assign
+ * slots strictly in turn and always hold the most recent values.
  */
 public final class SharedFixedSizeLongBuffer
     implements ILongBuffer
 {
   private volatile long[] buffer;
-  private final SharedModuloIndexerLight indexer;
+  private final IModuloIndexer indexer;
 
   /**
    * Constructor, initialises with the buffer holding initial values
@@ -41,7 +48,12 @@ public final class SharedFixedSizeLongBuffer
     int length = buffer.length;
     this.buffer = new long[length];
     System.arraycopy(buffer, 0, this.buffer, 0, length);
-    indexer = new SharedModuloIndexerLight(length);
+    // blocks must be small compared to the length, so that threads do not overwrite each other's laps
+    int blockSize = Math.max(1, length / (4 * Runtime.getRuntime().availableProcessors()));
+    if (blockSize > 1)
+      indexer = new SharedStripedIndexer(0, length, blockSize);
+    else
+      indexer = new SharedModuloIndexerLight(length);
   }
 
   /**
@@ -0,0 +1,369 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.frozen;
+
+import propel.core.TryResult;
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.maps.IHashtable;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.collections.maps.avl.KeyCollection;
+import propel.core.collections.maps.avl.ValueCollection;
+import propel.core.utils.Linq;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable hashtable for read-only lookup tables, such as configuration, code mappings or dictionaries built once at startup. Keys
+ * are indexed by a minimal perfect hash function, so that each key has exactly one slot in a table with no empty slots: keys and values are
+ * held in flat arrays, without any per-entry objects, and a lookup costs one hash, one displacement read and a single probe.
+ * 
+ * Keys are hashed with HashingUtils.objectToInt64(), so String, byte[], UUID and boxed integral keys are hashed by value; other keys must
+ * implement hashCode() consistently with equals(). Iteration order is unspecified. All mutators throw UnsupportedOperationException.
+ * 
+ * @param <TKey> The key type.
+ * @param <TValue> The value type.
+ */
+public final class FrozenHashtable<TKey extends Comparable<TKey>, TValue>
+    implements IHashtable<TKey, TValue>
+{
+  private static final String READ_ONLY = "The hashtable is read-only";
+  private final KeyCollection<TKey, TValue> keyCollection;
+  private final ValueCollection<TKey, TValue> valueCollection;
+  private final FrozenIndex index;
+  private final Object[] values;
+  private final long buildTimeNanos;
+
+  /**
+   * Constructor initializes with the contents of another reified map. This is an expected O(n) operation.
+   * 
+   * @throws NullPointerException When the argument is null, or a key in the map provided is null.
+   */
+  public FrozenHashtable(ReifiedMap<TKey, TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    long start = System.nanoTime();
+    keyCollection = new KeyCollection<TKey, TValue>(this, map.getGenericTypeParameterKey());
+    valueCollection = new ValueCollection<TKey, TValue>(this, map.getGenericTypeParameterValue());
+
+    List<Object> keys = new ArrayList<Object>();
+    List<Object> items = new ArrayList<Object>();
+    for (KeyValuePair<TKey, TValue> kvp : map)
+    {
+      keys.add(kvp.getKey());
+      items.add(kvp.getValue());
+    }
+
+    int[] positions = new int[keys.size()];
+    index = new FrozenIndex(checkKeys(keys.toArray()), positions);
+    values = arrange(items.toArray(), positions, index.size());
+    buildTimeNanos = System.nanoTime() - start;
+  }
+
+  /**
+   * Constructor initializes from another map and the key/value generic type parameters. This is an expected O(n) operation.
+   * 
+   * @throws NullPointerException When an argument is null, or a key in the map provided is null.
+   */
+  public FrozenHashtable(Map<? extends TKey, ? extends TValue> map, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    long start = System.nanoTime();
+    keyCollection = new KeyCollection<TKey, TValue>(this, genericTypeParameterKey);
+    valueCollection = new ValueCollection<TKey, TValue>(this, genericTypeParameterValue);
+
+    Object[] keys = new Object[map.size()];
+    Object[] items = new Object[keys.length];
+    int i = 0;
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+    {
+      keys[i] = entry.getKey();
+      items[i++] = entry.getValue();
+    }
+
+    int[] positions = new int[keys.length];
+    index = new FrozenIndex(checkKeys(keys), positions);
+    values = arrange(items, positions, index.size());
+    buildTimeNanos = System.nanoTime() - start;
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public void add(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean add(TKey key, TValue value)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public void clear()
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * Returns true if the key of the key/value pair exists. This is an O(1) operation.
+   * 
+   * @throws NullPointerException If the key value pair or the key is null.
+   */
+  @Override
+  public boolean contains(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    return containsKey(kvp.getKey());
+  }
+
+  /**
+   * Returns true if the key exists. This is an O(1) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean containsKey(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return index.indexOf(key) >= 0;
+  }
+
+  /**
+   * Gets the value associated with the specified key. This is an O(1) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   * @throws KeyNotFoundException If the key is not found.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TValue get(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int position = index.indexOf(key);
+    if (position < 0)
+      throw new KeyNotFoundException(key.toString());
+
+    return (TValue) values[position];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public KeyCollection<TKey, TValue> getKeys()
+  {
+    return keyCollection;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ValueCollection<TKey, TValue> getValues()
+  {
+    return valueCollection;
+  }
+
+  /**
+   * Returns an iterator of the key/value pairs, in unspecified order.
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    return new FrozenHashtableIterator();
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean remove(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean remove(TKey key)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean replace(TKey key, TValue value)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * Gets the number of key/value pairs contained. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return values.length;
+  }
+
+  /**
+   * Attempts to get a value by a given key. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TryResult<TValue> tryGetValue(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int position = index.indexOf(key);
+    return position < 0 ? new TryResult<TValue>() : new TryResult<TValue>((TValue) values[position]);
+  }
+
+  /**
+   * Returns the time taken to build the hashtable, in nanoseconds, for monitoring the start-up cost of large lookup tables.
+   */
+  public long getBuildTimeNanos()
+  {
+    return buildTimeNanos;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return keyCollection.getGenericTypeParameter();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return valueCollection.getGenericTypeParameter();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  private static Object[] checkKeys(Object[] keys)
+  {
+    for (Object key : keys)
+      if (key == null)
+        throw new NullPointerException("key");
+
+    return keys;
+  }
+
+  /**
+   * Moves the values to the positions of their keys, the last value winning for equal keys
+   */
+  private static Object[] arrange(Object[] items, int[] positions, int size)
+  {
+    Object[] result = new Object[size];
+    for (int i = 0; i < items.length; i++)
+      result[positions[i]] = items[i];
+
+    return result;
+  }
+
+  /**
+   * Iterates through the keys and values by position
+   */
+  private final class FrozenHashtableIterator
+      implements Iterator<KeyValuePair<TKey, TValue>>
+  {
+    private int position;
+
+    @Override
+    public boolean hasNext()
+    {
+      return position < values.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public KeyValuePair<TKey, TValue> next()
+    {
+      if (position >= values.length)
+        throw new NoSuchElementException("There is no next element.");
+
+      KeyValuePair<TKey, TValue> result = new KeyValuePair<TKey, TValue>((TKey) index.keyAt(position), (TValue) values[position]);
+      position++;
+      return result;
+    }
+
+    /**
+     * @throws UnsupportedOperationException The remove operation is not supported.
+     */
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
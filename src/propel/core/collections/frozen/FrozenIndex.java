@@ -0,0 +1,157 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.frozen;
+
+import propel.core.utils.HashingUtils;
+import java.util.Arrays;
+
+/**
+ * The shared key index of the frozen collections. Distinct keys are laid out in a flat array, ordered by the slot a minimal perfect hash
+ * function assigns to their 64-bit hash, along with the hash of each slot. A lookup hashes the key, reads its displacement and probes a
+ * single slot, rejecting most absent keys by hash alone before calling equals().
+ * 
+ * Distinct keys sharing a 64-bit hash (e.g. objects falling back to hashCode()) share a slot; in that case an offsets array delimits the
+ * keys of each slot, otherwise slots and key positions coincide.
+ */
+final class FrozenIndex
+{
+  private final MinimalPerfectHash function;
+  private final long[] hashes;
+  private final Object[] keys;
+  private final int[] offsets;
+
+  /**
+   * Constructor indexes the given items, which may contain duplicates. This is an expected O(n) operation, plus O(n log2(n)) for sorting
+   * the hashes.
+   * 
+   * @param items The items to index, none of which may be null.
+   * @param positions Receives the position of each item in the indexed keys.
+   */
+  FrozenIndex(Object[] items, int[] positions)
+  {
+    int count = items.length;
+    long[] itemHashes = new long[count];
+    for (int i = 0; i < count; i++)
+      itemHashes[i] = HashingUtils.objectToInt64(items[i]);
+
+    long[] distinct = itemHashes.clone();
+    Arrays.sort(distinct);
+    int slotCount = 0;
+    for (int i = 0; i < count; i++)
+      if (i == 0 || distinct[i] != distinct[i - 1])
+        distinct[slotCount++] = distinct[i];
+
+    function = new MinimalPerfectHash(Arrays.copyOf(distinct, slotCount));
+    hashes = new long[slotCount];
+    int[] slots = new int[count];
+    for (int i = 0; i < count; i++)
+    {
+      slots[i] = function.slotOf(itemHashes[i]);
+      hashes[slots[i]] = itemHashes[i];
+    }
+
+    if (slotCount == count)
+    {
+      // the usual case: no duplicates nor hash collisions, each key has its own slot
+      keys = new Object[count];
+      for (int i = 0; i < count; i++)
+      {
+        keys[slots[i]] = items[i];
+        positions[i] = slots[i];
+      }
+
+      offsets = null;
+      return;
+    }
+
+    // group the items by slot, in counting sort order
+    int[] slotStart = new int[slotCount + 1];
+    for (int i = 0; i < count; i++)
+      slotStart[slots[i] + 1]++;
+    for (int i = 0; i < slotCount; i++)
+      slotStart[i + 1] += slotStart[i];
+    int[] order = new int[count];
+    int[] fill = Arrays.copyOf(slotStart, slotCount);
+    for (int i = 0; i < count; i++)
+      order[fill[slots[i]]++] = i;
+
+    // keep the first of any equal items in each group
+    Object[] grouped = new Object[count];
+    int[] groupStart = new int[slotCount + 1];
+    int keyCount = 0;
+    for (int slot = 0; slot < slotCount; slot++)
+    {
+      groupStart[slot] = keyCount;
+      for (int j = slotStart[slot]; j < slotStart[slot + 1]; j++)
+      {
+        int item = order[j];
+        int position = groupStart[slot];
+        while (position < keyCount && !grouped[position].equals(items[item]))
+          position++;
+
+        if (position == keyCount)
+          grouped[keyCount++] = items[item];
+        positions[item] = position;
+      }
+    }
+
+    groupStart[slotCount] = keyCount;
+    keys = Arrays.copyOf(grouped, keyCount);
+    offsets = keyCount == slotCount ? null : groupStart;
+  }
+
+  /**
+   * Returns the position of a key, or -1 if not found. This is an O(1) operation.
+   */
+  int indexOf(Object key)
+  {
+    if (hashes.length == 0)
+      return -1;
+
+    long hash = HashingUtils.objectToInt64(key);
+    int slot = function.slotOf(hash);
+    if (hashes[slot] != hash)
+      return -1;
+
+    if (offsets == null)
+      return keys[slot].equals(key) ? slot : -1;
+
+    for (int position = offsets[slot]; position < offsets[slot + 1]; position++)
+      if (keys[position].equals(key))
+        return position;
+
+    return -1;
+  }
+
+  /**
+   * Returns the key at the given position
+   */
+  Object keyAt(int position)
+  {
+    return keys[position];
+  }
+
+  /**
+   * Returns the number of keys
+   */
+  int size()
+  {
+    return keys.length;
+  }
+}
@@ -0,0 +1,269 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.frozen;
+
+import propel.core.collections.ReifiedIterable;
+import propel.core.collections.lists.ReifiedArrayList;
+import propel.core.collections.lists.ReifiedList;
+import propel.core.collections.sets.ReifiedSet;
+import propel.core.utils.Linq;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable type-aware set for read-only membership tests, such as keyword, stop-word or allow lists. Items are indexed by a minimal
+ * perfect hash function and held in a flat array without any per-item objects, so that a membership test costs one hash, one displacement
+ * read and a single probe. Duplicate items are added once.
+ * 
+ * Items are hashed as by FrozenHashtable. Iteration order is unspecified. All mutators throw UnsupportedOperationException.
+ * 
+ * @param <T> The component type
+ */
+public final class FrozenSet<T extends Comparable<T>>
+    implements ReifiedSet<T>
+{
+  private static final String READ_ONLY = "The set is read-only";
+  private final Class<?> genericTypeParameter;
+  private final FrozenIndex index;
+  private final long buildTimeNanos;
+
+  /**
+   * Constructor initializes from another reified collection. This is an expected O(n) operation.
+   * 
+   * @throws NullPointerException When the argument is null, or an item is null.
+   */
+  public FrozenSet(ReifiedIterable<T> iterable)
+  {
+    this(iterable, iterable == null ? null : iterable.getGenericTypeParameter());
+  }
+
+  /**
+   * Constructor initializes with an initial collection and the generic type parameter. This is an expected O(n) operation.
+   * 
+   * @throws NullPointerException When an argument is null, or an item is null.
+   */
+  public FrozenSet(Iterable<? extends T> iterable, Class<?> genericTypeParameter)
+  {
+    if (iterable == null)
+      throw new NullPointerException("iterable");
+    if (genericTypeParameter == null)
+      throw new NullPointerException("genericTypeParameter");
+
+    long start = System.nanoTime();
+    this.genericTypeParameter = genericTypeParameter;
+    List<Object> items = new ArrayList<Object>();
+    for (T item : iterable)
+    {
+      if (item == null)
+        throw new NullPointerException("item");
+      items.add(item);
+    }
+
+    index = new FrozenIndex(items.toArray(), new int[items.size()]);
+    buildTimeNanos = System.nanoTime() - start;
+  }
+
+  /**
+   * Constructor initializes with an array. This is an expected O(n) operation.
+   * 
+   * @throws NullPointerException When the argument is null, or an item is null.
+   */
+  public FrozenSet(T[] array)
+  {
+    this(array == null ? null : Arrays.asList(array), array == null ? null : array.getClass().getComponentType());
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean add(T item)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public void clear()
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * Returns true if an item is contained in the collection. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  @Override
+  public boolean contains(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    return index.indexOf(item) >= 0;
+  }
+
+  /**
+   * Returns an iterator over the set, in unspecified order.
+   */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new FrozenSetIterator();
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean remove(T item)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * Returns the collection size. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return index.size();
+  }
+
+  /**
+   * Puts all elements in an array and returns them. This is an O(n) operation.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public T[] toArray()
+  {
+    T[] result = (T[]) Array.newInstance(genericTypeParameter, index.size());
+    for (int i = 0; i < result.length; i++)
+      result[i] = (T) index.keyAt(i);
+
+    return result;
+  }
+
+  /**
+   * Puts all elements in a list and returns them. This is an O(n) operation.
+   */
+  @Override
+  public ReifiedList<T> toList()
+  {
+    return new ReifiedArrayList<T>(this);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public void union(Set<? extends T> otherSet)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public void intersect(Set<? extends T> otherSet)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public void difference(Set<? extends T> otherSet)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * Returns the time taken to build the set, in nanoseconds.
+   */
+  public long getBuildTimeNanos()
+  {
+    return buildTimeNanos;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameter()
+  {
+    return genericTypeParameter;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  /**
+   * Iterates through the items by position
+   */
+  private final class FrozenSetIterator
+      implements Iterator<T>
+  {
+    private int position;
+
+    @Override
+    public boolean hasNext()
+    {
+      return position < index.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T next()
+    {
+      if (position >= index.size())
+        throw new NoSuchElementException("There is no next element.");
+
+      return (T) index.keyAt(position++);
+    }
+
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,181 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.frozen;
+
+import propel.core.utils.HashingUtils;
+import java.util.Arrays;
+
+/**
+ * A minimal perfect hash function over a fixed set of distinct 64-bit hashes, i.e. a function mapping each of the n hashes to a distinct
+ * slot in [0, n). Built with the hash-and-displace method (CHD): hashes are grouped into buckets, then buckets are placed from largest to
+ * smallest, each searching for a displacement seed which sends all its hashes to free slots; single-hash buckets are pointed directly at
+ * the remaining free slots. Evaluating the function costs one array read and one hash mix, and the function takes 4 bytes per hash.
+ * 
+ * Hashes outside the set map to arbitrary slots, so callers must verify the entry found in the slot.
+ */
+public final class MinimalPerfectHash
+{
+  private static final int MAX_SEED = 1 << 24;
+  // per bucket: a seed if positive, (-slot - 1) if negative
+  private final int[] displacements;
+  private final int size;
+
+  /**
+   * Constructor builds the function for the given hashes. This is an expected O(n) operation, plus O(n log2(n)) to check that the hashes are
+   * distinct.
+   * 
+   * @throws NullPointerException When the argument is null.
+   * @throws IllegalArgumentException When the hashes are not distinct.
+   */
+  public MinimalPerfectHash(long[] hashes)
+  {
+    if (hashes == null)
+      throw new NullPointerException("hashes");
+
+    long[] sorted = hashes.clone();
+    Arrays.sort(sorted);
+    for (int i = 1; i < sorted.length; i++)
+      if (sorted[i] == sorted[i - 1])
+        throw new IllegalArgumentException("The hashes are not distinct: " + sorted[i]);
+
+    size = hashes.length;
+    displacements = new int[Math.max(size, 1)];
+    if (size == 0)
+      return;
+
+    // group the hashes by bucket, in counting sort order
+    int bucketCount = displacements.length;
+    int[] bucketStart = new int[bucketCount + 1];
+    for (long hash : hashes)
+      bucketStart[bucketOf(hash, bucketCount) + 1]++;
+    int maxBucketSize = 0;
+    for (int i = 0; i < bucketCount; i++)
+    {
+      maxBucketSize = Math.max(maxBucketSize, bucketStart[i + 1]);
+      bucketStart[i + 1] += bucketStart[i];
+    }
+
+    long[] members = new long[size];
+    int[] fill = Arrays.copyOf(bucketStart, bucketCount);
+    for (long hash : hashes)
+      members[fill[bucketOf(hash, bucketCount)]++] = hash;
+
+    // order the buckets by descending size, in counting sort order
+    int[] sizeStart = new int[maxBucketSize + 2];
+    for (int i = 0; i < bucketCount; i++)
+      sizeStart[maxBucketSize - (bucketStart[i + 1] - bucketStart[i]) + 1]++;
+    for (int i = 0; i <= maxBucketSize; i++)
+      sizeStart[i + 1] += sizeStart[i];
+    int[] order = new int[bucketCount];
+    for (int i = 0; i < bucketCount; i++)
+      order[sizeStart[maxBucketSize - (bucketStart[i + 1] - bucketStart[i])]++] = i;
+
+    boolean[] used = new boolean[size];
+    int[] slots = new int[maxBucketSize];
+    int nextFree = 0;
+    for (int bucket : order)
+    {
+      int start = bucketStart[bucket];
+      int count = bucketStart[bucket + 1] - start;
+      if (count == 0)
+        break;
+
+      if (count == 1)
+      {
+        // there is no need to search for a seed, the hash can go to any free slot
+        while (used[nextFree])
+          nextFree++;
+
+        used[nextFree] = true;
+        displacements[bucket] = -nextFree - 1;
+        continue;
+      }
+
+      int seed = 1;
+      while (!tryPlace(members, start, count, seed, used, slots))
+        if (++seed == MAX_SEED)
+          throw new IllegalStateException("Could not place a bucket of " + count + " hashes.");
+
+      displacements[bucket] = seed;
+    }
+  }
+
+  /**
+   * Returns the slot of a hash of the set, in [0, n). Hashes outside the set map to arbitrary slots. This is an O(1) operation.
+   * 
+   * @throws IllegalStateException When the set of hashes is empty.
+   */
+  public int slotOf(long hash)
+  {
+    if (size == 0)
+      throw new IllegalStateException("The function has no slots.");
+
+    int displacement = displacements[bucketOf(hash, size)];
+    return displacement < 0 ? -displacement - 1 : slotOf(hash, displacement, size);
+  }
+
+  /**
+   * Returns the number of hashes, i.e. slots
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Attempts to send all hashes of a bucket to distinct free slots using the given seed, marking the slots used if successful
+   */
+  private boolean tryPlace(long[] members, int start, int count, int seed, boolean[] used, int[] slots)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      int slot = slotOf(members[start + i], seed, size);
+      if (used[slot])
+        return false;
+      for (int j = 0; j < i; j++)
+        if (slots[j] == slot)
+          return false;
+
+      slots[i] = slot;
+    }
+
+    for (int i = 0; i < count; i++)
+      used[slots[i]] = true;
+
+    return true;
+  }
+
+  private static int bucketOf(long hash, int bucketCount)
+  {
+    return reduce(hash, bucketCount);
+  }
+
+  private static int slotOf(long hash, int seed, int size)
+  {
+    return reduce(HashingUtils.mix64(hash + seed * 0x9E3779B97F4A7C15L), size);
+  }
+
+  /**
+   * Maps the upper 32 bits of a hash to [0, range) by multiplication, which is faster than a modulo
+   */
+  private static int reduce(long hash, int range)
+  {
+    return (int) (((hash >>> 32) * range) >>> 32);
+  }
+}
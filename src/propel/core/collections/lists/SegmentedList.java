@@ -0,0 +1,413 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.lists;
+
+import propel.core.collections.ReifiedIterable;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware list indexed by long, storing its elements in fixed-size segments whose length is a power of two. Appending never copies
+ * elements: when the last segment is full a new one is allocated, and only the (small) array of segment references is grown. The list may
+ * therefore hold more than Integer.MAX_VALUE elements, and growing a list of hundreds of millions of elements neither pauses nor doubles
+ * its heap footprint. This collection allows nulls to be inserted.
+ * 
+ * Segments are exposed through segmentCount(), segment() and segmentLength(), so that bulk processing can hand whole segments to separate
+ * threads; iterator(from, to) serves the same purpose for arbitrary index ranges.
+ * 
+ * Instantiate using e.g.: new SegmentedList&lt;String&gt;(){}; -OR- new SegmentedList&lt;String&gt;(String.class);
+ */
+public class SegmentedList<T>
+    implements ReifiedIterable<T>
+{
+  /**
+   * The default segment length is 2^DEFAULT_SEGMENT_SHIFT elements
+   */
+  public static final int DEFAULT_SEGMENT_SHIFT = 14;
+  private static final int MAXIMUM_SEGMENT_SHIFT = 30;
+  private final Class<?> genericTypeParameter;
+  private final int segmentShift;
+  private final int segmentMask;
+  private T[][] segments;
+  // number of allocated segments
+  private int allocated;
+  private long size;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public SegmentedList()
+  {
+    this(DEFAULT_SEGMENT_SHIFT);
+  }
+
+  /**
+   * Constructor initializes with the segment length, given as a power of two.
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws IllegalArgumentException When the shift is not in the range [0, 30].
+   */
+  public SegmentedList(int segmentShift)
+  {
+    if (segmentShift < 0 || segmentShift > MAXIMUM_SEGMENT_SHIFT)
+      throw new IllegalArgumentException("segmentShift=" + segmentShift);
+
+    genericTypeParameter = SuperTypeToken.getClazz(this.getClass());
+    this.segmentShift = segmentShift;
+    this.segmentMask = (1 << segmentShift) - 1;
+    segments = newSegmentArray(genericTypeParameter, 4);
+  }
+
+  /**
+   * Constructor for initializing with the generic type parameter
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   */
+  public SegmentedList(Class<?> genericTypeParameter)
+  {
+    this(DEFAULT_SEGMENT_SHIFT, genericTypeParameter);
+  }
+
+  /**
+   * Constructor initializes with the segment length, given as a power of two, and the generic type parameter.
+   * 
+   * @throws IllegalArgumentException When the shift is not in the range [0, 30].
+   * @throws NullPointerException When the generic type parameter is null.
+   */
+  public SegmentedList(int segmentShift, Class<?> genericTypeParameter)
+  {
+    if (segmentShift < 0 || segmentShift > MAXIMUM_SEGMENT_SHIFT)
+      throw new IllegalArgumentException("segmentShift=" + segmentShift);
+    if (genericTypeParameter == null)
+      throw new NullPointerException("genericTypeParameter");
+
+    this.genericTypeParameter = genericTypeParameter;
+    this.segmentShift = segmentShift;
+    this.segmentMask = (1 << segmentShift) - 1;
+    segments = newSegmentArray(genericTypeParameter, 4);
+  }
+
+  /**
+   * Appends an element. No elements are copied, a new segment is allocated when the last one is full. This is an O(1) operation.
+   * 
+   * @throws IllegalStateException When the list cannot hold more segments.
+   */
+  public void add(T element)
+  {
+    int segment = (int) (size >>> segmentShift);
+    if (segment == allocated)
+      allocateSegment();
+
+    segments[segment][(int) size & segmentMask] = element;
+    size++;
+  }
+
+  /**
+   * Appends all elements of an array. This is an O(m) operation, where m is the number of elements.
+   * 
+   * @throws NullPointerException When the array is null.
+   */
+  public void addAll(T[] array)
+  {
+    if (array == null)
+      throw new NullPointerException("array");
+
+    int offset = 0;
+    while (offset < array.length)
+    {
+      int segment = (int) (size >>> segmentShift);
+      if (segment == allocated)
+        allocateSegment();
+
+      int position = (int) size & segmentMask;
+      int count = Math.min(array.length - offset, segmentMask + 1 - position);
+      System.arraycopy(array, offset, segments[segment], position, count);
+      offset += count;
+      size += count;
+    }
+  }
+
+  /**
+   * Appends all elements of an iterable. This is an O(m) operation, where m is the number of elements.
+   * 
+   * @throws NullPointerException When the iterable is null.
+   */
+  public void addAll(Iterable<? extends T> iterable)
+  {
+    if (iterable == null)
+      throw new NullPointerException("iterable");
+
+    for (T element : iterable)
+      add(element);
+  }
+
+  /**
+   * Returns the element at the given index. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  public T get(long index)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    return segments[(int) (index >>> segmentShift)][(int) index & segmentMask];
+  }
+
+  /**
+   * Replaces the element at the given index, returning the previous element. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  public T set(long index, T element)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    T[] segment = segments[(int) (index >>> segmentShift)];
+    int position = (int) index & segmentMask;
+    T result = segment[position];
+    segment[position] = element;
+    return result;
+  }
+
+  /**
+   * Removes and returns the last element. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the list is empty.
+   */
+  public T removeLast()
+  {
+    if (size == 0)
+      throw new NoSuchElementException("The list is empty.");
+
+    size--;
+    T[] segment = segments[(int) (size >>> segmentShift)];
+    int position = (int) size & segmentMask;
+    T result = segment[position];
+    segment[position] = null;
+    return result;
+  }
+
+  /**
+   * Removes all elements and releases all segments. This is an O(s) operation, where s is the number of segments.
+   */
+  public void clear()
+  {
+    Arrays.fill(segments, 0, allocated, null);
+    allocated = 0;
+    size = 0;
+  }
+
+  /**
+   * Releases any allocated segments beyond the one holding the last element. This is an O(s) operation, where s is the number of segments.
+   */
+  public void trimToSize()
+  {
+    int used = (int) ((size + segmentMask) >>> segmentShift);
+    Arrays.fill(segments, used, allocated, null);
+    allocated = used;
+  }
+
+  /**
+   * Returns the number of elements. This is an O(1) operation.
+   */
+  public long size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns true if there are no elements. This is an O(1) operation.
+   */
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Returns the number of elements per segment. This is an O(1) operation.
+   */
+  public int getSegmentCapacity()
+  {
+    return segmentMask + 1;
+  }
+
+  /**
+   * Returns the number of segments holding elements. This is an O(1) operation.
+   */
+  public int segmentCount()
+  {
+    return (int) ((size + segmentMask) >>> segmentShift);
+  }
+
+  /**
+   * Returns the backing array of a segment, without copying. Only the first segmentLength(segment) elements belong to this list. Element i
+   * of segment s is at list index s * getSegmentCapacity() + i. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the segment index is out of range.
+   */
+  public T[] segment(int segment)
+  {
+    if (segment < 0 || segment >= segmentCount())
+      throw new IndexOutOfBoundsException("segment=" + segment + " segmentCount=" + segmentCount());
+
+    return segments[segment];
+  }
+
+  /**
+   * Returns the number of elements of this list held in a segment. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the segment index is out of range.
+   */
+  public int segmentLength(int segment)
+  {
+    int count = segmentCount();
+    if (segment < 0 || segment >= count)
+      throw new IndexOutOfBoundsException("segment=" + segment + " segmentCount=" + count);
+
+    return segment < count - 1 ? segmentMask + 1 : (int) (size - ((long) segment << segmentShift));
+  }
+
+  /**
+   * Returns an iterator over all elements, in index order.
+   */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new RangeIterator(0, size);
+  }
+
+  /**
+   * Returns an iterator over the elements in the given index range. The starting index is inclusive, the ending index is exclusive.
+   * 
+   * @throws IndexOutOfBoundsException When the range is out of bounds.
+   */
+  public Iterator<T> iterator(long fromIndex, long toIndex)
+  {
+    if (fromIndex < 0 || fromIndex > toIndex || toIndex > size)
+      throw new IndexOutOfBoundsException("fromIndex=" + fromIndex + " toIndex=" + toIndex + " size=" + size);
+
+    return new RangeIterator(fromIndex, toIndex);
+  }
+
+  /**
+   * Copies all elements into a new array. This is an O(n) operation.
+   * 
+   * @throws IllegalStateException When the list holds more elements than an array can.
+   */
+  @SuppressWarnings("unchecked")
+  public T[] toArray()
+  {
+    if (size > Integer.MAX_VALUE - 8)
+      throw new IllegalStateException("The list is too large for an array: " + size);
+
+    T[] result = (T[]) Array.newInstance(genericTypeParameter, (int) size);
+    int count = segmentCount();
+    for (int i = 0; i < count; i++)
+      System.arraycopy(segments[i], 0, result, i << segmentShift, segmentLength(i));
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameter()
+  {
+    return genericTypeParameter;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void allocateSegment()
+  {
+    if (allocated == segments.length)
+    {
+      if (allocated == Integer.MAX_VALUE - 8)
+        throw new IllegalStateException("The maximum number of segments has been reached: " + allocated);
+
+      segments = Arrays.copyOf(segments, (int) Math.min((long) allocated << 1, Integer.MAX_VALUE - 8));
+    }
+
+    segments[allocated++] = (T[]) Array.newInstance(genericTypeParameter, segmentMask + 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T[][] newSegmentArray(Class<?> genericTypeParameter, int length)
+  {
+    return (T[][]) Array.newInstance(Array.newInstance(genericTypeParameter, 0).getClass(), length);
+  }
+
+  /**
+   * Iterates over an index range, walking segments directly
+   */
+  private final class RangeIterator
+      implements Iterator<T>
+  {
+    private long next;
+    private final long end;
+
+    RangeIterator(long from, long to)
+    {
+      next = from;
+      end = to;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return next < end;
+    }
+
+    @Override
+    public T next()
+    {
+      if (next >= end)
+        throw new NoSuchElementException("There is no next element.");
+
+      T result = segments[(int) (next >>> segmentShift)][(int) next & segmentMask];
+      next++;
+      return result;
+    }
+
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
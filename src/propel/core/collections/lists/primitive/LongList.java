@@ -0,0 +1,394 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.lists.primitive;
+
+import propel.core.collections.ReifiedIterable;
+import propel.core.utils.Linq;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A growable array-backed list of long primitives, using similar semantics and growth strategy to the ReifiedArrayList but without boxing
+ * each element. A boxed view is available through boxed(), for passing the list to methods accepting reified collections.
+ */
+public final class LongList
+{
+  public static final int DEFAULT_SIZE = 64;
+  private long[] buffer;
+  private int size;
+
+  /**
+   * Default constructor
+   */
+  public LongList()
+  {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * Constructor initializes with an initial capacity
+   * 
+   * @throws IllegalArgumentException When the capacity is negative.
+   */
+  public LongList(int initialCapacity)
+  {
+    if (initialCapacity < 0)
+      throw new IllegalArgumentException("initialCapacity=" + initialCapacity);
+
+    buffer = new long[initialCapacity];
+  }
+
+  /**
+   * Constructor initializes with a copy of the given values
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public LongList(long[] values)
+  {
+    if (values == null)
+      throw new NullPointerException("values");
+
+    buffer = Arrays.copyOf(values, Math.max(values.length, DEFAULT_SIZE));
+    size = values.length;
+  }
+
+  /**
+   * Appends a value. This is an amortised O(1) operation.
+   */
+  public void add(long value)
+  {
+    if (size == buffer.length)
+      grow(size + 1);
+
+    buffer[size++] = value;
+  }
+
+  /**
+   * Inserts a value at the given index, shifting subsequent values to the right. This is an O(n) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is negative or greater than the size.
+   */
+  public void add(int index, long value)
+  {
+    if (index < 0 || index > size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    if (size == buffer.length)
+      grow(size + 1);
+
+    System.arraycopy(buffer, index, buffer, index + 1, size - index);
+    buffer[index] = value;
+    size++;
+  }
+
+  /**
+   * Appends all given values. This is an O(m) operation, where m is the number of values.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void addAll(long[] values)
+  {
+    if (values == null)
+      throw new NullPointerException("values");
+
+    addAll(values, 0, values.length);
+  }
+
+  /**
+   * Appends a range of the given values. This is an O(m) operation, where m is the number of values.
+   * 
+   * @throws NullPointerException When the array is null.
+   * @throws IndexOutOfBoundsException When the range is out of the bounds of the array.
+   */
+  public void addAll(long[] values, int offset, int count)
+  {
+    if (values == null)
+      throw new NullPointerException("values");
+    if (offset < 0 || count < 0 || offset > values.length - count)
+      throw new IndexOutOfBoundsException("offset=" + offset + " count=" + count + " length=" + values.length);
+
+    ensureCapacity(size + count);
+    System.arraycopy(values, offset, buffer, size, count);
+    size += count;
+  }
+
+  /**
+   * Appends all values of another list. This is an O(m) operation, where m is the number of values.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void addAll(LongList list)
+  {
+    if (list == null)
+      throw new NullPointerException("list");
+
+    addAll(list.buffer, 0, list.size);
+  }
+
+  /**
+   * Returns the value at the given index. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  public long get(int index)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    return buffer[index];
+  }
+
+  /**
+   * Replaces the value at the given index, returning the previous value. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  public long set(int index, long value)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    long result = buffer[index];
+    buffer[index] = value;
+    return result;
+  }
+
+  /**
+   * Removes the value at the given index, shifting subsequent values to the left, and returns it. This is an O(n) operation, or O(1) when
+   * removing the last value.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  public long removeAt(int index)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    long result = buffer[index];
+    System.arraycopy(buffer, index + 1, buffer, index, size - index - 1);
+    size--;
+    return result;
+  }
+
+  /**
+   * Removes all values. This is an O(1) operation, the capacity is retained.
+   */
+  public void clear()
+  {
+    size = 0;
+  }
+
+  /**
+   * Returns the index of the first occurrence of the value, or -1 if not found. This is an O(n) operation.
+   */
+  public int indexOf(long value)
+  {
+    for (int i = 0; i < size; i++)
+      if (buffer[i] == value)
+        return i;
+
+    return -1;
+  }
+
+  /**
+   * Returns true if the value exists in the list. This is an O(n) operation.
+   */
+  public boolean contains(long value)
+  {
+    return indexOf(value) >= 0;
+  }
+
+  /**
+   * Sorts the values in ascending order. This is an O(nlog2(n)) operation.
+   */
+  public void sort()
+  {
+    Arrays.sort(buffer, 0, size);
+  }
+
+  /**
+   * Searches a sorted list for the given value. Returns its index if found, otherwise (-(insertion point) - 1). The results are undefined
+   * if the list is not sorted. This is an O(log2(n)) operation.
+   */
+  public int binarySearch(long value)
+  {
+    return Arrays.binarySearch(buffer, 0, size, value);
+  }
+
+  /**
+   * Returns the number of values. This is an O(1) operation.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns true if there are no values. This is an O(1) operation.
+   */
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Returns the length of the backing array. This is an O(1) operation.
+   */
+  public int capacity()
+  {
+    return buffer.length;
+  }
+
+  /**
+   * Grows the backing array, if needed, so that it can hold at least the given number of values without re-allocation.
+   */
+  public void ensureCapacity(int capacity)
+  {
+    if (capacity > buffer.length)
+      grow(capacity);
+  }
+
+  /**
+   * Shrinks the backing array to the number of values. This is an O(n) operation.
+   */
+  public void trimToSize()
+  {
+    if (buffer.length != size)
+      buffer = Arrays.copyOf(buffer, size);
+  }
+
+  /**
+   * Returns a copy of the values, in an array of exactly the size of this list. This is an O(n) operation.
+   */
+  public long[] toArray()
+  {
+    return Arrays.copyOf(buffer, size);
+  }
+
+  /**
+   * Returns the backing array without copying. Only the first size() elements are values of this list. The array is shared until the list
+   * next needs to grow or be trimmed, therefore writes are visible both ways up to that point. This is an O(1) operation.
+   */
+  public long[] array()
+  {
+    return buffer;
+  }
+
+  /**
+   * Returns a live boxed view of this list, with reified type Long. Reads box each value on the fly, set() writes through to this list,
+   * while structural modifications through the view are not supported. This is an O(1) operation.
+   */
+  public List<Long> boxed()
+  {
+    return new BoxedView();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof LongList))
+      return false;
+
+    LongList other = (LongList) obj;
+    if (size != other.size)
+      return false;
+
+    for (int i = 0; i < size; i++)
+      if (buffer[i] != other.buffer[i])
+        return false;
+
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode()
+  {
+    int result = 1;
+    for (int i = 0; i < size; i++)
+      result = 31 * result + (int) (buffer[i] ^ (buffer[i] >>> 32));
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(boxed());
+  }
+
+  private void grow(int minCapacity)
+  {
+    if (minCapacity < 0)
+      throw new OutOfMemoryError("Capacity exceeds the maximum array length: " + (minCapacity & 0xFFFFFFFFL));
+
+    int capacity = buffer.length + (buffer.length >> 1) + 1;
+    if (capacity < minCapacity || capacity < 0)
+      capacity = minCapacity;
+
+    buffer = Arrays.copyOf(buffer, capacity);
+  }
+
+  /**
+   * Boxes values on the fly
+   */
+  private final class BoxedView
+      extends AbstractList<Long>
+      implements ReifiedIterable<Long>, RandomAccess
+  {
+    @Override
+    public Long get(int index)
+    {
+      return LongList.this.get(index);
+    }
+
+    @Override
+    public Long set(int index, Long value)
+    {
+      if (value == null)
+        throw new NullPointerException("value");
+
+      return LongList.this.set(index, value);
+    }
+
+    @Override
+    public int size()
+    {
+      return size;
+    }
+
+    @Override
+    public Class<?> getGenericTypeParameter()
+    {
+      return Long.class;
+    }
+  }
+}
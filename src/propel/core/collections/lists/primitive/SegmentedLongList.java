@@ -0,0 +1,280 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.lists.primitive;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A list of long primitives indexed by long, storing its values in fixed-size segments whose length is a power of two. Appending never
+ * copies values: when the last segment is full a new one is allocated, and only the (small) array of segment references is grown. The list
+ * may therefore hold more than Integer.MAX_VALUE values, without the pauses and transient doubling of heap usage of a growing array.
+ * 
+ * Segments are exposed through segmentCount(), segment() and segmentLength(), so that columnar processing can scan each segment as a plain
+ * array, or hand segments to separate threads.
+ */
+public final class SegmentedLongList
+{
+  /**
+   * The default segment length is 2^DEFAULT_SEGMENT_SHIFT values
+   */
+  public static final int DEFAULT_SEGMENT_SHIFT = 16;
+  private static final int MAXIMUM_SEGMENT_SHIFT = 30;
+  private final int segmentShift;
+  private final int segmentMask;
+  private long[][] segments;
+  // number of allocated segments
+  private int allocated;
+  private long size;
+
+  /**
+   * Default constructor
+   */
+  public SegmentedLongList()
+  {
+    this(DEFAULT_SEGMENT_SHIFT);
+  }
+
+  /**
+   * Constructor initializes with the segment length, given as a power of two.
+   * 
+   * @throws IllegalArgumentException When the shift is not in the range [0, 30].
+   */
+  public SegmentedLongList(int segmentShift)
+  {
+    if (segmentShift < 0 || segmentShift > MAXIMUM_SEGMENT_SHIFT)
+      throw new IllegalArgumentException("segmentShift=" + segmentShift);
+
+    this.segmentShift = segmentShift;
+    this.segmentMask = (1 << segmentShift) - 1;
+    segments = new long[4][];
+  }
+
+  /**
+   * Appends a value. No values are copied, a new segment is allocated when the last one is full. This is an O(1) operation.
+   * 
+   * @throws IllegalStateException When the list cannot hold more segments.
+   */
+  public void add(long value)
+  {
+    int segment = (int) (size >>> segmentShift);
+    if (segment == allocated)
+      allocateSegment();
+
+    segments[segment][(int) size & segmentMask] = value;
+    size++;
+  }
+
+  /**
+   * Appends all given values. This is an O(m) operation, where m is the number of values.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void addAll(long[] values)
+  {
+    if (values == null)
+      throw new NullPointerException("values");
+
+    int offset = 0;
+    while (offset < values.length)
+    {
+      int segment = (int) (size >>> segmentShift);
+      if (segment == allocated)
+        allocateSegment();
+
+      int position = (int) size & segmentMask;
+      int count = Math.min(values.length - offset, segmentMask + 1 - position);
+      System.arraycopy(values, offset, segments[segment], position, count);
+      offset += count;
+      size += count;
+    }
+  }
+
+  /**
+   * Returns the value at the given index. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  public long get(long index)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    return segments[(int) (index >>> segmentShift)][(int) index & segmentMask];
+  }
+
+  /**
+   * Replaces the value at the given index, returning the previous value. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  public long set(long index, long value)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    long[] segment = segments[(int) (index >>> segmentShift)];
+    int position = (int) index & segmentMask;
+    long result = segment[position];
+    segment[position] = value;
+    return result;
+  }
+
+  /**
+   * Removes and returns the last value. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the list is empty.
+   */
+  public long removeLast()
+  {
+    if (size == 0)
+      throw new NoSuchElementException("The list is empty.");
+
+    size--;
+    return segments[(int) (size >>> segmentShift)][(int) size & segmentMask];
+  }
+
+  /**
+   * Removes all values and releases all segments. This is an O(s) operation, where s is the number of segments.
+   */
+  public void clear()
+  {
+    Arrays.fill(segments, 0, allocated, null);
+    allocated = 0;
+    size = 0;
+  }
+
+  /**
+   * Releases any allocated segments beyond the one holding the last value. This is an O(s) operation, where s is the number of segments.
+   */
+  public void trimToSize()
+  {
+    int used = segmentCount();
+    Arrays.fill(segments, used, allocated, null);
+    allocated = used;
+  }
+
+  /**
+   * Returns the number of values. This is an O(1) operation.
+   */
+  public long size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns true if there are no values. This is an O(1) operation.
+   */
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Returns the number of values per segment. This is an O(1) operation.
+   */
+  public int getSegmentCapacity()
+  {
+    return segmentMask + 1;
+  }
+
+  /**
+   * Returns the number of segments holding values. This is an O(1) operation.
+   */
+  public int segmentCount()
+  {
+    return (int) ((size + segmentMask) >>> segmentShift);
+  }
+
+  /**
+   * Returns the backing array of a segment, without copying. Only the first segmentLength(segment) values belong to this list. Value i of
+   * segment s is at list index s * getSegmentCapacity() + i. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the segment index is out of range.
+   */
+  public long[] segment(int segment)
+  {
+    if (segment < 0 || segment >= segmentCount())
+      throw new IndexOutOfBoundsException("segment=" + segment + " segmentCount=" + segmentCount());
+
+    return segments[segment];
+  }
+
+  /**
+   * Returns the number of values of this list held in a segment. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the segment index is out of range.
+   */
+  public int segmentLength(int segment)
+  {
+    int count = segmentCount();
+    if (segment < 0 || segment >= count)
+      throw new IndexOutOfBoundsException("segment=" + segment + " segmentCount=" + count);
+
+    return segment < count - 1 ? segmentMask + 1 : (int) (size - ((long) segment << segmentShift));
+  }
+
+  /**
+   * Copies all values into a new array. This is an O(n) operation.
+   * 
+   * @throws IllegalStateException When the list holds more values than an array can.
+   */
+  public long[] toArray()
+  {
+    if (size > Integer.MAX_VALUE - 8)
+      throw new IllegalStateException("The list is too large for an array: " + size);
+
+    long[] result = new long[(int) size];
+    int count = segmentCount();
+    for (int i = 0; i < count; i++)
+      System.arraycopy(segments[i], 0, result, i << segmentShift, segmentLength(i));
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder("[");
+    for (long i = 0; i < size; i++)
+    {
+      if (i > 0)
+        sb.append(", ");
+      sb.append(get(i));
+    }
+
+    return sb.append(']').toString();
+  }
+
+  private void allocateSegment()
+  {
+    if (allocated == segments.length)
+    {
+      if (allocated == Integer.MAX_VALUE - 8)
+        throw new IllegalStateException("The maximum number of segments has been reached: " + allocated);
+
+      segments = Arrays.copyOf(segments, (int) Math.min((long) allocated << 1, Integer.MAX_VALUE - 8));
+    }
+
+    segments[allocated++] = new long[segmentMask + 1];
+  }
+}
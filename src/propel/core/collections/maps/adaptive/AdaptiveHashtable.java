@@ -0,0 +1,832 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.adaptive;
+
+import propel.core.TryResult;
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.maps.IHashtable;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.collections.maps.avl.AvlHashtable;
+import propel.core.collections.maps.avl.KeyCollection;
+import propel.core.collections.maps.avl.ValueCollection;
+import propel.core.strategy.IDynamicStrategy;
+import propel.core.utils.HashingUtils;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware hashtable which switches its internal representation according to its size. This map does not allow null keys to be
+ * inserted; keys must have a compareTo() that is consistent with equals() and hashCode().
+ * 
+ * Up to arrayThreshold key/value pairs are held in two small arrays, in ascending key order, and looked up by linear scan; no objects are
+ * allocated per mapping. Past that, the hashtable promotes itself to an open-addressed hash table, or to an AVL tree if it was created as
+ * ordered. It demotes itself back to the array layout when it shrinks to half the threshold, so that maps oscillating around the threshold
+ * do not keep switching. The layout may also be switched explicitly via switchStrategy(), and the current layout and number of switches
+ * are exposed for monitoring.
+ * 
+ * Instantiate using e.g.: new AdaptiveHashtable&lt;String, Object&gt;(){}; -OR- new AdaptiveHashtable&lt;String, Object&gt;(String.class,
+ * Object.class);
+ */
+public class AdaptiveHashtable<TKey extends Comparable<TKey>, TValue>
+    implements IHashtable<TKey, TValue>, IDynamicStrategy<HashtableLayout>
+{
+  /**
+   * The default maximum number of key/value pairs held in the array layout
+   */
+  public static final int DEFAULT_ARRAY_THRESHOLD = 8;
+  private static final int MINIMUM_TABLE_CAPACITY = 16;
+  private static final int MAXIMUM_TABLE_CAPACITY = 1 << 30;
+
+  private final KeyCollection<TKey, TValue> keyCollection;
+  private final ValueCollection<TKey, TValue> valueCollection;
+  private final int arrayThreshold;
+  private boolean ordered;
+  private HashtableLayout layout = HashtableLayout.Array;
+  private long layoutSwitches;
+  private int size;
+  private int modCount;
+  // array and open-addressing layouts
+  private Object[] keys;
+  private Object[] values;
+  // open-addressing layout
+  private int[] hashes;
+  // tree layout
+  private AvlHashtable<TKey, TValue> tree;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public AdaptiveHashtable()
+  {
+    this(DEFAULT_ARRAY_THRESHOLD, false);
+  }
+
+  /**
+   * Constructor initializes with the array layout threshold, and whether the hashtable should keep its keys ordered when promoted.
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws IllegalArgumentException When the threshold is negative.
+   */
+  public AdaptiveHashtable(int arrayThreshold, boolean ordered)
+  {
+    if (arrayThreshold < 0)
+      throw new IllegalArgumentException("arrayThreshold=" + arrayThreshold);
+
+    keyCollection = new KeyCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 0));
+    valueCollection = new ValueCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 1));
+    this.arrayThreshold = arrayThreshold;
+    this.ordered = ordered;
+    initArray(0);
+  }
+
+  /**
+   * Constructor for initializing with the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public AdaptiveHashtable(Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    this(DEFAULT_ARRAY_THRESHOLD, false, genericTypeParameterKey, genericTypeParameterValue);
+  }
+
+  /**
+   * Constructor for initializing with the array layout threshold, whether the hashtable should keep its keys ordered when promoted, and
+   * the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   * @throws IllegalArgumentException When the threshold is negative.
+   */
+  public AdaptiveHashtable(int arrayThreshold, boolean ordered, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    if (arrayThreshold < 0)
+      throw new IllegalArgumentException("arrayThreshold=" + arrayThreshold);
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    keyCollection = new KeyCollection<TKey, TValue>(this, genericTypeParameterKey);
+    valueCollection = new ValueCollection<TKey, TValue>(this, genericTypeParameterValue);
+    this.arrayThreshold = arrayThreshold;
+    this.ordered = ordered;
+    initArray(0);
+  }
+
+  /**
+   * Constructor initializes with another reified map
+   * 
+   * @throws NullPointerException When the argument is null, or a key in the map provided is null.
+   */
+  public AdaptiveHashtable(ReifiedMap<TKey, TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    keyCollection = new KeyCollection<TKey, TValue>(this, map.getGenericTypeParameterKey());
+    valueCollection = new ValueCollection<TKey, TValue>(this, map.getGenericTypeParameterValue());
+    arrayThreshold = DEFAULT_ARRAY_THRESHOLD;
+    initArray(0);
+
+    for (KeyValuePair<TKey, TValue> entry : map)
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException When the argument is null.
+   */
+  public AdaptiveHashtable(Map<? extends TKey, ? extends TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    keyCollection = new KeyCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 0));
+    valueCollection = new ValueCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 1));
+    arrayThreshold = DEFAULT_ARRAY_THRESHOLD;
+    initArray(0);
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map and the key/value generic type parameters
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  public AdaptiveHashtable(Map<? extends TKey, ? extends TValue> map, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    keyCollection = new KeyCollection<TKey, TValue>(this, genericTypeParameterKey);
+    valueCollection = new ValueCollection<TKey, TValue>(this, genericTypeParameterValue);
+    arrayThreshold = DEFAULT_ARRAY_THRESHOLD;
+    initArray(0);
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Adds an element represented by the provided key/value pair if the key is not already present.
+   * 
+   * @throws NullPointerException If the key value pair or the key is null.
+   */
+  @Override
+  public void add(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    add(kvp.getKey(), kvp.getValue());
+  }
+
+  /**
+   * Adds the provided key/value pair if the key is not already present. This is an O(t) operation in the array layout, where t is the
+   * array threshold, amortised O(1) in the open-addressing layout and O(log2(n)) in the tree layout.
+   * 
+   * @return True if the key did not exist, therefore the value was added.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean add(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    switch(layout)
+    {
+      case Array:
+        int index = indexOf(key);
+        if (index >= 0)
+          return false;
+
+        if (size < arrayThreshold)
+        {
+          arrayInsert(-(index + 1), key, value);
+          break;
+        }
+
+        convert(ordered ? HashtableLayout.Tree : HashtableLayout.OpenAddressing);
+        return add(key, value);
+      case OpenAddressing:
+        int hash = hash(key);
+        int slot = slotOf(key, hash);
+        if (slot >= 0)
+          return false;
+
+        if (size >= keys.length - (keys.length >> 2) && keys.length < MAXIMUM_TABLE_CAPACITY)
+        {
+          rehash(keys.length << 1);
+          slot = slotOf(key, hash);
+        }
+
+        slot = ~slot;
+        keys[slot] = key;
+        values[slot] = value;
+        hashes[slot] = hash;
+        break;
+      default:
+        if (!tree.add(key, value))
+          return false;
+        break;
+    }
+
+    size++;
+    modCount++;
+    return true;
+  }
+
+  /**
+   * Removes all elements, returning to the array layout. This is an O(1) operation.
+   */
+  @Override
+  public void clear()
+  {
+    if (layout != HashtableLayout.Array)
+      layoutSwitches++;
+
+    layout = HashtableLayout.Array;
+    tree = null;
+    hashes = null;
+    initArray(0);
+    size = 0;
+    modCount++;
+  }
+
+  /**
+   * Returns true if the key of the key/value pair exists.
+   * 
+   * @throws NullPointerException If the key value pair or the key is null.
+   */
+  @Override
+  public boolean contains(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    return containsKey(kvp.getKey());
+  }
+
+  /**
+   * Returns true if the key exists. This is an O(t) operation in the array layout, where t is the array threshold, O(1) in the
+   * open-addressing layout and O(log2(n)) in the tree layout.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean containsKey(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    switch(layout)
+    {
+      case Array:
+        return indexOf(key) >= 0;
+      case OpenAddressing:
+        return slotOf(key, hash(key)) >= 0;
+      default:
+        return tree.containsKey(key);
+    }
+  }
+
+  /**
+   * Gets the value associated with the specified key.
+   * 
+   * @throws NullPointerException When the key is null.
+   * @throws KeyNotFoundException When the key does not exist.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TValue get(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    switch(layout)
+    {
+      case Array:
+        int index = indexOf(key);
+        if (index < 0)
+          throw new KeyNotFoundException(key.toString());
+
+        return (TValue) values[index];
+      case OpenAddressing:
+        int slot = slotOf(key, hash(key));
+        if (slot < 0)
+          throw new KeyNotFoundException(key.toString());
+
+        return (TValue) values[slot];
+      default:
+        return tree.get(key);
+    }
+  }
+
+  /**
+   * Gets a collection containing the keys. This is an O(1) operation.
+   */
+  @Override
+  public KeyCollection<TKey, TValue> getKeys()
+  {
+    return keyCollection;
+  }
+
+  /**
+   * Gets a collection containing the values. This is an O(1) operation.
+   */
+  @Override
+  public ValueCollection<TKey, TValue> getValues()
+  {
+    return valueCollection;
+  }
+
+  /**
+   * Returns an iterator of key/value pairs. Results are in ascending key order in the array and tree layouts, and unordered in the
+   * open-addressing layout. The iterator fails if the hashtable is modified during the iteration.
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    return new LayoutIterator();
+  }
+
+  /**
+   * Removes a key/value pair based on its key.
+   * 
+   * @throws NullPointerException If the key/value pair or the key is null.
+   */
+  @Override
+  public boolean remove(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    return remove(kvp.getKey());
+  }
+
+  /**
+   * Removes the value associated with the specified key. The hashtable demotes itself to the array layout when it shrinks to half the
+   * array threshold. This is an O(t) operation in the array layout, where t is the array threshold, amortised O(1) in the open-addressing
+   * layout and O(log2(n)) in the tree layout.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean remove(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    switch(layout)
+    {
+      case Array:
+        int index = indexOf(key);
+        if (index < 0)
+          return false;
+
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        keys[size - 1] = null;
+        values[size - 1] = null;
+        break;
+      case OpenAddressing:
+        int slot = slotOf(key, hash(key));
+        if (slot < 0)
+          return false;
+
+        deleteSlot(slot);
+        break;
+      default:
+        if (!tree.remove(key))
+          return false;
+        break;
+    }
+
+    size--;
+    modCount++;
+
+    if (layout != HashtableLayout.Array && size <= arrayThreshold / 2)
+      convert(HashtableLayout.Array);
+    else if (layout == HashtableLayout.OpenAddressing && size < keys.length >> 3 && keys.length > MINIMUM_TABLE_CAPACITY)
+      rehash(keys.length >> 1);
+
+    return true;
+  }
+
+  /**
+   * Replaces a key's value with the specified value.
+   * 
+   * @return True if the key is found and replaced. False otherwise.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean replace(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    switch(layout)
+    {
+      case Array:
+        int index = indexOf(key);
+        if (index < 0)
+          return false;
+
+        values[index] = value;
+        return true;
+      case OpenAddressing:
+        int slot = slotOf(key, hash(key));
+        if (slot < 0)
+          return false;
+
+        values[slot] = value;
+        return true;
+      default:
+        return tree.replace(key, value);
+    }
+  }
+
+  /**
+   * Gets the number of key/value pairs contained. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Attempts to get a value by a given key.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TryResult<TValue> tryGetValue(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    switch(layout)
+    {
+      case Array:
+        int index = indexOf(key);
+        return index < 0 ? new TryResult<TValue>() : new TryResult<TValue>((TValue) values[index]);
+      case OpenAddressing:
+        int slot = slotOf(key, hash(key));
+        return slot < 0 ? new TryResult<TValue>() : new TryResult<TValue>((TValue) values[slot]);
+      default:
+        return tree.tryGetValue(key);
+    }
+  }
+
+  /**
+   * Switches to the given layout, re-organising all key/value pairs. Switching to the tree layout makes the hashtable ordered, so that it
+   * promotes itself to a tree from then on; switching to the open-addressing layout makes it unordered. A hashtable switched to the array
+   * layout while holding more than arrayThreshold pairs is promoted again on its next insertion. This is an O(n) operation, or O(nlog2(n))
+   * when switching to an ordered layout.
+   * 
+   * @throws NullPointerException When the layout is null.
+   */
+  @Override
+  public void switchStrategy(HashtableLayout newStrategy)
+  {
+    if (newStrategy == null)
+      throw new NullPointerException("newStrategy");
+
+    if (newStrategy == HashtableLayout.Tree)
+      ordered = true;
+    else if (newStrategy == HashtableLayout.OpenAddressing)
+      ordered = false;
+
+    if (newStrategy != layout)
+    {
+      convert(newStrategy);
+      modCount++;
+    }
+  }
+
+  /**
+   * Returns the current internal layout. This is an O(1) operation.
+   */
+  public HashtableLayout getLayout()
+  {
+    return layout;
+  }
+
+  /**
+   * Returns the number of times the internal layout has been switched since construction, either automatically or explicitly. This is an
+   * O(1) operation.
+   */
+  public long getLayoutSwitches()
+  {
+    return layoutSwitches;
+  }
+
+  /**
+   * Returns the maximum number of key/value pairs held in the array layout. This is an O(1) operation.
+   */
+  public int getArrayThreshold()
+  {
+    return arrayThreshold;
+  }
+
+  /**
+   * Returns true if the hashtable promotes itself to the tree layout rather than the open-addressing layout. This is an O(1) operation.
+   */
+  public boolean isOrdered()
+  {
+    return ordered;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return keyCollection.getGenericTypeParameter();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return valueCollection.getGenericTypeParameter();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  /**
+   * Returns the index of the key in the array layout, or -(insertion point + 1) if not found
+   */
+  @SuppressWarnings("unchecked")
+  private int indexOf(TKey key)
+  {
+    for (int i = 0; i < size; i++)
+    {
+      int c = key.compareTo((TKey) keys[i]);
+      if (c == 0)
+        return i;
+      if (c < 0)
+        return -(i + 1);
+    }
+
+    return -(size + 1);
+  }
+
+  private void arrayInsert(int index, TKey key, TValue value)
+  {
+    if (size == keys.length)
+    {
+      int capacity = Math.max(4, Math.min(keys.length << 1, arrayThreshold));
+      keys = Arrays.copyOf(keys, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(values, index, values, index + 1, size - index);
+    keys[index] = key;
+    values[index] = value;
+  }
+
+  /**
+   * Returns the slot of the key in the open-addressing layout, or the complement of the free slot where it would be inserted
+   */
+  private int slotOf(TKey key, int hash)
+  {
+    int mask = keys.length - 1;
+    int slot = hash & mask;
+
+    while (keys[slot] != null)
+    {
+      if (hashes[slot] == hash && key.equals(keys[slot]))
+        return slot;
+
+      slot = (slot + 1) & mask;
+    }
+
+    return ~slot;
+  }
+
+  /**
+   * Empties a slot of the open-addressing layout, shifting back any following entries of the probe sequence so that no tombstones are
+   * needed
+   */
+  private void deleteSlot(int slot)
+  {
+    int mask = keys.length - 1;
+    int next = (slot + 1) & mask;
+
+    while (keys[next] != null)
+    {
+      int home = hashes[next] & mask;
+      // move the entry back if its home slot is not cyclically within (slot, next]
+      if (((next - home) & mask) >= ((next - slot) & mask))
+      {
+        keys[slot] = keys[next];
+        values[slot] = values[next];
+        hashes[slot] = hashes[next];
+        slot = next;
+      }
+
+      next = (next + 1) & mask;
+    }
+
+    keys[slot] = null;
+    values[slot] = null;
+  }
+
+  private void rehash(int capacity)
+  {
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    int[] oldHashes = hashes;
+    initTable(capacity);
+
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++)
+      if (oldKeys[i] != null)
+      {
+        int slot = oldHashes[i] & mask;
+        while (keys[slot] != null)
+          slot = (slot + 1) & mask;
+
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+        hashes[slot] = oldHashes[i];
+      }
+  }
+
+  /**
+   * Moves all key/value pairs to the given layout
+   */
+  private void convert(HashtableLayout target)
+  {
+    @SuppressWarnings("unchecked")
+    KeyValuePair<TKey, TValue>[] pairs = (KeyValuePair<TKey, TValue>[]) new KeyValuePair<?, ?>[size];
+    int count = 0;
+    for (KeyValuePair<TKey, TValue> pair : this)
+      pairs[count++] = pair;
+
+    tree = null;
+    hashes = null;
+
+    switch(target)
+    {
+      case Array:
+        if (layout == HashtableLayout.OpenAddressing)
+          Arrays.sort(pairs, new Comparator<KeyValuePair<TKey, TValue>>() {
+            @Override
+            public int compare(KeyValuePair<TKey, TValue> a, KeyValuePair<TKey, TValue> b)
+            {
+              return a.getKey().compareTo(b.getKey());
+            }
+          });
+
+        initArray(count);
+        for (int i = 0; i < count; i++)
+        {
+          keys[i] = pairs[i].getKey();
+          values[i] = pairs[i].getValue();
+        }
+        break;
+      case OpenAddressing:
+        int capacity = MINIMUM_TABLE_CAPACITY;
+        while (capacity - (capacity >> 2) <= count && capacity < MAXIMUM_TABLE_CAPACITY)
+          capacity <<= 1;
+
+        initTable(capacity);
+        for (int i = 0; i < count; i++)
+        {
+          int hash = hash(pairs[i].getKey());
+          int slot = ~slotOf(pairs[i].getKey(), hash);
+          keys[slot] = pairs[i].getKey();
+          values[slot] = pairs[i].getValue();
+          hashes[slot] = hash;
+        }
+        break;
+      default:
+        keys = null;
+        values = null;
+        tree = new AvlHashtable<TKey, TValue>(getGenericTypeParameterKey(), getGenericTypeParameterValue());
+        for (int i = 0; i < count; i++)
+          tree.add(pairs[i].getKey(), pairs[i].getValue());
+        break;
+    }
+
+    layout = target;
+    layoutSwitches++;
+  }
+
+  private void initArray(int capacity)
+  {
+    keys = new Object[capacity];
+    values = new Object[capacity];
+  }
+
+  private void initTable(int capacity)
+  {
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    hashes = new int[capacity];
+  }
+
+  private static int hash(Object key)
+  {
+    return HashingUtils.spread(key.hashCode());
+  }
+
+  /**
+   * Iterates over the key/value pairs of whichever layout was current when the iterator was created
+   */
+  private final class LayoutIterator
+      implements Iterator<KeyValuePair<TKey, TValue>>
+  {
+    private final int expectedModCount = modCount;
+    private final Iterator<KeyValuePair<TKey, TValue>> treeIterator = layout == HashtableLayout.Tree ? tree.iterator() : null;
+    private int position;
+
+    @Override
+    public boolean hasNext()
+    {
+      if (treeIterator != null)
+        return treeIterator.hasNext();
+
+      if (layout == HashtableLayout.OpenAddressing)
+        while (position < keys.length && keys[position] == null)
+          position++;
+
+      return position < (layout == HashtableLayout.Array ? size : keys.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public KeyValuePair<TKey, TValue> next()
+    {
+      if (modCount != expectedModCount)
+        throw new ConcurrentModificationException();
+      if (!hasNext())
+        throw new NoSuchElementException("There is no next element.");
+
+      if (treeIterator != null)
+        return treeIterator.next();
+
+      KeyValuePair<TKey, TValue> result = new KeyValuePair<TKey, TValue>((TKey) keys[position], (TValue) values[position]);
+      position++;
+      return result;
+    }
+
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,38 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.adaptive;
+
+/**
+ * The internal representations an AdaptiveHashtable may switch between
+ */
+public enum HashtableLayout
+{
+  /**
+   * Key/value pairs are kept in small arrays in ascending key order and found by linear scan
+   */
+  Array,
+  /**
+   * Key/value pairs are kept in an open-addressed hash table with linear probing; iteration order is unspecified
+   */
+  OpenAddressing,
+  /**
+   * Key/value pairs are kept in an AVL tree; iteration is in ascending key order
+   */
+  Tree
+}
@@ -34,7 +34,11 @@ import propel.core.collections.maps.ReifiedMap;
 import propel.core.utils.Linq;
 import propel.core.utils.SuperTypeToken;
 import propel.core.utils.SuperTypeTokenException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -91,8 +95,7 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
     keys = new KeyCollection<TKey, TValue>(this, map.getGenericTypeParameterKey());
     values = new ValueCollection<TKey, TValue>(this, map.getGenericTypeParameterValue());
 
-    for (KeyValuePair<TKey, TValue> entry : map)
-      add(entry.getKey(), entry.getValue());
+    addAll(map);
   }
 
   /**
@@ -109,8 +112,7 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
     keys = new KeyCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 0));
     values = new ValueCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 1));
 
-    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
-      add(entry.getKey(), entry.getValue());
+    addAll(toPairs(map));
   }
 
   /**
@@ -130,8 +132,7 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
     keys = new KeyCollection<TKey, TValue>(this, genericTypeParameterKey);
     values = new ValueCollection<TKey, TValue>(this, genericTypeParameterValue);
 
-    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
-      add(entry.getKey(), entry.getValue());
+    addAll(toPairs(map));
   }
 
   /**
@@ -202,6 +203,9 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
           return false;
       }
 
+      for (AvlNode<TKey, TValue> q = p; q != null; q = q.parent)
+        q.count++;
+
       while ((p.balance != 0) && (p.parent != null))
       {
         if (p.parent.left == p)
@@ -237,6 +241,9 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
             x.right = p;
             p.parent = x;
 
+            updateCount(p);
+            updateCount(x);
+
             x.balance = 0;
             p.balance = 0;
           } else
@@ -271,6 +278,10 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
             x.parent = w;
             p.parent = w;
 
+            updateCount(x);
+            updateCount(p);
+            updateCount(w);
+
             if (w.balance == -1)
             {
               x.balance = 0;
@@ -316,6 +327,9 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
             x.left = p;
             p.parent = x;
 
+            updateCount(p);
+            updateCount(x);
+
             x.balance = 0;
             p.balance = 0;
           } else
@@ -350,6 +364,10 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
             x.parent = w;
             p.parent = w;
 
+            updateCount(x);
+            updateCount(p);
+            updateCount(w);
+
             if (w.balance == 1)
             {
               x.balance = 0;
@@ -377,6 +395,119 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
     return true;
   }
 
+  /**
+   * Adds all provided key/value pairs whose keys are not already present. Duplicate keys in the provided sequence are skipped, keeping the
+   * first occurrence. The pairs are sorted by key (a single linear pass if they are already in order). If the hashtable is empty, or the
+   * pairs are many compared to its size, they are merged with the existing pairs and the tree is rebuilt perfectly balanced, an O(n + m)
+   * operation; otherwise they are inserted one by one, an O(mlog2(n)) operation. Sorting adds O(mlog2(m)) for unsorted input, where m is
+   * the provided element count.
+   * 
+   * @throws NullPointerException When the argument or a key within is null.
+   */
+  public void addAll(Iterable<? extends KeyValuePair<? extends TKey, ? extends TValue>> pairs)
+  {
+    if (pairs == null)
+      throw new NullPointerException("pairs");
+
+    List<KeyValuePair<TKey, TValue>> list = new ArrayList<KeyValuePair<TKey, TValue>>();
+    boolean sorted = true;
+    TKey previous = null;
+
+    for (KeyValuePair<? extends TKey, ? extends TValue> kvp : pairs)
+    {
+      TKey key = kvp.getKey();
+      if (key == null)
+        throw new NullPointerException("key");
+
+      if (sorted && previous != null && previous.compareTo(key) >= 0)
+        sorted = false;
+
+      list.add(new KeyValuePair<TKey, TValue>(key, kvp.getValue()));
+      previous = key;
+    }
+
+    KeyValuePair<TKey, TValue>[] items = toArray(list);
+    int count = items.length;
+    if (!sorted)
+    {
+      // stable sort, so that the first of any duplicates is kept
+      Arrays.sort(items, new KeyComparator<TKey, TValue>());
+      count = distinct(items);
+    }
+
+    if (root == null)
+      build(items, count);
+    else if (isBulk(count))
+    {
+      KeyValuePair<TKey, TValue>[] existing = toPairArray();
+      merge(existing, existing.length, items, count, true, true, true);
+    } else
+      for (int i = 0; i < count; i++)
+        add(items[i].getKey(), items[i].getValue());
+  }
+
+  /**
+   * Adds all key/value pairs of the other hashtable whose keys are not already present. This is an O(n + m) operation, merging the in-order
+   * traversals of both trees, or O(mlog2(n)) if the other hashtable is small compared to this one.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void union(AvlHashtable<TKey, TValue> other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+
+    if (other != this && !isBulk(other.size))
+    {
+      for (KeyValuePair<TKey, TValue> kvp : other)
+        add(kvp.getKey(), kvp.getValue());
+      return;
+    }
+
+    KeyValuePair<TKey, TValue>[] theirs = other.toPairArray();
+    KeyValuePair<TKey, TValue>[] ours = toPairArray();
+    merge(ours, ours.length, theirs, theirs.length, true, true, true);
+  }
+
+  /**
+   * Only keeps the key/value pairs whose keys are also present in the other hashtable. This is an O(n + m) operation, merging the in-order
+   * traversals of both trees.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void intersect(AvlHashtable<TKey, ?> other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+
+    KeyValuePair<TKey, ?>[] theirs = other.toPairArray();
+    KeyValuePair<TKey, TValue>[] ours = toPairArray();
+    merge(ours, ours.length, theirs, theirs.length, false, true, false);
+  }
+
+  /**
+   * Removes the key/value pairs whose keys are present in the other hashtable. This is an O(n + m) operation, merging the in-order
+   * traversals of both trees, or O(mlog2(n)) if the other hashtable is small compared to this one.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void difference(AvlHashtable<TKey, ?> other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+
+    if (other != this && !isBulk(other.size))
+    {
+      for (KeyValuePair<TKey, ?> kvp : other)
+        remove(kvp.getKey());
+      return;
+    }
+
+    KeyValuePair<TKey, ?>[] theirs = other.toPairArray();
+    KeyValuePair<TKey, TValue>[] ours = toPairArray();
+    merge(ours, ours.length, theirs, theirs.length, true, false, false);
+  }
+
   /**
    * Removes all elements from this AVL hash table. This is an O(1) operation.
    */
@@ -521,264 +652,60 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
    * 
    * @throws NullPointerException If the key is null.
    */
-  @SuppressWarnings("unchecked")
   @Override
   public boolean remove(TKey key)
   {
     if (key == null)
       throw new NullPointerException("key");
 
-    if (root == null)
+    AvlNode<TKey, TValue> p = findNode(key);
+    if (p == null)
       return false;
 
-    AvlNode<TKey, TValue> p = root;
-    AvlNode<TKey, TValue>[] nodes = new AvlNode[10];
-    boolean[] path = new boolean[10];
-    int depth = 0;
-    nodes[depth] = new AvlNode<TKey, TValue>();
-    nodes[depth].left = root;
-    path[depth++] = true;
-
-    while (p != null)
+    // a node with two children swaps places with its in-order successor, which has at most one child
+    if ((p.left != null) && (p.right != null))
     {
-      int val = key.compareTo(p.item.getKey());
-      if (val == 0)
-      {
-        break; // have match
-      }
-      nodes[depth] = p;
-      path[depth] = (val < 0);
-      p = (path[depth]) ? p.left : p.right;
-      if (++depth >= nodes.length)
-      {
-        AvlNode<TKey, TValue>[] old = nodes;
-        nodes = new AvlNode[old.length + (old.length >> 1)];
-        System.arraycopy(old, 0, nodes, 0, old.length);
-        boolean[] old2 = path;
-        path = new boolean[old2.length + (old2.length >> 1)];
-        System.arraycopy(old2, 0, path, 0, old2.length);
-      }
+      AvlNode<TKey, TValue> s = p.right;
+      while (s.left != null)
+        s = s.left;
+
+      p.item = s.item;
+      p = s;
     }
-    // delete item
-    if (p != null)
+
+    AvlNode<TKey, TValue> child = (p.left != null) ? p.left : p.right;
+    AvlNode<TKey, TValue> q = p.parent;
+    boolean fromLeft = (q != null) && (q.left == p);
+
+    replaceChild(p, child);
+
+    for (AvlNode<TKey, TValue> r = q; r != null; r = r.parent)
+      r.count--;
+
+    // update balance factors, stopping as soon as the height of a sub-tree remains unchanged
+    while (q != null)
     {
-      if (p.right == null)
-      {
-        if (path[depth - 1])
-        {
-          nodes[depth - 1].left = p.left;
-        } else
-        {
-          nodes[depth - 1].right = p.left;
-        }
-      } else
-      {
-        AvlNode<TKey, TValue> r = p.right;
-        if (r.left == null)
-        {
-          r.left = p.left;
-          r.balance = p.balance;
-          if (path[depth - 1])
-          {
-            nodes[depth - 1].left = r;
-          } else
-          {
-            nodes[depth - 1].right = r;
-          }
-          // cannot overflow as only 1 node added
-          nodes[depth] = r;
-          path[depth++] = false;
+      if (fromLeft)
+        q.balance++;
+      else
+        q.balance--;
 
-        } else
-        {
-          AvlNode<TKey, TValue> s;
-          int index = depth;
-          if (++depth >= nodes.length)
-          {
-            AvlNode<TKey, TValue>[] old = nodes;
-            nodes = new AvlNode[old.length + (old.length >> 1)];
-            System.arraycopy(old, 0, nodes, 0, old.length);
-            boolean[] old2 = path;
-            path = new boolean[old2.length + (old2.length >> 1)];
-            System.arraycopy(old2, 0, path, 0, old2.length);
-          }
-          while (true)
-          {
-            nodes[depth] = r;
-            path[depth] = true;
-            if (++depth >= nodes.length)
-            {
-              AvlNode<TKey, TValue>[] old = nodes;
-              nodes = new AvlNode[old.length + (old.length >> 1)];
-              System.arraycopy(old, 0, nodes, 0, old.length);
-              boolean[] old2 = path;
-              path = new boolean[old2.length + (old2.length >> 1)];
-              System.arraycopy(old2, 0, path, 0, old2.length);
-            }
-            s = r.left;
-            if (s.left == null)
-            {
-              break;
-            }
-            r = s;
-          }
-          s.left = p.left;
-          r.left = s.right;
-          s.right = p.right;
-          s.balance = p.balance;
-          if (path[index - 1])
-          {
-            nodes[index - 1].left = s;
-          } else
-          {
-            nodes[index - 1].right = s;
-          }
-          nodes[index] = s;
-          path[index] = false;
-        }
-      }
-      // update balance factors
-      for (int i = depth - 1; i > 0; i--)
-      {
-        if (path[i])
-        {
-          nodes[i].balance++;
-          if (nodes[i].balance == +1)
-          {
-            break;
-          } else if (nodes[i].balance == +2)
-          {
-            AvlNode<TKey, TValue> y = nodes[i];
-            AvlNode<TKey, TValue> x = y.right;
-            if (x.balance == -1)
-            {
-              // left
-              AvlNode<TKey, TValue> w = x.left;
-              x.left = w.right;
-              w.right = x;
-              y.right = w.left;
-              w.left = y;
-              if (w.balance == 1)
-              {
-                x.balance = 0;
-                y.balance = -1;
-              } else if (w.balance == 0)
-              {
-                x.balance = 0;
-                y.balance = 0;
-              } else
-              {
-                x.balance = 1;
-                y.balance = 0;
-              }
-              w.balance = 0;
-              if (path[i - 1])
-              {
-                nodes[i - 1].left = w;
-              } else
-              {
-                nodes[i - 1].right = w;
-              }
-            } else
-            {
-              // right
-              y.right = x.left;
-              x.left = y;
-              if (path[i - 1])
-              {
-                nodes[i - 1].left = x;
-              } else
-              {
-                nodes[i - 1].right = x;
-              }
-              if (x.balance == 0)
-              {
-                x.balance = -1;
-                y.balance = 1;
-                break;
-              } else
-              {
-                x.balance = 0;
-                y.balance = 0;
-              }
-            }
-          }
-        } else
-        {
-          nodes[i].balance--;
-          if (nodes[i].balance == -1)
-          {
-            break;
-          } else if (nodes[i].balance == -2)
-          {
-            AvlNode<TKey, TValue> y = nodes[i];
-            AvlNode<TKey, TValue> x = y.left;
-            if (x.balance == 1)
-            {
-              // right
-              AvlNode<TKey, TValue> w = x.right;
-              x.right = w.left;
-              w.left = x;
-              y.left = w.right;
-              w.right = y;
-              if (w.balance == -1)
-              {
-                x.balance = 0;
-                y.balance = 1;
-              } else if (w.balance == 0)
-              {
-                x.balance = 0;
-                y.balance = 0;
-              } else
-              {
-                x.balance = -1;
-                y.balance = 0;
-              }
-              w.balance = 0;
-              if (path[i - 1])
-              {
-                nodes[i - 1].left = w;
-              } else
-              {
-                nodes[i - 1].right = w;
-              }
-            } else
-            {
-              // left
-              y.left = x.right;
-              x.right = y;
-              if (path[i - 1])
-              {
-                nodes[i - 1].left = x;
-              } else
-              {
-                nodes[i - 1].right = x;
-              }
-              if (x.balance == 0)
-              {
-                x.balance = 1;
-                y.balance = -1;
-                break;
-              } else
-              {
-                x.balance = 0;
-                y.balance = 0;
-              }
-            }
-          }
-        }
-      }
-      if (nodes[0].left != root)
+      if ((q.balance == 1) || (q.balance == -1))
+        break;
+
+      if ((q.balance == 2) || (q.balance == -2))
       {
-        root = nodes[0].left;
+        q = rebalance(q);
+        if (q.balance != 0)
+          break;
       }
-      return true;
-    } else
-    {
-      // not found
-      return false;
+
+      fromLeft = (q.parent != null) && (q.parent.left == q);
+      q = q.parent;
     }
 
+    size--;
+    return true;
   }
 
   /**
@@ -819,6 +746,210 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
     return false;
   }
 
+  /**
+   * Returns the key/value pair with the least key, or null if empty. This is an O(log2(n)) operation.
+   */
+  public KeyValuePair<TKey, TValue> first()
+  {
+    AvlNode<TKey, TValue> node = firstNode();
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key, or null if empty. This is an O(log2(n)) operation.
+   */
+  public KeyValuePair<TKey, TValue> last()
+  {
+    AvlNode<TKey, TValue> node = lastNode();
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key less than or equal to the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> floor(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    AvlNode<TKey, TValue> node = floorNode(key, true);
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the key/value pair with the least key greater than or equal to the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> ceiling(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    AvlNode<TKey, TValue> node = ceilingNode(key, true);
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key strictly less than the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> lower(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    AvlNode<TKey, TValue> node = floorNode(key, false);
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the key/value pair with the least key strictly greater than the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> higher(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    AvlNode<TKey, TValue> node = ceilingNode(key, false);
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the number of keys strictly less than the given key, i.e. the zero-based position the key has (or would have) in ascending
+   * key order. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public int rank(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return countLess(key, false);
+  }
+
+  /**
+   * Returns the key/value pair at the given zero-based position in ascending key order. This is an O(log2(n)) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is negative or not less than the size of the hashtable.
+   */
+  public KeyValuePair<TKey, TValue> select(int index)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    AvlNode<TKey, TValue> p = root;
+    while (true)
+    {
+      int leftCount = count(p.left);
+
+      if (index < leftCount)
+        p = p.left;
+      else if (index > leftCount)
+      {
+        index -= leftCount + 1;
+        p = p.right;
+      } else
+        return p.item;
+    }
+  }
+
+  /**
+   * Returns an iterator of key/value pairs. Results are ordered in descending key order.
+   */
+  public Iterator<KeyValuePair<TKey, TValue>> descendingIterator()
+  {
+    return new AvlRangeIterator<TKey, TValue>(lastNode(), null, false, true);
+  }
+
+  /**
+   * Returns a live view of the key/value pairs with keys ranging from fromKey (inclusive) to toKey (exclusive). This is an O(1)
+   * operation.
+   * 
+   * @throws NullPointerException When a key is null.
+   * @throws IllegalArgumentException When fromKey is greater than toKey.
+   */
+  public AvlSubMap<TKey, TValue> subMap(TKey fromKey, TKey toKey)
+  {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  /**
+   * Returns a live view of the key/value pairs with keys ranging from fromKey to toKey. Changes to this hashtable are reflected in the
+   * view and vice-versa. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When a key is null.
+   * @throws IllegalArgumentException When fromKey is greater than toKey.
+   */
+  public AvlSubMap<TKey, TValue> subMap(TKey fromKey, boolean fromInclusive, TKey toKey, boolean toInclusive)
+  {
+    if (fromKey == null)
+      throw new NullPointerException("fromKey");
+    if (toKey == null)
+      throw new NullPointerException("toKey");
+    if (fromKey.compareTo(toKey) > 0)
+      throw new IllegalArgumentException("fromKey=" + fromKey + " toKey=" + toKey);
+
+    return new AvlSubMap<TKey, TValue>(this, fromKey, fromInclusive, toKey, toInclusive);
+  }
+
+  /**
+   * Returns a live view of the key/value pairs with keys strictly less than toKey. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public AvlSubMap<TKey, TValue> headMap(TKey toKey)
+  {
+    return headMap(toKey, false);
+  }
+
+  /**
+   * Returns a live view of the key/value pairs with keys less than (or equal to, if inclusive is true) toKey. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public AvlSubMap<TKey, TValue> headMap(TKey toKey, boolean inclusive)
+  {
+    if (toKey == null)
+      throw new NullPointerException("toKey");
+
+    return new AvlSubMap<TKey, TValue>(this, null, false, toKey, inclusive);
+  }
+
+  /**
+   * Returns a live view of the key/value pairs with keys greater than or equal to fromKey. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public AvlSubMap<TKey, TValue> tailMap(TKey fromKey)
+  {
+    return tailMap(fromKey, true);
+  }
+
+  /**
+   * Returns a live view of the key/value pairs with keys greater than (or equal to, if inclusive is true) fromKey. This is an O(1)
+   * operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public AvlSubMap<TKey, TValue> tailMap(TKey fromKey, boolean inclusive)
+  {
+    if (fromKey == null)
+      throw new NullPointerException("fromKey");
+
+    return new AvlSubMap<TKey, TValue>(this, fromKey, inclusive, null, false);
+  }
+
   /**
    * Gets the number of key/value pairs contained in the AVL hashtable. This is an O(1) operation.
    */
@@ -879,4 +1010,458 @@ public class AvlHashtable<TKey extends Comparable<TKey>, TValue>
   {
     return Linq.toString(this);
   }
+
+  /**
+   * Returns the node with the given key, or null if not found
+   */
+  AvlNode<TKey, TValue> findNode(TKey key)
+  {
+    AvlNode<TKey, TValue> p = root;
+
+    while (p != null)
+    {
+      int c = key.compareTo(p.item.getKey());
+
+      if (c < 0)
+        p = p.left;
+      else if (c > 0)
+        p = p.right;
+      else
+        return p;
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the node with the least key, or null if empty
+   */
+  AvlNode<TKey, TValue> firstNode()
+  {
+    AvlNode<TKey, TValue> p = root;
+
+    if (p != null)
+      while (p.left != null)
+        p = p.left;
+
+    return p;
+  }
+
+  /**
+   * Returns the node with the greatest key, or null if empty
+   */
+  AvlNode<TKey, TValue> lastNode()
+  {
+    AvlNode<TKey, TValue> p = root;
+
+    if (p != null)
+      while (p.right != null)
+        p = p.right;
+
+    return p;
+  }
+
+  /**
+   * Returns the node with the greatest key less than (or equal to, if inclusive) the given key, or null if none
+   */
+  AvlNode<TKey, TValue> floorNode(TKey key, boolean inclusive)
+  {
+    AvlNode<TKey, TValue> result = null;
+    AvlNode<TKey, TValue> p = root;
+
+    while (p != null)
+    {
+      int c = key.compareTo(p.item.getKey());
+
+      if (c > 0 || (c == 0 && inclusive))
+      {
+        result = p;
+        if (c == 0)
+          break;
+        p = p.right;
+      } else
+        p = p.left;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the node with the least key greater than (or equal to, if inclusive) the given key, or null if none
+   */
+  AvlNode<TKey, TValue> ceilingNode(TKey key, boolean inclusive)
+  {
+    AvlNode<TKey, TValue> result = null;
+    AvlNode<TKey, TValue> p = root;
+
+    while (p != null)
+    {
+      int c = key.compareTo(p.item.getKey());
+
+      if (c < 0 || (c == 0 && inclusive))
+      {
+        result = p;
+        if (c == 0)
+          break;
+        p = p.left;
+      } else
+        p = p.right;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the number of keys less than (or equal to, if inclusive) the given key
+   */
+  int countLess(TKey key, boolean inclusive)
+  {
+    int result = 0;
+    AvlNode<TKey, TValue> p = root;
+
+    while (p != null)
+    {
+      int c = key.compareTo(p.item.getKey());
+
+      if (c < 0 || (c == 0 && !inclusive))
+        p = p.left;
+      else
+      {
+        result += count(p.left) + 1;
+        p = p.right;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the in-order successor of a node, or null if it is the last one
+   */
+  static <TKey extends Comparable<TKey>, TValue> AvlNode<TKey, TValue> successor(AvlNode<TKey, TValue> node)
+  {
+    if (node.right != null)
+    {
+      node = node.right;
+      while (node.left != null)
+        node = node.left;
+
+      return node;
+    }
+
+    while ((node.parent != null) && (node == node.parent.right))
+      node = node.parent;
+
+    return node.parent;
+  }
+
+  /**
+   * Returns the in-order predecessor of a node, or null if it is the first one
+   */
+  static <TKey extends Comparable<TKey>, TValue> AvlNode<TKey, TValue> predecessor(AvlNode<TKey, TValue> node)
+  {
+    if (node.left != null)
+    {
+      node = node.left;
+      while (node.right != null)
+        node = node.right;
+
+      return node;
+    }
+
+    while ((node.parent != null) && (node == node.parent.left))
+      node = node.parent;
+
+    return node.parent;
+  }
+
+  /**
+   * Returns the size of the sub-tree rooted at the given node, which may be null
+   */
+  static int count(AvlNode<?, ?> node)
+  {
+    return node == null ? 0 : node.count;
+  }
+
+  /**
+   * Re-calculates the sub-tree size of a node from its children
+   */
+  static void updateCount(AvlNode<?, ?> node)
+  {
+    node.count = count(node.left) + count(node.right) + 1;
+  }
+
+  /**
+   * Puts the child in the place of the given node, in the node's parent (or the root)
+   */
+  private void replaceChild(AvlNode<TKey, TValue> node, AvlNode<TKey, TValue> child)
+  {
+    if (child != null)
+      child.parent = node.parent;
+
+    if (node.parent == null)
+      root = child;
+    else if (node.parent.left == node)
+      node.parent.left = child;
+    else
+      node.parent.right = child;
+  }
+
+  /**
+   * Rotates the sub-tree rooted at the given node to the left, returning the new sub-tree root. Balance factors are not updated.
+   */
+  private AvlNode<TKey, TValue> rotateLeft(AvlNode<TKey, TValue> p)
+  {
+    AvlNode<TKey, TValue> x = p.right;
+
+    p.right = x.left;
+    if (p.right != null)
+      p.right.parent = p;
+
+    replaceChild(p, x);
+    x.left = p;
+    p.parent = x;
+
+    updateCount(p);
+    updateCount(x);
+    return x;
+  }
+
+  /**
+   * Rotates the sub-tree rooted at the given node to the right, returning the new sub-tree root. Balance factors are not updated.
+   */
+  private AvlNode<TKey, TValue> rotateRight(AvlNode<TKey, TValue> p)
+  {
+    AvlNode<TKey, TValue> x = p.left;
+
+    p.left = x.right;
+    if (p.left != null)
+      p.left.parent = p;
+
+    replaceChild(p, x);
+    x.right = p;
+    p.parent = x;
+
+    updateCount(p);
+    updateCount(x);
+    return x;
+  }
+
+  /**
+   * Re-balances a sub-tree whose root has a balance factor of -2 or 2, returning the new sub-tree root
+   */
+  private AvlNode<TKey, TValue> rebalance(AvlNode<TKey, TValue> p)
+  {
+    if (p.balance == 2)
+    {
+      AvlNode<TKey, TValue> x = p.right;
+
+      if (x.balance >= 0)
+      {
+        rotateLeft(p);
+        if (x.balance == 0)
+        {
+          x.balance = -1;
+          p.balance = 1;
+        } else
+        {
+          x.balance = 0;
+          p.balance = 0;
+        }
+
+        return x;
+      }
+
+      AvlNode<TKey, TValue> w = x.left;
+      rotateRight(x);
+      rotateLeft(p);
+      p.balance = (byte) (w.balance == 1 ? -1 : 0);
+      x.balance = (byte) (w.balance == -1 ? 1 : 0);
+      w.balance = 0;
+
+      return w;
+    } else
+    {
+      AvlNode<TKey, TValue> x = p.left;
+
+      if (x.balance <= 0)
+      {
+        rotateRight(p);
+        if (x.balance == 0)
+        {
+          x.balance = 1;
+          p.balance = -1;
+        } else
+        {
+          x.balance = 0;
+          p.balance = 0;
+        }
+
+        return x;
+      }
+
+      AvlNode<TKey, TValue> w = x.right;
+      rotateLeft(x);
+      rotateRight(p);
+      p.balance = (byte) (w.balance == -1 ? 1 : 0);
+      x.balance = (byte) (w.balance == 1 ? -1 : 0);
+      w.balance = 0;
+
+      return w;
+    }
+  }
+
+  /**
+   * Returns all key/value pairs in ascending key order. This is an O(n) operation.
+   */
+  KeyValuePair<TKey, TValue>[] toPairArray()
+  {
+    KeyValuePair<TKey, TValue>[] result = newPairArray(size);
+
+    int i = 0;
+    for (AvlNode<TKey, TValue> p = firstNode(); p != null; p = successor(p))
+      result[i++] = p.item;
+
+    return result;
+  }
+
+  /**
+   * Replaces the contents with a perfectly balanced tree built from the first count pairs, which must be in strictly ascending key order.
+   * This is an O(n) operation.
+   */
+  private void build(KeyValuePair<TKey, TValue>[] items, int count)
+  {
+    root = build(items, 0, count, null);
+    size = count;
+  }
+
+  /**
+   * Builds a perfectly balanced sub-tree out of the items in the range [from, to), returning its root
+   */
+  private static <TKey extends Comparable<TKey>, TValue> AvlNode<TKey, TValue> build(KeyValuePair<TKey, TValue>[] items, int from, int to,
+                                                                                      AvlNode<TKey, TValue> parent)
+  {
+    if (from >= to)
+      return null;
+
+    int mid = (from + to) >>> 1;
+    AvlNode<TKey, TValue> node = new AvlNode<TKey, TValue>(items[mid], parent);
+    node.left = build(items, from, mid, node);
+    node.right = build(items, mid + 1, to, node);
+    node.count = to - from;
+    node.balance = (byte) (height(to - mid - 1) - height(mid - from));
+
+    return node;
+  }
+
+  /**
+   * Returns true if applying the given number of changes one by one would cost more than rebuilding the tree, i.e. mlog2(n) &gt; n
+   */
+  private boolean isBulk(int changes)
+  {
+    return root == null || (long) changes * height(size) > size;
+  }
+
+  /**
+   * Returns the height of a perfectly balanced tree with the given number of nodes
+   */
+  private static int height(int count)
+  {
+    return 32 - Integer.numberOfLeadingZeros(count);
+  }
+
+  /**
+   * Merges two arrays of pairs in strictly ascending key order and rebuilds the tree from the result. The flags specify whether to keep
+   * keys found only in ours, keys found in both (our pair is kept) and keys found only in theirs.
+   */
+  @SuppressWarnings("unchecked")
+  private void merge(KeyValuePair<TKey, TValue>[] ours, int ourCount, KeyValuePair<TKey, ?>[] theirs, int theirCount, boolean keepOurs,
+                     boolean keepCommon, boolean keepTheirs)
+  {
+    KeyValuePair<TKey, TValue>[] result = newPairArray(ourCount + theirCount);
+    int count = 0;
+    int i = 0;
+    int j = 0;
+
+    while (i < ourCount && j < theirCount)
+    {
+      int c = ours[i].getKey().compareTo(theirs[j].getKey());
+
+      if (c < 0)
+      {
+        if (keepOurs)
+          result[count++] = ours[i];
+        i++;
+      } else if (c > 0)
+      {
+        if (keepTheirs)
+          result[count++] = (KeyValuePair<TKey, TValue>) theirs[j];
+        j++;
+      } else
+      {
+        if (keepCommon)
+          result[count++] = ours[i];
+        i++;
+        j++;
+      }
+    }
+
+    if (keepOurs)
+      while (i < ourCount)
+        result[count++] = ours[i++];
+    if (keepTheirs)
+      while (j < theirCount)
+        result[count++] = (KeyValuePair<TKey, TValue>) theirs[j++];
+
+    build(result, count);
+  }
+
+  /**
+   * Removes adjacent duplicate keys from a sorted array, keeping the first of each, and returns the resulting element count
+   */
+  private static <TKey extends Comparable<TKey>, TValue> int distinct(KeyValuePair<TKey, TValue>[] items)
+  {
+    if (items.length == 0)
+      return 0;
+
+    int count = 1;
+    for (int i = 1; i < items.length; i++)
+      if (items[i].getKey().compareTo(items[count - 1].getKey()) != 0)
+        items[count++] = items[i];
+
+    return count;
+  }
+
+  private static <TKey extends Comparable<TKey>, TValue> KeyValuePair<TKey, TValue>[] toArray(List<KeyValuePair<TKey, TValue>> list)
+  {
+    return list.toArray(AvlHashtable.<TKey, TValue>newPairArray(list.size()));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <TKey extends Comparable<TKey>, TValue> KeyValuePair<TKey, TValue>[] newPairArray(int length)
+  {
+    return (KeyValuePair<TKey, TValue>[]) new KeyValuePair<?, ?>[length];
+  }
+
+  /**
+   * Compares key/value pairs by key
+   */
+  private static final class KeyComparator<TKey extends Comparable<TKey>, TValue>
+      implements Comparator<KeyValuePair<TKey, TValue>>
+  {
+    @Override
+    public int compare(KeyValuePair<TKey, TValue> a, KeyValuePair<TKey, TValue> b)
+    {
+      return a.getKey().compareTo(b.getKey());
+    }
+  }
+
+  private static <TKey extends Comparable<TKey>, TValue> List<KeyValuePair<TKey, TValue>> toPairs(Map<? extends TKey, ? extends TValue> map)
+  {
+    List<KeyValuePair<TKey, TValue>> result = new ArrayList<KeyValuePair<TKey, TValue>>(map.size());
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      result.add(new KeyValuePair<TKey, TValue>(entry.getKey(), entry.getValue()));
+
+    return result;
+  }
 }
@@ -43,6 +43,10 @@ final class AvlNode<TKey extends Comparable<TKey>, TValue>
    * and requires re-balancing the tree.
    */
   byte balance;
+  /**
+   * The number of nodes in the sub-tree rooted at this node, including this node. This allows rank and select queries in O(log2(n)).
+   */
+  int count = 1;
   /**
    * The key/value pair contained in this node.
    */
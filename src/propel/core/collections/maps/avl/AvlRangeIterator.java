@@ -0,0 +1,115 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.avl;
+
+import propel.core.collections.KeyValuePair;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates through the key/value pairs of an AVL tree, in ascending or descending order, stopping at an optional bound key.
+ * 
+ * @param <TKey> The key type.
+ * @param <TValue> The value type.
+ */
+final class AvlRangeIterator<TKey extends Comparable<TKey>, TValue>
+    implements Iterator<KeyValuePair<TKey, TValue>>
+{
+  /**
+   * The AvlNode at the current position of the iterator.
+   */
+  private AvlNode<TKey, TValue> next;
+  /**
+   * The key at which iteration stops, or null if unbounded.
+   */
+  private final TKey bound;
+  private final boolean boundInclusive;
+  private final boolean descending;
+
+  /**
+   * Constructor initializes a new range iterator.
+   * 
+   * @param node The node from which to start iterating.
+   * @param bound The last key to iterate to, or null to iterate to the end of the tree.
+   * @param boundInclusive True if the bound key itself should be returned, if found.
+   * @param descending True to iterate in descending key order.
+   */
+  AvlRangeIterator(AvlNode<TKey, TValue> node, TKey bound, boolean boundInclusive, boolean descending)
+  {
+    this.bound = bound;
+    this.boundInclusive = boundInclusive;
+    this.descending = descending;
+    this.next = withinBound(node) ? node : null;
+  }
+
+  /**
+   * Returns true if the iteration has more elements.
+   * 
+   * @return True if the iterator has more elements.
+   */
+  @Override
+  public boolean hasNext()
+  {
+    return next != null;
+  }
+
+  /**
+   * Returns the next element in the iteration.
+   * 
+   * @return The next element in the iteration.
+   * 
+   * @throws NoSuchElementException Iteration has no more elements.
+   */
+  @Override
+  public KeyValuePair<TKey, TValue> next()
+  {
+    if (next == null)
+      throw new NoSuchElementException("There is no next element.");
+
+    KeyValuePair<TKey, TValue> result = next.item;
+
+    next = descending ? AvlHashtable.predecessor(next) : AvlHashtable.successor(next);
+    if (!withinBound(next))
+      next = null;
+
+    return result;
+  }
+
+  /**
+   * @throws UnsupportedOperationException The remove operation is not supported.
+   */
+  @Override
+  @Deprecated
+  public void remove()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  private boolean withinBound(AvlNode<TKey, TValue> node)
+  {
+    if (node == null || bound == null)
+      return true;
+
+    int c = node.item.getKey().compareTo(bound);
+    if (c == 0)
+      return boundInclusive;
+
+    return descending ? c > 0 : c < 0;
+  }
+}
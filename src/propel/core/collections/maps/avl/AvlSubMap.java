@@ -0,0 +1,245 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.avl;
+
+import propel.core.TryResult;
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.utils.Linq;
+import java.util.Iterator;
+
+/**
+ * A live view of a key range of an AVL hashtable. Changes to the backing hashtable are reflected in the view and vice-versa. A null lower
+ * or upper key denotes an unbounded range end.
+ * 
+ * @param <TKey> The key type.
+ * @param <TValue> The value type.
+ */
+public final class AvlSubMap<TKey extends Comparable<TKey>, TValue>
+    implements ReifiedMap<TKey, TValue>
+{
+  private final AvlHashtable<TKey, TValue> hashtable;
+  private final TKey fromKey;
+  private final boolean fromInclusive;
+  private final TKey toKey;
+  private final boolean toInclusive;
+
+  /**
+   * Initializes with the backing hashtable and the range bounds. This is an O(1) operation.
+   */
+  AvlSubMap(AvlHashtable<TKey, TValue> hashtable, TKey fromKey, boolean fromInclusive, TKey toKey, boolean toInclusive)
+  {
+    this.hashtable = hashtable;
+    this.fromKey = fromKey;
+    this.fromInclusive = fromInclusive;
+    this.toKey = toKey;
+    this.toInclusive = toInclusive;
+  }
+
+  /**
+   * Adds the provided key/value pair if the key is not already present. This is an O(log2(n)) operation.
+   * 
+   * @return True if the key did not exist, therefore the value was added.
+   * 
+   * @throws NullPointerException If the key is null.
+   * @throws IllegalArgumentException If the key is outside the range of this view.
+   */
+  public boolean add(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+    if (!inRange(key))
+      throw new IllegalArgumentException("The key is out of range: " + key);
+
+    return hashtable.add(key, value);
+  }
+
+  /**
+   * Returns true if the key exists within the range of this view. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  public boolean containsKey(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return inRange(key) && hashtable.findNode(key) != null;
+  }
+
+  /**
+   * Gets the value associated with the specified key. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   * @throws KeyNotFoundException When the key does not exist within the range of this view.
+   */
+  public TValue get(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+    if (!inRange(key))
+      throw new KeyNotFoundException(key.toString());
+
+    return hashtable.get(key);
+  }
+
+  /**
+   * Attempts to get a value by a given key. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public TryResult<TValue> tryGetValue(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    AvlNode<TKey, TValue> node = inRange(key) ? hashtable.findNode(key) : null;
+    return node == null ? new TryResult<TValue>() : new TryResult<TValue>(node.item.getValue());
+  }
+
+  /**
+   * Removes the value associated with the specified key, if within the range of this view. This is an O(log2(n)) operation.
+   * 
+   * @return True if found and removed.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  public boolean remove(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return inRange(key) && hashtable.remove(key);
+  }
+
+  /**
+   * Returns the key/value pair with the least key in this view, or null if empty. This is an O(log2(n)) operation.
+   */
+  public KeyValuePair<TKey, TValue> first()
+  {
+    AvlNode<TKey, TValue> node = lowestNode();
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key in this view, or null if empty. This is an O(log2(n)) operation.
+   */
+  public KeyValuePair<TKey, TValue> last()
+  {
+    AvlNode<TKey, TValue> node = highestNode();
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns true if there are no keys within the range of this view. This is an O(log2(n)) operation.
+   */
+  public boolean isEmpty()
+  {
+    return lowestNode() == null;
+  }
+
+  /**
+   * Returns the number of key/value pairs within the range of this view. This is an O(log2(n)) operation.
+   */
+  @Override
+  public int size()
+  {
+    int upper = toKey == null ? hashtable.size() : hashtable.countLess(toKey, toInclusive);
+    int lower = fromKey == null ? 0 : hashtable.countLess(fromKey, !fromInclusive);
+
+    return Math.max(0, upper - lower);
+  }
+
+  /**
+   * Returns an iterator of the key/value pairs in this view, in ascending key order. Locating the first element is an O(log2(n))
+   * operation, each subsequent step is amortised O(1).
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    return new AvlRangeIterator<TKey, TValue>(lowestNode(), toKey, toInclusive, false);
+  }
+
+  /**
+   * Returns an iterator of the key/value pairs in this view, in descending key order.
+   */
+  public Iterator<KeyValuePair<TKey, TValue>> descendingIterator()
+  {
+    return new AvlRangeIterator<TKey, TValue>(highestNode(), fromKey, fromInclusive, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return hashtable.getGenericTypeParameterKey();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return hashtable.getGenericTypeParameterValue();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  private boolean inRange(TKey key)
+  {
+    if (fromKey != null)
+    {
+      int c = key.compareTo(fromKey);
+      if (c < 0 || (c == 0 && !fromInclusive))
+        return false;
+    }
+
+    if (toKey != null)
+    {
+      int c = key.compareTo(toKey);
+      if (c > 0 || (c == 0 && !toInclusive))
+        return false;
+    }
+
+    return true;
+  }
+
+  private AvlNode<TKey, TValue> lowestNode()
+  {
+    AvlNode<TKey, TValue> node = fromKey == null ? hashtable.firstNode() : hashtable.ceilingNode(fromKey, fromInclusive);
+    return (node != null && inRange(node.item.getKey())) ? node : null;
+  }
+
+  private AvlNode<TKey, TValue> highestNode()
+  {
+    AvlNode<TKey, TValue> node = toKey == null ? hashtable.lastNode() : hashtable.floorNode(toKey, toInclusive);
+    return (node != null && inRange(node.item.getKey())) ? node : null;
+  }
+}
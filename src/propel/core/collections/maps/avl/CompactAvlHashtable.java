@@ -0,0 +1,809 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.avl;
+
+import propel.core.TryResult;
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.maps.IHashtable;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware AVL-tree-backed hashtable which stores its tree in parallel arrays indexed by slot, rather than in node objects. This map
+ * does not allow null keys to be inserted.
+ * 
+ * Each mapping costs a key and a value reference, two int child indices and a byte balance factor. Measured as the heap growth when
+ * adding 1M Integer keys on a 64-bit JVM, excluding the keys and values, this is 17 bytes per entry against 64 for an AvlHashtable with
+ * compressed references, and 25 against 88 without. Only a handful of objects are allocated regardless of the size, so the garbage
+ * collector does not have to trace millions of nodes. Slots of removed entries are put on a free-list and re-used by subsequent
+ * insertions. Key/value pairs are created on the fly while iterating.
+ * 
+ * Instantiate using e.g.: new CompactAvlHashtable&lt;String, Object&gt;(){}; -OR- new CompactAvlHashtable&lt;String, Object&gt;(String.class,
+ * Object.class);
+ */
+public class CompactAvlHashtable<TKey extends Comparable<TKey>, TValue>
+    implements IHashtable<TKey, TValue>
+{
+  /**
+   * The default initial slot capacity
+   */
+  public static final int DEFAULT_SIZE = 64;
+  /**
+   * Denotes the absence of a child slot
+   */
+  private static final int NIL = -1;
+  /**
+   * The maximum height of an AVL tree with 2^31 elements is under 46
+   */
+  private static final int MAX_HEIGHT = 48;
+
+  private final KeyCollection<TKey, TValue> keyCollection;
+  private final ValueCollection<TKey, TValue> valueCollection;
+  private Object[] keys;
+  private Object[] values;
+  private int[] left;
+  private int[] right;
+  private byte[] balance;
+  private int root = NIL;
+  private int size;
+  /**
+   * The first free slot, the rest being linked through the left child array
+   */
+  private int free = NIL;
+  /**
+   * The number of slots handed out at least once
+   */
+  private int used;
+  // set by the recursive insert/remove operations
+  private boolean heightChanged;
+  private boolean modified;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public CompactAvlHashtable()
+  {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * Constructor initializes with an initial slot capacity
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws IllegalArgumentException When the initial capacity is negative.
+   */
+  public CompactAvlHashtable(int initialCapacity)
+  {
+    keyCollection = new KeyCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 0));
+    valueCollection = new ValueCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 1));
+    allocate(initialCapacity);
+  }
+
+  /**
+   * Constructor for initializing with the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public CompactAvlHashtable(Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    this(DEFAULT_SIZE, genericTypeParameterKey, genericTypeParameterValue);
+  }
+
+  /**
+   * Constructor for initializing with an initial slot capacity and the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   * @throws IllegalArgumentException When the initial capacity is negative.
+   */
+  public CompactAvlHashtable(int initialCapacity, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    keyCollection = new KeyCollection<TKey, TValue>(this, genericTypeParameterKey);
+    valueCollection = new ValueCollection<TKey, TValue>(this, genericTypeParameterValue);
+    allocate(initialCapacity);
+  }
+
+  /**
+   * Constructor initializes with another reified map
+   * 
+   * @throws NullPointerException When the argument is null, or a key in the map provided is null.
+   */
+  public CompactAvlHashtable(ReifiedMap<TKey, TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    keyCollection = new KeyCollection<TKey, TValue>(this, map.getGenericTypeParameterKey());
+    valueCollection = new ValueCollection<TKey, TValue>(this, map.getGenericTypeParameterValue());
+    allocate(map.size());
+
+    for (KeyValuePair<TKey, TValue> entry : map)
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException When the argument is null.
+   */
+  public CompactAvlHashtable(Map<? extends TKey, ? extends TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    keyCollection = new KeyCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 0));
+    valueCollection = new ValueCollection<TKey, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 1));
+    allocate(map.size());
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map and the key/value generic type parameters
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  public CompactAvlHashtable(Map<? extends TKey, ? extends TValue> map, Class<?> genericTypeParameterKey,
+                             Class<?> genericTypeParameterValue)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    keyCollection = new KeyCollection<TKey, TValue>(this, genericTypeParameterKey);
+    valueCollection = new ValueCollection<TKey, TValue>(this, genericTypeParameterValue);
+    allocate(map.size());
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Adds an element represented by the provided key/value pair if the key is not already present. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key value pair or the key is null.
+   */
+  @Override
+  public void add(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    add(kvp.getKey(), kvp.getValue());
+  }
+
+  /**
+   * Adds the provided key/value pair if the key is not already present. This is an O(log2(n)) operation, amortised when the arrays need to
+   * grow.
+   * 
+   * @return True if the key did not exist, therefore the value was added.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean add(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    modified = false;
+    root = insert(root, key, value);
+    if (!modified)
+      return false;
+
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes all elements. This is an O(n) operation, as references are cleared to allow garbage collection.
+   */
+  @Override
+  public void clear()
+  {
+    Arrays.fill(keys, 0, used, null);
+    Arrays.fill(values, 0, used, null);
+    root = NIL;
+    free = NIL;
+    used = 0;
+    size = 0;
+  }
+
+  /**
+   * Returns true if the key of the key/value pair exists. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key value pair or the key is null.
+   */
+  @Override
+  public boolean contains(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    return containsKey(kvp.getKey());
+  }
+
+  /**
+   * Returns true if the key exists. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean containsKey(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return find(key) != NIL;
+  }
+
+  /**
+   * Gets the value associated with the specified key. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   * @throws KeyNotFoundException When the key does not exist.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TValue get(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int slot = find(key);
+    if (slot == NIL)
+      throw new KeyNotFoundException(key.toString());
+
+    return (TValue) values[slot];
+  }
+
+  /**
+   * Gets a collection containing the keys. This is an O(1) operation.
+   * 
+   * @return All keys, in ascending order.
+   */
+  @Override
+  public KeyCollection<TKey, TValue> getKeys()
+  {
+    return keyCollection;
+  }
+
+  /**
+   * Gets a collection containing the values, in ascending key order. This is an O(1) operation.
+   */
+  @Override
+  public ValueCollection<TKey, TValue> getValues()
+  {
+    return valueCollection;
+  }
+
+  /**
+   * Returns an iterator of key/value pairs. Results are ordered in ascending key order.
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    return new AscendingIterator();
+  }
+
+  /**
+   * Removes a key/value pair based on its key. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key/value pair or the key is null.
+   */
+  @Override
+  public boolean remove(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    return remove(kvp.getKey());
+  }
+
+  /**
+   * Removes the value associated with the specified key. The freed slot is re-used by a later insertion. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean remove(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    modified = false;
+    root = delete(root, key);
+    if (!modified)
+      return false;
+
+    size--;
+    return true;
+  }
+
+  /**
+   * Replaces a key's value with the specified value. This is an O(log2(n)) operation.
+   * 
+   * @return True if the key is found and replaced. False otherwise.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean replace(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int slot = find(key);
+    if (slot == NIL)
+      return false;
+
+    values[slot] = value;
+    return true;
+  }
+
+  /**
+   * Gets the number of key/value pairs contained. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the number of slots currently allocated. This is an O(1) operation.
+   */
+  public int capacity()
+  {
+    return left.length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return keyCollection.getGenericTypeParameter();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return valueCollection.getGenericTypeParameter();
+  }
+
+  /**
+   * Attempts to get a value by a given key. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TryResult<TValue> tryGetValue(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int slot = find(key);
+    if (slot == NIL)
+      return new TryResult<TValue>();
+
+    return new TryResult<TValue>((TValue) values[slot]);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  @SuppressWarnings("unchecked")
+  private TKey keyAt(int slot)
+  {
+    return (TKey) keys[slot];
+  }
+
+  private int find(TKey key)
+  {
+    int p = root;
+
+    while (p != NIL)
+    {
+      int c = key.compareTo(keyAt(p));
+
+      if (c < 0)
+        p = left[p];
+      else if (c > 0)
+        p = right[p];
+      else
+        return p;
+    }
+
+    return NIL;
+  }
+
+  /**
+   * Inserts into the sub-tree rooted at the given slot, returning the new sub-tree root
+   */
+  private int insert(int p, TKey key, TValue value)
+  {
+    if (p == NIL)
+    {
+      modified = true;
+      heightChanged = true;
+      return newSlot(key, value);
+    }
+
+    int c = key.compareTo(keyAt(p));
+
+    if (c < 0)
+    {
+      // the arrays may be re-allocated while inserting
+      int child = insert(left[p], key, value);
+      left[p] = child;
+      if (heightChanged)
+      {
+        balance[p]--;
+        if (balance[p] == 0)
+          heightChanged = false;
+        else if (balance[p] == -2)
+        {
+          p = rebalance(p);
+          heightChanged = false;
+        }
+      }
+    } else if (c > 0)
+    {
+      // the arrays may be re-allocated while inserting
+      int child = insert(right[p], key, value);
+      right[p] = child;
+      if (heightChanged)
+      {
+        balance[p]++;
+        if (balance[p] == 0)
+          heightChanged = false;
+        else if (balance[p] == 2)
+        {
+          p = rebalance(p);
+          heightChanged = false;
+        }
+      }
+    } else
+      heightChanged = false;
+
+    return p;
+  }
+
+  /**
+   * Deletes from the sub-tree rooted at the given slot, returning the new sub-tree root
+   */
+  private int delete(int p, TKey key)
+  {
+    if (p == NIL)
+    {
+      heightChanged = false;
+      return NIL;
+    }
+
+    int c = key.compareTo(keyAt(p));
+
+    if (c < 0)
+    {
+      left[p] = delete(left[p], key);
+      return heightChanged ? leftShrunk(p) : p;
+    }
+    if (c > 0)
+    {
+      right[p] = delete(right[p], key);
+      return heightChanged ? rightShrunk(p) : p;
+    }
+
+    modified = true;
+    if (left[p] == NIL || right[p] == NIL)
+    {
+      int child = left[p] != NIL ? left[p] : right[p];
+      freeSlot(p);
+      heightChanged = true;
+      return child;
+    }
+
+    // take over the in-order successor's contents and delete it instead
+    int s = right[p];
+    while (left[s] != NIL)
+      s = left[s];
+
+    keys[p] = keys[s];
+    values[p] = values[s];
+    right[p] = deleteFirst(right[p]);
+    return heightChanged ? rightShrunk(p) : p;
+  }
+
+  /**
+   * Deletes the least element of the sub-tree rooted at the given slot, returning the new sub-tree root
+   */
+  private int deleteFirst(int p)
+  {
+    if (left[p] == NIL)
+    {
+      int child = right[p];
+      freeSlot(p);
+      heightChanged = true;
+      return child;
+    }
+
+    left[p] = deleteFirst(left[p]);
+    return heightChanged ? leftShrunk(p) : p;
+  }
+
+  /**
+   * Adjusts the balance after the left sub-tree height decreased, returning the new sub-tree root
+   */
+  private int leftShrunk(int p)
+  {
+    balance[p]++;
+    if (balance[p] == 1)
+      heightChanged = false;
+    else if (balance[p] == 2)
+    {
+      heightChanged = balance[right[p]] != 0;
+      p = rebalance(p);
+    }
+
+    return p;
+  }
+
+  /**
+   * Adjusts the balance after the right sub-tree height decreased, returning the new sub-tree root
+   */
+  private int rightShrunk(int p)
+  {
+    balance[p]--;
+    if (balance[p] == -1)
+      heightChanged = false;
+    else if (balance[p] == -2)
+    {
+      heightChanged = balance[left[p]] != 0;
+      p = rebalance(p);
+    }
+
+    return p;
+  }
+
+  /**
+   * Re-balances a sub-tree whose root has a balance factor of -2 or 2, returning the new sub-tree root
+   */
+  private int rebalance(int p)
+  {
+    if (balance[p] == 2)
+    {
+      int x = right[p];
+
+      if (balance[x] >= 0)
+      {
+        rotateLeft(p);
+        if (balance[x] == 0)
+        {
+          balance[x] = -1;
+          balance[p] = 1;
+        } else
+        {
+          balance[x] = 0;
+          balance[p] = 0;
+        }
+
+        return x;
+      }
+
+      int w = left[x];
+      right[p] = rotateRight(x);
+      rotateLeft(p);
+      balance[p] = (byte) (balance[w] == 1 ? -1 : 0);
+      balance[x] = (byte) (balance[w] == -1 ? 1 : 0);
+      balance[w] = 0;
+
+      return w;
+    } else
+    {
+      int x = left[p];
+
+      if (balance[x] <= 0)
+      {
+        rotateRight(p);
+        if (balance[x] == 0)
+        {
+          balance[x] = 1;
+          balance[p] = -1;
+        } else
+        {
+          balance[x] = 0;
+          balance[p] = 0;
+        }
+
+        return x;
+      }
+
+      int w = right[x];
+      left[p] = rotateLeft(x);
+      rotateRight(p);
+      balance[p] = (byte) (balance[w] == -1 ? 1 : 0);
+      balance[x] = (byte) (balance[w] == 1 ? -1 : 0);
+      balance[w] = 0;
+
+      return w;
+    }
+  }
+
+  private int rotateLeft(int p)
+  {
+    int x = right[p];
+    right[p] = left[x];
+    left[x] = p;
+
+    return x;
+  }
+
+  private int rotateRight(int p)
+  {
+    int x = left[p];
+    left[p] = right[x];
+    right[x] = p;
+
+    return x;
+  }
+
+  /**
+   * Takes a slot from the free-list, or a never used one, growing the arrays if necessary
+   */
+  private int newSlot(TKey key, TValue value)
+  {
+    int slot;
+    if (free != NIL)
+    {
+      slot = free;
+      free = left[slot];
+    } else
+    {
+      if (used == left.length)
+        grow();
+
+      slot = used++;
+    }
+
+    keys[slot] = key;
+    values[slot] = value;
+    left[slot] = NIL;
+    right[slot] = NIL;
+    balance[slot] = 0;
+
+    return slot;
+  }
+
+  /**
+   * Puts a slot on the free-list, releasing its references
+   */
+  private void freeSlot(int slot)
+  {
+    keys[slot] = null;
+    values[slot] = null;
+    left[slot] = free;
+    free = slot;
+  }
+
+  private void allocate(int capacity)
+  {
+    if (capacity < 0)
+      throw new IllegalArgumentException("capacity=" + capacity);
+
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    left = new int[capacity];
+    right = new int[capacity];
+    balance = new byte[capacity];
+  }
+
+  private void grow()
+  {
+    // double it
+    int capacity = Math.max(left.length * 2, DEFAULT_SIZE);
+
+    keys = Arrays.copyOf(keys, capacity);
+    values = Arrays.copyOf(values, capacity);
+    left = Arrays.copyOf(left, capacity);
+    right = Arrays.copyOf(right, capacity);
+    balance = Arrays.copyOf(balance, capacity);
+  }
+
+  /**
+   * Iterates in ascending key order using an explicit stack of slots, as there are no parent links
+   */
+  private final class AscendingIterator
+      implements Iterator<KeyValuePair<TKey, TValue>>
+  {
+    private final int[] stack = new int[MAX_HEIGHT];
+    private int depth;
+
+    AscendingIterator()
+    {
+      pushLeft(root);
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return depth > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public KeyValuePair<TKey, TValue> next()
+    {
+      if (depth == 0)
+        throw new NoSuchElementException("There is no next element.");
+
+      int slot = stack[--depth];
+      pushLeft(right[slot]);
+
+      return new KeyValuePair<TKey, TValue>(keyAt(slot), (TValue) values[slot]);
+    }
+
+    /**
+     * @throws UnsupportedOperationException The remove operation is not supported.
+     */
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    private void pushLeft(int slot)
+    {
+      while (slot != NIL)
+      {
+        stack[depth++] = slot;
+        slot = left[slot];
+      }
+    }
+  }
+}
@@ -29,6 +29,7 @@ package propel.core.collections.maps.avl;
 import propel.core.collections.ReifiedIterable;
 import propel.core.collections.lists.ReifiedArrayList;
 import propel.core.collections.lists.ReifiedList;
+import propel.core.collections.maps.IHashtable;
 import java.lang.reflect.Array;
 import java.util.Collection;
 import java.util.Iterator;
@@ -40,13 +41,14 @@ public final class KeyCollection<TKey extends Comparable<TKey>, TValue>
     implements Collection<TKey>, ReifiedIterable<TKey>
 {
   private final String READ_ONLY_COLLECTION = "The collection is read-only";
-  private final AvlHashtable<TKey, TValue> dictionary;
+  private final IHashtable<TKey, TValue> dictionary;
   private final Class<?> genericTypeParameter;
 
   /**
-   * Initializes with a new key collection. This is an O(1) operation.
+   * Initializes with a new key collection. This is an O(1) operation. Hashtables other than the AvlHashtable are accessed through their
+   * containsKey() and iterator() methods, which must therefore not be implemented using this collection.
    */
-  public KeyCollection(AvlHashtable<TKey, TValue> dictionary, Class<?> genericTypeParameterKey)
+  public KeyCollection(IHashtable<TKey, TValue> dictionary, Class<?> genericTypeParameterKey)
   {
     this.dictionary = dictionary;
     this.genericTypeParameter = genericTypeParameterKey;
@@ -88,7 +90,10 @@ public final class KeyCollection<TKey extends Comparable<TKey>, TValue>
     if (item == null)
       throw new NullPointerException("item");
 
-    AvlNode<TKey, TValue> p = dictionary.root;
+    if (!(dictionary instanceof AvlHashtable))
+      return dictionary.containsKey(item);
+
+    AvlNode<TKey, TValue> p = ((AvlHashtable<TKey, TValue>) dictionary).root;
 
     while (p != null)
     {
@@ -154,7 +159,10 @@ public final class KeyCollection<TKey extends Comparable<TKey>, TValue>
   @Override
   public Iterator<TKey> iterator()
   {
-    AvlNode<TKey, TValue> p = dictionary.root;
+    if (!(dictionary instanceof AvlHashtable))
+      return new KeyValuePairKeyIterator<TKey>(dictionary.iterator());
+
+    AvlNode<TKey, TValue> p = ((AvlHashtable<TKey, TValue>) dictionary).root;
 
     if (p != null)
       while (p.left != null)
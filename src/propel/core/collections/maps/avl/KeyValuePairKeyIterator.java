@@ -0,0 +1,81 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.avl;
+
+import propel.core.collections.KeyValuePair;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates through the keys of a key/value pair iterator, in the order of the underlying iterator.
+ * 
+ * @param <TKey> The key type.
+ */
+public final class KeyValuePairKeyIterator<TKey>
+    implements Iterator<TKey>
+{
+  private final Iterator<? extends KeyValuePair<TKey, ?>> iterator;
+
+  /**
+   * Initializes with the key/value pair iterator to project.
+   * 
+   * @throws NullPointerException When the iterator is null.
+   */
+  public KeyValuePairKeyIterator(Iterator<? extends KeyValuePair<TKey, ?>> iterator)
+  {
+    if (iterator == null)
+      throw new NullPointerException("iterator");
+
+    this.iterator = iterator;
+  }
+
+  /**
+   * Returns true if the iteration has more elements.
+   * 
+   * @return True if the iterator has more elements.
+   */
+  @Override
+  public boolean hasNext()
+  {
+    return iterator.hasNext();
+  }
+
+  /**
+   * Returns the next element in the iteration.
+   * 
+   * @return The next element in the iteration.
+   * 
+   * @throws NoSuchElementException Iteration has no more elements.
+   */
+  @Override
+  public TKey next()
+  {
+    return iterator.next().getKey();
+  }
+
+  /**
+   * @throws UnsupportedOperationException The remove operation is not supported.
+   */
+  @Override
+  @Deprecated
+  public void remove()
+  {
+    throw new UnsupportedOperationException();
+  }
+}
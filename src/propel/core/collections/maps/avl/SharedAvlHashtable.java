@@ -516,6 +516,246 @@ public class SharedAvlHashtable<TKey extends Comparable<TKey>, TValue>
     }
   }
 
+  /**
+   * Returns the key/value pair with the greatest key less than or equal to the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> floor(TKey key)
+  {
+    lock();
+    try
+    {
+      return hashtable.floor(key);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns the key/value pair with the least key greater than or equal to the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> ceiling(TKey key)
+  {
+    lock();
+    try
+    {
+      return hashtable.ceiling(key);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key strictly less than the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> lower(TKey key)
+  {
+    lock();
+    try
+    {
+      return hashtable.lower(key);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns the key/value pair with the least key strictly greater than the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> higher(TKey key)
+  {
+    lock();
+    try
+    {
+      return hashtable.higher(key);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns the number of keys strictly less than the given key. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public int rank(TKey key)
+  {
+    lock();
+    try
+    {
+      return hashtable.rank(key);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns the key/value pair at the given zero-based position in ascending key order. This is an O(log2(n)) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is negative or not less than the size of the hashtable.
+   */
+  public KeyValuePair<TKey, TValue> select(int index)
+  {
+    lock();
+    try
+    {
+      return hashtable.select(index);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the key/value pairs with keys ranging from fromKey (inclusive) to toKey (exclusive), as a live view
+   * cannot be guarded by the collection lock. Changes to this hashtable are not reflected in the view and vice-versa. This is an
+   * O(log2(n) + m) operation, where m is the number of pairs in the range.
+   * 
+   * @throws NullPointerException When a key is null.
+   * @throws IllegalArgumentException When fromKey is greater than toKey.
+   */
+  public AvlSubMap<TKey, TValue> subMap(TKey fromKey, TKey toKey)
+  {
+    lock();
+    try
+    {
+      AvlHashtable<TKey, TValue> copy = new AvlHashtable<TKey, TValue>(hashtable.subMap(fromKey, toKey));
+      return copy.subMap(fromKey, toKey);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the key/value pairs with keys ranging from fromKey to toKey, as a live view cannot be guarded by the
+   * collection lock. Changes to this hashtable are not reflected in the view and vice-versa. This is an O(log2(n) + m) operation,
+   * where m is the number of pairs in the range.
+   * 
+   * @throws NullPointerException When a key is null.
+   * @throws IllegalArgumentException When fromKey is greater than toKey.
+   */
+  public AvlSubMap<TKey, TValue> subMap(TKey fromKey, boolean fromInclusive, TKey toKey, boolean toInclusive)
+  {
+    lock();
+    try
+    {
+      AvlHashtable<TKey, TValue> copy = new AvlHashtable<TKey, TValue>(hashtable.subMap(fromKey, fromInclusive, toKey, toInclusive));
+      return copy.subMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the key/value pairs with keys strictly less than toKey, as a live view cannot be guarded by the
+   * collection lock. Changes to this hashtable are not reflected in the view and vice-versa. This is an O(log2(n) + m) operation,
+   * where m is the number of pairs in the range.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public AvlSubMap<TKey, TValue> headMap(TKey toKey)
+  {
+    lock();
+    try
+    {
+      AvlHashtable<TKey, TValue> copy = new AvlHashtable<TKey, TValue>(hashtable.headMap(toKey));
+      return copy.headMap(toKey);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the key/value pairs with keys less than (or equal to, if inclusive is true) toKey, as a live view
+   * cannot be guarded by the collection lock. Changes to this hashtable are not reflected in the view and vice-versa. This is an
+   * O(log2(n) + m) operation, where m is the number of pairs in the range.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public AvlSubMap<TKey, TValue> headMap(TKey toKey, boolean inclusive)
+  {
+    lock();
+    try
+    {
+      AvlHashtable<TKey, TValue> copy = new AvlHashtable<TKey, TValue>(hashtable.headMap(toKey, inclusive));
+      return copy.headMap(toKey, inclusive);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the key/value pairs with keys greater than or equal to fromKey, as a live view cannot be guarded by
+   * the collection lock. Changes to this hashtable are not reflected in the view and vice-versa. This is an O(log2(n) + m) operation,
+   * where m is the number of pairs in the range.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public AvlSubMap<TKey, TValue> tailMap(TKey fromKey)
+  {
+    lock();
+    try
+    {
+      AvlHashtable<TKey, TValue> copy = new AvlHashtable<TKey, TValue>(hashtable.tailMap(fromKey));
+      return copy.tailMap(fromKey);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the key/value pairs with keys greater than (or equal to, if inclusive is true) fromKey, as a live view
+   * cannot be guarded by the collection lock. Changes to this hashtable are not reflected in the view and vice-versa. This is an
+   * O(log2(n) + m) operation, where m is the number of pairs in the range.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public AvlSubMap<TKey, TValue> tailMap(TKey fromKey, boolean inclusive)
+  {
+    lock();
+    try
+    {
+      AvlHashtable<TKey, TValue> copy = new AvlHashtable<TKey, TValue>(hashtable.tailMap(fromKey, inclusive));
+      return copy.tailMap(fromKey, inclusive);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
   /**
    * Locks the collection
    */
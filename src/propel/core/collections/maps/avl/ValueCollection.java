@@ -19,9 +19,11 @@
 
 package propel.core.collections.maps.avl;
 
+import propel.core.collections.KeyValuePair;
 import propel.core.collections.ReifiedIterable;
 import propel.core.collections.lists.ReifiedArrayList;
 import propel.core.collections.lists.ReifiedList;
+import propel.core.collections.maps.IHashtable;
 import java.lang.reflect.Array;
 import java.util.Collection;
 import java.util.Iterator;
@@ -33,13 +35,14 @@ public final class ValueCollection<TKey extends Comparable<TKey>, TValue>
     implements Collection<TValue>, ReifiedIterable<TValue>
 {
   private final String READ_ONLY_COLLECTION = "The collection is read-only";
-  private final AvlHashtable<TKey, TValue> dictionary;
+  private final IHashtable<TKey, TValue> dictionary;
   private final Class<?> genericTypeParameter;
 
   /**
-   * Initializes with a new value collection. This is an O(1) operation.
+   * Initializes with a new value collection. This is an O(1) operation. Hashtables other than the AvlHashtable are accessed through their
+   * iterator() method, which must therefore not be implemented using this collection.
    */
-  public ValueCollection(AvlHashtable<TKey, TValue> dictionary, Class<?> genericTypeParameterValue)
+  public ValueCollection(IHashtable<TKey, TValue> dictionary, Class<?> genericTypeParameterValue)
   {
     this.dictionary = dictionary;
     this.genericTypeParameter = genericTypeParameterValue;
@@ -61,7 +64,16 @@ public final class ValueCollection<TKey extends Comparable<TKey>, TValue>
     if (item == null)
       throw new NullPointerException("item");
 
-    AvlNode<TKey, TValue> p = dictionary.root;
+    if (!(dictionary instanceof AvlHashtable))
+    {
+      for (KeyValuePair<TKey, TValue> kvp : dictionary)
+        if (item.equals(kvp.getValue()))
+          return true;
+
+      return false;
+    }
+
+    AvlNode<TKey, TValue> p = ((AvlHashtable<TKey, TValue>) dictionary).root;
 
     if (p == null)
       return false;
@@ -156,7 +168,10 @@ public final class ValueCollection<TKey extends Comparable<TKey>, TValue>
   @Override
   public Iterator<TValue> iterator()
   {
-    AvlNode<TKey, TValue> p = dictionary.root;
+    if (!(dictionary instanceof AvlHashtable))
+      return new KeyValuePairValueIterator<TValue>(dictionary.iterator());
+
+    AvlNode<TKey, TValue> p = ((AvlHashtable<TKey, TValue>) dictionary).root;
 
     if (p != null)
       while (p.left != null)
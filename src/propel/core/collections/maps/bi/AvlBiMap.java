@@ -371,6 +371,7 @@ public class AvlBiMap<TKey extends Comparable<TKey>, TValue extends Comparable<T
     else if (normalMap.getKeys().contains(key))
       if (!inverseMap.getKeys().contains(newValue))
       {
+        inverseMap.remove(normalMap.get(key));
         normalMap.replace(key, newValue);
         inverseMap.add(newValue, key);
 
@@ -393,6 +394,7 @@ public class AvlBiMap<TKey extends Comparable<TKey>, TValue extends Comparable<T
     else if (inverseMap.getKeys().contains(value))
       if (!normalMap.getKeys().contains(newKey))
       {
+        normalMap.remove(inverseMap.get(value));
         inverseMap.replace(value, newKey);
         normalMap.add(newKey, value);
 
@@ -0,0 +1,660 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.bi;
+
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.lists.ReifiedArrayList;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.utils.HashingUtils;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware hash-based bi-directional map. Each key/value pair is stored in a single entry, which is linked into two hash chains: one
+ * indexed by key and one indexed by value. Lookups in both directions are O(1) and each pair costs one entry object, roughly half the
+ * memory of AvlBiMap, which stores each pair as two nodes in two trees. Iteration order is unspecified. This map does not allow null keys
+ * or values to be inserted.
+ * 
+ * Instantiate using e.g.: new HashBiMap&lt;String, Object&gt;(){}; -OR- new HashBiMap&lt;String, Object&gt;(String.class, Object.class);
+ */
+public class HashBiMap<TKey extends Comparable<TKey>, TValue extends Comparable<TValue>>
+    implements IBiMap<TKey, TValue>
+{
+  /**
+   * The default initial capacity, must be a power of two
+   */
+  public static final int DEFAULT_CAPACITY = 16;
+  private static final int MAXIMUM_CAPACITY = 1 << 30;
+  private final Class<?> genericTypeParameterKey;
+  private final Class<?> genericTypeParameterValue;
+  /**
+   * Hash chains of entries, by key
+   */
+  private Entry<TKey, TValue>[] keyTable;
+  /**
+   * Hash chains of the same entries, by value
+   */
+  private Entry<TKey, TValue>[] valueTable;
+  private int size;
+  private int modCount;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public HashBiMap()
+  {
+    genericTypeParameterKey = SuperTypeToken.getClazz(this.getClass(), 0);
+    genericTypeParameterValue = SuperTypeToken.getClazz(this.getClass(), 1);
+    allocate(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor for initializing with the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public HashBiMap(Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    this(DEFAULT_CAPACITY, genericTypeParameterKey, genericTypeParameterValue);
+  }
+
+  /**
+   * Constructor for initializing with an expected number of pairs and the key/value generic type parameters
+   * 
+   * @throws IllegalArgumentException When the expected size is negative.
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public HashBiMap(int expectedSize, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    if (expectedSize < 0)
+      throw new IllegalArgumentException("expectedSize=" + expectedSize);
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    this.genericTypeParameterKey = genericTypeParameterKey;
+    this.genericTypeParameterValue = genericTypeParameterValue;
+    allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * Constructor initializes with another reified map. Pairs whose key or value is already present are skipped.
+   * 
+   * @throws NullPointerException When the argument is null, or a key or value in the map provided is null.
+   */
+  public HashBiMap(ReifiedMap<TKey, TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    genericTypeParameterKey = map.getGenericTypeParameterKey();
+    genericTypeParameterValue = map.getGenericTypeParameterValue();
+    allocate(capacityFor(map.size()));
+
+    for (KeyValuePair<TKey, TValue> entry : map)
+      addEntry(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map. Pairs whose value is already present are skipped.
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException When the argument is null, or a key or value in the map provided is null.
+   */
+  public HashBiMap(Map<? extends TKey, ? extends TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    genericTypeParameterKey = SuperTypeToken.getClazz(this.getClass(), 0);
+    genericTypeParameterValue = SuperTypeToken.getClazz(this.getClass(), 1);
+    allocate(capacityFor(map.size()));
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      addEntry(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map and the key/value generic type parameters. Pairs whose value is already present are skipped.
+   * 
+   * @throws NullPointerException When an argument is null, or a key or value in the map provided is null.
+   */
+  public HashBiMap(Map<? extends TKey, ? extends TValue> map, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    this(map == null ? 0 : map.size(), genericTypeParameterKey, genericTypeParameterValue);
+    if (map == null)
+      throw new NullPointerException("map");
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      addEntry(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Adds a key/value pair in the BiMap, returning true if succeeded, false if the key or the value already exists. Null keys/values are
+   * not allowed. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key or the value is null.
+   */
+  @Override
+  public boolean add(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+    if (value == null)
+      throw new NullPointerException("value");
+
+    return addEntry(key, value);
+  }
+
+  /**
+   * Removes all elements. This is an O(n) operation, where n is the capacity.
+   */
+  @Override
+  public void clear()
+  {
+    for (int i = 0; i < keyTable.length; i++)
+    {
+      keyTable[i] = null;
+      valueTable[i] = null;
+    }
+
+    size = 0;
+    modCount++;
+  }
+
+  /**
+   * Returns true if a given key exists, false otherwise. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean containsKey(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return findByKey(key, hash(key)) != null;
+  }
+
+  /**
+   * Returns true if a given value exists, false otherwise. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the value is null.
+   */
+  @Override
+  public boolean containsValue(TValue value)
+  {
+    if (value == null)
+      throw new NullPointerException("value");
+
+    return findByValue(value, hash(value)) != null;
+  }
+
+  /**
+   * Puts all keys in a list and returns them. This is an O(n) operation.
+   */
+  @Override
+  public ReifiedArrayList<TKey> getKeys()
+  {
+    ReifiedArrayList<TKey> result = new ReifiedArrayList<TKey>(Math.max(size, 1), genericTypeParameterKey);
+    for (Entry<TKey, TValue> bucket : keyTable)
+      for (Entry<TKey, TValue> entry = bucket; entry != null; entry = entry.nextByKey)
+        result.add(entry.key);
+
+    return result;
+  }
+
+  /**
+   * Puts all values in a list and returns them. This is an O(n) operation.
+   */
+  @Override
+  public ReifiedArrayList<TValue> getValues()
+  {
+    ReifiedArrayList<TValue> result = new ReifiedArrayList<TValue>(Math.max(size, 1), genericTypeParameterValue);
+    for (Entry<TKey, TValue> bucket : keyTable)
+      for (Entry<TKey, TValue> entry = bucket; entry != null; entry = entry.nextByKey)
+        result.add(entry.value);
+
+    return result;
+  }
+
+  /**
+   * Returns the value associated with a key. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   * @throws KeyNotFoundException When the key is not found.
+   */
+  @Override
+  public TValue getByKey(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Entry<TKey, TValue> entry = findByKey(key, hash(key));
+    if (entry == null)
+      throw new KeyNotFoundException("The given key was not found: " + key);
+
+    return entry.value;
+  }
+
+  /**
+   * Returns the key associated with a value. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the value is null.
+   * @throws KeyNotFoundException When the value is not found.
+   */
+  @Override
+  public TKey getByValue(TValue value)
+  {
+    if (value == null)
+      throw new NullPointerException("value");
+
+    Entry<TKey, TValue> entry = findByValue(value, hash(value));
+    if (entry == null)
+      throw new KeyNotFoundException("The given value was not found: " + value);
+
+    return entry.key;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return genericTypeParameterKey;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return genericTypeParameterValue;
+  }
+
+  /**
+   * Returns an iterator of key/value pairs, in no particular order.
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    return new HashBiMapIterator();
+  }
+
+  /**
+   * Removes an element by its key, returns true if successful. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean removeByKey(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Entry<TKey, TValue> entry = findByKey(key, hash(key));
+    if (entry == null)
+      return false;
+
+    unlinkByKey(entry);
+    unlinkByValue(entry);
+    size--;
+    modCount++;
+
+    return true;
+  }
+
+  /**
+   * Removes an element by its value, returns true if successful. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the value is null.
+   */
+  @Override
+  public boolean removeByValue(TValue value)
+  {
+    if (value == null)
+      throw new NullPointerException("value");
+
+    Entry<TKey, TValue> entry = findByValue(value, hash(value));
+    if (entry == null)
+      return false;
+
+    unlinkByKey(entry);
+    unlinkByValue(entry);
+    size--;
+    modCount++;
+
+    return true;
+  }
+
+  /**
+   * Replaces an element's value, searching for it by key, returns true if successful, false if the key does not exist or the new value is
+   * mapped to another key. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key or the value is null.
+   */
+  @Override
+  public boolean replaceByKey(TKey key, TValue newValue)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+    if (newValue == null)
+      throw new NullPointerException("newValue");
+
+    Entry<TKey, TValue> entry = findByKey(key, hash(key));
+    if (entry == null)
+      return false;
+
+    int newValueHash = hash(newValue);
+    Entry<TKey, TValue> existing = findByValue(newValue, newValueHash);
+    if (existing != null)
+      return existing == entry;
+
+    // only the value chain is affected
+    unlinkByValue(entry);
+    entry.value = newValue;
+    entry.valueHash = newValueHash;
+    linkByValue(entry);
+    modCount++;
+
+    return true;
+  }
+
+  /**
+   * Replaces an element's key, searching for it by value, returns true if successful, false if the value does not exist or the new key is
+   * mapped to another value. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the value or the key is null.
+   */
+  @Override
+  public boolean replaceByValue(TValue value, TKey newKey)
+  {
+    if (value == null)
+      throw new NullPointerException("value");
+    if (newKey == null)
+      throw new NullPointerException("newKey");
+
+    Entry<TKey, TValue> entry = findByValue(value, hash(value));
+    if (entry == null)
+      return false;
+
+    int newKeyHash = hash(newKey);
+    Entry<TKey, TValue> existing = findByKey(newKey, newKeyHash);
+    if (existing != null)
+      return existing == entry;
+
+    // only the key chain is affected
+    unlinkByKey(entry);
+    entry.key = newKey;
+    entry.keyHash = newKeyHash;
+    linkByKey(entry);
+    modCount++;
+
+    return true;
+  }
+
+  /**
+   * Returns the number of items. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  /**
+   * Adds a pair if neither the key nor the value exist
+   */
+  private boolean addEntry(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("An entry key was null.");
+    if (value == null)
+      throw new NullPointerException("An entry value was null.");
+
+    int keyHash = hash(key);
+    int valueHash = hash(value);
+    if (findByKey(key, keyHash) != null || findByValue(value, valueHash) != null)
+      return false;
+
+    if (size >= threshold() && keyTable.length < MAXIMUM_CAPACITY)
+      resize(keyTable.length << 1);
+
+    Entry<TKey, TValue> entry = new Entry<TKey, TValue>(key, keyHash, value, valueHash);
+    linkByKey(entry);
+    linkByValue(entry);
+    size++;
+    modCount++;
+
+    return true;
+  }
+
+  private Entry<TKey, TValue> findByKey(TKey key, int keyHash)
+  {
+    for (Entry<TKey, TValue> entry = keyTable[keyHash & (keyTable.length - 1)]; entry != null; entry = entry.nextByKey)
+      if (entry.keyHash == keyHash && key.equals(entry.key))
+        return entry;
+
+    return null;
+  }
+
+  private Entry<TKey, TValue> findByValue(TValue value, int valueHash)
+  {
+    for (Entry<TKey, TValue> entry = valueTable[valueHash & (valueTable.length - 1)]; entry != null; entry = entry.nextByValue)
+      if (entry.valueHash == valueHash && value.equals(entry.value))
+        return entry;
+
+    return null;
+  }
+
+  private void linkByKey(Entry<TKey, TValue> entry)
+  {
+    int bucket = entry.keyHash & (keyTable.length - 1);
+    entry.nextByKey = keyTable[bucket];
+    keyTable[bucket] = entry;
+  }
+
+  private void linkByValue(Entry<TKey, TValue> entry)
+  {
+    int bucket = entry.valueHash & (valueTable.length - 1);
+    entry.nextByValue = valueTable[bucket];
+    valueTable[bucket] = entry;
+  }
+
+  private void unlinkByKey(Entry<TKey, TValue> entry)
+  {
+    int bucket = entry.keyHash & (keyTable.length - 1);
+
+    if (keyTable[bucket] == entry)
+      keyTable[bucket] = entry.nextByKey;
+    else
+    {
+      Entry<TKey, TValue> previous = keyTable[bucket];
+      while (previous.nextByKey != entry)
+        previous = previous.nextByKey;
+
+      previous.nextByKey = entry.nextByKey;
+    }
+
+    entry.nextByKey = null;
+  }
+
+  private void unlinkByValue(Entry<TKey, TValue> entry)
+  {
+    int bucket = entry.valueHash & (valueTable.length - 1);
+
+    if (valueTable[bucket] == entry)
+      valueTable[bucket] = entry.nextByValue;
+    else
+    {
+      Entry<TKey, TValue> previous = valueTable[bucket];
+      while (previous.nextByValue != entry)
+        previous = previous.nextByValue;
+
+      previous.nextByValue = entry.nextByValue;
+    }
+
+    entry.nextByValue = null;
+  }
+
+  /**
+   * Re-links all entries into tables of the given capacity
+   */
+  private void resize(int capacity)
+  {
+    Entry<TKey, TValue>[] oldKeyTable = keyTable;
+    allocate(capacity);
+
+    for (Entry<TKey, TValue> bucket : oldKeyTable)
+    {
+      Entry<TKey, TValue> entry = bucket;
+      while (entry != null)
+      {
+        Entry<TKey, TValue> next = entry.nextByKey;
+        linkByKey(entry);
+        linkByValue(entry);
+        entry = next;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void allocate(int capacity)
+  {
+    keyTable = (Entry<TKey, TValue>[]) new Entry<?, ?>[capacity];
+    valueTable = (Entry<TKey, TValue>[]) new Entry<?, ?>[capacity];
+  }
+
+  /**
+   * The size above which the tables are grown, for a load factor of 0.75
+   */
+  private int threshold()
+  {
+    return keyTable.length - (keyTable.length >> 2);
+  }
+
+  private static int capacityFor(int expectedSize)
+  {
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity - (capacity >> 2) < expectedSize && capacity < MAXIMUM_CAPACITY)
+      capacity <<= 1;
+
+    return capacity;
+  }
+
+  private static int hash(Object obj)
+  {
+    return HashingUtils.spread(obj.hashCode());
+  }
+
+  /**
+   * A key/value pair, linked into the key chain and the value chain of its respective buckets
+   */
+  private static final class Entry<TKey, TValue>
+  {
+    TKey key;
+    TValue value;
+    int keyHash;
+    int valueHash;
+    Entry<TKey, TValue> nextByKey;
+    Entry<TKey, TValue> nextByValue;
+
+    Entry(TKey key, int keyHash, TValue value, int valueHash)
+    {
+      this.key = key;
+      this.keyHash = keyHash;
+      this.value = value;
+      this.valueHash = valueHash;
+    }
+  }
+
+  /**
+   * Iterates over the key chains
+   */
+  private final class HashBiMapIterator
+      implements Iterator<KeyValuePair<TKey, TValue>>
+  {
+    private final int expectedModCount = modCount;
+    private int bucket;
+    private Entry<TKey, TValue> next;
+
+    HashBiMapIterator()
+    {
+      advance();
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return next != null;
+    }
+
+    @Override
+    public KeyValuePair<TKey, TValue> next()
+    {
+      if (expectedModCount != modCount)
+        throw new ConcurrentModificationException();
+      if (next == null)
+        throw new NoSuchElementException("There is no next element.");
+
+      Entry<TKey, TValue> result = next;
+      next = next.nextByKey;
+      if (next == null)
+        advance();
+
+      return new KeyValuePair<TKey, TValue>(result.key, result.value);
+    }
+
+    /**
+     * @throws UnsupportedOperationException The remove operation is not supported.
+     */
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    private void advance()
+    {
+      while (next == null && bucket < keyTable.length)
+        next = keyTable[bucket++];
+    }
+  }
+}
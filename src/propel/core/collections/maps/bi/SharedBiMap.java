@@ -18,12 +18,408 @@
 // /////////////////////////////////////////////////////////
 package propel.core.collections.maps.bi;
 
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.model.IShared;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
- * A type-aware thread-safe AVL-tree-backed bi-directional map. This collections does not allow null keys or values to be inserted.
+ * A type-aware thread-safe hash-based bi-directional map. This collection does not allow null keys or values to be inserted.
+ * 
+ * Instantiate using e.g.: new SharedBiMap&lt;String, Object&gt;(){}; -OR- new SharedBiMap&lt;String, Object&gt;(String.class,
+ * Object.class);
  */
-// TODO:implement this!
-@Deprecated
 public class SharedBiMap<TKey extends Comparable<TKey>, TValue extends Comparable<TValue>>
-    extends AvlBiMap<TKey, TValue>
+    implements IBiMap<TKey, TValue>, IShared
 {
+  private final HashBiMap<TKey, TValue> map;
+  private final ReentrantLock reEntrantLock;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public SharedBiMap()
+  {
+    Class<?> keyType = SuperTypeToken.getClazz(this.getClass(), 0);
+    Class<?> valueType = SuperTypeToken.getClazz(this.getClass(), 1);
+
+    map = new HashBiMap<TKey, TValue>(keyType, valueType);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Constructor for initializing with the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public SharedBiMap(Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    map = new HashBiMap<TKey, TValue>(genericTypeParameterKey, genericTypeParameterValue);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Constructor initializes with another reified map
+   * 
+   * @throws NullPointerException When the argument is null, or a key or value in the map provided is null.
+   */
+  public SharedBiMap(ReifiedMap<TKey, TValue> map)
+  {
+    this.map = new HashBiMap<TKey, TValue>(map);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Constructor initializes from another map
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException When the argument is null, or a key or value in the map provided is null.
+   */
+  public SharedBiMap(Map<? extends TKey, ? extends TValue> map)
+  {
+    Class<?> keyType = SuperTypeToken.getClazz(this.getClass(), 0);
+    Class<?> valueType = SuperTypeToken.getClazz(this.getClass(), 1);
+
+    this.map = new HashBiMap<TKey, TValue>(map, keyType, valueType);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Constructor initializes from another map and the key/value generic type parameters
+   * 
+   * @throws NullPointerException When an argument is null, or a key or value in the map provided is null.
+   */
+  public SharedBiMap(Map<? extends TKey, ? extends TValue> map, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    this.map = new HashBiMap<TKey, TValue>(map, genericTypeParameterKey, genericTypeParameterValue);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Adds a key/value pair in the BiMap, returning true if succeeded. Null keys/values are not allowed. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key or the value is null.
+   */
+  @Override
+  public boolean add(TKey key, TValue value)
+  {
+    lock();
+    try
+    {
+      return map.add(key, value);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Removes all elements.
+   */
+  @Override
+  public void clear()
+  {
+    lock();
+    try
+    {
+      map.clear();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns true if a given key exists, false otherwise. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean containsKey(TKey key)
+  {
+    lock();
+    try
+    {
+      return map.containsKey(key);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns true if a given value exists, false otherwise. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the value is null.
+   */
+  @Override
+  public boolean containsValue(TValue value)
+  {
+    lock();
+    try
+    {
+      return map.containsValue(value);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a copy of all keys. This is an O(n) operation.
+   */
+  @Override
+  public Iterable<TKey> getKeys()
+  {
+    lock();
+    try
+    {
+      return map.getKeys();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a copy of all values. This is an O(n) operation.
+   */
+  @Override
+  public Iterable<TValue> getValues()
+  {
+    lock();
+    try
+    {
+      return map.getValues();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns the value associated with a key. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   * @throws KeyNotFoundException When the key is not found.
+   */
+  @Override
+  public TValue getByKey(TKey key)
+  {
+    lock();
+    try
+    {
+      return map.getByKey(key);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns the key associated with a value. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the value is null.
+   * @throws KeyNotFoundException When the value is not found.
+   */
+  @Override
+  public TKey getByValue(TValue value)
+  {
+    lock();
+    try
+    {
+      return map.getByValue(value);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return map.getGenericTypeParameterKey();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return map.getGenericTypeParameterValue();
+  }
+
+  /**
+   * Returns all key/value pairs in a list copy of key/value pairs. This is an O(n) operation.
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    lock();
+    try
+    {
+      List<KeyValuePair<TKey, TValue>> result = new ArrayList<KeyValuePair<TKey, TValue>>(map.size());
+
+      for (KeyValuePair<TKey, TValue> kvp : map)
+        result.add(kvp);
+
+      return result.iterator();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Removes an element by its key, returns true if successful. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean removeByKey(TKey key)
+  {
+    lock();
+    try
+    {
+      return map.removeByKey(key);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Removes an element by its value, returns true if successful. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the value is null.
+   */
+  @Override
+  public boolean removeByValue(TValue value)
+  {
+    lock();
+    try
+    {
+      return map.removeByValue(value);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Replaces an element's value, searching for it by key, returns true if successful. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the key or the value is null.
+   */
+  @Override
+  public boolean replaceByKey(TKey key, TValue newValue)
+  {
+    lock();
+    try
+    {
+      return map.replaceByKey(key, newValue);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Replaces an element's key, searching for it by value, returns true if successful. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the value or the key is null.
+   */
+  @Override
+  public boolean replaceByValue(TValue value, TKey newKey)
+  {
+    lock();
+    try
+    {
+      return map.replaceByValue(value, newKey);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns the number of items. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    lock();
+    try
+    {
+      return map.size();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    lock();
+    try
+    {
+      return Linq.toString(map);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Locks the collection.
+   */
+  @Override
+  public void lock()
+  {
+    reEntrantLock.lock();
+  }
+
+  /**
+   * Unlocks the collection.
+   * 
+   * @throws IllegalMonitorStateException When the current thread does not own the lock.
+   */
+  @Override
+  public void unlock()
+  {
+    reEntrantLock.unlock();
+  }
 }
@@ -0,0 +1,697 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.combinational;
+
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.lists.ReifiedArrayList;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.utils.HashingUtils;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware hash-indexed map holding values which are accessible by key as well as a list-style index, in insertion order. Entries are
+ * stored densely in insertion order, with a compact open-addressed index of entry positions providing O(1) key lookup. Removed entries
+ * leave a gap which is compacted lazily, so that removal is amortised O(1); index-based operations following a removal from the middle of
+ * the map may incur a single O(n) compaction. This map does not allow null keys to be inserted.
+ * 
+ * Instantiate using e.g.: new HashListMap&lt;String, Object&gt;(){}; -OR- new HashListMap&lt;String, Object&gt;(String.class,
+ * Object.class);
+ */
+public class HashListMap<TKey extends Comparable<TKey>, TValue>
+    implements IListMap<TKey, TValue>
+{
+  /**
+   * The default initial capacity
+   */
+  public static final int DEFAULT_SIZE = 16;
+  /**
+   * The maximum entry capacity, the index is twice as large
+   */
+  private static final int MAXIMUM_CAPACITY = 1 << 29;
+  private final Class<?> genericTypeParameterKey;
+  private final Class<?> genericTypeParameterValue;
+  // entries in insertion order, a null key marks a removed entry
+  private Object[] keys;
+  private Object[] values;
+  private int[] hashes;
+  // open-addressed (linear probing) index holding entry positions plus one, zero denotes an empty bucket
+  private int[] index;
+  // the first entry position in use
+  private int head;
+  // one past the last entry position in use
+  private int used;
+  // the number of removed entries between head and used
+  private int removed;
+  // all entry positions between head and this are in use
+  private int firstRemoved;
+  private int size;
+
+  /**
+   * Default constructor.
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public HashListMap()
+  {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * Constructor for initializing with the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public HashListMap(Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    this(DEFAULT_SIZE, genericTypeParameterKey, genericTypeParameterValue);
+  }
+
+  /**
+   * Initializes the map with an initial size.
+   * 
+   * @throws IllegalArgumentException When the initial size is negative.
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public HashListMap(int initialSize)
+  {
+    if (initialSize < 0)
+      throw new IllegalArgumentException("initialSize=" + initialSize);
+
+    genericTypeParameterKey = SuperTypeToken.getClazz(this.getClass(), 0);
+    genericTypeParameterValue = SuperTypeToken.getClazz(this.getClass(), 1);
+    allocate(initialSize);
+  }
+
+  /**
+   * Constructor initializes with an initial size and the key/value generic type parameters.
+   * 
+   * @throws IllegalArgumentException When the initial size is negative.
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public HashListMap(int initialSize, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    if (initialSize < 0)
+      throw new IllegalArgumentException("initialSize=" + initialSize);
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    this.genericTypeParameterKey = genericTypeParameterKey;
+    this.genericTypeParameterValue = genericTypeParameterValue;
+    allocate(initialSize);
+  }
+
+  /**
+   * Constructor initializes with another reified map. Where keys are repeated, the first occurrence is kept.
+   * 
+   * @throws NullPointerException When the argument is null, or a key in the map provided is null.
+   */
+  public HashListMap(ReifiedMap<TKey, TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    genericTypeParameterKey = map.getGenericTypeParameterKey();
+    genericTypeParameterValue = map.getGenericTypeParameterValue();
+    allocate(map.size());
+
+    for (KeyValuePair<TKey, TValue> kvp : map)
+      add(kvp);
+  }
+
+  /**
+   * Constructor initializes from another map
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException When the argument is null, or a key in the map provided is null.
+   */
+  public HashListMap(Map<? extends TKey, ? extends TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    genericTypeParameterKey = SuperTypeToken.getClazz(this.getClass(), 0);
+    genericTypeParameterValue = SuperTypeToken.getClazz(this.getClass(), 1);
+    allocate(map.size());
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map and the key/value generic type parameters
+   * 
+   * @throws NullPointerException When an argument is null, or a key in the map provided is null.
+   */
+  public HashListMap(Map<? extends TKey, ? extends TValue> map, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    this.genericTypeParameterKey = genericTypeParameterKey;
+    this.genericTypeParameterValue = genericTypeParameterValue;
+    allocate(map.size());
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Adds a new key/value pair at the end of the map. Returns true if successful, false if another entry with the same key exists. This is
+   * an amortised O(1) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean add(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int hash = hash(key);
+    if (find(key, hash) >= 0)
+      return false;
+
+    if (used == keys.length)
+      rebuild(size >= keys.length - (keys.length >> 2) ? keys.length << 1 : keys.length);
+
+    int position = used++;
+    keys[position] = key;
+    values[position] = value;
+    hashes[position] = hash;
+    insertIndex(position);
+    size++;
+
+    return true;
+  }
+
+  /**
+   * Adds a new key/value pair at the end of the map. Returns true if successful, false if another entry with the same key exists. This is
+   * an amortised O(1) operation.
+   * 
+   * @throws NullPointerException If the key/value pair or the key is null.
+   */
+  @Override
+  public boolean add(KeyValuePair<? extends TKey, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    return add(kvp.getKey(), kvp.getValue());
+  }
+
+  /**
+   * Clears the collection. This is an O(n) operation.
+   */
+  @Override
+  public void clear()
+  {
+    Arrays.fill(keys, head, used, null);
+    Arrays.fill(values, head, used, null);
+    Arrays.fill(index, 0);
+
+    head = 0;
+    used = 0;
+    removed = 0;
+    firstRemoved = 0;
+    size = 0;
+  }
+
+  /**
+   * Returns true if the given key is contained in the collection. This is an O(1) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean contains(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return find(key, hash(key)) >= 0;
+  }
+
+  /**
+   * Returns the key's value if it exists, otherwise throws KeyNotFoundException. This is an O(1) operation.
+   * 
+   * @throws NullPointerException The argument provided was null.
+   * @throws KeyNotFoundException The key was not found.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TValue get(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int position = find(key, hash(key));
+    if (position < 0)
+      throw new KeyNotFoundException("The given key was not found: " + key);
+
+    return (TValue) values[position];
+  }
+
+  /**
+   * Returns the key's value if the position exists. This is an O(1) operation, unless a compaction is pending.
+   * 
+   * @throws IndexOutOfBoundsException The argument provided was out of range.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TValue getAt(int index)
+  {
+    // compaction may re-allocate the arrays
+    int position = positionOf(index);
+    return (TValue) values[position];
+  }
+
+  /**
+   * Returns the key at the specified position. This is an O(1) operation, unless a compaction is pending.
+   * 
+   * @throws IndexOutOfBoundsException The argument provided was out of range.
+   */
+  @SuppressWarnings("unchecked")
+  public TKey getKeyAt(int index)
+  {
+    int position = positionOf(index);
+    return (TKey) keys[position];
+  }
+
+  /**
+   * Puts all keys in a list and returns them. Result order matches key/value pair insertion order. This is an O(n) operation.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public ReifiedArrayList<TKey> getKeys()
+  {
+    ReifiedArrayList<TKey> result = new ReifiedArrayList<TKey>(size, genericTypeParameterKey);
+    for (int i = head; i < used; i++)
+      if (keys[i] != null)
+        result.add((TKey) keys[i]);
+
+    return result;
+  }
+
+  /**
+   * Puts all values in a list and returns them. Result order matches key/value pair insertion order. This is an O(n) operation.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public ReifiedArrayList<TValue> getValues()
+  {
+    ReifiedArrayList<TValue> result = new ReifiedArrayList<TValue>(size, genericTypeParameterValue);
+    for (int i = head; i < used; i++)
+      if (keys[i] != null)
+        result.add((TValue) values[i]);
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return genericTypeParameterKey;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return genericTypeParameterValue;
+  }
+
+  /**
+   * Returns the index of the given key, if it is contained in the collection. Otherwise returns -1 as it is not contained in the
+   * collection. This is an O(1) operation, unless a compaction is pending.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public int indexOf(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int hash = hash(key);
+    int position = find(key, hash);
+    if (position < 0)
+      return -1;
+
+    if (removed > 0 && position >= firstRemoved)
+    {
+      rebuild(keys.length);
+      position = find(key, hash);
+    }
+
+    return position - head;
+  }
+
+  /**
+   * Returns an iterator of the collection, in insertion order. This is an O(1) operation.
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    return new HashListMapIterator();
+  }
+
+  /**
+   * Removes an item from the collection. Returns true if item was found and removed. This is an amortised O(1) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean remove(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int position = find(key, hash(key));
+    if (position < 0)
+      return false;
+
+    removePosition(position);
+    return true;
+  }
+
+  /**
+   * Removes the item at the specified position. This is an amortised O(1) operation, unless a compaction is pending.
+   * 
+   * @throws IndexOutOfBoundsException If the index is out of range.
+   */
+  @Override
+  public void removeAt(int index)
+  {
+    removePosition(positionOf(index));
+  }
+
+  /**
+   * Replaces a key's value with the specified new value. Returns true if the key was found and replaced. This is an O(1) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean replace(TKey key, TValue newValue)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int position = find(key, hash(key));
+    if (position < 0)
+      return false;
+
+    values[position] = newValue;
+    return true;
+  }
+
+  /**
+   * Sets a value at the specified index. This is an O(1) operation, unless a compaction is pending.
+   * 
+   * @throws IndexOutOfBoundsException The index provided was out of range.
+   */
+  @Override
+  public void replaceAt(int index, TValue newValue)
+  {
+    int position = positionOf(index);
+    values[position] = newValue;
+  }
+
+  /**
+   * Returns the collection size. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  /**
+   * Initialises empty storage for the given number of entries
+   */
+  private void allocate(int capacity)
+  {
+    capacity = capacityFor(capacity);
+
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    hashes = new int[capacity];
+    index = new int[capacity << 1];
+  }
+
+  /**
+   * Moves all entries to the start of newly allocated storage of the given capacity, dropping removed entries, and re-creates the index.
+   * This is an O(n) operation.
+   */
+  private void rebuild(int capacity)
+  {
+    if (capacity > MAXIMUM_CAPACITY)
+      throw new IllegalStateException("The maximum capacity has been reached: " + MAXIMUM_CAPACITY);
+
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    int[] oldHashes = hashes;
+    int oldHead = head;
+    int oldUsed = used;
+
+    allocate(capacity);
+
+    int position = 0;
+    for (int i = oldHead; i < oldUsed; i++)
+      if (oldKeys[i] != null)
+      {
+        keys[position] = oldKeys[i];
+        values[position] = oldValues[i];
+        hashes[position] = oldHashes[i];
+        insertIndex(position);
+        position++;
+      }
+
+    head = 0;
+    used = position;
+    removed = 0;
+    firstRemoved = position;
+  }
+
+  /**
+   * Returns the entry position of the given zero-based index, compacting the entries first if there are removed entries before it
+   */
+  private int positionOf(int index)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    if (removed > 0 && head + index >= firstRemoved)
+      rebuild(keys.length);
+
+    return head + index;
+  }
+
+  /**
+   * Returns the entry position of the given key, or -1 if not found
+   */
+  private int find(TKey key, int hash)
+  {
+    int mask = index.length - 1;
+
+    for (int bucket = hash & mask; index[bucket] != 0; bucket = (bucket + 1) & mask)
+    {
+      int position = index[bucket] - 1;
+      if (hashes[position] == hash && key.equals(keys[position]))
+        return position;
+    }
+
+    return -1;
+  }
+
+  private void insertIndex(int position)
+  {
+    int mask = index.length - 1;
+
+    int bucket = hashes[position] & mask;
+    while (index[bucket] != 0)
+      bucket = (bucket + 1) & mask;
+
+    index[bucket] = position + 1;
+  }
+
+  /**
+   * Removes an entry position from the index, shifting subsequent entries of the probe sequence back so that no tombstones are needed
+   */
+  private void removeIndex(int position)
+  {
+    int mask = index.length - 1;
+
+    int gap = hashes[position] & mask;
+    while (index[gap] != position + 1)
+      gap = (gap + 1) & mask;
+
+    for (int bucket = (gap + 1) & mask; index[bucket] != 0; bucket = (bucket + 1) & mask)
+    {
+      int home = hashes[index[bucket] - 1] & mask;
+
+      // move back if the gap lies between the entry's home bucket and its current bucket
+      if (((bucket - home) & mask) >= ((bucket - gap) & mask))
+      {
+        index[gap] = index[bucket];
+        gap = bucket;
+      }
+    }
+
+    index[gap] = 0;
+  }
+
+  /**
+   * Removes the entry at the given position. Removals at either end are reclaimed immediately, others leave a gap until compaction.
+   */
+  private void removePosition(int position)
+  {
+    removeIndex(position);
+    keys[position] = null;
+    values[position] = null;
+    size--;
+
+    if (size == 0)
+    {
+      head = 0;
+      used = 0;
+      removed = 0;
+      firstRemoved = 0;
+      return;
+    }
+
+    if (position == head)
+    {
+      do
+      {
+        head++;
+        if (keys[head] == null)
+          removed--;
+      }
+      while (keys[head] == null);
+
+      if (firstRemoved < head)
+        firstRemoved = head;
+    } else if (position == used - 1)
+    {
+      do
+      {
+        used--;
+        if (keys[used - 1] == null)
+          removed--;
+      }
+      while (keys[used - 1] == null);
+    } else
+    {
+      if (removed == 0 || position < firstRemoved)
+        firstRemoved = position;
+      removed++;
+
+      // compact once the gaps outnumber the entries
+      if (removed > size)
+        rebuild(keys.length);
+    }
+  }
+
+  private static int hash(Object key)
+  {
+    return HashingUtils.spread(key.hashCode());
+  }
+
+  private static int capacityFor(int count)
+  {
+    int capacity = DEFAULT_SIZE;
+    while (capacity < count && capacity < MAXIMUM_CAPACITY)
+      capacity <<= 1;
+
+    return capacity;
+  }
+
+  /**
+   * Iterates over the entries in insertion order, skipping removed ones
+   */
+  private final class HashListMapIterator
+      implements Iterator<KeyValuePair<TKey, TValue>>
+  {
+    private int position = head;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext()
+    {
+      while (position < used && keys[position] == null)
+        position++;
+
+      return position < used;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public KeyValuePair<TKey, TValue> next()
+    {
+      if (!hasNext())
+        throw new NoSuchElementException("There is no next element.");
+
+      KeyValuePair<TKey, TValue> kvp = new KeyValuePair<TKey, TValue>((TKey) keys[position], (TValue) values[position]);
+      position++;
+      return kvp;
+    }
+
+    /**
+     * @throws UnsupportedOperationException Always.
+     * @deprecated
+     */
+    @Deprecated
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException("This method is not supported.");
+    }
+  }
+}
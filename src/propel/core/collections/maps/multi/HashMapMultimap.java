@@ -0,0 +1,649 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.multi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import lombok.Validate;
+import lombok.Validate.NotNull;
+import propel.core.functional.tuples.Triple;
+import propel.core.utils.HashingUtils;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+
+/**
+ * A type-aware flat implementation of a Map of Maps. All key/subkey/value tuples are stored as entries of a single hash table, indexed by
+ * the composite (key, subkey); a secondary index links together the entries of each key, for per-key iteration and removal. Unlike
+ * MapMultimap, no map is allocated per key, which suits large sparse tables. Lookups by key/subkey are O(1), iteration order is
+ * unspecified. This map implementation does not allow null keys/subkeys to be inserted.
+ */
+public class HashMapMultimap<T extends Comparable<? super T>, K extends Comparable<? super K>, V>
+    implements IMapMultimap<T, K, V>
+{
+  /**
+   * The default initial capacity, must be a power of two
+   */
+  public static final int DEFAULT_CAPACITY = 16;
+  private static final int MAXIMUM_CAPACITY = 1 << 30;
+  private final Class<?> keyType;
+  private final Class<?> subkeyType;
+  private final Class<?> valueType;
+  // composite-key hash chains
+  private Entry<T, K, V>[] table;
+  // the entries of each key
+  private final Map<T, Group<T, K, V>> groups;
+  private int size;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public HashMapMultimap()
+  {
+    keyType = SuperTypeToken.getClazz(this.getClass(), 0);
+    subkeyType = SuperTypeToken.getClazz(this.getClass(), 1);
+    valueType = SuperTypeToken.getClazz(this.getClass(), 2);
+
+    table = newTable(DEFAULT_CAPACITY);
+    groups = new HashMap<T, Group<T, K, V>>();
+  }
+
+  /**
+   * Constructor initializes with generic type parameters.
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public HashMapMultimap(Class<?> keyType, Class<?> subkeyType, Class<?> valueType)
+  {
+    this(DEFAULT_CAPACITY, keyType, subkeyType, valueType);
+  }
+
+  /**
+   * Constructor initializes with the expected number of tuples and generic type parameters.
+   * 
+   * @throws IllegalArgumentException When the expected size is negative.
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  @Validate
+  public HashMapMultimap(int expectedSize, @NotNull final Class<?> keyType, @NotNull final Class<?> subkeyType,
+                         @NotNull final Class<?> valueType)
+  {
+    if (expectedSize < 0)
+      throw new IllegalArgumentException("expectedSize=" + expectedSize);
+
+    this.keyType = keyType;
+    this.subkeyType = subkeyType;
+    this.valueType = valueType;
+
+    table = newTable(capacityFor(expectedSize));
+    groups = new HashMap<T, Group<T, K, V>>();
+  }
+
+  /**
+   * Returns the number of tuples. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the number of tuples under a key. This is an O(1) operation.
+   */
+  @Override
+  @Validate
+  public int size(@NotNull final T key)
+  {
+    Group<T, K, V> group = groups.get(key);
+    return group == null ? 0 : group.size;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Returns true if the key/subkey tuple exists. This is an O(1) operation.
+   */
+  @Override
+  @Validate
+  public boolean contains(@NotNull final T key, @NotNull final K subkey)
+  {
+    return find(key, subkey, hash(key, subkey)) != null;
+  }
+
+  /**
+   * Returns true if the key exists. This is an O(1) operation.
+   */
+  @Override
+  @Validate
+  public boolean containsKey(@NotNull final T key)
+  {
+    return groups.containsKey(key);
+  }
+
+  /**
+   * Returns true if the sub-key exists under any key. This is an O(n) operation.
+   */
+  @Override
+  @Validate
+  public boolean containsSubkey(@NotNull final K key)
+  {
+    for (Group<T, K, V> group : groups.values())
+      for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+        if (entry.subkey.equals(key))
+          return true;
+
+    return false;
+  }
+
+  /**
+   * Returns true if the value exists. This is an O(n) operation.
+   */
+  @Override
+  @Validate
+  public boolean containsValue(@NotNull final V value)
+  {
+    for (Group<T, K, V> group : groups.values())
+      for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+        if (value.equals(entry.value))
+          return true;
+
+    return false;
+  }
+
+  /**
+   * Returns the value of a key/subkey tuple, or null if not found. This is an O(1) operation.
+   */
+  @Override
+  @Validate
+  public V get(@NotNull final T key, @NotNull final K subkey)
+  {
+    Entry<T, K, V> entry = find(key, subkey, hash(key, subkey));
+    return entry == null ? null : entry.value;
+  }
+
+  /**
+   * Returns a copy of the sub-map of a key, which stores sub-keys -> values. If no such key is found, null is returned. This is an O(m)
+   * operation, where m is the number of sub-keys of the key.
+   */
+  @Override
+  @Validate
+  public Map<K, V> getKey(@NotNull final T key)
+  {
+    Group<T, K, V> group = groups.get(key);
+    if (group == null)
+      return null;
+
+    Map<K, V> result = new TreeMap<K, V>();
+    for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+      result.put(entry.subkey, entry.value);
+
+    return result;
+  }
+
+  /**
+   * Returns all values held under a key's sub-keys. If no such key is found, an empty iterable is returned. This is an O(m) operation,
+   * where m is the number of sub-keys of the key.
+   */
+  @Override
+  @Validate
+  public Iterable<V> getAllValues(@NotNull final T key)
+  {
+    List<V> result = new ArrayList<V>();
+
+    Group<T, K, V> group = groups.get(key);
+    if (group != null)
+      for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+        result.add(entry.value);
+
+    return result;
+  }
+
+  /**
+   * Returns the value of a sub-key under any key. If no such sub-key is found, null is returned. This is an O(n) operation.
+   */
+  @Override
+  @Validate
+  public V getValueBySubkey(@NotNull final K subkey)
+  {
+    for (Group<T, K, V> group : groups.values())
+      for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+        if (entry.subkey.equals(subkey))
+          return entry.value;
+
+    return null;
+  }
+
+  /**
+   * Returns all values under a sub-key. If no such sub-key is found, an empty iterable is returned. This is an O(n) operation.
+   */
+  @Override
+  @Validate
+  public Iterable<V> getValuesBySubkey(@NotNull final K subkey)
+  {
+    List<V> result = new ArrayList<V>();
+    for (Group<T, K, V> group : groups.values())
+      for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+        if (entry.subkey.equals(subkey))
+          result.add(entry.value);
+
+    return result;
+  }
+
+  /**
+   * Inserts a key/subkey/value tuple. Returns the old value. If no old value existed, null is returned. This is an amortised O(1)
+   * operation.
+   */
+  @Override
+  @Validate
+  public V put(@NotNull final T key, @NotNull final K subkey, V value)
+  {
+    int hash = hash(key, subkey);
+
+    Entry<T, K, V> entry = find(key, subkey, hash);
+    if (entry != null)
+    {
+      V old = entry.value;
+      entry.value = value;
+      return old;
+    }
+
+    insert(key, subkey, value, hash);
+    return null;
+  }
+
+  /**
+   * Inserts a key/subkey/value tuple, if it is absent, returning null. Otherwise returns the existing value, without altering it. This is
+   * an amortised O(1) operation.
+   * 
+   * @throws NullPointerException A key or sub-key is null
+   */
+  @Validate
+  public V putIfAbsent(@NotNull final T key, @NotNull final K subkey, V value)
+  {
+    int hash = hash(key, subkey);
+
+    Entry<T, K, V> entry = find(key, subkey, hash);
+    if (entry != null)
+      return entry.value;
+
+    insert(key, subkey, value, hash);
+    return null;
+  }
+
+  /**
+   * Removes a key/sub-key tuple value. Returns the removed value, or null if no such key/sub-key tuple existed. This is an O(1) operation.
+   */
+  @Override
+  @Validate
+  public V remove(@NotNull final T key, @NotNull final K subkey)
+  {
+    Entry<T, K, V> entry = find(key, subkey, hash(key, subkey));
+    if (entry == null)
+      return null;
+
+    delete(entry);
+    return entry.value;
+  }
+
+  /**
+   * Removes a key's sub-key->value tuples and returns them in a map, or null if no such key existed. This is an O(m) operation, where m is
+   * the number of sub-keys of the key.
+   */
+  @Override
+  @Validate
+  public Map<K, V> removeKey(@NotNull final T key)
+  {
+    Group<T, K, V> group = groups.get(key);
+    if (group == null)
+      return null;
+
+    Map<K, V> result = new TreeMap<K, V>();
+    while (group.first != null)
+    {
+      Entry<T, K, V> entry = group.first;
+      result.put(entry.subkey, entry.value);
+      delete(entry);
+    }
+
+    return result;
+  }
+
+  /**
+   * Removes the first occurrence of a sub-key. Returns the removed value, or null if no such sub-key existed. This is an O(n) operation.
+   */
+  @Override
+  @Validate
+  public V removeSubKey(@NotNull final K subkey)
+  {
+    for (Group<T, K, V> group : groups.values())
+      for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+        if (entry.subkey.equals(subkey))
+        {
+          delete(entry);
+          return entry.value;
+        }
+
+    return null;
+  }
+
+  /**
+   * Removes all occurrences of a sub-key. Returns the removed values, or null if no such sub-key existed. This is an O(n) operation.
+   */
+  @Override
+  @Validate
+  public V[] removeSubKeys(@NotNull final K subkey)
+  {
+    List<Entry<T, K, V>> found = new ArrayList<Entry<T, K, V>>();
+    for (Group<T, K, V> group : groups.values())
+      for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+        if (entry.subkey.equals(subkey))
+          found.add(entry);
+
+    if (found.isEmpty())
+      return null;
+
+    List<V> list = new ArrayList<V>(found.size());
+    for (Entry<T, K, V> entry : found)
+    {
+      delete(entry);
+      list.add(entry.value);
+    }
+
+    return Linq.toArray(list, getGenericTypeParameterValue());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear()
+  {
+    for (int i = 0; i < table.length; i++)
+      table[i] = null;
+
+    groups.clear();
+    size = 0;
+  }
+
+  /**
+   * Returns a read-only view of the key set
+   */
+  @Override
+  public Set<T> keySet()
+  {
+    return Collections.unmodifiableSet(groups.keySet());
+  }
+
+  /**
+   * Returns all sub-keys, or an empty iterable if no sub-keys exist. This is an O(n) operation.
+   */
+  @Override
+  public Iterable<K> subkeys()
+  {
+    List<K> result = new ArrayList<K>(size);
+    for (Group<T, K, V> group : groups.values())
+      for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+        result.add(entry.subkey);
+
+    return result;
+  }
+
+  /**
+   * Returns all values, or an empty iterable if no values exist. This is an O(n) operation.
+   */
+  @Override
+  public Iterable<V> values()
+  {
+    List<V> result = new ArrayList<V>(size);
+    for (Group<T, K, V> group : groups.values())
+      for (Entry<T, K, V> entry = group.first; entry != null; entry = entry.nextInGroup)
+        result.add(entry.value);
+
+    return result;
+  }
+
+  /**
+   * Returns an iterator of all tuples, grouped by key.
+   */
+  @Override
+  public Iterator<Triple<T, K, V>> iterator()
+  {
+    final Iterator<Group<T, K, V>> groupIterator = groups.values().iterator();
+
+    return new Iterator<Triple<T, K, V>>() {
+      private Entry<T, K, V> next;
+
+      @Override
+      public boolean hasNext()
+      {
+        while (next == null && groupIterator.hasNext())
+          next = groupIterator.next().first;
+
+        return next != null;
+      }
+
+      @Override
+      public Triple<T, K, V> next()
+      {
+        if (!hasNext())
+          throw new NoSuchElementException("There is no next element.");
+
+        Entry<T, K, V> entry = next;
+        next = entry.nextInGroup;
+        return new Triple<T, K, V>(entry.key, entry.subkey, entry.value);
+      }
+
+      @Override
+      @Deprecated
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return keyType;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterSubKey()
+  {
+    return subkeyType;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return valueType;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  private Entry<T, K, V> find(T key, K subkey, int hash)
+  {
+    for (Entry<T, K, V> entry = table[hash & (table.length - 1)]; entry != null; entry = entry.next)
+      if (entry.hash == hash && entry.key.equals(key) && entry.subkey.equals(subkey))
+        return entry;
+
+    return null;
+  }
+
+  private void insert(T key, K subkey, V value, int hash)
+  {
+    if (size >= table.length - (table.length >> 2) && table.length < MAXIMUM_CAPACITY)
+      resize(table.length << 1);
+
+    Group<T, K, V> group = groups.get(key);
+    if (group == null)
+    {
+      group = new Group<T, K, V>();
+      groups.put(key, group);
+    } else
+      // share the group's key instance
+      key = group.first.key;
+
+    Entry<T, K, V> entry = new Entry<T, K, V>(key, subkey, value, hash);
+
+    int bucket = hash & (table.length - 1);
+    entry.next = table[bucket];
+    table[bucket] = entry;
+
+    entry.nextInGroup = group.first;
+    if (group.first != null)
+      group.first.previousInGroup = entry;
+    group.first = entry;
+    group.size++;
+
+    size++;
+  }
+
+  private void delete(Entry<T, K, V> entry)
+  {
+    int bucket = entry.hash & (table.length - 1);
+    if (table[bucket] == entry)
+      table[bucket] = entry.next;
+    else
+    {
+      Entry<T, K, V> previous = table[bucket];
+      while (previous.next != entry)
+        previous = previous.next;
+
+      previous.next = entry.next;
+    }
+
+    Group<T, K, V> group = groups.get(entry.key);
+    if (entry.previousInGroup == null)
+      group.first = entry.nextInGroup;
+    else
+      entry.previousInGroup.nextInGroup = entry.nextInGroup;
+    if (entry.nextInGroup != null)
+      entry.nextInGroup.previousInGroup = entry.previousInGroup;
+
+    if (--group.size == 0)
+      groups.remove(entry.key);
+
+    size--;
+  }
+
+  private void resize(int capacity)
+  {
+    Entry<T, K, V>[] old = table;
+    table = newTable(capacity);
+
+    for (Entry<T, K, V> bucket : old)
+    {
+      Entry<T, K, V> entry = bucket;
+      while (entry != null)
+      {
+        Entry<T, K, V> next = entry.next;
+        int index = entry.hash & (capacity - 1);
+        entry.next = table[index];
+        table[index] = entry;
+        entry = next;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T, K, V> Entry<T, K, V>[] newTable(int capacity)
+  {
+    return (Entry<T, K, V>[]) new Entry<?, ?, ?>[capacity];
+  }
+
+  private static int capacityFor(int expectedSize)
+  {
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity - (capacity >> 2) < expectedSize && capacity < MAXIMUM_CAPACITY)
+      capacity <<= 1;
+
+    return capacity;
+  }
+
+  private static int hash(Object key, Object subkey)
+  {
+    return HashingUtils.spread(key.hashCode() * 31 + subkey.hashCode());
+  }
+
+  /**
+   * A key/subkey/value tuple, chained in its hash bucket and doubly-linked within its key's group
+   */
+  private static final class Entry<T, K, V>
+  {
+    final T key;
+    final K subkey;
+    V value;
+    final int hash;
+    Entry<T, K, V> next;
+    Entry<T, K, V> previousInGroup;
+    Entry<T, K, V> nextInGroup;
+
+    Entry(T key, K subkey, V value, int hash)
+    {
+      this.key = key;
+      this.subkey = subkey;
+      this.value = value;
+      this.hash = hash;
+    }
+  }
+
+  /**
+   * The secondary index record of a key, heading the list of its entries
+   */
+  private static final class Group<T, K, V>
+  {
+    Entry<T, K, V> first;
+    int size;
+  }
+}
@@ -0,0 +1,711 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.multi;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Validate;
+import lombok.Validate.NotNull;
+import propel.core.functional.tuples.Triple;
+import propel.core.utils.HashingUtils;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+
+/**
+ * A type-aware thread-safe implementation of a Map of Maps, partitioned by key into lock-striped HashMapMultimap segments. Operations on a
+ * single key lock only the stripe holding that key, so writers of different keys rarely contend. Operations spanning all keys visit the
+ * stripes one at a time and return copies; they are weakly consistent, i.e. they do not observe a single point-in-time snapshot of the
+ * whole map. This map implementation does not allow null keys/subkeys to be inserted.
+ */
+public class StripedMapMultimap<T extends Comparable<? super T>, K extends Comparable<? super K>, V>
+    implements ISharedMapMultimap<T, K, V>
+{
+  /**
+   * The default number of stripes
+   */
+  public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+  private static final int MAXIMUM_CONCURRENCY_LEVEL = 1 << 16;
+  private final Class<?> keyType;
+  private final Class<?> subkeyType;
+  private final Class<?> valueType;
+  private final HashMapMultimap<T, K, V>[] stripes;
+  private final ReentrantLock[] locks;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public StripedMapMultimap()
+  {
+    keyType = SuperTypeToken.getClazz(this.getClass(), 0);
+    subkeyType = SuperTypeToken.getClazz(this.getClass(), 1);
+    valueType = SuperTypeToken.getClazz(this.getClass(), 2);
+
+    stripes = newStripes(DEFAULT_CONCURRENCY_LEVEL, keyType, subkeyType, valueType);
+    locks = newLocks(stripes.length);
+  }
+
+  /**
+   * Constructor initializes with generic type parameters.
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public StripedMapMultimap(Class<?> keyType, Class<?> subkeyType, Class<?> valueType)
+  {
+    this(DEFAULT_CONCURRENCY_LEVEL, keyType, subkeyType, valueType);
+  }
+
+  /**
+   * Constructor initializes with the number of stripes and generic type parameters. The concurrency level is rounded up to a power of
+   * two, and should approximate the number of threads expected to write concurrently.
+   * 
+   * @throws IllegalArgumentException When the concurrency level is not positive.
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  @Validate
+  public StripedMapMultimap(int concurrencyLevel, @NotNull final Class<?> keyType, @NotNull final Class<?> subkeyType,
+                            @NotNull final Class<?> valueType)
+  {
+    if (concurrencyLevel <= 0)
+      throw new IllegalArgumentException("concurrencyLevel=" + concurrencyLevel);
+
+    this.keyType = keyType;
+    this.subkeyType = subkeyType;
+    this.valueType = valueType;
+
+    stripes = newStripes(concurrencyLevel, keyType, subkeyType, valueType);
+    locks = newLocks(stripes.length);
+  }
+
+  /**
+   * Returns the number of tuples. This is an O(s) operation, where s is the number of stripes.
+   */
+  @Override
+  public int size()
+  {
+    int result = 0;
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        result += stripes[i].size();
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the number of tuples under a key. This is an O(1) operation.
+   */
+  @Override
+  @Validate
+  public int size(@NotNull final T key)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].size(key);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * Returns true if there are no tuples. This is an O(s) operation, where s is the number of stripes.
+   */
+  @Override
+  public boolean isEmpty()
+  {
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        if (!stripes[i].isEmpty())
+          return false;
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public boolean contains(@NotNull final T key, @NotNull final K subkey)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].contains(key, subkey);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public boolean containsKey(@NotNull final T key)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].containsKey(key);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public boolean containsSubkey(@NotNull final K key)
+  {
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        if (stripes[i].containsSubkey(key))
+          return true;
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public boolean containsValue(@NotNull final V value)
+  {
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        if (stripes[i].containsValue(value))
+          return true;
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public V get(@NotNull final T key, @NotNull final K subkey)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].get(key, subkey);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * Returns a copy of the sub-map of a key, which stores sub-keys -> values. If no such key is found, null is returned.
+   */
+  @Override
+  @Validate
+  public Map<K, V> getKey(@NotNull final T key)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].getKey(key);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * Returns a copy of all values held under a key's sub-keys. If no such key is found, an empty iterable is returned.
+   */
+  @Override
+  @Validate
+  public Iterable<V> getAllValues(@NotNull final T key)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].getAllValues(key);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public V getValueBySubkey(@NotNull final K subkey)
+  {
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        if (stripes[i].containsSubkey(subkey))
+          return stripes[i].getValueBySubkey(subkey);
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public Iterable<V> getValuesBySubkey(@NotNull final K subkey)
+  {
+    List<V> result = new ArrayList<V>();
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        for (V value : stripes[i].getValuesBySubkey(subkey))
+          result.add(value);
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public V put(@NotNull final T key, @NotNull final K subkey, V value)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].put(key, subkey, value);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public V putIfAbsent(@NotNull final T key, @NotNull final K subkey, V value)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].putIfAbsent(key, subkey, value);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public V remove(@NotNull final T key, @NotNull final K subkey)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].remove(key, subkey);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public Map<K, V> removeKey(@NotNull final T key)
+  {
+    int i = stripeOf(key);
+    lock(i);
+    try
+    {
+      return stripes[i].removeKey(key);
+    }
+    finally
+    {
+      unlock(i);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public V removeSubKey(@NotNull final K subkey)
+  {
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        if (stripes[i].containsSubkey(subkey))
+          return stripes[i].removeSubKey(subkey);
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Validate
+  public V[] removeSubKeys(@NotNull final K subkey)
+  {
+    List<V> list = new ArrayList<V>();
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        V[] removed = stripes[i].removeSubKeys(subkey);
+        if (removed != null)
+          for (V value : removed)
+            list.add(value);
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    if (list.isEmpty())
+      return null;
+
+    return Linq.toArray(list, getGenericTypeParameterValue());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear()
+  {
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        stripes[i].clear();
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+  }
+
+  /**
+   * Returns a sorted copy of the key set
+   */
+  @Override
+  public Set<T> keySet()
+  {
+    Set<T> result = new TreeSet<T>();
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        result.addAll(stripes[i].keySet());
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns a copy of all sub-keys, or an empty iterable if no sub-keys exist.
+   */
+  @Override
+  public Iterable<K> subkeys()
+  {
+    List<K> result = new ArrayList<K>();
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        for (K subkey : stripes[i].subkeys())
+          result.add(subkey);
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns a copy of all values, or an empty iterable if no values exist.
+   */
+  @Override
+  public Iterable<V> values()
+  {
+    List<V> result = new ArrayList<V>();
+    for (int i = 0; i < stripes.length; i++)
+    {
+      lock(i);
+      try
+      {
+        for (V value : stripes[i].values())
+          result.add(value);
+      }
+      finally
+      {
+        unlock(i);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns an iterator over a copy of all tuples, grouped by key. Each stripe is copied when the iterator first reaches it.
+   */
+  @Override
+  public Iterator<Triple<T, K, V>> iterator()
+  {
+    return new Iterator<Triple<T, K, V>>() {
+      private int stripe;
+      private Iterator<Triple<T, K, V>> current;
+
+      @Override
+      public boolean hasNext()
+      {
+        while ((current == null || !current.hasNext()) && stripe < stripes.length)
+          current = copyOf(stripe++);
+
+        return current != null && current.hasNext();
+      }
+
+      @Override
+      public Triple<T, K, V> next()
+      {
+        if (!hasNext())
+          throw new NoSuchElementException("There is no next element.");
+
+        return current.next();
+      }
+
+      @Override
+      @Deprecated
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return keyType;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterSubKey()
+  {
+    return subkeyType;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return valueType;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  private Iterator<Triple<T, K, V>> copyOf(int i)
+  {
+    List<Triple<T, K, V>> result = new ArrayList<Triple<T, K, V>>();
+
+    lock(i);
+    try
+    {
+      for (Triple<T, K, V> triple : stripes[i])
+        result.add(triple);
+    }
+    finally
+    {
+      unlock(i);
+    }
+
+    return result.iterator();
+  }
+
+  private int stripeOf(T key)
+  {
+    return HashingUtils.spread(key.hashCode()) & (stripes.length - 1);
+  }
+
+  private void lock(int i)
+  {
+    locks[i].lock();
+  }
+
+  private void unlock(int i)
+  {
+    locks[i].unlock();
+  }
+
+  private static <T extends Comparable<? super T>, K extends Comparable<? super K>, V> HashMapMultimap<T, K, V>[] newStripes(
+      int concurrencyLevel, Class<?> keyType, Class<?> subkeyType, Class<?> valueType)
+  {
+    int count = 1;
+    while (count < concurrencyLevel && count < MAXIMUM_CONCURRENCY_LEVEL)
+      count <<= 1;
+
+    @SuppressWarnings("unchecked")
+    HashMapMultimap<T, K, V>[] result = (HashMapMultimap<T, K, V>[]) new HashMapMultimap<?, ?, ?>[count];
+    for (int i = 0; i < count; i++)
+      result[i] = new HashMapMultimap<T, K, V>(keyType, subkeyType, valueType);
+
+    return result;
+  }
+
+  private static ReentrantLock[] newLocks(int count)
+  {
+    ReentrantLock[] result = new ReentrantLock[count];
+    for (int i = 0; i < count; i++)
+      result[i] = new ReentrantLock();
+
+    return result;
+  }
+}
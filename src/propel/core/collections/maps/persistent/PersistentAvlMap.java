@@ -0,0 +1,811 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.persistent;
+
+import propel.core.TryResult;
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.ReifiedIterable;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.collections.maps.avl.KeyValuePairKeyIterator;
+import propel.core.collections.maps.avl.KeyValuePairValueIterator;
+import propel.core.utils.Linq;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware, immutable AVL-tree-backed map. Modifying operations return a new version of the map, which shares all nodes with the
+ * previous version except for those on the path to the modified key (O(log2(n)) new nodes). Any version can therefore be read and iterated
+ * by any number of threads without locking. This map does not allow null keys to be inserted.
+ */
+public final class PersistentAvlMap<TKey extends Comparable<TKey>, TValue>
+    implements ReifiedMap<TKey, TValue>
+{
+  private final Node<TKey, TValue> root;
+  private final Class<?> genericTypeParameterKey;
+  private final Class<?> genericTypeParameterValue;
+
+  /**
+   * Constructor initializes an empty map with the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public PersistentAvlMap(Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    this((Node<TKey, TValue>) null, genericTypeParameterKey, genericTypeParameterValue);
+  }
+
+  /**
+   * Constructor initializes with the contents of another reified map. This is an O(n) operation if the map iterates in ascending key
+   * order, O(nlog2(n)) otherwise.
+   * 
+   * @throws NullPointerException When the argument is null, or a key in the map provided is null.
+   */
+  public PersistentAvlMap(ReifiedMap<TKey, TValue> map)
+  {
+    this(build(pairs(map)), map.getGenericTypeParameterKey(), map.getGenericTypeParameterValue());
+  }
+
+  /**
+   * Constructor initializes from another map and the key/value generic type parameters. This is an O(n) operation if the map iterates in
+   * ascending key order, O(nlog2(n)) otherwise.
+   * 
+   * @throws NullPointerException When an argument is null, or a key in the map provided is null.
+   */
+  public PersistentAvlMap(Map<? extends TKey, ? extends TValue> map, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    this(build(pairs(map)), genericTypeParameterKey, genericTypeParameterValue);
+  }
+
+  private PersistentAvlMap(Node<TKey, TValue> root, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    this.root = root;
+    this.genericTypeParameterKey = genericTypeParameterKey;
+    this.genericTypeParameterValue = genericTypeParameterValue;
+  }
+
+  /**
+   * Returns a map with the provided key/value pair added, if the key is not already present. Otherwise this map is returned. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  public PersistentAvlMap<TKey, TValue> add(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return version(insert(root, key, value, false));
+  }
+
+  /**
+   * Returns a map with the provided key mapped to the provided value, whether the key was present or not. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  public PersistentAvlMap<TKey, TValue> put(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return version(insert(root, key, value, true));
+  }
+
+  /**
+   * Returns a map with the key's value replaced, if the key is present. Otherwise this map is returned. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  public PersistentAvlMap<TKey, TValue> replace(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return containsKey(key) ? put(key, value) : this;
+  }
+
+  /**
+   * Returns a map without the specified key. If the key is not present, this map is returned. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  public PersistentAvlMap<TKey, TValue> remove(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return version(delete(root, key));
+  }
+
+  /**
+   * Returns a map with the provided key/value pairs put in it, replacing the values of existing keys. This is an O(mlog2(n + m))
+   * operation, where m is the provided element count.
+   * 
+   * @throws NullPointerException If the argument or a key within is null.
+   */
+  public PersistentAvlMap<TKey, TValue> putAll(Iterable<? extends KeyValuePair<? extends TKey, ? extends TValue>> pairs)
+  {
+    if (pairs == null)
+      throw new NullPointerException("pairs");
+
+    Node<TKey, TValue> result = root;
+    for (KeyValuePair<? extends TKey, ? extends TValue> kvp : pairs)
+    {
+      if (kvp.getKey() == null)
+        throw new NullPointerException("key");
+
+      result = insert(result, kvp.getKey(), kvp.getValue(), true);
+    }
+
+    return version(result);
+  }
+
+  /**
+   * Returns an empty map with the same generic type parameters. This is an O(1) operation.
+   */
+  public PersistentAvlMap<TKey, TValue> clear()
+  {
+    return version(null);
+  }
+
+  /**
+   * Returns true if the key exists. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  public boolean containsKey(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return find(key) != null;
+  }
+
+  /**
+   * Gets the value associated with the specified key. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   * @throws KeyNotFoundException When the key does not exist.
+   */
+  public TValue get(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Node<TKey, TValue> node = find(key);
+    if (node == null)
+      throw new KeyNotFoundException(key.toString());
+
+    return node.item.getValue();
+  }
+
+  /**
+   * Attempts to get a value by a given key. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public TryResult<TValue> tryGetValue(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Node<TKey, TValue> node = find(key);
+    return node == null ? new TryResult<TValue>() : new TryResult<TValue>(node.item.getValue());
+  }
+
+  /**
+   * Returns the key/value pair with the least key, or null if empty. This is an O(log2(n)) operation.
+   */
+  public KeyValuePair<TKey, TValue> first()
+  {
+    Node<TKey, TValue> p = root;
+    if (p != null)
+      while (p.left != null)
+        p = p.left;
+
+    return p == null ? null : p.item;
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key, or null if empty. This is an O(log2(n)) operation.
+   */
+  public KeyValuePair<TKey, TValue> last()
+  {
+    Node<TKey, TValue> p = root;
+    if (p != null)
+      while (p.right != null)
+        p = p.right;
+
+    return p == null ? null : p.item;
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key less than or equal to the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> floor(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Node<TKey, TValue> node = floorNode(key, true);
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the key/value pair with the least key greater than or equal to the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> ceiling(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Node<TKey, TValue> node = ceilingNode(key, true);
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key strictly less than the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> lower(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Node<TKey, TValue> node = floorNode(key, false);
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the key/value pair with the least key strictly greater than the given key, or null if there is no such key. This is an
+   * O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> higher(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Node<TKey, TValue> node = ceilingNode(key, false);
+    return node == null ? null : node.item;
+  }
+
+  /**
+   * Returns the number of keys strictly less than the given key, i.e. the zero-based position the key has (or would have) in ascending
+   * key order. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public int rank(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return countLess(key, false);
+  }
+
+  /**
+   * Returns the key/value pair at the given zero-based position in ascending key order. This is an O(log2(n)) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is negative or not less than the size of the map.
+   */
+  public KeyValuePair<TKey, TValue> select(int index)
+  {
+    if (index < 0 || index >= size())
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size());
+
+    Node<TKey, TValue> p = root;
+    while (true)
+    {
+      int leftCount = count(p.left);
+
+      if (index < leftCount)
+        p = p.left;
+      else if (index > leftCount)
+      {
+        index -= leftCount + 1;
+        p = p.right;
+      } else
+        return p.item;
+    }
+  }
+
+  /**
+   * Returns true if the map is empty. This is an O(1) operation.
+   */
+  public boolean isEmpty()
+  {
+    return root == null;
+  }
+
+  /**
+   * Returns the number of key/value pairs. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return count(root);
+  }
+
+  /**
+   * Returns the keys of this version, in ascending order. This is an O(1) operation, iteration is lazy.
+   */
+  public ReifiedIterable<TKey> getKeys()
+  {
+    return new ReifiedIterable<TKey>() {
+      @Override
+      public Iterator<TKey> iterator()
+      {
+        return new KeyValuePairKeyIterator<TKey>(PersistentAvlMap.this.iterator());
+      }
+
+      @Override
+      public Class<?> getGenericTypeParameter()
+      {
+        return genericTypeParameterKey;
+      }
+    };
+  }
+
+  /**
+   * Returns the values of this version, in ascending key order. This is an O(1) operation, iteration is lazy.
+   */
+  public ReifiedIterable<TValue> getValues()
+  {
+    return new ReifiedIterable<TValue>() {
+      @Override
+      public Iterator<TValue> iterator()
+      {
+        return new KeyValuePairValueIterator<TValue>(PersistentAvlMap.this.iterator());
+      }
+
+      @Override
+      public Class<?> getGenericTypeParameter()
+      {
+        return genericTypeParameterValue;
+      }
+    };
+  }
+
+  /**
+   * Returns an iterator of key/value pairs, in ascending key order. Iteration is unaffected by subsequent modifications, which produce new
+   * versions.
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    return new AscendingIterator<TKey, TValue>(root);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return genericTypeParameterKey;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return genericTypeParameterValue;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  private PersistentAvlMap<TKey, TValue> version(Node<TKey, TValue> newRoot)
+  {
+    if (newRoot == root)
+      return this;
+
+    return new PersistentAvlMap<TKey, TValue>(newRoot, genericTypeParameterKey, genericTypeParameterValue);
+  }
+
+  private Node<TKey, TValue> find(TKey key)
+  {
+    Node<TKey, TValue> p = root;
+
+    while (p != null)
+    {
+      int c = key.compareTo(p.item.getKey());
+
+      if (c < 0)
+        p = p.left;
+      else if (c > 0)
+        p = p.right;
+      else
+        return p;
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the node with the greatest key less than (or equal to, if inclusive) the given key, or null if none
+   */
+  private Node<TKey, TValue> floorNode(TKey key, boolean inclusive)
+  {
+    Node<TKey, TValue> result = null;
+    Node<TKey, TValue> p = root;
+
+    while (p != null)
+    {
+      int c = key.compareTo(p.item.getKey());
+
+      if (c > 0 || (c == 0 && inclusive))
+      {
+        result = p;
+        if (c == 0)
+          break;
+        p = p.right;
+      } else
+        p = p.left;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the node with the least key greater than (or equal to, if inclusive) the given key, or null if none
+   */
+  private Node<TKey, TValue> ceilingNode(TKey key, boolean inclusive)
+  {
+    Node<TKey, TValue> result = null;
+    Node<TKey, TValue> p = root;
+
+    while (p != null)
+    {
+      int c = key.compareTo(p.item.getKey());
+
+      if (c < 0 || (c == 0 && inclusive))
+      {
+        result = p;
+        if (c == 0)
+          break;
+        p = p.left;
+      } else
+        p = p.right;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the number of keys less than (or equal to, if inclusive) the given key
+   */
+  private int countLess(TKey key, boolean inclusive)
+  {
+    int result = 0;
+    Node<TKey, TValue> p = root;
+
+    while (p != null)
+    {
+      int c = key.compareTo(p.item.getKey());
+
+      if (c < 0 || (c == 0 && !inclusive))
+        p = p.left;
+      else
+      {
+        result += count(p.left) + 1;
+        p = p.right;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the new root of the sub-tree with the key inserted, or the same root if nothing changed
+   */
+  private static <TKey extends Comparable<TKey>, TValue> Node<TKey, TValue> insert(Node<TKey, TValue> node, TKey key, TValue value,
+                                                                                  boolean overwrite)
+  {
+    if (node == null)
+      return new Node<TKey, TValue>(new KeyValuePair<TKey, TValue>(key, value), null, null);
+
+    int c = key.compareTo(node.item.getKey());
+
+    if (c < 0)
+    {
+      Node<TKey, TValue> left = insert(node.left, key, value, overwrite);
+      return left == node.left ? node : balance(node.item, left, node.right);
+    }
+    if (c > 0)
+    {
+      Node<TKey, TValue> right = insert(node.right, key, value, overwrite);
+      return right == node.right ? node : balance(node.item, node.left, right);
+    }
+
+    if (!overwrite)
+      return node;
+
+    return new Node<TKey, TValue>(new KeyValuePair<TKey, TValue>(key, value), node.left, node.right);
+  }
+
+  /**
+   * Returns the new root of the sub-tree with the key removed, or the same root if the key was not found
+   */
+  private static <TKey extends Comparable<TKey>, TValue> Node<TKey, TValue> delete(Node<TKey, TValue> node, TKey key)
+  {
+    if (node == null)
+      return null;
+
+    int c = key.compareTo(node.item.getKey());
+
+    if (c < 0)
+    {
+      Node<TKey, TValue> left = delete(node.left, key);
+      return left == node.left ? node : balance(node.item, left, node.right);
+    }
+    if (c > 0)
+    {
+      Node<TKey, TValue> right = delete(node.right, key);
+      return right == node.right ? node : balance(node.item, node.left, right);
+    }
+
+    if (node.left == null)
+      return node.right;
+    if (node.right == null)
+      return node.left;
+
+    Node<TKey, TValue> successor = node.right;
+    while (successor.left != null)
+      successor = successor.left;
+
+    return balance(successor.item, node.left, deleteFirst(node.right));
+  }
+
+  private static <TKey extends Comparable<TKey>, TValue> Node<TKey, TValue> deleteFirst(Node<TKey, TValue> node)
+  {
+    if (node.left == null)
+      return node.right;
+
+    return balance(node.item, deleteFirst(node.left), node.right);
+  }
+
+  /**
+   * Creates a node from an item and two sub-trees whose heights differ by at most 2, rotating as necessary
+   */
+  private static <TKey extends Comparable<TKey>, TValue> Node<TKey, TValue> balance(KeyValuePair<TKey, TValue> item,
+                                                                                   Node<TKey, TValue> left, Node<TKey, TValue> right)
+  {
+    int leftHeight = height(left);
+    int rightHeight = height(right);
+
+    if (leftHeight > rightHeight + 1)
+    {
+      if (height(left.left) >= height(left.right))
+        return new Node<TKey, TValue>(left.item, left.left, new Node<TKey, TValue>(item, left.right, right));
+
+      return new Node<TKey, TValue>(left.right.item, new Node<TKey, TValue>(left.item, left.left, left.right.left),
+                                    new Node<TKey, TValue>(item, left.right.right, right));
+    }
+
+    if (rightHeight > leftHeight + 1)
+    {
+      if (height(right.right) >= height(right.left))
+        return new Node<TKey, TValue>(right.item, new Node<TKey, TValue>(item, left, right.left), right.right);
+
+      return new Node<TKey, TValue>(right.left.item, new Node<TKey, TValue>(item, left, right.left.left),
+                                    new Node<TKey, TValue>(right.item, right.left.right, right.right));
+    }
+
+    return new Node<TKey, TValue>(item, left, right);
+  }
+
+  /**
+   * Builds a perfectly balanced tree out of pairs in strictly ascending key order
+   */
+  private static <TKey extends Comparable<TKey>, TValue> Node<TKey, TValue> build(List<KeyValuePair<TKey, TValue>> items)
+  {
+    return build(items, 0, items.size());
+  }
+
+  private static <TKey extends Comparable<TKey>, TValue> Node<TKey, TValue> build(List<KeyValuePair<TKey, TValue>> items, int from,
+                                                                                 int to)
+  {
+    if (from >= to)
+      return null;
+
+    int mid = (from + to) >>> 1;
+    return new Node<TKey, TValue>(items.get(mid), build(items, from, mid), build(items, mid + 1, to));
+  }
+
+  /**
+   * Collects pairs, sorting them by key unless already in order and keeping the last value of any duplicate key
+   */
+  private static <TKey extends Comparable<TKey>, TValue> List<KeyValuePair<TKey, TValue>> sorted(List<KeyValuePair<TKey, TValue>> list)
+  {
+    boolean ordered = true;
+    for (int i = 1; i < list.size() && ordered; i++)
+      if (list.get(i - 1).getKey().compareTo(list.get(i).getKey()) >= 0)
+        ordered = false;
+
+    if (ordered)
+      return list;
+
+    // stable sort, so that later duplicates follow earlier ones
+    Collections.sort(list, new Comparator<KeyValuePair<TKey, TValue>>() {
+      @Override
+      public int compare(KeyValuePair<TKey, TValue> a, KeyValuePair<TKey, TValue> b)
+      {
+        return a.getKey().compareTo(b.getKey());
+      }
+    });
+
+    List<KeyValuePair<TKey, TValue>> result = new ArrayList<KeyValuePair<TKey, TValue>>(list.size());
+    for (KeyValuePair<TKey, TValue> kvp : list)
+      if (result.isEmpty() || result.get(result.size() - 1).getKey().compareTo(kvp.getKey()) != 0)
+        result.add(kvp);
+      else
+        result.set(result.size() - 1, kvp);
+
+    return result;
+  }
+
+  private static <TKey extends Comparable<TKey>, TValue> List<KeyValuePair<TKey, TValue>> pairs(ReifiedMap<TKey, TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    List<KeyValuePair<TKey, TValue>> result = new ArrayList<KeyValuePair<TKey, TValue>>(map.size());
+    for (KeyValuePair<TKey, TValue> kvp : map)
+    {
+      if (kvp.getKey() == null)
+        throw new NullPointerException("key");
+
+      result.add(kvp);
+    }
+
+    return sorted(result);
+  }
+
+  private static <TKey extends Comparable<TKey>, TValue> List<KeyValuePair<TKey, TValue>> pairs(Map<? extends TKey, ? extends TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    List<KeyValuePair<TKey, TValue>> result = new ArrayList<KeyValuePair<TKey, TValue>>(map.size());
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+    {
+      if (entry.getKey() == null)
+        throw new NullPointerException("key");
+
+      result.add(new KeyValuePair<TKey, TValue>(entry.getKey(), entry.getValue()));
+    }
+
+    return sorted(result);
+  }
+
+  private static int height(Node<?, ?> node)
+  {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int count(Node<?, ?> node)
+  {
+    return node == null ? 0 : node.count;
+  }
+
+  /**
+   * An immutable tree node, holding its height and sub-tree element count
+   */
+  private static final class Node<TKey extends Comparable<TKey>, TValue>
+  {
+    final KeyValuePair<TKey, TValue> item;
+    final Node<TKey, TValue> left;
+    final Node<TKey, TValue> right;
+    final int height;
+    final int count;
+
+    Node(KeyValuePair<TKey, TValue> item, Node<TKey, TValue> left, Node<TKey, TValue> right)
+    {
+      this.item = item;
+      this.left = left;
+      this.right = right;
+      this.height = Math.max(height(left), height(right)) + 1;
+      this.count = count(left) + count(right) + 1;
+    }
+  }
+
+  /**
+   * Iterates in ascending key order using an explicit stack, as nodes have no parent links
+   */
+  private static final class AscendingIterator<TKey extends Comparable<TKey>, TValue>
+      implements Iterator<KeyValuePair<TKey, TValue>>
+  {
+    private final Object[] stack;
+    private int depth;
+
+    AscendingIterator(Node<TKey, TValue> root)
+    {
+      stack = new Object[height(root)];
+      pushLeft(root);
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return depth > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public KeyValuePair<TKey, TValue> next()
+    {
+      if (depth == 0)
+        throw new NoSuchElementException("There is no next element.");
+
+      Node<TKey, TValue> node = (Node<TKey, TValue>) stack[--depth];
+      stack[depth] = null;
+      pushLeft(node.right);
+
+      return node.item;
+    }
+
+    /**
+     * @throws UnsupportedOperationException The remove operation is not supported.
+     */
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    private void pushLeft(Node<TKey, TValue> node)
+    {
+      while (node != null)
+      {
+        stack[depth++] = node;
+        node = node.left;
+      }
+    }
+  }
+}
@@ -0,0 +1,518 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.persistent;
+
+import propel.core.TryResult;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.ReifiedIterable;
+import propel.core.collections.maps.ISharedHashtable;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A type-aware thread-safe AVL-tree-backed hashtable, suited to read-mostly workloads. The contents are held in an immutable
+ * PersistentAvlMap snapshot: readers never lock and iterate the snapshot current at the time without copying, while writers serialize on a
+ * lock, derive a new snapshot sharing all unmodified nodes with the previous one, and publish it. This map does not allow null keys to be
+ * inserted.
+ * 
+ * Locking the collection excludes other writers only; readers continue to see the last published snapshot until the lock holder's
+ * modifications are published.
+ * 
+ * Instantiate using e.g.: new SharedPersistentAvlMap&lt;String, Object&gt;(){}; -OR- new SharedPersistentAvlMap&lt;String,
+ * Object&gt;(String.class, Object.class);
+ */
+public class SharedPersistentAvlMap<TKey extends Comparable<TKey>, TValue>
+    implements ISharedHashtable<TKey, TValue>
+{
+  private volatile PersistentAvlMap<TKey, TValue> snapshot;
+  private final ReentrantLock reEntrantLock;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public SharedPersistentAvlMap()
+  {
+    Class<?> keyClass = SuperTypeToken.getClazz(this.getClass(), 0);
+    Class<?> valueClass = SuperTypeToken.getClazz(this.getClass(), 1);
+
+    snapshot = new PersistentAvlMap<TKey, TValue>(keyClass, valueClass);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Constructor for initializing with the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public SharedPersistentAvlMap(Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    snapshot = new PersistentAvlMap<TKey, TValue>(genericTypeParameterKey, genericTypeParameterValue);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Constructor initializes with another reified map
+   * 
+   * @throws NullPointerException When the argument is null, or a key in the map provided is null.
+   */
+  public SharedPersistentAvlMap(ReifiedMap<TKey, TValue> map)
+  {
+    snapshot = map instanceof PersistentAvlMap ? (PersistentAvlMap<TKey, TValue>) map : new PersistentAvlMap<TKey, TValue>(map);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Constructor initializes from another map
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException When the argument is null.
+   */
+  public SharedPersistentAvlMap(Map<? extends TKey, ? extends TValue> map)
+  {
+    Class<?> keyClass = SuperTypeToken.getClazz(this.getClass(), 0);
+    Class<?> valueClass = SuperTypeToken.getClazz(this.getClass(), 1);
+
+    snapshot = new PersistentAvlMap<TKey, TValue>(map, keyClass, valueClass);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Constructor initializes from another map and the key/value generic type parameters
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  public SharedPersistentAvlMap(Map<? extends TKey, ? extends TValue> map, Class<?> genericTypeParameterKey,
+                                Class<?> genericTypeParameterValue)
+  {
+    snapshot = new PersistentAvlMap<TKey, TValue>(map, genericTypeParameterKey, genericTypeParameterValue);
+    reEntrantLock = new ReentrantLock();
+  }
+
+  /**
+   * Returns the current immutable snapshot. Subsequent modifications of this map do not affect the returned snapshot. This is an O(1)
+   * operation and does not lock.
+   */
+  public PersistentAvlMap<TKey, TValue> snapshot()
+  {
+    return snapshot;
+  }
+
+  /**
+   * Replaces the contents of this map with the given snapshot. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void publish(PersistentAvlMap<TKey, TValue> map)
+  {
+    if (map == null)
+      throw new NullPointerException("map");
+
+    lock();
+    try
+    {
+      snapshot = map;
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Adds a new key/value pair. Returns true if successful, false if another object with same key exists. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean add(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    lock();
+    try
+    {
+      PersistentAvlMap<TKey, TValue> current = snapshot;
+      PersistentAvlMap<TKey, TValue> modified = current.add(key, value);
+      snapshot = modified;
+
+      return modified != current;
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Bulk add key/value pairs, publishing the result once. Returns true for elements that were successfully added, false for those that
+   * were not. If a key is null, no pairs are added. This is an O(mlog2(n)) operation where m is the provided element count, n is the
+   * hashtables's element Count.
+   * 
+   * @throws NullPointerException When the keys or values argument is null, or a key is null.
+   * @throws IllegalArgumentException When the key count is not equal to the value count in the provided sequences.
+   */
+  @Override
+  public Iterable<Boolean> addRange(Iterable<? extends TKey> keys, Iterable<? extends TValue> values)
+  {
+    lock();
+    try
+    {
+      List<Boolean> result = new ArrayList<Boolean>(64);
+      snapshot = addRange(snapshot, keys, values, result);
+
+      return result;
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Removes all keys and values. This is an O(1) operation.
+   */
+  @Override
+  public void clear()
+  {
+    lock();
+    try
+    {
+      snapshot = snapshot.clear();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns true if the key exists. This is an O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean contains(TKey key)
+  {
+    return snapshot.containsKey(key);
+  }
+
+  /**
+   * Attempts to get the given key's value. If not found, then null is returned. This is an O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public TValue get(TKey key)
+  {
+    return get(key, null);
+  }
+
+  /**
+   * Returns the value of a key, if found. Otherwise the specified defaultValue (E.g. null) is returned. This is an O(log2(n)) operation
+   * and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public TValue get(TKey key, TValue defaultValue)
+  {
+    TryResult<TValue> result = snapshot.tryGetValue(key);
+    return result.isSuccess() ? result.getResult() : defaultValue;
+  }
+
+  /**
+   * Returns the keys of the current snapshot. This is an O(1) operation and does not lock.
+   */
+  @Override
+  public ReifiedIterable<TKey> getKeys()
+  {
+    return snapshot.getKeys();
+  }
+
+  /**
+   * Returns the values of the current snapshot. This is an O(1) operation and does not lock.
+   */
+  @Override
+  public ReifiedIterable<TValue> getValues()
+  {
+    return snapshot.getValues();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return snapshot.getGenericTypeParameterKey();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return snapshot.getGenericTypeParameterValue();
+  }
+
+  /**
+   * Returns an iterator over the key/value pairs of the current snapshot, in ascending key order. No copy is made and no lock is taken.
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    return snapshot.iterator();
+  }
+
+  /**
+   * Removes a value by its key. Returns true if successfully done, false if no such key. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean remove(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    lock();
+    try
+    {
+      PersistentAvlMap<TKey, TValue> current = snapshot;
+      PersistentAvlMap<TKey, TValue> modified = current.remove(key);
+      snapshot = modified;
+
+      return modified != current;
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Removes a number of elements by key, publishing the result once. Returns true for those successfully removed, false for those that
+   * there was no such key. If a key is null, no elements are removed. This is an O(mlog2(n)) operation where m is the provided element
+   * count, n is the hashtables's element Count.
+   * 
+   * @throws NullPointerException When the keys argument is null, or a key is null.
+   */
+  @Override
+  public Iterable<Boolean> removeRange(Iterable<? extends TKey> keys)
+  {
+    if (keys == null)
+      throw new NullPointerException("keys");
+
+    // where results are put
+    List<Boolean> result = new ArrayList<Boolean>(64);
+
+    lock();
+    try
+    {
+      PersistentAvlMap<TKey, TValue> modified = snapshot;
+
+      for (TKey key : keys)
+      {
+        PersistentAvlMap<TKey, TValue> previous = modified;
+        modified = modified.remove(key);
+        result.add(modified != previous);
+      }
+
+      snapshot = modified;
+      return result;
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * If the key is contained, the key/value pair is removed and the value returned. Otherwise null is returned. This is an O(log2(n))
+   * operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public TValue removeAndGet(TKey key)
+  {
+    return removeAndGet(key, null);
+  }
+
+  /**
+   * If the key is contained, the key/value pair is removed and the value returned. Otherwise the specified defaultValue (E.g. null) is
+   * returned. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public TValue removeAndGet(TKey key, TValue defaultValue)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    lock();
+    try
+    {
+      PersistentAvlMap<TKey, TValue> current = snapshot;
+      TryResult<TValue> result = current.tryGetValue(key);
+      if (!result.isSuccess())
+        return defaultValue;
+
+      snapshot = current.remove(key);
+      return result.getResult();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Replaces a key's value, returning true if this was successful. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean replace(TKey key, TValue newValue)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    lock();
+    try
+    {
+      PersistentAvlMap<TKey, TValue> current = snapshot;
+      if (!current.containsKey(key))
+        return false;
+
+      snapshot = current.put(key, newValue);
+      return true;
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Clears the hashtable and bulk adds key/value pairs, publishing the result once, so that readers observe either the old or the new
+   * contents. Returns true for elements that were successfully added, false for those that were not. This is an O(mlog2(m)) operation
+   * where m is the provided element count.
+   * 
+   * @throws NullPointerException When the keys or values argument is null, or a key is null.
+   * @throws IllegalArgumentException When the key count is not equal to the value count in the given collections.
+   */
+  @Override
+  public Iterable<Boolean> replaceAll(Iterable<? extends TKey> keys, Iterable<? extends TValue> values)
+  {
+    lock();
+    try
+    {
+      List<Boolean> result = new ArrayList<Boolean>(64);
+      snapshot = addRange(snapshot.clear(), keys, values, result);
+
+      return result;
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns the size of the current snapshot. This is an O(1) operation and does not lock.
+   */
+  @Override
+  public int size()
+  {
+    return snapshot.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(snapshot);
+  }
+
+  /**
+   * Locks the collection for modifications by other writers. Readers are not blocked.
+   */
+  @Override
+  public void lock()
+  {
+    reEntrantLock.lock();
+  }
+
+  /**
+   * Unlocks the collection.
+   * 
+   * @throws IllegalMonitorStateException When the current thread does not own the lock.
+   */
+  @Override
+  public void unlock()
+  {
+    reEntrantLock.unlock();
+  }
+
+  /**
+   * Adds key/value pairs to the given snapshot, returning the resulting snapshot and recording which pairs were added
+   */
+  private PersistentAvlMap<TKey, TValue> addRange(PersistentAvlMap<TKey, TValue> base, Iterable<? extends TKey> keys,
+                                                  Iterable<? extends TValue> values, List<Boolean> result)
+  {
+    if (keys == null)
+      throw new NullPointerException("keys");
+    if (values == null)
+      throw new NullPointerException("values");
+
+    int keyCount = Linq.count(keys);
+    int valueCount = Linq.count(values);
+    if (keyCount != valueCount)
+      throw new IllegalArgumentException("keys=" + keyCount + " values=" + valueCount);
+
+    PersistentAvlMap<TKey, TValue> modified = base;
+
+    // iterate both
+    Iterator<? extends TKey> keyIterator = keys.iterator();
+    Iterator<? extends TValue> valueIterator = values.iterator();
+
+    while (keyIterator.hasNext())
+    {
+      PersistentAvlMap<TKey, TValue> previous = modified;
+      modified = modified.add(keyIterator.next(), valueIterator.next());
+      result.add(modified != previous);
+    }
+
+    return modified;
+  }
+}
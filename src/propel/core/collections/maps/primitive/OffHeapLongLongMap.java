@@ -0,0 +1,775 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.primitive;
+
+import propel.core.collections.KeyNotFoundException;
+import propel.core.utils.HashingUtils;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Implementation of a long -> long hash map stored outside the Java heap, for indexes of hundreds of millions of entries that would
+ * otherwise occupy (and have the garbage collector scan) tens of GB of heap. Entries are kept in direct ByteBuffers of up to 1GB each,
+ * using open addressing with linear probing and backward-shift deletion, at 16 bytes per slot.
+ * 
+ * Alternatively the map may be backed by a memory-mapped file, in which case it persists across restarts: re-opening the file restores
+ * the map instantly. File-backed maps have a fixed capacity, chosen when the file is created.
+ * 
+ * Any number of threads may read concurrently, while writes are exclusive. Off-heap memory is freed (or the file unmapped) by close(), and
+ * the map cannot be used afterwards. Growing a heap-allocated map needs the old and new tables at the same time, therefore maps of known
+ * size should be created with a sufficient expected size.
+ */
+public final class OffHeapLongLongMap
+    implements Closeable
+{
+  /**
+   * The default expected number of entries
+   */
+  public static final long DEFAULT_EXPECTED_SIZE = 1024;
+  private static final long MINIMUM_CAPACITY = 16;
+  private static final long MAXIMUM_CAPACITY = 1L << 40;
+  /**
+   * Each buffer holds 2^SEGMENT_SHIFT slots, i.e. 1GB
+   */
+  private static final int SEGMENT_SHIFT = 26;
+  private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+  /**
+   * File-backed maps reserve one page for the header, the table starting at the next page
+   */
+  private static final int HEADER_SIZE = 4096;
+  private static final long MAGIC = 0x4F484C4C4D415001L;
+  private static final int HEADER_MAGIC = 0;
+  private static final int HEADER_CAPACITY = 1;
+  private static final int HEADER_SIZE_FIELD = 2;
+  private static final int HEADER_HAS_ZERO_KEY = 3;
+  private static final int HEADER_ZERO_VALUE = 4;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final RandomAccessFile file;
+  private final ByteBuffer headerBuffer;
+  private final LongBuffer header;
+  private Table table;
+  private long size;
+  // the key 0 marks empty slots, therefore its mapping is held separately
+  private boolean hasZeroKey;
+  private long zeroValue;
+  private boolean closed;
+
+  /**
+   * Default constructor, allocates a heap-external map for the default expected number of entries.
+   */
+  public OffHeapLongLongMap()
+  {
+    this(DEFAULT_EXPECTED_SIZE);
+  }
+
+  /**
+   * Allocates a heap-external map for the expected number of entries, growing it as needed.
+   * 
+   * @throws IllegalArgumentException The expected size is negative or too large.
+   * @throws OutOfMemoryError Direct memory is exhausted.
+   */
+  public OffHeapLongLongMap(long expectedSize)
+  {
+    file = null;
+    headerBuffer = null;
+    header = null;
+    table = Table.allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * Opens a map persisted in the given file, or creates the file with a fixed capacity for the expected number of entries if it does not
+   * exist or is empty. The expected size is ignored when opening an existing map.
+   * 
+   * @throws NullPointerException The file is null.
+   * @throws IllegalArgumentException The expected size is negative or too large.
+   * @throws IOException An I/O error occurs, or the file does not contain a map written on a platform of the same byte order.
+   * @throws SecurityException Access to filesystem is denied by a SecurityManager
+   */
+  public OffHeapLongLongMap(File file, long expectedSize)
+      throws IOException
+  {
+    if (file == null)
+      throw new NullPointerException("file");
+
+    long capacity = capacityFor(expectedSize);
+
+    this.file = new RandomAccessFile(file, "rw");
+    try
+    {
+      FileChannel channel = this.file.getChannel();
+      boolean created = this.file.length() == 0;
+      if (created)
+        this.file.setLength(HEADER_SIZE + capacity * 16);
+
+      headerBuffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE).order(ByteOrder.nativeOrder());
+      header = headerBuffer.asLongBuffer();
+      if (created)
+      {
+        header.put(HEADER_CAPACITY, capacity);
+        header.put(HEADER_MAGIC, MAGIC);
+      } else
+      {
+        if (header.get(HEADER_MAGIC) != MAGIC)
+          throw new IOException("The file does not contain a map, or was written on a platform of different byte order: "
+                                + file.getAbsolutePath());
+
+        capacity = header.get(HEADER_CAPACITY);
+        if (this.file.length() < HEADER_SIZE + capacity * 16)
+          throw new IOException("The file is truncated: " + file.getAbsolutePath());
+
+        size = header.get(HEADER_SIZE_FIELD);
+        hasZeroKey = header.get(HEADER_HAS_ZERO_KEY) != 0;
+        zeroValue = header.get(HEADER_ZERO_VALUE);
+      }
+
+      table = Table.map(channel, HEADER_SIZE, capacity);
+    }
+    catch(IOException e)
+    {
+      this.file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Inserts or replaces the value of a key. This is an amortised O(1) operation.
+   * 
+   * @return True if the key did not exist.
+   * 
+   * @throws IllegalStateException The map is closed, or it is file-backed and full.
+   */
+  public boolean put(long key, long value)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      ensureOpen();
+
+      if (key == 0)
+      {
+        boolean added = !hasZeroKey;
+        hasZeroKey = true;
+        zeroValue = value;
+        if (added)
+          size++;
+
+        saveHeader();
+        return added;
+      }
+
+      long slot = find(table, key);
+      if (slot >= 0)
+      {
+        table.setValue(slot, value);
+        return false;
+      }
+
+      if (table.capacity - (table.capacity >> 2) <= size)
+      {
+        grow();
+        slot = find(table, key);
+      }
+
+      slot = -slot - 1;
+      table.setKey(slot, key);
+      table.setValue(slot, value);
+      size++;
+      saveHeader();
+      return true;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the value of a key. This is an O(1) operation.
+   * 
+   * @throws KeyNotFoundException The key does not exist.
+   * @throws IllegalStateException The map is closed.
+   */
+  public long get(long key)
+  {
+    lock.readLock().lock();
+    try
+    {
+      ensureOpen();
+
+      if (key == 0)
+      {
+        if (!hasZeroKey)
+          throw new KeyNotFoundException(Long.toString(key));
+
+        return zeroValue;
+      }
+
+      long slot = find(table, key);
+      if (slot < 0)
+        throw new KeyNotFoundException(Long.toString(key));
+
+      return table.getValue(slot);
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the value of a key, or the given default value if the key does not exist. This is an O(1) operation.
+   * 
+   * @throws IllegalStateException The map is closed.
+   */
+  public long get(long key, long defaultValue)
+  {
+    lock.readLock().lock();
+    try
+    {
+      ensureOpen();
+
+      if (key == 0)
+        return hasZeroKey ? zeroValue : defaultValue;
+
+      long slot = find(table, key);
+      return slot < 0 ? defaultValue : table.getValue(slot);
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns true if the key exists. This is an O(1) operation.
+   * 
+   * @throws IllegalStateException The map is closed.
+   */
+  public boolean containsKey(long key)
+  {
+    lock.readLock().lock();
+    try
+    {
+      ensureOpen();
+
+      if (key == 0)
+        return hasZeroKey;
+
+      return find(table, key) >= 0;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a key. This is an O(1) operation.
+   * 
+   * @return True if found and removed.
+   * 
+   * @throws IllegalStateException The map is closed.
+   */
+  public boolean remove(long key)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      ensureOpen();
+
+      if (key == 0)
+      {
+        if (!hasZeroKey)
+          return false;
+
+        hasZeroKey = false;
+        zeroValue = 0;
+      } else
+      {
+        long slot = find(table, key);
+        if (slot < 0)
+          return false;
+
+        delete(table, slot);
+      }
+
+      size--;
+      saveHeader();
+      return true;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes all entries, retaining the capacity. This is an O(capacity) operation.
+   * 
+   * @throws IllegalStateException The map is closed.
+   */
+  public void clear()
+  {
+    lock.writeLock().lock();
+    try
+    {
+      ensureOpen();
+
+      table.clear();
+      size = 0;
+      hasZeroKey = false;
+      zeroValue = 0;
+      saveHeader();
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of entries. This is an O(1) operation.
+   */
+  public long size()
+  {
+    lock.readLock().lock();
+    try
+    {
+      return size;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns true if there are no entries. This is an O(1) operation.
+   */
+  public boolean isEmpty()
+  {
+    return size() == 0;
+  }
+
+  /**
+   * Returns the number of slots. This is an O(1) operation.
+   * 
+   * @throws IllegalStateException The map is closed.
+   */
+  public long capacity()
+  {
+    lock.readLock().lock();
+    try
+    {
+      ensureOpen();
+      return table.capacity;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns true if the map is backed by a memory-mapped file. This is an O(1) operation.
+   */
+  public boolean isFileBacked()
+  {
+    return file != null;
+  }
+
+  /**
+   * Returns all keys, in no particular order. This is an O(capacity) operation.
+   * 
+   * @throws IllegalStateException The map is closed, or holds more keys than an array can.
+   */
+  public long[] keySet()
+  {
+    return toArray(true);
+  }
+
+  /**
+   * Returns all values, in the same order as the keys returned by keySet(). This is an O(capacity) operation.
+   * 
+   * @throws IllegalStateException The map is closed, or holds more values than an array can.
+   */
+  public long[] values()
+  {
+    return toArray(false);
+  }
+
+  /**
+   * Writes all modifications of a file-backed map through to the storage device. Does nothing if the map is not file-backed.
+   * 
+   * @throws IllegalStateException The map is closed.
+   */
+  public void force()
+  {
+    lock.readLock().lock();
+    try
+    {
+      ensureOpen();
+
+      if (file != null)
+      {
+        table.force();
+        ((MappedByteBuffer) headerBuffer).force();
+      }
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Frees the off-heap memory, or unmaps and closes the file of a file-backed map (modifications not yet forced are written back by the
+   * operating system). Waits for in-progress operations to complete; any later operation throws an IllegalStateException. Closing an
+   * already closed map has no effect.
+   * 
+   * @throws IOException An I/O error occurs while closing the file.
+   */
+  @Override
+  public void close()
+      throws IOException
+  {
+    lock.writeLock().lock();
+    try
+    {
+      if (closed)
+        return;
+
+      closed = true;
+      table.free();
+      table = null;
+
+      if (file != null)
+      {
+        free(headerBuffer);
+        file.close();
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns true if the map has been closed. This is an O(1) operation.
+   */
+  public boolean isClosed()
+  {
+    lock.readLock().lock();
+    try
+    {
+      return closed;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    lock.readLock().lock();
+    try
+    {
+      return "OffHeapLongLongMap[size=" + size + ", capacity=" + (closed ? 0 : table.capacity) + (file != null ? ", file-backed" : "")
+             + (closed ? ", closed" : "") + "]";
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  private long[] toArray(boolean keys)
+  {
+    lock.readLock().lock();
+    try
+    {
+      ensureOpen();
+      if (size > Integer.MAX_VALUE - 8)
+        throw new IllegalStateException("The map is too large for an array: " + size);
+
+      long[] result = new long[(int) size];
+      int count = 0;
+      if (hasZeroKey)
+        result[count++] = keys ? 0 : zeroValue;
+
+      for (long slot = 0; slot < table.capacity; slot++)
+        if (table.getKey(slot) != 0)
+          result[count++] = keys ? table.getKey(slot) : table.getValue(slot);
+
+      return result;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the slot of a non-zero key, or -(free slot) - 1 if not found
+   */
+  private static long find(Table table, long key)
+  {
+    long mask = table.capacity - 1;
+    long slot = HashingUtils.mix64(key) & mask;
+
+    while (true)
+    {
+      long existing = table.getKey(slot);
+      if (existing == key)
+        return slot;
+      if (existing == 0)
+        return -slot - 1;
+
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * Empties a slot, shifting back any following entries of the probe sequence so that no tombstones are needed
+   */
+  private static void delete(Table table, long slot)
+  {
+    long mask = table.capacity - 1;
+    long next = (slot + 1) & mask;
+
+    while (true)
+    {
+      long key = table.getKey(next);
+      if (key == 0)
+        break;
+
+      long home = HashingUtils.mix64(key) & mask;
+      // move the entry back if its home slot is not cyclically within (slot, next]
+      if (((next - home) & mask) >= ((next - slot) & mask))
+      {
+        table.setKey(slot, key);
+        table.setValue(slot, table.getValue(next));
+        slot = next;
+      }
+
+      next = (next + 1) & mask;
+    }
+
+    table.setKey(slot, 0);
+    table.setValue(slot, 0);
+  }
+
+  /**
+   * Doubles the capacity of a heap-external map; a file-backed map is full at this point
+   */
+  private void grow()
+  {
+    if (file != null)
+      throw new IllegalStateException("The file-backed map is full, its capacity is " + table.capacity);
+    if (table.capacity >= MAXIMUM_CAPACITY)
+      throw new IllegalStateException("The maximum capacity has been reached: " + table.capacity);
+
+    Table old = table;
+    Table grown = Table.allocate(old.capacity << 1);
+    for (long slot = 0; slot < old.capacity; slot++)
+    {
+      long key = old.getKey(slot);
+      if (key != 0)
+      {
+        long free = -find(grown, key) - 1;
+        grown.setKey(free, key);
+        grown.setValue(free, old.getValue(slot));
+      }
+    }
+
+    table = grown;
+    old.free();
+  }
+
+  private void saveHeader()
+  {
+    if (header != null)
+    {
+      header.put(HEADER_SIZE_FIELD, size);
+      header.put(HEADER_HAS_ZERO_KEY, hasZeroKey ? 1 : 0);
+      header.put(HEADER_ZERO_VALUE, zeroValue);
+    }
+  }
+
+  private void ensureOpen()
+  {
+    if (closed)
+      throw new IllegalStateException("The map is closed.");
+  }
+
+  private static long capacityFor(long expectedSize)
+  {
+    if (expectedSize < 0 || expectedSize > MAXIMUM_CAPACITY - (MAXIMUM_CAPACITY >> 2))
+      throw new IllegalArgumentException("expectedSize=" + expectedSize);
+
+    // keep the load factor at or under 0.75
+    long capacity = MINIMUM_CAPACITY;
+    while (capacity - (capacity >> 2) <= expectedSize)
+      capacity <<= 1;
+
+    return capacity;
+  }
+
+  /**
+   * Releases the memory of a direct or mapped buffer immediately, where the JVM permits; otherwise it is released when the buffer is
+   * garbage collected
+   */
+  private static void free(ByteBuffer buffer)
+  {
+    try
+    {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null)
+      {
+        Method cleanMethod = cleaner.getClass().getMethod("clean");
+        cleanMethod.setAccessible(true);
+        cleanMethod.invoke(cleaner);
+      }
+    }
+    catch(Exception e)
+    {
+      // not supported by this JVM
+    }
+  }
+
+  /**
+   * The slots of the hash table, split over buffers of up to 1GB
+   */
+  private static final class Table
+  {
+    final long capacity;
+    final ByteBuffer[] buffers;
+    final LongBuffer[] segments;
+
+    private Table(long capacity, ByteBuffer[] buffers)
+    {
+      this.capacity = capacity;
+      this.buffers = buffers;
+      segments = new LongBuffer[buffers.length];
+      for (int i = 0; i < buffers.length; i++)
+        segments[i] = buffers[i].order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    static Table allocate(long capacity)
+    {
+      ByteBuffer[] buffers = new ByteBuffer[segmentCount(capacity)];
+      try
+      {
+        for (int i = 0; i < buffers.length; i++)
+          buffers[i] = ByteBuffer.allocateDirect((int) segmentSlots(capacity, i) * 16);
+      }
+      catch(OutOfMemoryError e)
+      {
+        for (ByteBuffer buffer : buffers)
+          if (buffer != null)
+            OffHeapLongLongMap.free(buffer);
+        throw e;
+      }
+
+      return new Table(capacity, buffers);
+    }
+
+    static Table map(FileChannel channel, long offset, long capacity)
+        throws IOException
+    {
+      ByteBuffer[] buffers = new ByteBuffer[segmentCount(capacity)];
+      for (int i = 0; i < buffers.length; i++)
+        buffers[i] = channel.map(MapMode.READ_WRITE, offset + ((long) i << SEGMENT_SHIFT) * 16, segmentSlots(capacity, i) * 16);
+
+      return new Table(capacity, buffers);
+    }
+
+    long getKey(long slot)
+    {
+      return segments[(int) (slot >>> SEGMENT_SHIFT)].get((int) (slot & SEGMENT_MASK) << 1);
+    }
+
+    long getValue(long slot)
+    {
+      return segments[(int) (slot >>> SEGMENT_SHIFT)].get(((int) (slot & SEGMENT_MASK) << 1) + 1);
+    }
+
+    void setKey(long slot, long key)
+    {
+      segments[(int) (slot >>> SEGMENT_SHIFT)].put((int) (slot & SEGMENT_MASK) << 1, key);
+    }
+
+    void setValue(long slot, long value)
+    {
+      segments[(int) (slot >>> SEGMENT_SHIFT)].put(((int) (slot & SEGMENT_MASK) << 1) + 1, value);
+    }
+
+    void clear()
+    {
+      long[] zeros = new long[8192];
+      for (LongBuffer segment : segments)
+      {
+        segment.clear();
+        while (segment.hasRemaining())
+          segment.put(zeros, 0, Math.min(zeros.length, segment.remaining()));
+        segment.clear();
+      }
+    }
+
+    void force()
+    {
+      for (ByteBuffer buffer : buffers)
+        ((MappedByteBuffer) buffer).force();
+    }
+
+    void free()
+    {
+      for (ByteBuffer buffer : buffers)
+        OffHeapLongLongMap.free(buffer);
+    }
+
+    private static int segmentCount(long capacity)
+    {
+      return (int) ((capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    private static long segmentSlots(long capacity, int segment)
+    {
+      return Math.min(SEGMENT_MASK + 1, capacity - ((long) segment << SEGMENT_SHIFT));
+    }
+  }
+}
@@ -0,0 +1,613 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.skiplist;
+
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.ReifiedIterable;
+import propel.core.collections.lists.ReifiedArrayList;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A type-aware thread-safe ordered hashtable backed by a lock-free skip list, suited to many threads inserting and removing concurrently,
+ * e.g. timestamps or identifiers. Single-key operations never lock and scale with the number of threads, unlike SharedAvlHashtable, which
+ * serializes all access. Iterators and range scans are weakly consistent: they never throw ConcurrentModificationException, and reflect
+ * some of the modifications made after their creation. This map does not allow null keys to be inserted.
+ * 
+ * The map cannot be locked, as an exclusive lock would have to be acquired by every operation: it does not implement IShared. Bulk
+ * operations (addRange, removeRange and replaceAll) are therefore not atomic, concurrent operations may observe them partially applied.
+ * 
+ * Instantiate using e.g.: new SharedSkipListMap&lt;String, Object&gt;(){}; -OR- new SharedSkipListMap&lt;String,
+ * Object&gt;(String.class, Object.class);
+ */
+public class SharedSkipListMap<TKey extends Comparable<TKey>, TValue>
+    implements ReifiedMap<TKey, TValue>
+{
+  // stands in for null values, which the skip list does not allow
+  private static final Object NULL = new Object();
+  private final ConcurrentSkipListMap<TKey, Object> map;
+  private final AtomicInteger count;
+  private final Class<?> genericTypeParameterKey;
+  private final Class<?> genericTypeParameterValue;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public SharedSkipListMap()
+  {
+    genericTypeParameterKey = SuperTypeToken.getClazz(this.getClass(), 0);
+    genericTypeParameterValue = SuperTypeToken.getClazz(this.getClass(), 1);
+    map = new ConcurrentSkipListMap<TKey, Object>();
+    count = new AtomicInteger();
+  }
+
+  /**
+   * Constructor for initializing with the key/value generic type parameters
+   * 
+   * @throws NullPointerException When a generic type parameter is null.
+   */
+  public SharedSkipListMap(Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    if (genericTypeParameterKey == null)
+      throw new NullPointerException("genericTypeParameterKey");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    this.genericTypeParameterKey = genericTypeParameterKey;
+    this.genericTypeParameterValue = genericTypeParameterValue;
+    map = new ConcurrentSkipListMap<TKey, Object>();
+    count = new AtomicInteger();
+  }
+
+  /**
+   * Constructor initializes with another reified map
+   * 
+   * @throws NullPointerException When the argument is null, or a key in the map provided is null.
+   */
+  public SharedSkipListMap(ReifiedMap<TKey, TValue> map)
+  {
+    this(map == null ? null : map.getGenericTypeParameterKey(), map == null ? null : map.getGenericTypeParameterValue());
+
+    for (KeyValuePair<TKey, TValue> kvp : map)
+      add(kvp.getKey(), kvp.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException When the argument is null, or a key in the map provided is null.
+   */
+  public SharedSkipListMap(Map<? extends TKey, ? extends TValue> map)
+  {
+    this();
+    if (map == null)
+      throw new NullPointerException("map");
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map and the key/value generic type parameters
+   * 
+   * @throws NullPointerException When an argument is null, or a key in the map provided is null.
+   */
+  public SharedSkipListMap(Map<? extends TKey, ? extends TValue> map, Class<?> genericTypeParameterKey, Class<?> genericTypeParameterValue)
+  {
+    this(genericTypeParameterKey, genericTypeParameterValue);
+    if (map == null)
+      throw new NullPointerException("map");
+
+    for (Map.Entry<? extends TKey, ? extends TValue> entry : map.entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Adds a new key/value pair. Returns true if successful, false if another object with same key exists. This is an expected O(log2(n))
+   * operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public boolean add(TKey key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    if (map.putIfAbsent(key, mask(value)) != null)
+      return false;
+
+    count.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Bulk add key/value pairs. Returns true for elements that were successfully added, false for those that were not. This is an expected
+   * O(mlog2(n)) operation where m is the provided element count, n is the hashtables's element Count.
+   * 
+   * @throws NullPointerException When the keys or values argument is null, or a key is null.
+   * @throws IllegalArgumentException When the key count is not equal to the value count in the provided sequences.
+   */
+  public Iterable<Boolean> addRange(Iterable<? extends TKey> keys, Iterable<? extends TValue> values)
+  {
+    return addAll(keys, values);
+  }
+
+  /**
+   * Removes all keys and values. This is an O(n) operation and does not lock.
+   */
+  public void clear()
+  {
+    while (map.pollFirstEntry() != null)
+      count.decrementAndGet();
+  }
+
+  /**
+   * Returns true if the key exists. This is an expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public boolean contains(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return map.containsKey(key);
+  }
+
+  /**
+   * Attempts to get the given key's value. If not found, then null is returned. This is an expected O(log2(n)) operation and does not
+   * lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public TValue get(TKey key)
+  {
+    return get(key, null);
+  }
+
+  /**
+   * Returns the value of a key, if found. Otherwise the specified defaultValue (E.g. null) is returned. This is an expected O(log2(n))
+   * operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public TValue get(TKey key, TValue defaultValue)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Object value = map.get(key);
+    return value == null ? defaultValue : SharedSkipListMap.<TValue> unmask(value);
+  }
+
+  /**
+   * Returns a copy of all keys, in ascending order. This is an O(n) operation and does not lock.
+   */
+  public ReifiedIterable<TKey> getKeys()
+  {
+    return new ReifiedArrayList<TKey>(map.keySet(), genericTypeParameterKey);
+  }
+
+  /**
+   * Returns a copy of all values, in ascending key order. This is an O(n) operation and does not lock.
+   */
+  public ReifiedIterable<TValue> getValues()
+  {
+    List<TValue> result = new ArrayList<TValue>(count.get());
+    for (Object value : map.values())
+      result.add(SharedSkipListMap.<TValue> unmask(value));
+
+    return new ReifiedArrayList<TValue>(result, genericTypeParameterValue);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return genericTypeParameterKey;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return genericTypeParameterValue;
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the key/value pairs, in ascending key order. No copy is made and no lock is taken.
+   */
+  @Override
+  public Iterator<KeyValuePair<TKey, TValue>> iterator()
+  {
+    return new SkipListIterator<TKey, TValue>(map.entrySet().iterator());
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the key/value pairs, in descending key order. No copy is made and no lock is taken.
+   */
+  public Iterator<KeyValuePair<TKey, TValue>> descendingIterator()
+  {
+    return new SkipListIterator<TKey, TValue>(map.descendingMap().entrySet().iterator());
+  }
+
+  /**
+   * Returns the key/value pairs with keys ranging from fromKey to toKey, in ascending key order. The range is scanned lazily and weakly
+   * consistently, concurrently with modifications. Locating the start of the range is an expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When a key is null.
+   * @throws IllegalArgumentException When fromKey is greater than toKey.
+   */
+  public Iterable<KeyValuePair<TKey, TValue>> subMap(TKey fromKey, boolean fromInclusive, TKey toKey, boolean toInclusive)
+  {
+    if (fromKey == null)
+      throw new NullPointerException("fromKey");
+    if (toKey == null)
+      throw new NullPointerException("toKey");
+    if (fromKey.compareTo(toKey) > 0)
+      throw new IllegalArgumentException("fromKey=" + fromKey + " toKey=" + toKey);
+
+    return entries(map.subMap(fromKey, fromInclusive, toKey, toInclusive));
+  }
+
+  /**
+   * Returns the key/value pairs with keys less than (or equal to, if inclusive is true) toKey, in ascending key order, scanned lazily and
+   * weakly consistently. This does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public Iterable<KeyValuePair<TKey, TValue>> headMap(TKey toKey, boolean inclusive)
+  {
+    if (toKey == null)
+      throw new NullPointerException("toKey");
+
+    return entries(map.headMap(toKey, inclusive));
+  }
+
+  /**
+   * Returns the key/value pairs with keys greater than (or equal to, if inclusive is true) fromKey, in ascending key order, scanned lazily
+   * and weakly consistently. This does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public Iterable<KeyValuePair<TKey, TValue>> tailMap(TKey fromKey, boolean inclusive)
+  {
+    if (fromKey == null)
+      throw new NullPointerException("fromKey");
+
+    return entries(map.tailMap(fromKey, inclusive));
+  }
+
+  /**
+   * Returns the key/value pair with the least key, or null if empty. This is an O(1) operation and does not lock.
+   */
+  public KeyValuePair<TKey, TValue> first()
+  {
+    return toPair(map.firstEntry());
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key, or null if empty. This is an expected O(log2(n)) operation and does not lock.
+   */
+  public KeyValuePair<TKey, TValue> last()
+  {
+    return toPair(map.lastEntry());
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key less than or equal to the given key, or null if there is no such key. This is an
+   * expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> floor(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return toPair(map.floorEntry(key));
+  }
+
+  /**
+   * Returns the key/value pair with the least key greater than or equal to the given key, or null if there is no such key. This is an
+   * expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> ceiling(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return toPair(map.ceilingEntry(key));
+  }
+
+  /**
+   * Returns the key/value pair with the greatest key strictly less than the given key, or null if there is no such key. This is an expected
+   * O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> lower(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return toPair(map.lowerEntry(key));
+  }
+
+  /**
+   * Returns the key/value pair with the least key strictly greater than the given key, or null if there is no such key. This is an
+   * expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public KeyValuePair<TKey, TValue> higher(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return toPair(map.higherEntry(key));
+  }
+
+  /**
+   * Removes and returns the key/value pair with the least key, or null if empty. This is an expected O(log2(n)) operation and does not
+   * lock.
+   */
+  public KeyValuePair<TKey, TValue> pollFirst()
+  {
+    KeyValuePair<TKey, TValue> result = toPair(map.pollFirstEntry());
+    if (result != null)
+      count.decrementAndGet();
+
+    return result;
+  }
+
+  /**
+   * Removes a value by its key. Returns true if successfully done, false if no such key. This is an expected O(log2(n)) operation and does
+   * not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public boolean remove(TKey key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    if (map.remove(key) == null)
+      return false;
+
+    count.decrementAndGet();
+    return true;
+  }
+
+  /**
+   * Removes a number of elements by key. Returns true for those successfully removed, false for those that there was no such key. This is
+   * an expected O(mlog2(n)) operation where m is the provided element count, n is the hashtables's element Count.
+   * 
+   * @throws NullPointerException When the keys argument is null, or a key is null.
+   */
+  public Iterable<Boolean> removeRange(Iterable<? extends TKey> keys)
+  {
+    if (keys == null)
+      throw new NullPointerException("keys");
+
+    List<Boolean> result = new ArrayList<Boolean>(64);
+    for (TKey key : keys)
+      result.add(remove(key));
+
+    return result;
+  }
+
+  /**
+   * If the key is contained, the key/value pair is removed and the value returned. Otherwise null is returned. This is an expected
+   * O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public TValue removeAndGet(TKey key)
+  {
+    return removeAndGet(key, null);
+  }
+
+  /**
+   * If the key is contained, the key/value pair is removed and the value returned. Otherwise the specified defaultValue (E.g. null) is
+   * returned. This is an expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public TValue removeAndGet(TKey key, TValue defaultValue)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Object value = map.remove(key);
+    if (value == null)
+      return defaultValue;
+
+    count.decrementAndGet();
+    return SharedSkipListMap.<TValue> unmask(value);
+  }
+
+  /**
+   * Replaces a key's value, returning true if this was successful. This is an expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  public boolean replace(TKey key, TValue newValue)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return map.replace(key, mask(newValue)) != null;
+  }
+
+  /**
+   * Clears the hashtable and bulk adds key/value pairs. Returns true for elements that were successfully added, false for those that were
+   * not. Concurrent readers may observe the hashtable partially cleared or filled. This is an expected O(mlog2(m)) operation where m is
+   * the provided element count.
+   * 
+   * @throws NullPointerException When the keys or values argument is null, or a key is null.
+   * @throws IllegalArgumentException When the key count is not equal to the value count in the given collections.
+   */
+  public Iterable<Boolean> replaceAll(Iterable<? extends TKey> keys, Iterable<? extends TValue> values)
+  {
+    clear();
+    return addAll(keys, values);
+  }
+
+  /**
+   * Returns the number of key/value pairs. This is an O(1) operation and does not lock.
+   */
+  @Override
+  public int size()
+  {
+    return count.get();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  private Iterable<Boolean> addAll(Iterable<? extends TKey> keys, Iterable<? extends TValue> values)
+  {
+    if (keys == null)
+      throw new NullPointerException("keys");
+    if (values == null)
+      throw new NullPointerException("values");
+
+    int keyCount = Linq.count(keys);
+    int valueCount = Linq.count(values);
+    if (keyCount != valueCount)
+      throw new IllegalArgumentException("keys=" + keyCount + " values=" + valueCount);
+
+    List<Boolean> result = new ArrayList<Boolean>(keyCount);
+    Iterator<? extends TKey> keyIterator = keys.iterator();
+    Iterator<? extends TValue> valueIterator = values.iterator();
+    while (keyIterator.hasNext())
+      result.add(add(keyIterator.next(), valueIterator.next()));
+
+    return result;
+  }
+
+  private static <TKey, TValue> Iterable<KeyValuePair<TKey, TValue>> entries(ConcurrentNavigableMap<TKey, Object> view)
+  {
+    return new SkipListRange<TKey, TValue>(view);
+  }
+
+  private static Object mask(Object value)
+  {
+    return value == null ? NULL : value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <TValue> TValue unmask(Object value)
+  {
+    return value == NULL ? null : (TValue) value;
+  }
+
+  private static <TKey, TValue> KeyValuePair<TKey, TValue> toPair(Map.Entry<TKey, Object> entry)
+  {
+    return entry == null ? null : new KeyValuePair<TKey, TValue>(entry.getKey(), SharedSkipListMap.<TValue> unmask(entry.getValue()));
+  }
+
+  /**
+   * A read-only, weakly consistent range of a skip list map
+   */
+  private static final class SkipListRange<TKey, TValue>
+      implements Iterable<KeyValuePair<TKey, TValue>>
+  {
+    private final ConcurrentNavigableMap<TKey, Object> range;
+
+    SkipListRange(ConcurrentNavigableMap<TKey, Object> range)
+    {
+      this.range = range;
+    }
+
+    @Override
+    public Iterator<KeyValuePair<TKey, TValue>> iterator()
+    {
+      return new SkipListIterator<TKey, TValue>(range.entrySet().iterator());
+    }
+
+    @Override
+    public String toString()
+    {
+      return Linq.toString(this);
+    }
+  }
+
+  /**
+   * Adapts an iterator of skip list entries to key/value pairs
+   */
+  private static final class SkipListIterator<TKey, TValue>
+      implements Iterator<KeyValuePair<TKey, TValue>>
+  {
+    private final Iterator<Map.Entry<TKey, Object>> entries;
+
+    SkipListIterator(Iterator<Map.Entry<TKey, Object>> entries)
+    {
+      this.entries = entries;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return entries.hasNext();
+    }
+
+    @Override
+    public KeyValuePair<TKey, TValue> next()
+    {
+      if (!entries.hasNext())
+        throw new NoSuchElementException("There is no next element.");
+
+      return toPair(entries.next());
+    }
+
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
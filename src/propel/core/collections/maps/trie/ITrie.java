@@ -0,0 +1,70 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.trie;
+
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.maps.IHashtable;
+import propel.core.utils.StringComparison;
+
+/**
+ * The interface of a trie, i.e. a hashtable of string keys which supports prefix queries
+ * 
+ * @param <TValue> The value type
+ */
+public interface ITrie<TValue>
+    extends IHashtable<String, TValue>
+{
+  /**
+   * Returns true if any key starts with the given prefix.
+   * 
+   * @param prefix The prefix to find.
+   * 
+   * @return True if a key with the prefix is found.
+   * 
+   * @throws NullPointerException If the prefix is null.
+   */
+  boolean containsPrefix(String prefix);
+
+  /**
+   * Returns the key/value pair whose key is the longest prefix of the given text, e.g. the most specific path or domain rule matching it.
+   * 
+   * @param text The text to match.
+   * 
+   * @return The key/value pair found, or null if no key is a prefix of the text.
+   * 
+   * @throws NullPointerException If the text is null.
+   */
+  KeyValuePair<String, TValue> longestPrefixOf(String text);
+
+  /**
+   * Returns the key/value pairs whose keys start with the given prefix, in ascending key order.
+   * 
+   * @param prefix The prefix to find.
+   * 
+   * @return The key/value pairs found.
+   * 
+   * @throws NullPointerException If the prefix is null.
+   */
+  Iterable<KeyValuePair<String, TValue>> startingWith(String prefix);
+
+  /**
+   * Gets the string comparison used to match keys.
+   */
+  StringComparison getStringComparison();
+}
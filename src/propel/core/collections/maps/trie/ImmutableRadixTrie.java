@@ -0,0 +1,584 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.trie;
+
+import propel.core.TryResult;
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.collections.maps.avl.KeyCollection;
+import propel.core.collections.maps.avl.ValueCollection;
+import propel.core.utils.Linq;
+import propel.core.utils.StringComparison;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable radix trie of string keys, for read-mostly data such as configuration keys, routing tables or domain lists. The trie is
+ * encoded in a few flat arrays, rather than one object per node: nodes are rows of an int array in breadth-first order, so that the
+ * children of a node are adjacent, edge labels share one char array, and keys and values are held in ascending key order, so that the keys
+ * starting with any prefix occupy a contiguous range.
+ * 
+ * Lookups are O(k) in the length of the key, and the number of keys with a prefix is found in O(p) in the length of the prefix. Keys are
+ * matched according to a StringComparison, as by RadixTrie. All mutators throw UnsupportedOperationException.
+ * 
+ * @param <TValue> The value type.
+ */
+public final class ImmutableRadixTrie<TValue>
+    implements ITrie<TValue>
+{
+  private static final String READ_ONLY = "The trie is read-only";
+  // the fields of each node row
+  private static final int LABEL_START = 0;
+  private static final int LABEL_LENGTH = 1;
+  private static final int FIRST_CHILD = 2;
+  private static final int CHILD_COUNT = 3;
+  private static final int RANGE_START = 4;
+  private static final int RANGE_END = 5;
+  private static final int TERMINAL = 6;
+  private static final int NODE_SIZE = 7;
+  private final StringComparison comparison;
+  private final KeyCollection<String, TValue> keyCollection;
+  private final ValueCollection<String, TValue> valueCollection;
+  private final int[] nodes;
+  private final char[] labels;
+  private final String[] keys;
+  private final Object[] values;
+
+  /**
+   * Constructor initializes with the contents of a trie, using its string comparison. This is an O(n) operation in the number of nodes.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public ImmutableRadixTrie(RadixTrie<TValue> trie)
+  {
+    if (trie == null)
+      throw new NullPointerException("trie");
+
+    comparison = trie.getStringComparison();
+    keyCollection = new KeyCollection<String, TValue>(this, String.class);
+    valueCollection = new ValueCollection<String, TValue>(this, trie.getGenericTypeParameterValue());
+
+    // number the nodes breadth-first, so that siblings are adjacent
+    List<RadixTrie.Node<TValue>> order = new ArrayList<RadixTrie.Node<TValue>>();
+    order.add(trie.getRoot());
+    int labelLength = 0;
+    for (int i = 0; i < order.size(); i++)
+    {
+      RadixTrie.Node<TValue> node = order.get(i);
+      labelLength += node.label.length;
+      for (int j = 0; j < node.childCount; j++)
+        order.add(node.children[j]);
+    }
+
+    int count = order.size();
+    nodes = new int[count * NODE_SIZE];
+    labels = new char[labelLength];
+    keys = new String[trie.size()];
+    values = new Object[trie.size()];
+
+    int labelStart = 0;
+    int nextChild = 1;
+    for (int i = 0; i < count; i++)
+    {
+      RadixTrie.Node<TValue> node = order.get(i);
+      int row = i * NODE_SIZE;
+      System.arraycopy(node.label, 0, labels, labelStart, node.label.length);
+      nodes[row + LABEL_START] = labelStart;
+      nodes[row + LABEL_LENGTH] = node.label.length;
+      nodes[row + FIRST_CHILD] = nextChild;
+      nodes[row + CHILD_COUNT] = node.childCount;
+      nodes[row + TERMINAL] = node.terminal ? 1 : 0;
+      labelStart += node.label.length;
+      nextChild += node.childCount;
+    }
+
+    // count the keys of each sub-tree bottom-up, then assign each sub-tree its range of the sorted keys top-down
+    for (int i = count - 1; i >= 0; i--)
+    {
+      int row = i * NODE_SIZE;
+      int keyCount = nodes[row + TERMINAL];
+      for (int j = 0; j < nodes[row + CHILD_COUNT]; j++)
+        keyCount += nodes[(nodes[row + FIRST_CHILD] + j) * NODE_SIZE + RANGE_END];
+
+      nodes[row + RANGE_END] = keyCount;
+    }
+
+    nodes[RANGE_END] += nodes[RANGE_START];
+    for (int i = 0; i < count; i++)
+    {
+      int row = i * NODE_SIZE;
+      int start = nodes[row + RANGE_START];
+      if (nodes[row + TERMINAL] != 0)
+      {
+        RadixTrie.Node<TValue> node = order.get(i);
+        keys[start] = node.key;
+        values[start] = node.value;
+        start++;
+      }
+
+      for (int j = 0; j < nodes[row + CHILD_COUNT]; j++)
+      {
+        int childRow = (nodes[row + FIRST_CHILD] + j) * NODE_SIZE;
+        nodes[childRow + RANGE_START] = start;
+        start += nodes[childRow + RANGE_END];
+        nodes[childRow + RANGE_END] = start;
+      }
+    }
+  }
+
+  /**
+   * Constructor initializes with another reified map and the string comparison used to match keys. Keys which are equal under the string
+   * comparison are added once.
+   * 
+   * @throws NullPointerException When an argument is null, or a key in the map provided is null.
+   */
+  public ImmutableRadixTrie(ReifiedMap<String, TValue> map, StringComparison comparison)
+  {
+    this(new RadixTrie<TValue>(map, comparison));
+  }
+
+  /**
+   * Constructor initializes from another map, the string comparison used to match keys and the value generic type parameter. Keys which
+   * are equal under the string comparison are added once.
+   * 
+   * @throws NullPointerException When an argument is null, or a key in the map provided is null.
+   */
+  public ImmutableRadixTrie(Map<String, ? extends TValue> map, StringComparison comparison, Class<?> genericTypeParameterValue)
+  {
+    this(new RadixTrie<TValue>(map, comparison, genericTypeParameterValue));
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public void add(KeyValuePair<? extends String, ? extends TValue> kvp)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean add(String key, TValue value)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public void clear()
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * Returns true if the key of the key/value pair exists. This is an O(k) operation in the length of the key.
+   * 
+   * @throws NullPointerException If the key value pair or the key is null.
+   */
+  @Override
+  public boolean contains(KeyValuePair<? extends String, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    return containsKey(kvp.getKey());
+  }
+
+  /**
+   * Returns true if the key exists. This is an O(k) operation in the length of the key.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean containsKey(String key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return indexOf(key) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * This is an O(p) operation in the length of the prefix.
+   */
+  @Override
+  public boolean containsPrefix(String prefix)
+  {
+    return countStartingWith(prefix) > 0;
+  }
+
+  /**
+   * Returns the number of keys starting with the given prefix. This is an O(p) operation in the length of the prefix.
+   * 
+   * @throws NullPointerException If the prefix is null.
+   */
+  public int countStartingWith(String prefix)
+  {
+    if (prefix == null)
+      throw new NullPointerException("prefix");
+
+    int node = findPrefixNode(RadixTrie.normalize(prefix, comparison));
+    return node < 0 ? 0 : nodes[node * NODE_SIZE + RANGE_END] - nodes[node * NODE_SIZE + RANGE_START];
+  }
+
+  /**
+   * Gets the value associated with the specified key. This is an O(k) operation in the length of the key.
+   * 
+   * @throws NullPointerException If the key is null.
+   * @throws KeyNotFoundException If the key is not found.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TValue get(String key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int index = indexOf(key);
+    if (index < 0)
+      throw new KeyNotFoundException(key);
+
+    return (TValue) values[index];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public KeyCollection<String, TValue> getKeys()
+  {
+    return keyCollection;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ValueCollection<String, TValue> getValues()
+  {
+    return valueCollection;
+  }
+
+  /**
+   * Returns an iterator of the key/value pairs, in ascending key order.
+   */
+  @Override
+  public Iterator<KeyValuePair<String, TValue>> iterator()
+  {
+    return new RangeIterator(0, keys.length);
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * This is an O(t) operation in the length of the text.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public KeyValuePair<String, TValue> longestPrefixOf(String text)
+  {
+    if (text == null)
+      throw new NullPointerException("text");
+
+    String chars = RadixTrie.normalize(text, comparison);
+    int length = chars.length();
+    int node = 0;
+    int result = nodes[TERMINAL] != 0 ? 0 : -1;
+    int position = 0;
+
+    while (position < length)
+    {
+      node = childOf(node, chars.charAt(position));
+      if (node < 0)
+        break;
+
+      int row = node * NODE_SIZE;
+      int labelLength = nodes[row + LABEL_LENGTH];
+      if (length - position < labelLength || commonPrefixLength(row, chars, position) < labelLength)
+        break;
+
+      position += labelLength;
+      if (nodes[row + TERMINAL] != 0)
+        result = node;
+    }
+
+    if (result < 0)
+      return null;
+
+    int index = nodes[result * NODE_SIZE + RANGE_START];
+    return new KeyValuePair<String, TValue>(keys[index], (TValue) values[index]);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean remove(KeyValuePair<? extends String, ? extends TValue> kvp)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean remove(String key)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  @Deprecated
+  public boolean replace(String key, TValue value)
+  {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  /**
+   * Gets the number of key/value pairs contained. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return keys.length;
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * Locating the prefix is an O(p) operation in the length of the prefix, iterating is O(m) in the number of matching keys.
+   */
+  @Override
+  public Iterable<KeyValuePair<String, TValue>> startingWith(String prefix)
+  {
+    if (prefix == null)
+      throw new NullPointerException("prefix");
+
+    int node = findPrefixNode(RadixTrie.normalize(prefix, comparison));
+    final int start = node < 0 ? 0 : nodes[node * NODE_SIZE + RANGE_START];
+    final int end = node < 0 ? 0 : nodes[node * NODE_SIZE + RANGE_END];
+    return new Iterable<KeyValuePair<String, TValue>>() {
+      @Override
+      public Iterator<KeyValuePair<String, TValue>> iterator()
+      {
+        return new RangeIterator(start, end);
+      }
+    };
+  }
+
+  /**
+   * Attempts to get a value by a given key. This is an O(k) operation in the length of the key.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public TryResult<TValue> tryGetValue(String key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    int index = indexOf(key);
+    return index < 0 ? new TryResult<TValue>() : new TryResult<TValue>((TValue) values[index]);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public StringComparison getStringComparison()
+  {
+    return comparison;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return String.class;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return valueCollection.getGenericTypeParameter();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  /**
+   * Returns the index of a key in the sorted keys and values, or -1 if not found
+   */
+  private int indexOf(String key)
+  {
+    String chars = RadixTrie.normalize(key, comparison);
+    int length = chars.length();
+    int node = 0;
+    int position = 0;
+
+    while (position < length)
+    {
+      node = childOf(node, chars.charAt(position));
+      if (node < 0)
+        return -1;
+
+      int row = node * NODE_SIZE;
+      int labelLength = nodes[row + LABEL_LENGTH];
+      if (length - position < labelLength || commonPrefixLength(row, chars, position) < labelLength)
+        return -1;
+
+      position += labelLength;
+    }
+
+    return nodes[node * NODE_SIZE + TERMINAL] != 0 ? nodes[node * NODE_SIZE + RANGE_START] : -1;
+  }
+
+  /**
+   * Returns the highest node whose keys all start with the given characters, or -1 if there is no such key
+   */
+  private int findPrefixNode(String chars)
+  {
+    int length = chars.length();
+    int node = 0;
+    int position = 0;
+
+    while (position < length)
+    {
+      node = childOf(node, chars.charAt(position));
+      if (node < 0)
+        return -1;
+
+      int row = node * NODE_SIZE;
+      int common = commonPrefixLength(row, chars, position);
+      if (common < nodes[row + LABEL_LENGTH] && position + common < length)
+        return -1;
+
+      position += common;
+    }
+
+    return node;
+  }
+
+  /**
+   * Returns the child of a node whose label starts with the given character, or -1 if none, by binary search of the adjacent children
+   */
+  private int childOf(int node, char ch)
+  {
+    int row = node * NODE_SIZE;
+    int low = nodes[row + FIRST_CHILD];
+    int high = low + nodes[row + CHILD_COUNT] - 1;
+
+    while (low <= high)
+    {
+      int middle = (low + high) >>> 1;
+      char first = labels[nodes[middle * NODE_SIZE + LABEL_START]];
+      if (first < ch)
+        low = middle + 1;
+      else if (first > ch)
+        high = middle - 1;
+      else
+        return middle;
+    }
+
+    return -1;
+  }
+
+  private int commonPrefixLength(int row, String text, int position)
+  {
+    int start = nodes[row + LABEL_START];
+    int max = Math.min(nodes[row + LABEL_LENGTH], text.length() - position);
+    int result = 0;
+    while (result < max && labels[start + result] == text.charAt(position + result))
+      result++;
+
+    return result;
+  }
+
+  /**
+   * Iterates through a range of the sorted keys and values
+   */
+  private final class RangeIterator
+      implements Iterator<KeyValuePair<String, TValue>>
+  {
+    private int index;
+    private final int end;
+
+    RangeIterator(int start, int end)
+    {
+      index = start;
+      this.end = end;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return index < end;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public KeyValuePair<String, TValue> next()
+    {
+      if (index >= end)
+        throw new NoSuchElementException("There is no next element.");
+
+      KeyValuePair<String, TValue> result = new KeyValuePair<String, TValue>(keys[index], (TValue) values[index]);
+      index++;
+      return result;
+    }
+
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,763 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.maps.trie;
+
+import propel.core.TryResult;
+import propel.core.collections.KeyNotFoundException;
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.maps.ReifiedMap;
+import propel.core.collections.maps.avl.KeyCollection;
+import propel.core.collections.maps.avl.ValueCollection;
+import propel.core.utils.Linq;
+import propel.core.utils.StringComparison;
+import propel.core.utils.StringUtils;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware radix trie (compact prefix tree) of string keys. Edges are labelled with runs of characters rather than single characters,
+ * so that chains of single-child nodes are collapsed. Lookups are O(k) in the length of the key, regardless of the number of keys, and keys
+ * sharing a prefix can be enumerated, or the longest key prefixing a text found, without scanning the other keys. This map does not allow
+ * null keys to be inserted.
+ * 
+ * Keys are matched according to a StringComparison. Ordinal modes compare characters, OrdinalIgnoreCase ignoring the case of ASCII letters;
+ * the locale ignore-case modes lower-case keys using their locale; the locale case-sensitive modes compare ordinally, as a trie requires
+ * character equality. In ignore-case modes the first spelling of a key added is the one retained. Keys are iterated in ascending order of
+ * their characters as matched.
+ * 
+ * Instantiate using e.g.: new RadixTrie&lt;Object&gt;(){}; -OR- new RadixTrie&lt;Object&gt;(StringComparison.Ordinal, Object.class);
+ * 
+ * @param <TValue> The value type.
+ */
+public class RadixTrie<TValue>
+    implements ITrie<TValue>
+{
+  private final StringComparison comparison;
+  private final KeyCollection<String, TValue> keyCollection;
+  private final ValueCollection<String, TValue> valueCollection;
+  private Node<TValue> root;
+  private int size;
+
+  /**
+   * Default constructor, creates an ordinal trie
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public RadixTrie()
+  {
+    this(StringComparison.Ordinal);
+  }
+
+  /**
+   * Constructor initializes with the string comparison used to match keys
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException When the string comparison is null.
+   */
+  public RadixTrie(StringComparison comparison)
+  {
+    if (comparison == null)
+      throw new NullPointerException("comparison");
+
+    this.comparison = comparison;
+    keyCollection = new KeyCollection<String, TValue>(this, String.class);
+    valueCollection = new ValueCollection<String, TValue>(this, SuperTypeToken.getClazz(this.getClass(), 0));
+    root = new Node<TValue>(new char[0]);
+  }
+
+  /**
+   * Constructor initializes with the string comparison used to match keys, and the value generic type parameter
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  public RadixTrie(StringComparison comparison, Class<?> genericTypeParameterValue)
+  {
+    if (comparison == null)
+      throw new NullPointerException("comparison");
+    if (genericTypeParameterValue == null)
+      throw new NullPointerException("genericTypeParameterValue");
+
+    this.comparison = comparison;
+    keyCollection = new KeyCollection<String, TValue>(this, String.class);
+    valueCollection = new ValueCollection<String, TValue>(this, genericTypeParameterValue);
+    root = new Node<TValue>(new char[0]);
+  }
+
+  /**
+   * Constructor initializes with another reified map and the string comparison used to match keys. Keys which are equal under the string
+   * comparison are added once.
+   * 
+   * @throws NullPointerException When an argument is null, or a key in the map provided is null.
+   */
+  public RadixTrie(ReifiedMap<String, TValue> map, StringComparison comparison)
+  {
+    this(comparison, map == null ? Object.class : map.getGenericTypeParameterValue());
+    if (map == null)
+      throw new NullPointerException("map");
+
+    for (KeyValuePair<String, TValue> entry : map)
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Constructor initializes from another map, the string comparison used to match keys and the value generic type parameter. Keys which
+   * are equal under the string comparison are added once.
+   * 
+   * @throws NullPointerException When an argument is null, or a key in the map provided is null.
+   */
+  public RadixTrie(Map<String, ? extends TValue> map, StringComparison comparison, Class<?> genericTypeParameterValue)
+  {
+    this(comparison, genericTypeParameterValue);
+    if (map == null)
+      throw new NullPointerException("map");
+
+    for (Map.Entry<String, ? extends TValue> entry : map.entrySet())
+      add(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Adds an element represented by the provided key/value pair if the key is not already present.
+   * 
+   * @throws NullPointerException If the key value pair or the key is null.
+   */
+  @Override
+  public void add(KeyValuePair<? extends String, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    add(kvp.getKey(), kvp.getValue());
+  }
+
+  /**
+   * Adds the provided key/value pair if the key is not already present. This is an O(k) operation in the length of the key.
+   * 
+   * @return True if the key did not exist, therefore the value was added.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean add(String key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    String chars = normalize(key, comparison);
+    int length = chars.length();
+    Node<TValue> node = root;
+    int position = 0;
+
+    while (position < length)
+    {
+      int index = node.indexOf(chars.charAt(position));
+      if (index < 0)
+      {
+        // no edge starts with the next character, so the rest of the key becomes a new leaf
+        Node<TValue> leaf = new Node<TValue>(chars.substring(position).toCharArray());
+        leaf.key = key;
+        leaf.value = value;
+        leaf.terminal = true;
+        node.insertChild(-(index + 1), leaf);
+        size++;
+        return true;
+      }
+
+      Node<TValue> child = node.children[index];
+      int common = commonPrefixLength(child.label, chars, position);
+      if (common < child.label.length)
+      {
+        // the key diverges within the edge, which is split at that point
+        Node<TValue> middle = new Node<TValue>(Arrays.copyOf(child.label, common));
+        child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+        middle.insertChild(0, child);
+        node.children[index] = middle;
+        child = middle;
+      }
+
+      node = child;
+      position += common;
+    }
+
+    if (node.terminal)
+      return false;
+
+    node.key = key;
+    node.value = value;
+    node.terminal = true;
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes all elements from this trie. This is an O(1) operation.
+   */
+  @Override
+  public void clear()
+  {
+    root = new Node<TValue>(new char[0]);
+    size = 0;
+  }
+
+  /**
+   * Returns true if the key of the key/value pair exists. This is an O(k) operation in the length of the key.
+   * 
+   * @throws NullPointerException If the key value pair or the key is null.
+   */
+  @Override
+  public boolean contains(KeyValuePair<? extends String, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    return containsKey(kvp.getKey());
+  }
+
+  /**
+   * Returns true if the key exists. This is an O(k) operation in the length of the key.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean containsKey(String key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    return findNode(normalize(key, comparison)) != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * This is an O(p) operation in the length of the prefix.
+   */
+  @Override
+  public boolean containsPrefix(String prefix)
+  {
+    if (prefix == null)
+      throw new NullPointerException("prefix");
+
+    return findPrefixNode(normalize(prefix, comparison)) != null;
+  }
+
+  /**
+   * Gets the value associated with the specified key. This is an O(k) operation in the length of the key.
+   * 
+   * @throws NullPointerException If the key is null.
+   * @throws KeyNotFoundException If the key is not found.
+   */
+  @Override
+  public TValue get(String key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Node<TValue> node = findNode(normalize(key, comparison));
+    if (node == null)
+      throw new KeyNotFoundException(key);
+
+    return node.value;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public KeyCollection<String, TValue> getKeys()
+  {
+    return keyCollection;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ValueCollection<String, TValue> getValues()
+  {
+    return valueCollection;
+  }
+
+  /**
+   * Returns an iterator of the key/value pairs, in ascending key order.
+   */
+  @Override
+  public Iterator<KeyValuePair<String, TValue>> iterator()
+  {
+    return new NodeIterator<TValue>(root);
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * This is an O(t) operation in the length of the text.
+   */
+  @Override
+  public KeyValuePair<String, TValue> longestPrefixOf(String text)
+  {
+    if (text == null)
+      throw new NullPointerException("text");
+
+    String chars = normalize(text, comparison);
+    int length = chars.length();
+    Node<TValue> node = root;
+    Node<TValue> result = root.terminal ? root : null;
+    int position = 0;
+
+    while (position < length)
+    {
+      int index = node.indexOf(chars.charAt(position));
+      if (index < 0)
+        break;
+
+      node = node.children[index];
+      if (length - position < node.label.length || commonPrefixLength(node.label, chars, position) < node.label.length)
+        break;
+
+      position += node.label.length;
+      if (node.terminal)
+        result = node;
+    }
+
+    return result == null ? null : new KeyValuePair<String, TValue>(result.key, result.value);
+  }
+
+  /**
+   * Removes a key/value pair based on its key.
+   * 
+   * @throws NullPointerException If the key/value pair or the key is null.
+   */
+  @Override
+  public boolean remove(KeyValuePair<? extends String, ? extends TValue> kvp)
+  {
+    if (kvp == null)
+      throw new NullPointerException("kvp");
+
+    return remove(kvp.getKey());
+  }
+
+  /**
+   * Removes the value associated with the specified key. Nodes left with a single child are merged with it. This is an O(k) operation in
+   * the length of the key.
+   * 
+   * @return True if found and removed.
+   * 
+   * @throws NullPointerException If the key is null.
+   */
+  @Override
+  public boolean remove(String key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    String chars = normalize(key, comparison);
+    int length = chars.length();
+    Node<TValue> grandparent = null;
+    Node<TValue> parent = null;
+    Node<TValue> node = root;
+    int position = 0;
+
+    while (position < length)
+    {
+      int index = node.indexOf(chars.charAt(position));
+      if (index < 0)
+        return false;
+
+      Node<TValue> child = node.children[index];
+      if (length - position < child.label.length || commonPrefixLength(child.label, chars, position) < child.label.length)
+        return false;
+
+      grandparent = parent;
+      parent = node;
+      node = child;
+      position += child.label.length;
+    }
+
+    if (!node.terminal)
+      return false;
+
+    node.key = null;
+    node.value = null;
+    node.terminal = false;
+    size--;
+
+    if (parent != null)
+    {
+      if (node.childCount == 1)
+        mergeWithChild(parent, node);
+      else if (node.childCount == 0)
+      {
+        parent.removeChild(parent.indexOf(node.label[0]));
+        if (grandparent != null && !parent.terminal && parent.childCount == 1)
+          mergeWithChild(grandparent, parent);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Replaces a key's value with the specified value. This is an O(k) operation in the length of the key.
+   * 
+   * @return True if the key is found and replaced.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public boolean replace(String key, TValue value)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Node<TValue> node = findNode(normalize(key, comparison));
+    if (node == null)
+      return false;
+
+    node.value = value;
+    return true;
+  }
+
+  /**
+   * Gets the number of key/value pairs contained. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * Locating the prefix is an O(p) operation in the length of the prefix, iterating is O(m) in the number of matching keys. The result is a
+   * live view, reflecting changes until its iteration begins.
+   */
+  @Override
+  public Iterable<KeyValuePair<String, TValue>> startingWith(String prefix)
+  {
+    if (prefix == null)
+      throw new NullPointerException("prefix");
+
+    final String chars = normalize(prefix, comparison);
+    return new Iterable<KeyValuePair<String, TValue>>() {
+      @Override
+      public Iterator<KeyValuePair<String, TValue>> iterator()
+      {
+        return new NodeIterator<TValue>(findPrefixNode(chars));
+      }
+    };
+  }
+
+  /**
+   * Returns the keys starting with the given prefix, in ascending key order. This is an O(p + m) operation in the length of the prefix and
+   * the number of matching keys.
+   * 
+   * @throws NullPointerException If the prefix is null.
+   */
+  public List<String> keysStartingWith(String prefix)
+  {
+    List<String> result = new ArrayList<String>();
+    for (KeyValuePair<String, TValue> kvp : startingWith(prefix))
+      result.add(kvp.getKey());
+
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Attempts to get a value by a given key. This is an O(k) operation in the length of the key.
+   * 
+   * @throws NullPointerException When the key is null.
+   */
+  @Override
+  public TryResult<TValue> tryGetValue(String key)
+  {
+    if (key == null)
+      throw new NullPointerException("key");
+
+    Node<TValue> node = findNode(normalize(key, comparison));
+    return node == null ? new TryResult<TValue>() : new TryResult<TValue>(node.value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public StringComparison getStringComparison()
+  {
+    return comparison;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterKey()
+  {
+    return String.class;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameterValue()
+  {
+    return valueCollection.getGenericTypeParameter();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  /**
+   * Returns the root node, for building compact encodings of this trie
+   */
+  Node<TValue> getRoot()
+  {
+    return root;
+  }
+
+  /**
+   * Converts a key to the characters matched under the given string comparison
+   */
+  static String normalize(String key, StringComparison comparison)
+  {
+    switch(comparison)
+    {
+      case CurrentLocaleIgnoreCase:
+        return key.toLowerCase(StringUtils.CURRENT_LOCALE);
+      case InvariantLocaleIgnoreCase:
+        return key.toLowerCase(StringUtils.INVARIANT_LOCALE);
+      case OrdinalIgnoreCase:
+        int length = key.length();
+        for (int i = 0; i < length; i++)
+        {
+          char ch = key.charAt(i);
+          if (ch >= 'A' && ch <= 'Z')
+          {
+            // ASCII letters are converted to lowercase
+            char[] result = key.toCharArray();
+            for (int j = i; j < length; j++)
+              if (result[j] >= 'A' && result[j] <= 'Z')
+                result[j] += 'a' - 'A';
+
+            return new String(result);
+          }
+        }
+
+        return key;
+      default:
+        return key;
+    }
+  }
+
+  /**
+   * Returns the number of leading characters of the label equal to those of the text starting at the given position
+   */
+  static int commonPrefixLength(char[] label, String text, int position)
+  {
+    int max = Math.min(label.length, text.length() - position);
+    int result = 0;
+    while (result < max && label[result] == text.charAt(position + result))
+      result++;
+
+    return result;
+  }
+
+  private Node<TValue> findNode(String chars)
+  {
+    int length = chars.length();
+    Node<TValue> node = root;
+    int position = 0;
+
+    while (position < length)
+    {
+      int index = node.indexOf(chars.charAt(position));
+      if (index < 0)
+        return null;
+
+      node = node.children[index];
+      if (length - position < node.label.length || commonPrefixLength(node.label, chars, position) < node.label.length)
+        return null;
+
+      position += node.label.length;
+    }
+
+    return node.terminal ? node : null;
+  }
+
+  /**
+   * Returns the highest node whose keys all start with the given characters, or null if there is no such key
+   */
+  private Node<TValue> findPrefixNode(String chars)
+  {
+    int length = chars.length();
+    Node<TValue> node = root;
+    int position = 0;
+
+    while (position < length)
+    {
+      int index = node.indexOf(chars.charAt(position));
+      if (index < 0)
+        return null;
+
+      node = node.children[index];
+      int common = commonPrefixLength(node.label, chars, position);
+      if (common < node.label.length && position + common < length)
+        return null;
+
+      position += common;
+    }
+
+    return node == root && size == 0 ? null : node;
+  }
+
+  /**
+   * Replaces a non-terminal node having a single child with that child, prefixing the child's label with the node's
+   */
+  private static <TValue> void mergeWithChild(Node<TValue> parent, Node<TValue> node)
+  {
+    Node<TValue> child = node.children[0];
+    char[] label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+    System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+    child.label = label;
+    parent.children[parent.indexOf(label[0])] = child;
+  }
+
+  /**
+   * A node of the trie, holding the label of the edge leading to it and its children ordered by first label character
+   */
+  static final class Node<TValue>
+  {
+    char[] label;
+    char[] firstChars;
+    Node<TValue>[] children;
+    int childCount;
+    boolean terminal;
+    String key;
+    TValue value;
+
+    @SuppressWarnings("unchecked")
+    Node(char[] label)
+    {
+      this.label = label;
+      firstChars = new char[0];
+      children = (Node<TValue>[]) new Node<?>[0];
+    }
+
+    /**
+     * Returns the index of the child whose label starts with the given character, or (-(insertion point) - 1) if none
+     */
+    int indexOf(char ch)
+    {
+      return Arrays.binarySearch(firstChars, 0, childCount, ch);
+    }
+
+    void insertChild(int index, Node<TValue> child)
+    {
+      if (childCount == children.length)
+      {
+        int capacity = Math.max(2, childCount << 1);
+        firstChars = Arrays.copyOf(firstChars, capacity);
+        children = Arrays.copyOf(children, capacity);
+      }
+
+      System.arraycopy(firstChars, index, firstChars, index + 1, childCount - index);
+      System.arraycopy(children, index, children, index + 1, childCount - index);
+      firstChars[index] = child.label[0];
+      children[index] = child;
+      childCount++;
+    }
+
+    void removeChild(int index)
+    {
+      System.arraycopy(firstChars, index + 1, firstChars, index, childCount - index - 1);
+      System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+      childCount--;
+      children[childCount] = null;
+    }
+  }
+
+  /**
+   * Iterates through the key/value pairs of a sub-tree in ascending key order, by depth-first traversal
+   */
+  private static final class NodeIterator<TValue>
+      implements Iterator<KeyValuePair<String, TValue>>
+  {
+    private final List<Node<TValue>> stack = new ArrayList<Node<TValue>>();
+    private Node<TValue> next;
+
+    NodeIterator(Node<TValue> start)
+    {
+      if (start != null)
+        stack.add(start);
+
+      advance();
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return next != null;
+    }
+
+    @Override
+    public KeyValuePair<String, TValue> next()
+    {
+      if (next == null)
+        throw new NoSuchElementException("There is no next element.");
+
+      KeyValuePair<String, TValue> result = new KeyValuePair<String, TValue>(next.key, next.value);
+      advance();
+      return result;
+    }
+
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    private void advance()
+    {
+      next = null;
+      while (next == null && !stack.isEmpty())
+      {
+        Node<TValue> node = stack.remove(stack.size() - 1);
+        for (int i = node.childCount - 1; i >= 0; i--)
+          stack.add(node.children[i]);
+
+        if (node.terminal)
+          next = node;
+      }
+    }
+  }
+}
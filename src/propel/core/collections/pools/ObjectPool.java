@@ -0,0 +1,452 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.pools;
+
+import propel.core.common.PropelLog;
+import propel.core.common.StackTraceLogger;
+import propel.core.counters.SharedStripedCounter;
+import propel.core.functional.Actions.Action1;
+import propel.core.functional.Functions.Function0;
+import propel.core.functional.Predicates.Predicate1;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe pool of reusable objects which are expensive to create, such as string builders, ciphers, XML document builders or large
+ * scratch buffers. Each thread keeps a few idle objects in a thread-local cache, in front of a lock-free stack of idle objects shared by
+ * all threads, so that borrowing and returning an object in a hot loop does not lock. The statistics are kept in striped counters, so
+ * that threads do not contend on them. Returning an object while the thread-local cache is full allocates a node of the shared stack,
+ * therefore a thread which returns more objects than it borrows allocates once per surplus object; a thread which borrows and returns
+ * objects in turn does not allocate.
+ * 
+ * Returned objects are passed to an optional reset hook, and idle objects are checked by an optional validation hook when borrowed,
+ * invalid ones being discarded. The number of shared idle objects is softly bounded: objects returned to a full pool are discarded. In
+ * debug mode, the pool records where each object was borrowed, reports objects garbage collected without having been returned, and rejects
+ * objects returned twice or not borrowed from the pool.
+ * 
+ * @param <T> The pooled object type.
+ */
+public final class ObjectPool<T>
+{
+  /**
+   * The number of idle objects cached per thread
+   */
+  public static final int LOCAL_CAPACITY = 4;
+  private final Function0<T> factory;
+  private final Action1<T> reset;
+  private final Predicate1<T> validate;
+  private final int maxIdle;
+  private final boolean debug;
+  private final AtomicReference<Node<T>> head;
+  private final AtomicInteger idleCount;
+  private final ThreadLocal<LocalCache> localCache;
+  private final SharedStripedCounter borrowCount;
+  private final SharedStripedCounter returnCount;
+  private final SharedStripedCounter createCount;
+  private final SharedStripedCounter discardCount;
+  private final AtomicLong leakCount;
+  // debug mode only: the borrowed objects, by identity hash code
+  private final Map<Integer, List<BorrowReference<T>>> borrowed;
+  private final ReferenceQueue<T> collected;
+  private final ReentrantLock borrowedLock;
+
+  /**
+   * Constructor initializes a pool creating objects with the given factory, without hooks, holding up to 64 shared idle objects.
+   * 
+   * @throws NullPointerException When the factory is null.
+   */
+  public ObjectPool(Function0<T> factory)
+  {
+    this(factory, null, null, 64, false);
+  }
+
+  /**
+   * Constructor initializes a pool with the given hooks.
+   * 
+   * @param factory Creates a new object when there is no idle one.
+   * @param reset Restores a returned object to its initial state, or null if not needed.
+   * @param validate Returns true if an idle object may be reused, or null if idle objects are always valid.
+   * @param maxIdle The soft upper bound of shared idle objects, in addition to those cached per thread.
+   * @param debug True to track borrowed objects, detecting leaks and invalid returns, at a performance cost.
+   * 
+   * @throws NullPointerException When the factory is null.
+   * @throws IllegalArgumentException When the maximum number of idle objects is negative.
+   */
+  public ObjectPool(Function0<T> factory, Action1<T> reset, Predicate1<T> validate, int maxIdle, boolean debug)
+  {
+    if (factory == null)
+      throw new NullPointerException("factory");
+    if (maxIdle < 0)
+      throw new IllegalArgumentException("maxIdle=" + maxIdle);
+
+    this.factory = factory;
+    this.reset = reset;
+    this.validate = validate;
+    this.maxIdle = maxIdle;
+    this.debug = debug;
+    head = new AtomicReference<Node<T>>();
+    idleCount = new AtomicInteger();
+    localCache = new ThreadLocal<LocalCache>() {
+      @Override
+      protected LocalCache initialValue()
+      {
+        return new LocalCache();
+      }
+    };
+    borrowCount = new SharedStripedCounter();
+    returnCount = new SharedStripedCounter();
+    createCount = new SharedStripedCounter();
+    discardCount = new SharedStripedCounter();
+    leakCount = new AtomicLong();
+    borrowed = debug ? new HashMap<Integer, List<BorrowReference<T>>>() : null;
+    collected = debug ? new ReferenceQueue<T>() : null;
+    borrowedLock = debug ? new ReentrantLock() : null;
+  }
+
+  /**
+   * Borrows an object from the pool, creating one if there is no valid idle object. The object should be returned once no longer used.
+   * This is an O(1) operation, excluding discarded invalid objects.
+   * 
+   * @throws NullPointerException When the factory returns null.
+   */
+  @SuppressWarnings("unchecked")
+  public T borrow()
+  {
+    T result = null;
+
+    LocalCache cache = localCache.get();
+    while (result == null && cache.count > 0)
+    {
+      result = (T) cache.items[--cache.count];
+      cache.items[cache.count] = null;
+      result = validated(result);
+    }
+
+    while (result == null)
+    {
+      Node<T> node = head.get();
+      if (node == null)
+        break;
+
+      if (head.compareAndSet(node, node.next))
+      {
+        idleCount.decrementAndGet();
+        result = validated(node.item);
+      }
+    }
+
+    if (result == null)
+    {
+      result = factory.apply();
+      if (result == null)
+        throw new NullPointerException("The factory returned null");
+
+      createCount.increment();
+    }
+
+    borrowCount.increment();
+    if (debug)
+      track(result);
+
+    return result;
+  }
+
+  /**
+   * Returns a borrowed object to the pool, resetting it. The object must not be used afterwards. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the object is null.
+   * @throws IllegalArgumentException In debug mode, when the object is not currently borrowed from this pool.
+   */
+  public void release(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    if (debug)
+      untrack(item);
+
+    returnCount.increment();
+    if (reset != null)
+      reset.apply(item);
+
+    LocalCache cache = localCache.get();
+    if (cache.count < LOCAL_CAPACITY)
+    {
+      cache.items[cache.count++] = item;
+      return;
+    }
+
+    if (idleCount.get() >= maxIdle)
+    {
+      discardCount.increment();
+      return;
+    }
+
+    idleCount.incrementAndGet();
+    Node<T> node = new Node<T>(item);
+    do
+      node.next = head.get();
+    while (!head.compareAndSet(node.next, node));
+  }
+
+  /**
+   * Discards the shared idle objects, and those cached by the calling thread. Objects cached by other threads are kept.
+   */
+  public void clear()
+  {
+    LocalCache cache = localCache.get();
+    while (cache.count > 0)
+      cache.items[--cache.count] = null;
+
+    Node<T> node = head.getAndSet(null);
+    while (node != null)
+    {
+      idleCount.decrementAndGet();
+      node = node.next;
+    }
+  }
+
+  /**
+   * Returns the number of shared idle objects, excluding those cached per thread
+   */
+  public int getIdleCount()
+  {
+    return idleCount.get();
+  }
+
+  /**
+   * Returns the number of objects borrowed and not yet returned. This is approximate while objects are concurrently borrowed or returned.
+   */
+  public long getOutstandingCount()
+  {
+    return borrowCount.getCount() - returnCount.getCount();
+  }
+
+  /**
+   * Returns the number of objects borrowed
+   */
+  public long getBorrowCount()
+  {
+    return borrowCount.getCount();
+  }
+
+  /**
+   * Returns the number of objects returned
+   */
+  public long getReturnCount()
+  {
+    return returnCount.getCount();
+  }
+
+  /**
+   * Returns the number of objects created by the factory, i.e. the borrows which could not reuse an idle object
+   */
+  public long getCreateCount()
+  {
+    return createCount.getCount();
+  }
+
+  /**
+   * Returns the number of objects discarded, being invalid or returned to a full pool
+   */
+  public long getDiscardCount()
+  {
+    return discardCount.getCount();
+  }
+
+  /**
+   * Returns the number of objects detected as garbage collected without having been returned, in debug mode
+   */
+  public long getLeakCount()
+  {
+    if (debug)
+      expungeCollected();
+
+    return leakCount.get();
+  }
+
+  /**
+   * Returns the fraction of borrows which reused an idle object, or 0 if nothing has been borrowed
+   */
+  public double getReuseRate()
+  {
+    long borrows = borrowCount.getCount();
+    return borrows == 0 ? 0 : (double) (borrows - createCount.getCount()) / borrows;
+  }
+
+  /**
+   * Returns true if borrowed objects are tracked
+   */
+  public boolean isDebug()
+  {
+    return debug;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "borrowed=" + getBorrowCount() + " returned=" + getReturnCount() + " created=" + getCreateCount() + " discarded="
+           + getDiscardCount() + " leaked=" + getLeakCount() + " idle=" + getIdleCount();
+  }
+
+  /**
+   * Returns the given idle object if valid, otherwise discards it and returns null
+   */
+  private T validated(T item)
+  {
+    if (validate == null || validate.evaluate(item))
+      return item;
+
+    discardCount.increment();
+    return null;
+  }
+
+  private void track(T item)
+  {
+    BorrowReference<T> reference = new BorrowReference<T>(item, collected);
+    Integer hash = System.identityHashCode(item);
+
+    borrowedLock.lock();
+    try
+    {
+      expungeCollected();
+
+      List<BorrowReference<T>> references = borrowed.get(hash);
+      if (references == null)
+      {
+        references = new ArrayList<BorrowReference<T>>(1);
+        borrowed.put(hash, references);
+      }
+      references.add(reference);
+    }
+    finally
+    {
+      borrowedLock.unlock();
+    }
+  }
+
+  private void untrack(T item)
+  {
+    Integer hash = System.identityHashCode(item);
+
+    borrowedLock.lock();
+    try
+    {
+      expungeCollected();
+
+      List<BorrowReference<T>> references = borrowed.get(hash);
+      if (references != null)
+        for (int i = 0; i < references.size(); i++)
+          if (references.get(i).get() == item)
+          {
+            references.remove(i);
+            if (references.isEmpty())
+              borrowed.remove(hash);
+            return;
+          }
+    }
+    finally
+    {
+      borrowedLock.unlock();
+    }
+
+    throw new IllegalArgumentException("The object is not borrowed from this pool: " + item);
+  }
+
+  /**
+   * Reports the objects garbage collected while still tracked as borrowed
+   */
+  @SuppressWarnings("unchecked")
+  private void expungeCollected()
+  {
+    borrowedLock.lock();
+    try
+    {
+      BorrowReference<T> reference;
+      while ((reference = (BorrowReference<T>) collected.poll()) != null)
+      {
+        List<BorrowReference<T>> references = borrowed.get(reference.hash);
+        if (references != null && references.remove(reference))
+        {
+          if (references.isEmpty())
+            borrowed.remove(reference.hash);
+
+          leakCount.incrementAndGet();
+          PropelLog.warn("A pooled object was garbage collected without being returned, it was borrowed at: "
+                         + new StackTraceLogger(reference.borrowSite));
+        }
+      }
+    }
+    finally
+    {
+      borrowedLock.unlock();
+    }
+  }
+
+  /**
+   * A node of the shared idle object stack
+   */
+  private static final class Node<T>
+  {
+    final T item;
+    Node<T> next;
+
+    Node(T item)
+    {
+      this.item = item;
+    }
+  }
+
+  /**
+   * The idle objects cached by a thread
+   */
+  private static final class LocalCache
+  {
+    final Object[] items = new Object[LOCAL_CAPACITY];
+    int count;
+  }
+
+  /**
+   * Tracks a borrowed object in debug mode, recording where it was borrowed
+   */
+  private static final class BorrowReference<T>
+      extends WeakReference<T>
+  {
+    final Integer hash;
+    final Throwable borrowSite;
+
+    BorrowReference(T item, ReferenceQueue<T> queue)
+    {
+      super(item, queue);
+      hash = System.identityHashCode(item);
+      borrowSite = new Throwable("Borrowed from pool");
+    }
+  }
+}
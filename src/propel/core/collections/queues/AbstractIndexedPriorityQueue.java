@@ -0,0 +1,462 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.queues;
+
+import propel.core.collections.ReifiedIterable;
+import propel.core.utils.Linq;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The base of the type-aware indexed priority queues, implemented as 4-ary min-heaps. Each added item is given an int handle, which stays
+ * valid until the item is removed, through which its priority can be changed or the item removed in O(log4(n)) time, rather than the O(n)
+ * search of a PriorityQueue. Handles of removed items are reused.
+ * 
+ * Items, priorities and heap positions are held in parallel arrays indexed by handle, so that no object is allocated per item. A 4-ary heap
+ * is half as deep as a binary one and its children are adjacent in memory, which favours the frequent priority decreases of schedulers and
+ * shortest path searches. This collection allows nulls to be inserted.
+ * 
+ * @param <T> The item type.
+ */
+public abstract class AbstractIndexedPriorityQueue<T>
+    implements ReifiedIterable<T>
+{
+  /**
+   * The default initial capacity
+   */
+  public static final int DEFAULT_CAPACITY = 16;
+  private static final int ARITY = 4;
+  private final Class<?> genericTypeParameter;
+  // by handle
+  private Object[] items;
+  private int[] positions;
+  // by heap position
+  private int[] heap;
+  private int size;
+  // the number of handles ever given out, and the removed ones available for reuse
+  private int handleCount;
+  private int[] freeHandles;
+  private int freeCount;
+  private int modCount;
+
+  /**
+   * Constructor initializes with an initial capacity and the generic type parameter.
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   * @throws IllegalArgumentException When the initial capacity is negative.
+   */
+  protected AbstractIndexedPriorityQueue(int initialCapacity, Class<?> genericTypeParameter)
+  {
+    if (genericTypeParameter == null)
+      throw new NullPointerException("genericTypeParameter");
+    if (initialCapacity < 0)
+      throw new IllegalArgumentException("initialCapacity=" + initialCapacity);
+
+    this.genericTypeParameter = genericTypeParameter;
+    int capacity = Math.max(initialCapacity, 1);
+    items = new Object[capacity];
+    positions = new int[capacity];
+    heap = new int[capacity];
+    freeHandles = new int[0];
+  }
+
+  /**
+   * Returns the number of items. This is an O(1) operation.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns true if there are no items. This is an O(1) operation.
+   */
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Removes all items, invalidating all handles. This is an O(n) operation.
+   */
+  public void clear()
+  {
+    Arrays.fill(items, 0, handleCount, null);
+    clearPriorities(handleCount);
+    size = 0;
+    handleCount = 0;
+    freeCount = 0;
+    modCount++;
+  }
+
+  /**
+   * Returns true if the handle refers to an item in the queue. This is an O(1) operation.
+   */
+  public boolean contains(int handle)
+  {
+    return handle >= 0 && handle < handleCount && positions[handle] >= 0;
+  }
+
+  /**
+   * Returns the item of a handle. This is an O(1) operation.
+   * 
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue.
+   */
+  @SuppressWarnings("unchecked")
+  public T getItem(int handle)
+  {
+    checkHandle(handle);
+    return (T) items[handle];
+  }
+
+  /**
+   * Returns the handle of the item with the least priority, or -1 if empty. This is an O(1) operation.
+   */
+  public int peekHandle()
+  {
+    return size == 0 ? -1 : heap[0];
+  }
+
+  /**
+   * Returns the item with the least priority, or null if empty. This is an O(1) operation.
+   */
+  @SuppressWarnings("unchecked")
+  public T peek()
+  {
+    return size == 0 ? null : (T) items[heap[0]];
+  }
+
+  /**
+   * Removes and returns the item with the least priority, or null if empty. This is an O(log4(n)) operation.
+   */
+  public T poll()
+  {
+    return size == 0 ? null : remove(heap[0]);
+  }
+
+  /**
+   * Removes an item by its handle and returns it. This is an O(log4(n)) operation.
+   * 
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue.
+   */
+  @SuppressWarnings("unchecked")
+  public T remove(int handle)
+  {
+    checkHandle(handle);
+
+    T result = (T) items[handle];
+    removeAt(positions[handle]);
+    release(handle);
+    return result;
+  }
+
+  /**
+   * Returns an iterator over the items, in unspecified order.
+   */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new HeapIterator();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameter()
+  {
+    return genericTypeParameter;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  /**
+   * Returns true if the priority of the first handle is less than that of the second handle
+   */
+  protected abstract boolean less(int handle, int otherHandle);
+
+  /**
+   * Grows the priority storage to hold the given number of handles
+   */
+  protected abstract void growPriorities(int capacity);
+
+  /**
+   * Releases the priorities of the given number of handles, e.g. nulls object references
+   */
+  protected abstract void clearPriorities(int count);
+
+  /**
+   * Releases the priority of a removed handle, e.g. nulls an object reference
+   */
+  protected abstract void clearPriority(int handle);
+
+  /**
+   * Reserves a handle for a new item, whose priority must then be stored before calling push()
+   */
+  protected final int reserve(T item)
+  {
+    int handle;
+    if (freeCount > 0)
+      handle = freeHandles[--freeCount];
+    else
+    {
+      if (handleCount == items.length)
+      {
+        int capacity = grownCapacity(items.length);
+        items = Arrays.copyOf(items, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        heap = Arrays.copyOf(heap, capacity);
+        growPriorities(capacity);
+      }
+
+      handle = handleCount++;
+    }
+
+    items[handle] = item;
+    return handle;
+  }
+
+  /**
+   * Adds a reserved handle to the heap
+   */
+  protected final void push(int handle)
+  {
+    heap[size] = handle;
+    positions[handle] = size;
+    size++;
+    modCount++;
+    siftUp(size - 1);
+  }
+
+  /**
+   * Builds the heap from the given items, whose priorities must be stored at the handles of their array indices, in O(n) time. Must only be
+   * called on an empty queue with sufficient capacity, from a constructor.
+   */
+  protected final void heapify(T[] values)
+  {
+    int count = values.length;
+    for (int i = 0; i < count; i++)
+    {
+      items[i] = values[i];
+      heap[i] = i;
+      positions[i] = i;
+    }
+
+    handleCount = count;
+    size = count;
+    if (count > 1)
+      for (int i = (count - 2) / ARITY; i >= 0; i--)
+        siftDown(i);
+  }
+
+  /**
+   * Restores the heap order after the priority of a handle has decreased
+   */
+  protected final void decreased(int handle)
+  {
+    modCount++;
+    siftUp(positions[handle]);
+  }
+
+  /**
+   * Restores the heap order after the priority of a handle has increased
+   */
+  protected final void increased(int handle)
+  {
+    modCount++;
+    siftDown(positions[handle]);
+  }
+
+  /**
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue.
+   */
+  protected final void checkHandle(int handle)
+  {
+    if (!contains(handle))
+      throw new IllegalArgumentException("handle=" + handle);
+  }
+
+  /**
+   * @throws NoSuchElementException When the queue is empty.
+   */
+  protected final void checkNotEmpty()
+  {
+    if (size == 0)
+      throw new NoSuchElementException("The queue is empty.");
+  }
+
+  /**
+   * Returns the component type of an array of items.
+   * 
+   * @throws NullPointerException When the array is null.
+   */
+  protected static Class<?> componentTypeOf(Object[] items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    return items.getClass().getComponentType();
+  }
+
+  /**
+   * Returns the capacity, i.e. the number of handles that fit before growing
+   */
+  protected final int capacity()
+  {
+    return items.length;
+  }
+
+  private void removeAt(int position)
+  {
+    int last = --size;
+    modCount++;
+    if (position == last)
+      return;
+
+    int moved = heap[last];
+    heap[position] = moved;
+    positions[moved] = position;
+    if (siftUp(position) == position)
+      siftDown(position);
+  }
+
+  private void release(int handle)
+  {
+    items[handle] = null;
+    positions[handle] = -1;
+    clearPriority(handle);
+    freeHandles = pushFree(freeHandles, freeCount++, handle);
+  }
+
+  /**
+   * Moves the handle at a position up until its parent has no greater priority, returning its new position
+   */
+  private int siftUp(int position)
+  {
+    int handle = heap[position];
+    while (position > 0)
+    {
+      int parent = (position - 1) / ARITY;
+      int parentHandle = heap[parent];
+      if (!less(handle, parentHandle))
+        break;
+
+      heap[position] = parentHandle;
+      positions[parentHandle] = position;
+      position = parent;
+    }
+
+    heap[position] = handle;
+    positions[handle] = position;
+    return position;
+  }
+
+  /**
+   * Moves the handle at a position down until none of its children has a lesser priority
+   */
+  private void siftDown(int position)
+  {
+    int handle = heap[position];
+    while (true)
+    {
+      int first = position * ARITY + 1;
+      if (first >= size)
+        break;
+
+      int best = first;
+      int end = Math.min(first + ARITY, size);
+      for (int child = first + 1; child < end; child++)
+        if (less(heap[child], heap[best]))
+          best = child;
+
+      int bestHandle = heap[best];
+      if (!less(bestHandle, handle))
+        break;
+
+      heap[position] = bestHandle;
+      positions[bestHandle] = position;
+      position = best;
+    }
+
+    heap[position] = handle;
+    positions[handle] = position;
+  }
+
+  private static int[] pushFree(int[] free, int count, int handle)
+  {
+    if (count == free.length)
+      free = Arrays.copyOf(free, Math.max(DEFAULT_CAPACITY, grownCapacity(free.length)));
+
+    free[count] = handle;
+    return free;
+  }
+
+  private static int grownCapacity(int capacity)
+  {
+    int result = capacity + (capacity >> 1) + 1;
+    if (result < 0)
+      throw new IllegalStateException("The queue is too large.");
+
+    return result;
+  }
+
+  /**
+   * Iterates through the items in heap order
+   */
+  private final class HeapIterator
+      implements Iterator<T>
+  {
+    private int position;
+    private final int expectedModCount = modCount;
+
+    @Override
+    public boolean hasNext()
+    {
+      return position < size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T next()
+    {
+      if (modCount != expectedModCount)
+        throw new ConcurrentModificationException();
+      if (position >= size)
+        throw new NoSuchElementException("There is no next element.");
+
+      return (T) items[heap[position++]];
+    }
+
+    @Override
+    @Deprecated
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,237 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.queues;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware indexed priority queue with object priorities, ordered by a comparator or by their natural ordering. The item with the least
+ * priority is polled first. Priorities may not be null. For numeric priorities, LongIndexedPriorityQueue and DoubleIndexedPriorityQueue
+ * avoid boxing.
+ * 
+ * Instantiate using e.g.: new IndexedPriorityQueue&lt;String, Integer&gt;(String.class);
+ * 
+ * @param <T> The item type.
+ * @param <TPriority> The priority type.
+ */
+public final class IndexedPriorityQueue<T, TPriority>
+    extends AbstractIndexedPriorityQueue<T>
+{
+  private final Comparator<? super TPriority> comparator;
+  private Object[] priorities;
+
+  /**
+   * Constructor for initializing with the generic type parameter, ordering priorities by their natural ordering
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   */
+  public IndexedPriorityQueue(Class<?> genericTypeParameter)
+  {
+    this(DEFAULT_CAPACITY, genericTypeParameter, null);
+  }
+
+  /**
+   * Constructor for initializing with an initial capacity, the generic type parameter and the comparator ordering priorities, which is null
+   * for their natural ordering.
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   * @throws IllegalArgumentException When the initial capacity is negative.
+   */
+  public IndexedPriorityQueue(int initialCapacity, Class<?> genericTypeParameter, Comparator<? super TPriority> comparator)
+  {
+    super(initialCapacity, genericTypeParameter);
+    this.comparator = comparator;
+    priorities = new Object[capacity()];
+  }
+
+  /**
+   * Constructor initializes from arrays of items and their priorities, and the comparator ordering priorities, which is null for their
+   * natural ordering. This is an O(n) operation. The handle of each item is its array index.
+   * 
+   * @throws NullPointerException When an array or a priority is null.
+   * @throws IllegalArgumentException When the arrays differ in length.
+   */
+  public IndexedPriorityQueue(T[] items, TPriority[] priorities, Comparator<? super TPriority> comparator)
+  {
+    super(items == null ? 0 : items.length, componentTypeOf(items));
+    if (priorities == null)
+      throw new NullPointerException("priorities");
+    if (priorities.length != items.length)
+      throw new IllegalArgumentException("items=" + items.length + " priorities=" + priorities.length);
+    for (TPriority priority : priorities)
+      if (priority == null)
+        throw new NullPointerException("priority");
+
+    this.comparator = comparator;
+    this.priorities = Arrays.copyOf(priorities, capacity(), Object[].class);
+    heapify(items);
+  }
+
+  /**
+   * Adds an item with the given priority, returning its handle. This is an O(log4(n)) operation.
+   * 
+   * @throws NullPointerException When the priority is null.
+   */
+  public int add(T item, TPriority priority)
+  {
+    if (priority == null)
+      throw new NullPointerException("priority");
+
+    int handle = reserve(item);
+    priorities[handle] = priority;
+    push(handle);
+    return handle;
+  }
+
+  /**
+   * Returns the priority of a handle. This is an O(1) operation.
+   * 
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue.
+   */
+  @SuppressWarnings("unchecked")
+  public TPriority getPriority(int handle)
+  {
+    checkHandle(handle);
+    return (TPriority) priorities[handle];
+  }
+
+  /**
+   * Returns the least priority. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the queue is empty.
+   */
+  @SuppressWarnings("unchecked")
+  public TPriority peekPriority()
+  {
+    checkNotEmpty();
+    return (TPriority) priorities[peekHandle()];
+  }
+
+  /**
+   * Changes the priority of a handle, in either direction. This is an O(log4(n)) operation.
+   * 
+   * @throws NullPointerException When the priority is null.
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue.
+   */
+  @SuppressWarnings("unchecked")
+  public void setPriority(int handle, TPriority priority)
+  {
+    checkHandle(handle);
+    if (priority == null)
+      throw new NullPointerException("priority");
+
+    int c = compare(priority, (TPriority) priorities[handle]);
+    priorities[handle] = priority;
+    if (c < 0)
+      decreased(handle);
+    else if (c > 0)
+      increased(handle);
+  }
+
+  /**
+   * Lowers the priority of a handle. This is an O(log4(n)) operation.
+   * 
+   * @throws NullPointerException When the priority is null.
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue, or the priority is greater than the current.
+   */
+  @SuppressWarnings("unchecked")
+  public void decreaseKey(int handle, TPriority priority)
+  {
+    checkHandle(handle);
+    if (priority == null)
+      throw new NullPointerException("priority");
+    if (compare(priority, (TPriority) priorities[handle]) > 0)
+      throw new IllegalArgumentException("priority=" + priority + " current=" + priorities[handle]);
+
+    priorities[handle] = priority;
+    decreased(handle);
+  }
+
+  /**
+   * Raises the priority of a handle. This is an O(log4(n)) operation.
+   * 
+   * @throws NullPointerException When the priority is null.
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue, or the priority is less than the current.
+   */
+  @SuppressWarnings("unchecked")
+  public void increaseKey(int handle, TPriority priority)
+  {
+    checkHandle(handle);
+    if (priority == null)
+      throw new NullPointerException("priority");
+    if (compare(priority, (TPriority) priorities[handle]) < 0)
+      throw new IllegalArgumentException("priority=" + priority + " current=" + priorities[handle]);
+
+    priorities[handle] = priority;
+    increased(handle);
+  }
+
+  /**
+   * Returns the comparator ordering priorities, or null if ordered by their natural ordering
+   */
+  public Comparator<? super TPriority> getComparator()
+  {
+    return comparator;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  protected boolean less(int handle, int otherHandle)
+  {
+    return compare((TPriority) priorities[handle], (TPriority) priorities[otherHandle]) < 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void growPriorities(int capacity)
+  {
+    priorities = Arrays.copyOf(priorities, capacity);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void clearPriorities(int count)
+  {
+    Arrays.fill(priorities, 0, count, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void clearPriority(int handle)
+  {
+    priorities[handle] = null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compare(TPriority priority, TPriority other)
+  {
+    return comparator == null ? ((Comparable<? super TPriority>) priority).compareTo(other) : comparator.compare(priority, other);
+  }
+}
@@ -0,0 +1,189 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.queues;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware indexed priority queue with long priorities, which are stored unboxed. The item with the least priority is polled first.
+ * 
+ * Instantiate using e.g.: new LongIndexedPriorityQueue&lt;String&gt;(String.class);
+ * 
+ * @param <T> The item type.
+ */
+public final class LongIndexedPriorityQueue<T>
+    extends AbstractIndexedPriorityQueue<T>
+{
+  private long[] priorities;
+
+  /**
+   * Constructor for initializing with the generic type parameter
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   */
+  public LongIndexedPriorityQueue(Class<?> genericTypeParameter)
+  {
+    this(DEFAULT_CAPACITY, genericTypeParameter);
+  }
+
+  /**
+   * Constructor for initializing with an initial capacity and the generic type parameter
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   * @throws IllegalArgumentException When the initial capacity is negative.
+   */
+  public LongIndexedPriorityQueue(int initialCapacity, Class<?> genericTypeParameter)
+  {
+    super(initialCapacity, genericTypeParameter);
+    priorities = new long[capacity()];
+  }
+
+  /**
+   * Constructor initializes from arrays of items and their priorities, in O(n) time. The handle of each item is its array index.
+   * 
+   * @throws NullPointerException When an argument is null.
+   * @throws IllegalArgumentException When the arrays differ in length.
+   */
+  public LongIndexedPriorityQueue(T[] items, long[] priorities)
+  {
+    super(items == null ? 0 : items.length, componentTypeOf(items));
+    if (priorities == null)
+      throw new NullPointerException("priorities");
+    if (priorities.length != items.length)
+      throw new IllegalArgumentException("items=" + items.length + " priorities=" + priorities.length);
+
+    this.priorities = Arrays.copyOf(priorities, capacity());
+    heapify(items);
+  }
+
+  /**
+   * Adds an item with the given priority, returning its handle. This is an O(log4(n)) operation.
+   */
+  public int add(T item, long priority)
+  {
+    int handle = reserve(item);
+    priorities[handle] = priority;
+    push(handle);
+    return handle;
+  }
+
+  /**
+   * Returns the priority of a handle. This is an O(1) operation.
+   * 
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue.
+   */
+  public long getPriority(int handle)
+  {
+    checkHandle(handle);
+    return priorities[handle];
+  }
+
+  /**
+   * Returns the least priority. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the queue is empty.
+   */
+  public long peekPriority()
+  {
+    checkNotEmpty();
+    return priorities[peekHandle()];
+  }
+
+  /**
+   * Changes the priority of a handle, in either direction. This is an O(log4(n)) operation.
+   * 
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue.
+   */
+  public void setPriority(int handle, long priority)
+  {
+    checkHandle(handle);
+
+    long previous = priorities[handle];
+    priorities[handle] = priority;
+    if (priority < previous)
+      decreased(handle);
+    else if (priority > previous)
+      increased(handle);
+  }
+
+  /**
+   * Lowers the priority of a handle. This is an O(log4(n)) operation.
+   * 
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue, or the priority is greater than the current.
+   */
+  public void decreaseKey(int handle, long priority)
+  {
+    checkHandle(handle);
+    if (priority > priorities[handle])
+      throw new IllegalArgumentException("priority=" + priority + " current=" + priorities[handle]);
+
+    priorities[handle] = priority;
+    decreased(handle);
+  }
+
+  /**
+   * Raises the priority of a handle. This is an O(log4(n)) operation.
+   * 
+   * @throws IllegalArgumentException When the handle does not refer to an item in the queue, or the priority is less than the current.
+   */
+  public void increaseKey(int handle, long priority)
+  {
+    checkHandle(handle);
+    if (priority < priorities[handle])
+      throw new IllegalArgumentException("priority=" + priority + " current=" + priorities[handle]);
+
+    priorities[handle] = priority;
+    increased(handle);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected boolean less(int handle, int otherHandle)
+  {
+    return priorities[handle] < priorities[otherHandle];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void growPriorities(int capacity)
+  {
+    priorities = Arrays.copyOf(priorities, capacity);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void clearPriorities(int count)
+  {
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void clearPriority(int handle)
+  {
+  }
+}
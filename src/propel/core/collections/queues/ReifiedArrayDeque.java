@@ -0,0 +1,809 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.queues;
+
+import propel.core.collections.ReifiedIterable;
+import propel.core.collections.lists.ReifiedArrayList;
+import propel.core.collections.lists.ReifiedList;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.lang.reflect.Array;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A type-aware, growable, circular-array-backed double-ended queue. Adding and removing at either end is an amortised O(1) operation and
+ * elements are stored contiguously, unlike ReifiedLinkedList, which allocates a node per element. This collection allows nulls to be
+ * inserted, therefore the null returned by poll/peek methods is ambiguous when nulls are stored; use size() or the throwing variants in
+ * such cases.
+ * 
+ * Instantiate using e.g.: new ReifiedArrayDeque&lt;String&gt;(){}; -OR- new ReifiedArrayDeque&lt;String&gt;(String.class);
+ */
+public class ReifiedArrayDeque<T>
+    extends AbstractCollection<T>
+    implements Deque<T>, ReifiedIterable<T>
+{
+  /**
+   * The default initial capacity, must be a power of two
+   */
+  public static final int DEFAULT_CAPACITY = 16;
+  /**
+   * The maximum capacity, must be a power of two
+   */
+  private static final int MAX_CAPACITY = 1 << 30;
+  private final Class<?> genericTypeParameter;
+  /**
+   * The circular buffer, always having a power-of-two length
+   */
+  private Object[] buffer;
+  /**
+   * The buffer position of the first element
+   */
+  private int head;
+  private int size;
+  private int modCount;
+
+  /**
+   * Default constructor.
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public ReifiedArrayDeque()
+  {
+    this.genericTypeParameter = SuperTypeToken.getClazz(this.getClass());
+    this.buffer = new Object[DEFAULT_CAPACITY];
+  }
+
+  /**
+   * Constructor for initializing with the generic type parameter
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   */
+  public ReifiedArrayDeque(Class<?> genericTypeParameter)
+  {
+    this(DEFAULT_CAPACITY, genericTypeParameter);
+  }
+
+  /**
+   * Constructor for initializing with an initial capacity and the generic type parameter
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   * @throws IllegalArgumentException When the initial capacity is negative.
+   */
+  public ReifiedArrayDeque(int initialCapacity, Class<?> genericTypeParameter)
+  {
+    if (genericTypeParameter == null)
+      throw new NullPointerException("genericTypeParameter");
+    if (initialCapacity < 0)
+      throw new IllegalArgumentException("initialCapacity=" + initialCapacity);
+
+    this.genericTypeParameter = genericTypeParameter;
+    this.buffer = new Object[capacityFor(initialCapacity)];
+  }
+
+  /**
+   * Constructor initializes from another reified collection
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public ReifiedArrayDeque(ReifiedIterable<T> values)
+  {
+    if (values == null)
+      throw new NullPointerException("values");
+
+    this.genericTypeParameter = values.getGenericTypeParameter();
+    this.buffer = new Object[DEFAULT_CAPACITY];
+    for (T item : values)
+      addLast(item);
+  }
+
+  /**
+   * Constructor initializes from another collection
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   * @throws NullPointerException When the argument is null
+   */
+  public ReifiedArrayDeque(Iterable<? extends T> values)
+  {
+    if (values == null)
+      throw new NullPointerException("values");
+
+    this.genericTypeParameter = SuperTypeToken.getClazz(this.getClass());
+    this.buffer = new Object[DEFAULT_CAPACITY];
+    for (T item : values)
+      addLast(item);
+  }
+
+  /**
+   * Constructor initializes from another collection and a generic type parameter
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  public ReifiedArrayDeque(Iterable<? extends T> values, Class<?> genericTypeParameter)
+  {
+    if (values == null)
+      throw new NullPointerException("values");
+    if (genericTypeParameter == null)
+      throw new NullPointerException("genericTypeParameter");
+
+    this.genericTypeParameter = genericTypeParameter;
+    this.buffer = new Object[DEFAULT_CAPACITY];
+    for (T item : values)
+      addLast(item);
+  }
+
+  /**
+   * Constructor initializes from an array
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  public ReifiedArrayDeque(T[] array)
+  {
+    if (array == null)
+      throw new NullPointerException("array");
+
+    this.genericTypeParameter = array.getClass().getComponentType();
+    this.buffer = new Object[capacityFor(array.length)];
+    addAll(array);
+  }
+
+  /**
+   * Inserts an element at the front of the deque. This is an amortised O(1) operation.
+   */
+  @Override
+  public void addFirst(T item)
+  {
+    ensureCapacity(size + 1);
+
+    head = (head - 1) & (buffer.length - 1);
+    buffer[head] = item;
+    size++;
+    modCount++;
+  }
+
+  /**
+   * Inserts an element at the end of the deque. This is an amortised O(1) operation.
+   */
+  @Override
+  public void addLast(T item)
+  {
+    ensureCapacity(size + 1);
+
+    buffer[position(size)] = item;
+    size++;
+    modCount++;
+  }
+
+  /**
+   * Inserts an element at the front of the deque. This is an amortised O(1) operation.
+   * 
+   * @return True always.
+   */
+  @Override
+  public boolean offerFirst(T item)
+  {
+    addFirst(item);
+    return true;
+  }
+
+  /**
+   * Inserts an element at the end of the deque. This is an amortised O(1) operation.
+   * 
+   * @return True always.
+   */
+  @Override
+  public boolean offerLast(T item)
+  {
+    addLast(item);
+    return true;
+  }
+
+  /**
+   * Inserts an element at the end of the deque. This is an amortised O(1) operation.
+   * 
+   * @return True always.
+   */
+  @Override
+  public boolean add(T item)
+  {
+    addLast(item);
+    return true;
+  }
+
+  /**
+   * Inserts an element at the end of the deque. This is an amortised O(1) operation.
+   * 
+   * @return True always.
+   */
+  @Override
+  public boolean offer(T item)
+  {
+    addLast(item);
+    return true;
+  }
+
+  /**
+   * Inserts an element at the front of the deque. This is an amortised O(1) operation.
+   */
+  @Override
+  public void push(T item)
+  {
+    addFirst(item);
+  }
+
+  /**
+   * Appends all of the elements in the specified array to the end of this deque, in the order that they are ordered. This is an O(n)
+   * operation where n is the size of the given array.
+   * 
+   * @return True, if this deque changed as a result of the call
+   * 
+   * @throws NullPointerException If the array is null.
+   */
+  public boolean addAll(T[] array)
+  {
+    if (array == null)
+      throw new NullPointerException("array");
+
+    int length = array.length;
+    if (length == 0)
+      return false;
+
+    ensureCapacity(size + length);
+
+    int start = position(size);
+    int firstPart = Math.min(length, buffer.length - start);
+    System.arraycopy(array, 0, buffer, start, firstPart);
+    System.arraycopy(array, firstPart, buffer, 0, length - firstPart);
+    size += length;
+    modCount++;
+
+    return true;
+  }
+
+  /**
+   * Removes and returns the first element. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the deque is empty.
+   */
+  @Override
+  public T removeFirst()
+  {
+    if (size == 0)
+      throw new NoSuchElementException("The deque is empty.");
+
+    return pollFirst();
+  }
+
+  /**
+   * Removes and returns the last element. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the deque is empty.
+   */
+  @Override
+  public T removeLast()
+  {
+    if (size == 0)
+      throw new NoSuchElementException("The deque is empty.");
+
+    return pollLast();
+  }
+
+  /**
+   * Removes and returns the first element, or null if the deque is empty. This is an O(1) operation.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public T pollFirst()
+  {
+    if (size == 0)
+      return null;
+
+    T result = (T) buffer[head];
+    buffer[head] = null;
+    head = (head + 1) & (buffer.length - 1);
+    size--;
+    modCount++;
+
+    return result;
+  }
+
+  /**
+   * Removes and returns the last element, or null if the deque is empty. This is an O(1) operation.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public T pollLast()
+  {
+    if (size == 0)
+      return null;
+
+    int tail = position(size - 1);
+    T result = (T) buffer[tail];
+    buffer[tail] = null;
+    size--;
+    modCount++;
+
+    return result;
+  }
+
+  /**
+   * Removes and returns the first element. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the deque is empty.
+   */
+  @Override
+  public T remove()
+  {
+    return removeFirst();
+  }
+
+  /**
+   * Removes and returns the first element, or null if the deque is empty. This is an O(1) operation.
+   */
+  @Override
+  public T poll()
+  {
+    return pollFirst();
+  }
+
+  /**
+   * Removes and returns the first element. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the deque is empty.
+   */
+  @Override
+  public T pop()
+  {
+    return removeFirst();
+  }
+
+  /**
+   * Removes the first count elements and returns them in an array, in order. This is an O(n) operation where n is the count.
+   * 
+   * @throws IllegalArgumentException When the count is negative or greater than the size of the deque.
+   */
+  public T[] removeFirst(int count)
+  {
+    if (count < 0 || count > size)
+      throw new IllegalArgumentException("count=" + count + " size=" + size);
+
+    T[] result = newArray(count);
+    copy(0, count, result, 0);
+    clearSlots(0, count);
+    head = position(count);
+    size -= count;
+    modCount++;
+
+    return result;
+  }
+
+  /**
+   * Removes the last count elements and returns them in an array, in order. This is an O(n) operation where n is the count.
+   * 
+   * @throws IllegalArgumentException When the count is negative or greater than the size of the deque.
+   */
+  public T[] removeLast(int count)
+  {
+    if (count < 0 || count > size)
+      throw new IllegalArgumentException("count=" + count + " size=" + size);
+
+    T[] result = newArray(count);
+    copy(size - count, count, result, 0);
+    clearSlots(size - count, count);
+    size -= count;
+    modCount++;
+
+    return result;
+  }
+
+  /**
+   * Returns the first element without removing it. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the deque is empty.
+   */
+  @Override
+  public T getFirst()
+  {
+    if (size == 0)
+      throw new NoSuchElementException("The deque is empty.");
+
+    return peekFirst();
+  }
+
+  /**
+   * Returns the last element without removing it. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the deque is empty.
+   */
+  @Override
+  public T getLast()
+  {
+    if (size == 0)
+      throw new NoSuchElementException("The deque is empty.");
+
+    return peekLast();
+  }
+
+  /**
+   * Returns the first element without removing it, or null if the deque is empty. This is an O(1) operation.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public T peekFirst()
+  {
+    return size == 0 ? null : (T) buffer[head];
+  }
+
+  /**
+   * Returns the last element without removing it, or null if the deque is empty. This is an O(1) operation.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public T peekLast()
+  {
+    return size == 0 ? null : (T) buffer[position(size - 1)];
+  }
+
+  /**
+   * Returns the first element without removing it. This is an O(1) operation.
+   * 
+   * @throws NoSuchElementException When the deque is empty.
+   */
+  @Override
+  public T element()
+  {
+    return getFirst();
+  }
+
+  /**
+   * Returns the first element without removing it, or null if the deque is empty. This is an O(1) operation.
+   */
+  @Override
+  public T peek()
+  {
+    return peekFirst();
+  }
+
+  /**
+   * Returns the element at the given zero-based position, counting from the front of the deque. This is an O(1) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is out of range.
+   */
+  @SuppressWarnings("unchecked")
+  public T get(int index)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+
+    return (T) buffer[position(index)];
+  }
+
+  /**
+   * Removes the first occurrence of the given element. This is an O(n) operation.
+   * 
+   * @return True if the element was found and removed.
+   */
+  @Override
+  public boolean removeFirstOccurrence(Object o)
+  {
+    for (int i = 0; i < size; i++)
+      if (equal(o, buffer[position(i)]))
+      {
+        removeAt(i);
+        return true;
+      }
+
+    return false;
+  }
+
+  /**
+   * Removes the last occurrence of the given element. This is an O(n) operation.
+   * 
+   * @return True if the element was found and removed.
+   */
+  @Override
+  public boolean removeLastOccurrence(Object o)
+  {
+    for (int i = size - 1; i >= 0; i--)
+      if (equal(o, buffer[position(i)]))
+      {
+        removeAt(i);
+        return true;
+      }
+
+    return false;
+  }
+
+  /**
+   * Removes the first occurrence of the given element. This is an O(n) operation.
+   * 
+   * @return True if the element was found and removed.
+   */
+  @Override
+  public boolean remove(Object o)
+  {
+    return removeFirstOccurrence(o);
+  }
+
+  /**
+   * Returns true if the deque contains the given element. This is an O(n) operation.
+   */
+  @Override
+  public boolean contains(Object o)
+  {
+    for (int i = 0; i < size; i++)
+      if (equal(o, buffer[position(i)]))
+        return true;
+
+    return false;
+  }
+
+  /**
+   * Removes all elements. This is an O(n) operation.
+   */
+  @Override
+  public void clear()
+  {
+    clearSlots(0, size);
+    head = 0;
+    size = 0;
+    modCount++;
+  }
+
+  /**
+   * Returns the number of elements. This is an O(1) operation.
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns true if there are no elements. This is an O(1) operation.
+   */
+  @Override
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Returns the number of elements the deque can hold without growing. This is an O(1) operation.
+   */
+  public int capacity()
+  {
+    return buffer.length;
+  }
+
+  /**
+   * Returns an iterator over the elements, from first to last.
+   */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new DequeIterator(false);
+  }
+
+  /**
+   * Returns an iterator over the elements, from last to first.
+   */
+  @Override
+  public Iterator<T> descendingIterator()
+  {
+    return new DequeIterator(true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameter()
+  {
+    return genericTypeParameter;
+  }
+
+  /**
+   * Puts all elements in an array and returns them, from first to last. This is an O(n) operation.
+   */
+  @Override
+  public T[] toArray()
+  {
+    T[] result = newArray(size);
+    copy(0, size, result, 0);
+
+    return result;
+  }
+
+  /**
+   * Returns all elements in an array. Attempts to use the provided array, but creates a new one if the length of the given array is not
+   * sufficient to fit all elements (or if it is null). This is an O(n) operation.
+   */
+  @SuppressWarnings({"unchecked", "hiding"})
+  @Override
+  public <T> T[] toArray(T[] a)
+  {
+    if (a == null || a.length < size)
+      a = (T[]) Array.newInstance(a == null ? getGenericTypeParameter() : a.getClass().getComponentType(), size);
+    else if (a.length > size)
+      a[size] = null;
+
+    copy(0, size, a, 0);
+    return a;
+  }
+
+  /**
+   * Returns a copy of this deque as a list, from first to last. This is an O(n) operation.
+   */
+  public ReifiedList<T> toList()
+  {
+    return new ReifiedArrayList<T>(toArray());
+  }
+
+  /**
+   * Returns the buffer position of the element at the given zero-based index
+   */
+  private int position(int index)
+  {
+    return (head + index) & (buffer.length - 1);
+  }
+
+  /**
+   * Grows the buffer to the next power of two that fits the given number of elements, unwrapping the contents to the start of the new
+   * buffer
+   */
+  private void ensureCapacity(int required)
+  {
+    if (required <= buffer.length)
+      return;
+    if (required < 0 || required > MAX_CAPACITY)
+      throw new IllegalStateException("The deque cannot hold " + (required < 0 ? "more" : required) + " elements.");
+
+    Object[] grown = new Object[capacityFor(Math.max(required, buffer.length << 1))];
+    copy(0, size, grown, 0);
+    buffer = grown;
+    head = 0;
+  }
+
+  /**
+   * Copies count elements, starting at the given zero-based index, into the destination array
+   */
+  private void copy(int index, int count, Object[] destination, int destinationIndex)
+  {
+    int start = position(index);
+    int firstPart = Math.min(count, buffer.length - start);
+    System.arraycopy(buffer, start, destination, destinationIndex, firstPart);
+    System.arraycopy(buffer, 0, destination, destinationIndex + firstPart, count - firstPart);
+  }
+
+  /**
+   * Nulls out count slots, starting at the given zero-based index, so that removed elements may be garbage collected
+   */
+  private void clearSlots(int index, int count)
+  {
+    int start = position(index);
+    int firstPart = Math.min(count, buffer.length - start);
+    Arrays.fill(buffer, start, start + firstPart, null);
+    Arrays.fill(buffer, 0, count - firstPart, null);
+  }
+
+  /**
+   * Removes the element at the given zero-based index, shifting whichever side of the deque is shorter
+   */
+  private void removeAt(int index)
+  {
+    if (index < size >> 1)
+    {
+      for (int i = index; i > 0; i--)
+        buffer[position(i)] = buffer[position(i - 1)];
+
+      buffer[head] = null;
+      head = (head + 1) & (buffer.length - 1);
+    } else
+    {
+      for (int i = index; i < size - 1; i++)
+        buffer[position(i)] = buffer[position(i + 1)];
+
+      buffer[position(size - 1)] = null;
+    }
+
+    size--;
+    modCount++;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T[] newArray(int length)
+  {
+    return (T[]) Array.newInstance(genericTypeParameter, length);
+  }
+
+  private static int capacityFor(int count)
+  {
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity < count && capacity < MAX_CAPACITY)
+      capacity <<= 1;
+
+    return capacity;
+  }
+
+  private static boolean equal(Object a, Object b)
+  {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * Iterates by zero-based index, which remains valid after removing the last returned element, as removal preserves the relative order of
+   * the remaining elements
+   */
+  private final class DequeIterator
+      implements Iterator<T>
+  {
+    private final boolean descending;
+    private int cursor;
+    private int lastReturned = -1;
+    private int expectedModCount = modCount;
+
+    DequeIterator(boolean descending)
+    {
+      this.descending = descending;
+      this.cursor = descending ? size - 1 : 0;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return descending ? cursor >= 0 : cursor < size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T next()
+    {
+      if (expectedModCount != modCount)
+        throw new ConcurrentModificationException();
+      if (!hasNext())
+        throw new NoSuchElementException("There is no next element.");
+
+      lastReturned = cursor;
+      cursor += descending ? -1 : 1;
+
+      return (T) buffer[position(lastReturned)];
+    }
+
+    @Override
+    public void remove()
+    {
+      if (lastReturned < 0)
+        throw new IllegalStateException();
+      if (expectedModCount != modCount)
+        throw new ConcurrentModificationException();
+
+      removeAt(lastReturned);
+      if (!descending)
+        cursor = lastReturned;
+
+      lastReturned = -1;
+      expectedModCount = modCount;
+    }
+  }
+}
@@ -19,7 +19,6 @@
 package propel.core.collections.queues;
 
 import propel.core.collections.ReifiedIterable;
-import propel.core.collections.lists.ReifiedLinkedList;
 import propel.core.collections.lists.ReifiedList;
 import propel.core.utils.Linq;
 import propel.core.utils.SuperTypeToken;
@@ -41,7 +40,7 @@ public class SharedQueue<T>
     implements ISharedQueue<T>
 {
   protected final Lock lockObject;
-  protected final ReifiedLinkedList<T> queue;
+  protected final ReifiedArrayDeque<T> queue;
   protected final Condition notEmpty;
 
   /**
@@ -51,7 +50,7 @@ public class SharedQueue<T>
    */
   public SharedQueue()
   {
-    queue = new ReifiedLinkedList<T>(SuperTypeToken.getClazz(this.getClass()));
+    queue = new ReifiedArrayDeque<T>(SuperTypeToken.getClazz(this.getClass()));
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
   }
@@ -66,7 +65,7 @@ public class SharedQueue<T>
     if (genericTypeParameter == null)
       throw new NullPointerException("genericTypeParameter");
 
-    queue = new ReifiedLinkedList<T>(genericTypeParameter);
+    queue = new ReifiedArrayDeque<T>(genericTypeParameter);
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
   }
@@ -81,7 +80,7 @@ public class SharedQueue<T>
     if (iterable == null)
       throw new NullPointerException("iterable");
 
-    queue = new ReifiedLinkedList<T>(iterable.getGenericTypeParameter());
+    queue = new ReifiedArrayDeque<T>(iterable.getGenericTypeParameter());
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
 
@@ -100,7 +99,7 @@ public class SharedQueue<T>
     if (iterable == null)
       throw new NullPointerException("iterable");
 
-    queue = new ReifiedLinkedList<T>(SuperTypeToken.getClazz(this.getClass()));
+    queue = new ReifiedArrayDeque<T>(SuperTypeToken.getClazz(this.getClass()));
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
 
@@ -120,7 +119,7 @@ public class SharedQueue<T>
     if (genericTypeParameter == null)
       throw new NullPointerException("genericTypeParameter");
 
-    queue = new ReifiedLinkedList<T>(genericTypeParameter);
+    queue = new ReifiedArrayDeque<T>(genericTypeParameter);
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
 
@@ -138,12 +137,9 @@ public class SharedQueue<T>
     if (array == null)
       throw new NullPointerException("array");
 
-    queue = new ReifiedLinkedList<T>(array.getClass().getComponentType());
+    queue = new ReifiedArrayDeque<T>(array);
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
-
-    for (T item : array)
-      queue.add(item);
   }
 
   /**
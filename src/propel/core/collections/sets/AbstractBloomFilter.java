@@ -0,0 +1,394 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.functional.Functions.Function1;
+import propel.core.utils.HashingUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Base class of Bloom filters, i.e. compact probabilistic sets which answer whether an item might have been added (with a configurable
+ * false positive probability) or definitely has not been. Items cannot be removed.
+ * 
+ * Items are hashed to 64 bits, by default using HashingUtils.objectToInt64(), and the k bit positions are derived from that hash by double
+ * hashing. Callers with a better hash of their items at hand can use the addHash()/mightContainHash() methods directly.
+ * 
+ * @param <T> The item type.
+ */
+public abstract class AbstractBloomFilter<T>
+{
+  static final int SERIAL_COOKIE = 0x424C4F4D;
+  /**
+   * The number of bits of the filter, a multiple of 64
+   */
+  protected final long bitCount;
+  /**
+   * The number of bits set (and tested) per item
+   */
+  protected final int hashCount;
+  private final Function1<T, Long> hasher;
+
+  /**
+   * Initializes with the filter dimensions and the item hash function.
+   * 
+   * @param bitCount The number of bits, a positive multiple of 64.
+   * @param hashCount The number of bits per item.
+   * @param hasher The item hash function, or null to use HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the bit count or hash count are out of range.
+   */
+  protected AbstractBloomFilter(long bitCount, int hashCount, Function1<T, Long> hasher)
+  {
+    if (bitCount <= 0 || bitCount % 64 != 0 || bitCount / 64 > Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("bitCount=" + bitCount);
+    if (hashCount <= 0 || hashCount > 255)
+      throw new IllegalArgumentException("hashCount=" + hashCount);
+
+    this.bitCount = bitCount;
+    this.hashCount = hashCount;
+    this.hasher = hasher;
+  }
+
+  /**
+   * Returns the number of bits needed to hold the expected number of items with the given false positive probability, rounded up to a
+   * multiple of 64.
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive, or the probability is not between 0 and 1 exclusive.
+   */
+  public static long optimalBitCount(long expectedInsertions, double fpp)
+  {
+    if (expectedInsertions <= 0)
+      throw new IllegalArgumentException("expectedInsertions=" + expectedInsertions);
+    if (!(fpp > 0 && fpp < 1))
+      throw new IllegalArgumentException("fpp=" + fpp);
+
+    double bits = -expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2));
+    return Math.max(64, ((long) Math.ceil(bits) + 63) & ~63L);
+  }
+
+  /**
+   * Returns the number of bits per item which minimises the false positive probability, for the given number of bits and expected items.
+   * 
+   * @throws IllegalArgumentException When an argument is not positive.
+   */
+  public static int optimalHashCount(long expectedInsertions, long bitCount)
+  {
+    if (expectedInsertions <= 0)
+      throw new IllegalArgumentException("expectedInsertions=" + expectedInsertions);
+    if (bitCount <= 0)
+      throw new IllegalArgumentException("bitCount=" + bitCount);
+
+    long result = Math.round((double) bitCount / expectedInsertions * Math.log(2));
+    return (int) Math.max(1, Math.min(result, 255));
+  }
+
+  /**
+   * Adds an item. This is an O(k) operation.
+   * 
+   * @return True if the filter changed, i.e. the item was definitely not present before.
+   */
+  public boolean add(T item)
+  {
+    return addHash(hash(item));
+  }
+
+  /**
+   * Adds an item by its 64-bit hash. This is an O(k) operation.
+   * 
+   * @return True if the filter changed, i.e. the item was definitely not present before.
+   */
+  public boolean addHash(long hash)
+  {
+    long h2 = HashingUtils.secondHash(hash);
+    boolean result = false;
+
+    long combined = hash;
+    for (int i = 0; i < hashCount; i++)
+    {
+      result |= setBit((combined & Long.MAX_VALUE) % bitCount);
+      combined += h2;
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds all items. This is an O(nk) operation.
+   * 
+   * @return True if the filter changed.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public boolean addAll(Iterable<? extends T> items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    boolean result = false;
+    for (T item : items)
+      result |= add(item);
+
+    return result;
+  }
+
+  /**
+   * Adds all items. This is an O(nk) operation.
+   * 
+   * @return True if the filter changed.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public boolean addAll(T[] items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    boolean result = false;
+    for (T item : items)
+      result |= add(item);
+
+    return result;
+  }
+
+  /**
+   * Returns true if the item might have been added, false if it definitely has not been. This is an O(k) operation.
+   */
+  public boolean mightContain(T item)
+  {
+    return mightContainHash(hash(item));
+  }
+
+  /**
+   * Returns true if an item with the given 64-bit hash might have been added, false if it definitely has not been. This is an O(k)
+   * operation.
+   */
+  public boolean mightContainHash(long hash)
+  {
+    long h2 = HashingUtils.secondHash(hash);
+
+    long combined = hash;
+    for (int i = 0; i < hashCount; i++)
+    {
+      long bit = (combined & Long.MAX_VALUE) % bitCount;
+      if ((getWord((int) (bit >>> 6)) & (1L << bit)) == 0)
+        return false;
+
+      combined += h2;
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns true if all items might have been added, i.e. false if any of them has definitely not been. This is an O(nk) operation, which
+   * returns at the first item found to be absent.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public boolean mightContainAll(Iterable<? extends T> items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    for (T item : items)
+      if (!mightContain(item))
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Returns true if all items might have been added, i.e. false if any of them has definitely not been. This is an O(nk) operation, which
+   * returns at the first item found to be absent.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public boolean mightContainAll(T[] items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    for (T item : items)
+      if (!mightContain(item))
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Adds all items of another filter of the same dimensions to this one. This is an O(m) operation.
+   * 
+   * @throws NullPointerException When the argument is null.
+   * @throws IllegalArgumentException When the filters have different bit or hash counts.
+   */
+  public void union(AbstractBloomFilter<T> other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+    if (other.bitCount != bitCount || other.hashCount != hashCount)
+      throw new IllegalArgumentException("bitCount=" + other.bitCount + " hashCount=" + other.hashCount);
+
+    int words = getWordCount();
+    for (int i = 0; i < words; i++)
+      orWord(i, other.getWord(i));
+  }
+
+  /**
+   * Returns the number of bits of the filter
+   */
+  public long getBitCount()
+  {
+    return bitCount;
+  }
+
+  /**
+   * Returns the number of bits set per item
+   */
+  public int getHashCount()
+  {
+    return hashCount;
+  }
+
+  /**
+   * Returns the number of bits currently set. This is an O(m) operation.
+   */
+  public long getSetBitCount()
+  {
+    long result = 0;
+    int words = getWordCount();
+    for (int i = 0; i < words; i++)
+      result += Long.bitCount(getWord(i));
+
+    return result;
+  }
+
+  /**
+   * Returns the probability that mightContain() returns true for an item that has not been added, given the bits currently set. This is
+   * an O(m) operation.
+   */
+  public double expectedFpp()
+  {
+    return Math.pow((double) getSetBitCount() / bitCount, hashCount);
+  }
+
+  /**
+   * Returns an estimate of the number of distinct items added, derived from the bits currently set. This is an O(m) operation.
+   */
+  public long approximateElementCount()
+  {
+    double fractionSet = (double) getSetBitCount() / bitCount;
+    if (fractionSet >= 1)
+      return Long.MAX_VALUE;
+
+    return Math.round(-Math.log1p(-fractionSet) * bitCount / hashCount);
+  }
+
+  /**
+   * Returns the number of bytes written by serialize()
+   */
+  public int serializedSizeInBytes()
+  {
+    return 16 + 8 * getWordCount();
+  }
+
+  /**
+   * Writes this filter at the buffer's position, advancing the position by serializedSizeInBytes(). This is an O(m) operation.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws java.nio.BufferOverflowException When the buffer has insufficient space remaining.
+   */
+  public void serialize(ByteBuffer buffer)
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    buffer.putInt(SERIAL_COOKIE);
+    buffer.putInt(hashCount);
+    buffer.putLong(bitCount);
+    int words = getWordCount();
+    for (int i = 0; i < words; i++)
+      buffer.putLong(getWord(i));
+  }
+
+  /**
+   * Clears all bits
+   */
+  public abstract void clear();
+
+  /**
+   * Returns the word holding the bits [64 * index, 64 * index + 63]
+   */
+  protected abstract long getWord(int index);
+
+  /**
+   * Sets the bit at the given position, returning true if it was clear
+   */
+  protected abstract boolean setBit(long index);
+
+  /**
+   * Sets the bits of the given value in the word at the given index
+   */
+  protected abstract void orWord(int index, long value);
+
+  /**
+   * Returns the number of words, i.e. the bit count divided by 64
+   */
+  protected int getWordCount()
+  {
+    return (int) (bitCount >>> 6);
+  }
+
+  /**
+   * Reads the words written by serialize(), following the header
+   */
+  protected final void readWords(ByteBuffer buffer)
+  {
+    int words = getWordCount();
+    for (int i = 0; i < words; i++)
+      orWord(i, buffer.getLong());
+  }
+
+  /**
+   * Checks that a serialized filter starts at the buffer's position, without changing the position
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  static void checkHeader(ByteBuffer buffer)
+      throws IOException
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    int position = buffer.position();
+    if (buffer.remaining() < 16 || buffer.getInt(position) != SERIAL_COOKIE)
+      throw new IOException("The buffer does not contain a serialized Bloom filter.");
+
+    int hashCount = buffer.getInt(position + 4);
+    long bitCount = buffer.getLong(position + 8);
+    if (hashCount <= 0 || hashCount > 255 || bitCount <= 0 || bitCount % 64 != 0 || bitCount / 8 > buffer.remaining() - 16)
+      throw new IOException("The serialized Bloom filter is corrupt.");
+  }
+
+  private long hash(T item)
+  {
+    return hasher == null ? HashingUtils.objectToInt64(item) : hasher.apply(item);
+  }
+}
@@ -0,0 +1,504 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.functional.Functions.Function1;
+import propel.core.utils.HashingUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Base class of cuckoo filters, i.e. compact probabilistic sets which answer whether an item might have been added or definitely has not
+ * been, and which unlike Bloom filters support removal.
+ * 
+ * Each item is reduced to a 16-bit fingerprint, stored in one of two candidate buckets of four slots; each bucket is a single long. When
+ * both buckets are full, resident fingerprints are moved to their alternate buckets to make room. The false positive probability is about
+ * 8 / 65536 (0.012%) and the filter can be filled to about 95% of its slots. An item may be added at most 8 times without being removed,
+ * and only items that have been added should be removed, otherwise other items may be lost.
+ * 
+ * Items are hashed to 64 bits, by default using HashingUtils.objectToInt64(). Callers with a better hash of their items at hand can use the
+ * *Hash() methods directly.
+ * 
+ * @param <T> The item type.
+ */
+public abstract class AbstractCuckooFilter<T>
+{
+  static final int SERIAL_COOKIE = 0x4355434B;
+  /**
+   * The number of fingerprint slots per bucket
+   */
+  public static final int SLOTS = 4;
+  /**
+   * The maximum number of fingerprints moved to make room for an item
+   */
+  protected static final int MAX_KICKS = 500;
+  /**
+   * The number of buckets, a power of two
+   */
+  protected final int bucketCount;
+  private final Function1<T, Long> hasher;
+  // the path of a relocation, i.e. the buckets, slots and fingerprints visited
+  private final int[] pathBuckets = new int[MAX_KICKS];
+  private final int[] pathSlots = new int[MAX_KICKS];
+  private final char[] pathFingerprints = new char[MAX_KICKS];
+  private int random = 0x2545F491;
+
+  /**
+   * Initializes with the number of buckets and the item hash function.
+   * 
+   * @param bucketCount The number of buckets, a power of two greater than one.
+   * @param hasher The item hash function, or null to use HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the bucket count is not a power of two greater than one.
+   */
+  protected AbstractCuckooFilter(int bucketCount, Function1<T, Long> hasher)
+  {
+    if (bucketCount < 2 || Integer.bitCount(bucketCount) != 1)
+      throw new IllegalArgumentException("bucketCount=" + bucketCount);
+
+    this.bucketCount = bucketCount;
+    this.hasher = hasher;
+  }
+
+  /**
+   * Returns the number of buckets needed to hold the expected number of items, at the maximum load factor of 95%.
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive or too large.
+   */
+  public static int optimalBucketCount(long expectedInsertions)
+  {
+    if (expectedInsertions <= 0)
+      throw new IllegalArgumentException("expectedInsertions=" + expectedInsertions);
+
+    long buckets = (long) Math.ceil(expectedInsertions / (SLOTS * 0.95));
+    if (buckets > 1 << 30)
+      throw new IllegalArgumentException("expectedInsertions=" + expectedInsertions);
+
+    return Math.max(2, Integer.highestOneBit((int) buckets - 1) << 1);
+  }
+
+  /**
+   * Adds an item. This is an O(1) operation, unless fingerprints must be moved to make room.
+   * 
+   * @return True if successful, false if the filter is too full to hold the item.
+   */
+  public boolean add(T item)
+  {
+    return addHash(hash(item));
+  }
+
+  /**
+   * Adds all items. This is an O(n) operation.
+   * 
+   * @return True if all items were added, false if the filter became too full to hold some of them.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public boolean addAll(Iterable<? extends T> items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    boolean result = true;
+    for (T item : items)
+      result &= add(item);
+
+    return result;
+  }
+
+  /**
+   * Adds all items. This is an O(n) operation.
+   * 
+   * @return True if all items were added, false if the filter became too full to hold some of them.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public boolean addAll(T[] items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    boolean result = true;
+    for (T item : items)
+      result &= add(item);
+
+    return result;
+  }
+
+  /**
+   * Returns true if the item might have been added, false if it definitely has not been. This is an O(1) operation.
+   */
+  public boolean mightContain(T item)
+  {
+    return mightContainHash(hash(item));
+  }
+
+  /**
+   * Returns true if all items might have been added, i.e. false if any of them has definitely not been. This is an O(n) operation, which
+   * returns at the first item found to be absent.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public boolean mightContainAll(Iterable<? extends T> items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    for (T item : items)
+      if (!mightContain(item))
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Returns true if all items might have been added, i.e. false if any of them has definitely not been. This is an O(n) operation, which
+   * returns at the first item found to be absent.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public boolean mightContainAll(T[] items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    for (T item : items)
+      if (!mightContain(item))
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Removes one occurrence of an item, which must have been added. This is an O(1) operation.
+   * 
+   * @return True if a matching fingerprint was found and removed.
+   */
+  public boolean remove(T item)
+  {
+    return removeHash(hash(item));
+  }
+
+  /**
+   * Returns the number of buckets
+   */
+  public int getBucketCount()
+  {
+    return bucketCount;
+  }
+
+  /**
+   * Returns the number of fingerprint slots, i.e. the maximum number of items the filter can hold
+   */
+  public long getCapacity()
+  {
+    return (long) bucketCount * SLOTS;
+  }
+
+  /**
+   * Returns the fraction of slots in use
+   */
+  public double getLoadFactor()
+  {
+    return (double) size() / getCapacity();
+  }
+
+  /**
+   * Returns the number of bytes written by serialize()
+   */
+  public int serializedSizeInBytes()
+  {
+    return 16 + 8 * bucketCount;
+  }
+
+  /**
+   * Writes this filter at the buffer's position, advancing the position by serializedSizeInBytes(). This is an O(m) operation in the
+   * number of buckets.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws java.nio.BufferOverflowException When the buffer has insufficient space remaining.
+   */
+  public void serialize(ByteBuffer buffer)
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    buffer.putInt(SERIAL_COOKIE);
+    buffer.putInt(bucketCount);
+    buffer.putLong(size());
+    for (int i = 0; i < bucketCount; i++)
+      buffer.putLong(getBucket(i));
+  }
+
+  /**
+   * Adds an item by its 64-bit hash.
+   * 
+   * @return True if successful, false if the filter is too full to hold the item.
+   */
+  public abstract boolean addHash(long hash);
+
+  /**
+   * Returns true if an item with the given 64-bit hash might have been added, false if it definitely has not been.
+   */
+  public abstract boolean mightContainHash(long hash);
+
+  /**
+   * Removes one occurrence of an item by its 64-bit hash.
+   * 
+   * @return True if a matching fingerprint was found and removed.
+   */
+  public abstract boolean removeHash(long hash);
+
+  /**
+   * Returns the number of fingerprints stored
+   */
+  public abstract long size();
+
+  /**
+   * Removes all items
+   */
+  public abstract void clear();
+
+  /**
+   * Returns the slots of a bucket, 16 bits each, the first slot in the lowest bits
+   */
+  protected abstract long getBucket(int index);
+
+  /**
+   * Sets the slots of a bucket, if they are equal to the expected value
+   * 
+   * @return True if successful.
+   */
+  protected abstract boolean compareAndSetBucket(int index, long expected, long value);
+
+  /**
+   * Returns the primary bucket index of an item hash
+   */
+  protected final int primaryIndex(long hash)
+  {
+    return (int) hash & (bucketCount - 1);
+  }
+
+  /**
+   * Returns the non-zero fingerprint of an item hash
+   */
+  protected static char fingerprint(long hash)
+  {
+    char result = (char) (hash >>> 48);
+    return result == 0 ? 1 : result;
+  }
+
+  /**
+   * Returns the other candidate bucket of a fingerprint, given one of its buckets. Applying this twice returns the original bucket.
+   */
+  protected final int alternateIndex(int index, char fingerprint)
+  {
+    return (index ^ (int) HashingUtils.mix64(fingerprint)) & (bucketCount - 1);
+  }
+
+  /**
+   * Returns true if a bucket holds the fingerprint
+   */
+  protected static boolean bucketContains(long bucket, char fingerprint)
+  {
+    for (int slot = 0; slot < SLOTS; slot++)
+      if ((char) (bucket >>> (slot << 4)) == fingerprint)
+        return true;
+
+    return false;
+  }
+
+  /**
+   * Stores the fingerprint in a free slot of the bucket
+   * 
+   * @return True if successful, false if the bucket is full.
+   */
+  protected final boolean insertIntoFreeSlot(int index, char fingerprint)
+  {
+    while (true)
+    {
+      long bucket = getBucket(index);
+      int slot = freeSlot(bucket);
+      if (slot < 0)
+        return false;
+
+      if (compareAndSetBucket(index, bucket, bucket | ((long) fingerprint << (slot << 4))))
+        return true;
+    }
+  }
+
+  /**
+   * Clears a slot of the bucket holding the fingerprint
+   * 
+   * @return True if successful, false if the bucket does not hold the fingerprint.
+   */
+  protected final boolean removeFromBucket(int index, char fingerprint)
+  {
+    while (true)
+    {
+      long bucket = getBucket(index);
+      int slot = slotOf(bucket, fingerprint);
+      if (slot < 0)
+        return false;
+
+      if (compareAndSetBucket(index, bucket, bucket & ~(0xFFFFL << (slot << 4))))
+        return true;
+    }
+  }
+
+  /**
+   * Makes room for a fingerprint whose candidate buckets are full, by moving a chain of resident fingerprints to their alternate buckets,
+   * and stores it. Each fingerprint is copied to its new bucket before being overwritten in its old one, so concurrent lookups never miss
+   * a fingerprint for being in neither bucket; they may however look at the two buckets at different times while a fingerprint moves
+   * between them, so callers that allow concurrent lookups should make those retry. Callers must exclude concurrent relocations and
+   * removals, but may allow concurrent inserts into free slots.
+   * 
+   * @return True if successful, false if no chain of at most MAX_KICKS moves ends at a free slot.
+   */
+  protected final boolean relocate(int index1, int index2, char fingerprint)
+  {
+    for (int attempt = 0; attempt < 4; attempt++)
+    {
+      // search the chain of moves, without changing anything
+      int index = nextRandom() < 0 ? index1 : index2;
+      int length = 0;
+      int target = -1;
+      while (length < MAX_KICKS)
+      {
+        int slot = unvisitedSlot(index, length);
+        if (slot < 0)
+          break;
+
+        char resident = (char) (getBucket(index) >>> (slot << 4));
+        pathBuckets[length] = index;
+        pathSlots[length] = slot;
+        pathFingerprints[length] = resident;
+        length++;
+
+        index = alternateIndex(index, resident);
+        if (freeSlot(getBucket(index)) >= 0)
+        {
+          target = index;
+          break;
+        }
+      }
+
+      if (target < 0)
+        continue;
+
+      // apply the moves backwards, starting from the free slot
+      if (!insertIntoFreeSlot(target, pathFingerprints[length - 1]))
+        continue;
+
+      for (int i = length - 1; i > 0; i--)
+        replaceSlot(pathBuckets[i], pathSlots[i], pathFingerprints[i - 1]);
+      replaceSlot(pathBuckets[0], pathSlots[0], fingerprint);
+
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Checks that a serialized filter starts at the buffer's position, without changing the position
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  static void checkHeader(ByteBuffer buffer)
+      throws IOException
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    int position = buffer.position();
+    if (buffer.remaining() < 16 || buffer.getInt(position) != SERIAL_COOKIE)
+      throw new IOException("The buffer does not contain a serialized cuckoo filter.");
+
+    int bucketCount = buffer.getInt(position + 4);
+    long size = buffer.getLong(position + 8);
+    if (bucketCount < 2 || Integer.bitCount(bucketCount) != 1 || bucketCount > (buffer.remaining() - 16) / 8 || size < 0
+        || size > (long) bucketCount * SLOTS)
+      throw new IOException("The serialized cuckoo filter is corrupt.");
+  }
+
+  private long hash(T item)
+  {
+    return hasher == null ? HashingUtils.objectToInt64(item) : hasher.apply(item);
+  }
+
+  private void replaceSlot(int index, int slot, char fingerprint)
+  {
+    long mask = 0xFFFFL << (slot << 4);
+    while (true)
+    {
+      long bucket = getBucket(index);
+      if (compareAndSetBucket(index, bucket, (bucket & ~mask) | ((long) fingerprint << (slot << 4))))
+        return;
+    }
+  }
+
+  /**
+   * Picks a random slot of the bucket, which is not already part of the first pathLength steps of the path, or returns -1 if none
+   */
+  private int unvisitedSlot(int index, int pathLength)
+  {
+    int start = nextRandom() >>> 30;
+    for (int i = 0; i < SLOTS; i++)
+    {
+      int slot = (start + i) & (SLOTS - 1);
+      boolean visited = false;
+      for (int j = 0; j < pathLength && !visited; j++)
+        visited = pathBuckets[j] == index && pathSlots[j] == slot;
+
+      if (!visited)
+        return slot;
+    }
+
+    return -1;
+  }
+
+  private int nextRandom()
+  {
+    // xorshift
+    random ^= random << 13;
+    random ^= random >>> 17;
+    random ^= random << 5;
+    return random;
+  }
+
+  private static int freeSlot(long bucket)
+  {
+    for (int slot = 0; slot < SLOTS; slot++)
+      if ((char) (bucket >>> (slot << 4)) == 0)
+        return slot;
+
+    return -1;
+  }
+
+  private static int slotOf(long bucket, char fingerprint)
+  {
+    for (int slot = 0; slot < SLOTS; slot++)
+      if ((char) (bucket >>> (slot << 4)) == fingerprint)
+        return slot;
+
+    return -1;
+  }
+}
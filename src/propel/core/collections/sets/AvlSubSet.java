@@ -0,0 +1,150 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.ReifiedIterable;
+import propel.core.collections.lists.ReifiedArrayList;
+import propel.core.collections.lists.ReifiedList;
+import propel.core.collections.maps.avl.AvlSubMap;
+import propel.core.collections.maps.avl.KeyValuePairKeyIterator;
+import propel.core.utils.Linq;
+import java.util.Iterator;
+
+/**
+ * A live view of a range of an AVL tree set. Changes to the backing set are reflected in the view and vice-versa.
+ */
+public final class AvlSubSet<T extends Comparable<T>>
+    implements ReifiedIterable<T>
+{
+  private final AvlSubMap<T, Object> range;
+
+  /**
+   * Initializes with a range of the backing set's store. This is an O(1) operation.
+   */
+  AvlSubSet(AvlSubMap<T, Object> range)
+  {
+    this.range = range;
+  }
+
+  /**
+   * Adds an item to the backing set. This is an O(log2(n)) operation.
+   * 
+   * @return True if successful.
+   * 
+   * @throws NullPointerException When the item is null.
+   * @throws IllegalArgumentException When the item is outside the range of this view.
+   */
+  public boolean add(T item)
+  {
+    return range.add(item, null);
+  }
+
+  /**
+   * Returns true if an item is contained within the range of this view. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public boolean contains(T item)
+  {
+    return range.containsKey(item);
+  }
+
+  /**
+   * Removes an item from the backing set, if within the range of this view. This is an O(log2(n)) operation.
+   * 
+   * @return True if item was found and removed.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public boolean remove(T item)
+  {
+    return range.remove(item);
+  }
+
+  /**
+   * Returns the least item in this view, or null if empty. This is an O(log2(n)) operation.
+   */
+  public T first()
+  {
+    KeyValuePair<T, Object> kvp = range.first();
+    return kvp == null ? null : kvp.getKey();
+  }
+
+  /**
+   * Returns the greatest item in this view, or null if empty. This is an O(log2(n)) operation.
+   */
+  public T last()
+  {
+    KeyValuePair<T, Object> kvp = range.last();
+    return kvp == null ? null : kvp.getKey();
+  }
+
+  /**
+   * Returns the number of items within the range of this view. This is an O(log2(n)) operation.
+   */
+  public int size()
+  {
+    return range.size();
+  }
+
+  /**
+   * Returns an ascending order iterator over the items in this view.
+   */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new KeyValuePairKeyIterator<T>(range.iterator());
+  }
+
+  /**
+   * Returns a descending order iterator over the items in this view.
+   */
+  public Iterator<T> descendingIterator()
+  {
+    return new KeyValuePairKeyIterator<T>(range.descendingIterator());
+  }
+
+  /**
+   * Puts all items of this view in a list and returns them. This is an O(n) operation.
+   */
+  public ReifiedList<T> toList()
+  {
+    return new ReifiedArrayList<T>(this);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameter()
+  {
+    return range.getGenericTypeParameterKey();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+}
@@ -18,13 +18,18 @@
 // /////////////////////////////////////////////////////////
 package propel.core.collections.sets;
 
+import propel.core.collections.KeyValuePair;
 import propel.core.collections.ReifiedIterable;
 import propel.core.collections.lists.ReifiedList;
 import propel.core.collections.maps.avl.AvlHashtable;
+import propel.core.collections.maps.avl.KeyValuePairKeyIterator;
 import propel.core.utils.Linq;
 import propel.core.utils.SuperTypeToken;
 import propel.core.utils.SuperTypeTokenException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -35,7 +40,7 @@ import java.util.Set;
 public class AvlTreeSet<T extends Comparable<T>>
     implements ReifiedSet<T>
 {
-  private AvlHashtable<T, Object> store;
+  private final AvlHashtable<T, Object> store;
 
   /**
    * Default constructor
@@ -71,8 +76,7 @@ public class AvlTreeSet<T extends Comparable<T>>
       throw new NullPointerException("iterable");
 
     store = new AvlHashtable<T, Object>(iterable.getGenericTypeParameter(), Object.class);
-    for (T item : iterable)
-      store.add(item, null);
+    store.addAll(toPairs(iterable));
   }
 
   /**
@@ -87,8 +91,7 @@ public class AvlTreeSet<T extends Comparable<T>>
       throw new NullPointerException("iterable");
 
     store = new AvlHashtable<T, Object>(SuperTypeToken.getClazz(this.getClass()), Object.class);
-    for (T item : iterable)
-      store.add(item, null);
+    store.addAll(toPairs(iterable));
   }
 
   /**
@@ -102,8 +105,7 @@ public class AvlTreeSet<T extends Comparable<T>>
       throw new NullPointerException("iterable");
 
     store = new AvlHashtable<T, Object>(genericTypeParameter, Object.class);
-    for (T item : iterable)
-      store.add(item, null);
+    store.addAll(toPairs(iterable));
   }
 
   /**
@@ -117,8 +119,7 @@ public class AvlTreeSet<T extends Comparable<T>>
       throw new NullPointerException("array");
 
     store = new AvlHashtable<T, Object>(array.getClass().getComponentType(), Object.class);
-    for (T item : array)
-      store.add(item, null);
+    store.addAll(toPairs(Arrays.asList(array)));
   }
 
   /**
@@ -214,7 +215,8 @@ public class AvlTreeSet<T extends Comparable<T>>
 
   /**
    * This operation combines this set with another set i.e. this set will add to this collection all non-preexisting items found in the
-   * other set. This is an O(nlog2(n)) operation.
+   * other set. This is an O(mlog2(n)) operation, inserting item by item, unless the other set is large compared to this one, in which case
+   * both are merged in O(n + mlog2(m)), O(n + m) if the other set iterates in ascending order.
    * 
    * @throws NullPointerException If the other set is null.
    */
@@ -224,13 +226,26 @@ public class AvlTreeSet<T extends Comparable<T>>
     if (otherSet == null)
       throw new NullPointerException("otherSet");
 
-    for (T item : otherSet)
-      if (!contains(item))
-        add(item);
+    store.addAll(toPairs(otherSet));
   }
 
   /**
-   * This operation only keeps elements that are common between the two sets. This is an O(nlog2(n)) operation.
+   * This operation combines this set with another AVL tree set. This is an O(n + m) operation, merging the in-order traversals of both
+   * sets.
+   * 
+   * @throws NullPointerException If the other set is null.
+   */
+  public void union(AvlTreeSet<T> otherSet)
+  {
+    if (otherSet == null)
+      throw new NullPointerException("otherSet");
+
+    store.union(otherSet.store);
+  }
+
+  /**
+   * This operation only keeps elements that are common between the two sets. This is an O(n + klog2(n)) operation, where k is the number
+   * of elements removed, assuming an O(1) lookup in the other set.
    * 
    * @throws NullPointerException When the other set is null.
    */
@@ -240,20 +255,31 @@ public class AvlTreeSet<T extends Comparable<T>>
     if (otherSet == null)
       throw new NullPointerException("otherSet");
 
-    AvlHashtable<T, Object> newStore = new AvlHashtable<T, Object>();
+    List<T> missing = new ArrayList<T>();
+    for (KeyValuePair<T, Object> kvp : store)
+      if (!otherSet.contains(kvp.getKey()))
+        missing.add(kvp.getKey());
+
+    for (T item : missing)
+      store.remove(item);
+  }
 
-    if (otherSet.size() > store.size())
-    {
-      for (T item : otherSet)
-        if (store.containsKey(item))
-          newStore.add(item, null);
-    }
+  /**
+   * This operation only keeps elements that are common between this set and another AVL tree set. This is an O(n + m) operation, merging
+   * the in-order traversals of both sets.
+   * 
+   * @throws NullPointerException When the other set is null.
+   */
+  public void intersect(AvlTreeSet<T> otherSet)
+  {
+    if (otherSet == null)
+      throw new NullPointerException("otherSet");
 
-    store = newStore;
+    store.intersect(otherSet.store);
   }
 
   /**
-   * This operation removes from this set all items that are common between both sets. This is an O(nlog2(n)) operation.
+   * This operation removes from this set all items that are common between both sets. This is an O(mlog2(n)) operation.
    * 
    * @throws NullPointerException If the other set is null.
    */
@@ -268,6 +294,166 @@ public class AvlTreeSet<T extends Comparable<T>>
         remove(item);
   }
 
+  /**
+   * This operation removes from this set all items that are common between this set and another AVL tree set. This is an O(n + m)
+   * operation, merging the in-order traversals of both sets.
+   * 
+   * @throws NullPointerException If the other set is null.
+   */
+  public void difference(AvlTreeSet<T> otherSet)
+  {
+    if (otherSet == null)
+      throw new NullPointerException("otherSet");
+
+    store.difference(otherSet.store);
+  }
+
+  /**
+   * Returns the least item, or null if empty. This is an O(log2(n)) operation.
+   */
+  public T first()
+  {
+    return keyOf(store.first());
+  }
+
+  /**
+   * Returns the greatest item, or null if empty. This is an O(log2(n)) operation.
+   */
+  public T last()
+  {
+    return keyOf(store.last());
+  }
+
+  /**
+   * Returns the greatest item less than or equal to the given item, or null if there is no such item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T floor(T item)
+  {
+    return keyOf(store.floor(item));
+  }
+
+  /**
+   * Returns the least item greater than or equal to the given item, or null if there is no such item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T ceiling(T item)
+  {
+    return keyOf(store.ceiling(item));
+  }
+
+  /**
+   * Returns the greatest item strictly less than the given item, or null if there is no such item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T lower(T item)
+  {
+    return keyOf(store.lower(item));
+  }
+
+  /**
+   * Returns the least item strictly greater than the given item, or null if there is no such item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T higher(T item)
+  {
+    return keyOf(store.higher(item));
+  }
+
+  /**
+   * Returns the number of items strictly less than the given item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public int rank(T item)
+  {
+    return store.rank(item);
+  }
+
+  /**
+   * Returns the item at the given zero-based position in ascending order. This is an O(log2(n)) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is negative or not less than the size of the set.
+   */
+  public T select(int index)
+  {
+    return store.select(index).getKey();
+  }
+
+  /**
+   * Returns a descending order iterator over the set.
+   */
+  public Iterator<T> descendingIterator()
+  {
+    return new KeyValuePairKeyIterator<T>(store.descendingIterator());
+  }
+
+  /**
+   * Returns a live view of the items ranging from fromItem (inclusive) to toItem (exclusive). This is an O(1) operation.
+   * 
+   * @throws NullPointerException When an item is null.
+   * @throws IllegalArgumentException When fromItem is greater than toItem.
+   */
+  public AvlSubSet<T> subSet(T fromItem, T toItem)
+  {
+    return new AvlSubSet<T>(store.subMap(fromItem, toItem));
+  }
+
+  /**
+   * Returns a live view of the items ranging from fromItem to toItem. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When an item is null.
+   * @throws IllegalArgumentException When fromItem is greater than toItem.
+   */
+  public AvlSubSet<T> subSet(T fromItem, boolean fromInclusive, T toItem, boolean toInclusive)
+  {
+    return new AvlSubSet<T>(store.subMap(fromItem, fromInclusive, toItem, toInclusive));
+  }
+
+  /**
+   * Returns a live view of the items strictly less than toItem. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public AvlSubSet<T> headSet(T toItem)
+  {
+    return new AvlSubSet<T>(store.headMap(toItem));
+  }
+
+  /**
+   * Returns a live view of the items less than (or equal to, if inclusive is true) toItem. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public AvlSubSet<T> headSet(T toItem, boolean inclusive)
+  {
+    return new AvlSubSet<T>(store.headMap(toItem, inclusive));
+  }
+
+  /**
+   * Returns a live view of the items greater than or equal to fromItem. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public AvlSubSet<T> tailSet(T fromItem)
+  {
+    return new AvlSubSet<T>(store.tailMap(fromItem));
+  }
+
+  /**
+   * Returns a live view of the items greater than (or equal to, if inclusive is true) fromItem. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public AvlSubSet<T> tailSet(T fromItem, boolean inclusive)
+  {
+    return new AvlSubSet<T>(store.tailMap(fromItem, inclusive));
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -285,4 +471,18 @@ public class AvlTreeSet<T extends Comparable<T>>
   {
     return Linq.toString(this);
   }
+
+  private static <T extends Comparable<T>> T keyOf(KeyValuePair<T, Object> kvp)
+  {
+    return kvp == null ? null : kvp.getKey();
+  }
+
+  private static <T extends Comparable<T>> List<KeyValuePair<T, Object>> toPairs(Iterable<? extends T> items)
+  {
+    List<KeyValuePair<T, Object>> result = new ArrayList<KeyValuePair<T, Object>>();
+    for (T item : items)
+      result.add(new KeyValuePair<T, Object>(item, null));
+
+    return result;
+  }
 }
@@ -0,0 +1,147 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.functional.Functions.Function1;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A Bloom filter backed by an array of longs. This class is not thread-safe, see SharedBloomFilter for a thread-safe alternative.
+ * 
+ * @param <T> The item type.
+ */
+public final class BloomFilter<T>
+    extends AbstractBloomFilter<T>
+{
+  private final long[] words;
+
+  /**
+   * Constructor initializes a filter sized for the expected number of items at the given false positive probability, hashing items with
+   * HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive, or the probability is not between 0 and 1 exclusive.
+   */
+  public BloomFilter(long expectedInsertions, double fpp)
+  {
+    this(expectedInsertions, fpp, null);
+  }
+
+  /**
+   * Constructor initializes a filter sized for the expected number of items at the given false positive probability, hashing items with
+   * the given function.
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive, or the probability is not between 0 and 1 exclusive.
+   */
+  public BloomFilter(long expectedInsertions, double fpp, Function1<T, Long> hasher)
+  {
+    this(optimalBitCount(expectedInsertions, fpp), optimalHashCount(expectedInsertions, optimalBitCount(expectedInsertions, fpp)), hasher);
+  }
+
+  /**
+   * Constructor initializes a filter with the given dimensions.
+   * 
+   * @param bitCount The number of bits, a positive multiple of 64.
+   * @param hashCount The number of bits per item.
+   * @param hasher The item hash function, or null to use HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the bit count or hash count are out of range.
+   */
+  public BloomFilter(long bitCount, int hashCount, Function1<T, Long> hasher)
+  {
+    super(bitCount, hashCount, hasher);
+    words = new long[getWordCount()];
+  }
+
+  /**
+   * Reads a filter written by serialize(), starting at the buffer's position and advancing it past the filter. Items are hashed with
+   * HashingUtils.objectToInt64(). This is an O(m) operation.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  public static <T> BloomFilter<T> deserialize(ByteBuffer buffer)
+      throws IOException
+  {
+    return deserialize(buffer, null);
+  }
+
+  /**
+   * Reads a filter written by serialize(), starting at the buffer's position and advancing it past the filter. Items are hashed with the
+   * given function, which should be the one the filter was built with. This is an O(m) operation.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  public static <T> BloomFilter<T> deserialize(ByteBuffer buffer, Function1<T, Long> hasher)
+      throws IOException
+  {
+    checkHeader(buffer);
+    buffer.getInt();
+    int hashCount = buffer.getInt();
+    long bitCount = buffer.getLong();
+
+    BloomFilter<T> result = new BloomFilter<T>(bitCount, hashCount, hasher);
+    result.readWords(buffer);
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear()
+  {
+    Arrays.fill(words, 0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected long getWord(int index)
+  {
+    return words[index];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected boolean setBit(long index)
+  {
+    int word = (int) (index >>> 6);
+    long bit = 1L << index;
+    if ((words[word] & bit) != 0)
+      return false;
+
+    words[word] |= bit;
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void orWord(int index, long value)
+  {
+    words[index] |= value;
+  }
+}
@@ -0,0 +1,194 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.functional.Functions.Function1;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A cuckoo filter backed by an array of longs, one per bucket. This class is not thread-safe, see SharedCuckooFilter for a thread-safe
+ * alternative.
+ * 
+ * @param <T> The item type.
+ */
+public final class CuckooFilter<T>
+    extends AbstractCuckooFilter<T>
+{
+  private final long[] buckets;
+  private long size;
+
+  /**
+   * Constructor initializes a filter sized for the expected number of items, hashing items with HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive or too large.
+   */
+  public CuckooFilter(long expectedInsertions)
+  {
+    this(optimalBucketCount(expectedInsertions), null);
+  }
+
+  /**
+   * Constructor initializes a filter sized for the expected number of items, hashing items with the given function.
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive or too large.
+   */
+  public CuckooFilter(long expectedInsertions, Function1<T, Long> hasher)
+  {
+    this(optimalBucketCount(expectedInsertions), hasher);
+  }
+
+  /**
+   * Constructor initializes a filter with the given number of buckets, a power of two greater than one, and item hash function, which may
+   * be null to use HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the bucket count is not a power of two greater than one.
+   */
+  public CuckooFilter(int bucketCount, Function1<T, Long> hasher)
+  {
+    super(bucketCount, hasher);
+    buckets = new long[bucketCount];
+  }
+
+  /**
+   * Reads a filter written by serialize(), starting at the buffer's position and advancing it past the filter. Items are hashed with
+   * HashingUtils.objectToInt64(). This is an O(m) operation in the number of buckets.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  public static <T> CuckooFilter<T> deserialize(ByteBuffer buffer)
+      throws IOException
+  {
+    return deserialize(buffer, null);
+  }
+
+  /**
+   * Reads a filter written by serialize(), starting at the buffer's position and advancing it past the filter. Items are hashed with the
+   * given function, which should be the one the filter was built with. This is an O(m) operation in the number of buckets.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  public static <T> CuckooFilter<T> deserialize(ByteBuffer buffer, Function1<T, Long> hasher)
+      throws IOException
+  {
+    checkHeader(buffer);
+    buffer.getInt();
+    int bucketCount = buffer.getInt();
+
+    CuckooFilter<T> result = new CuckooFilter<T>(bucketCount, hasher);
+    result.size = buffer.getLong();
+    for (int i = 0; i < bucketCount; i++)
+      result.buckets[i] = buffer.getLong();
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean addHash(long hash)
+  {
+    int index1 = primaryIndex(hash);
+    char fingerprint = fingerprint(hash);
+    int index2 = alternateIndex(index1, fingerprint);
+
+    if (insertIntoFreeSlot(index1, fingerprint) || insertIntoFreeSlot(index2, fingerprint) || relocate(index1, index2, fingerprint))
+    {
+      size++;
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean mightContainHash(long hash)
+  {
+    int index1 = primaryIndex(hash);
+    char fingerprint = fingerprint(hash);
+
+    return bucketContains(buckets[index1], fingerprint) || bucketContains(buckets[alternateIndex(index1, fingerprint)], fingerprint);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean removeHash(long hash)
+  {
+    int index1 = primaryIndex(hash);
+    char fingerprint = fingerprint(hash);
+
+    if (removeFromBucket(index1, fingerprint) || removeFromBucket(alternateIndex(index1, fingerprint), fingerprint))
+    {
+      size--;
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long size()
+  {
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear()
+  {
+    Arrays.fill(buckets, 0);
+    size = 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected long getBucket(int index)
+  {
+    return buckets[index];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected boolean compareAndSetBucket(int index, long expected, long value)
+  {
+    if (buckets[index] != expected)
+      return false;
+
+    buckets[index] = value;
+    return true;
+  }
+}
@@ -0,0 +1,250 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.collections.KeyValuePair;
+import propel.core.collections.ReifiedIterable;
+import propel.core.collections.maps.avl.KeyValuePairKeyIterator;
+import propel.core.collections.maps.persistent.PersistentAvlMap;
+import propel.core.utils.Linq;
+import java.util.Iterator;
+
+/**
+ * A type-aware, immutable AVL-tree-backed set. Modifying operations return a new version of the set, which shares all nodes with the
+ * previous version except for those on the path to the modified item. Any version can therefore be read and iterated by any number of
+ * threads without locking. This set does not allow null items to be inserted.
+ */
+public final class PersistentAvlSet<T extends Comparable<T>>
+    implements ReifiedIterable<T>
+{
+  private final PersistentAvlMap<T, Object> store;
+
+  /**
+   * Constructor initializes an empty set with the generic type parameter
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   */
+  public PersistentAvlSet(Class<?> genericTypeParameter)
+  {
+    this(new PersistentAvlMap<T, Object>(genericTypeParameter, Object.class));
+  }
+
+  private PersistentAvlSet(PersistentAvlMap<T, Object> store)
+  {
+    this.store = store;
+  }
+
+  /**
+   * Returns a set with the given item added. If the item already exists, this set is returned. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public PersistentAvlSet<T> add(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    return version(store.add(item, null));
+  }
+
+  /**
+   * Returns a set with the given items added. This is an O(mlog2(n + m)) operation, where m is the provided item count.
+   * 
+   * @throws NullPointerException When the argument or an item within is null.
+   */
+  public PersistentAvlSet<T> addAll(Iterable<? extends T> items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    PersistentAvlMap<T, Object> result = store;
+    for (T item : items)
+    {
+      if (item == null)
+        throw new NullPointerException("item");
+
+      result = result.add(item, null);
+    }
+
+    return version(result);
+  }
+
+  /**
+   * Returns a set without the given item. If the item does not exist, this set is returned. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public PersistentAvlSet<T> remove(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    return version(store.remove(item));
+  }
+
+  /**
+   * Returns an empty set with the same generic type parameter. This is an O(1) operation.
+   */
+  public PersistentAvlSet<T> clear()
+  {
+    return version(store.clear());
+  }
+
+  /**
+   * Returns true if an item is contained. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public boolean contains(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    return store.containsKey(item);
+  }
+
+  /**
+   * Returns the least item, or null if empty. This is an O(log2(n)) operation.
+   */
+  public T first()
+  {
+    return keyOf(store.first());
+  }
+
+  /**
+   * Returns the greatest item, or null if empty. This is an O(log2(n)) operation.
+   */
+  public T last()
+  {
+    return keyOf(store.last());
+  }
+
+  /**
+   * Returns the greatest item less than or equal to the given item, or null if there is no such item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T floor(T item)
+  {
+    return keyOf(store.floor(item));
+  }
+
+  /**
+   * Returns the least item greater than or equal to the given item, or null if there is no such item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T ceiling(T item)
+  {
+    return keyOf(store.ceiling(item));
+  }
+
+  /**
+   * Returns the greatest item strictly less than the given item, or null if there is no such item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T lower(T item)
+  {
+    return keyOf(store.lower(item));
+  }
+
+  /**
+   * Returns the least item strictly greater than the given item, or null if there is no such item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T higher(T item)
+  {
+    return keyOf(store.higher(item));
+  }
+
+  /**
+   * Returns the number of items strictly less than the given item. This is an O(log2(n)) operation.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public int rank(T item)
+  {
+    return store.rank(item);
+  }
+
+  /**
+   * Returns the item at the given zero-based position in ascending order. This is an O(log2(n)) operation.
+   * 
+   * @throws IndexOutOfBoundsException When the index is negative or not less than the size of the set.
+   */
+  public T select(int index)
+  {
+    return store.select(index).getKey();
+  }
+
+  /**
+   * Returns true if the set is empty. This is an O(1) operation.
+   */
+  public boolean isEmpty()
+  {
+    return store.isEmpty();
+  }
+
+  /**
+   * Returns the number of items. This is an O(1) operation.
+   */
+  public int size()
+  {
+    return store.size();
+  }
+
+  /**
+   * Returns an ascending order iterator over the items of this version.
+   */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new KeyValuePairKeyIterator<T>(store.iterator());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameter()
+  {
+    return store.getGenericTypeParameterKey();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  private PersistentAvlSet<T> version(PersistentAvlMap<T, Object> modified)
+  {
+    return modified == store ? this : new PersistentAvlSet<T>(modified);
+  }
+
+  private static <T extends Comparable<T>> T keyOf(KeyValuePair<T, Object> kvp)
+  {
+    return kvp == null ? null : kvp.getKey();
+  }
+}
@@ -0,0 +1,1430 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.collections.ReifiedIterable;
+import propel.core.utils.Linq;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compressed set of int values, using the Roaring bitmap layout. Values are partitioned into chunks by their upper 16 bits, and each
+ * chunk stores its lower 16 bits in whichever container is most compact: a sorted array for sparse chunks (up to 4096 values), a 65536-bit
+ * bitmap for dense chunks, or a list of runs for chunks of consecutive values (see runOptimize()). Dense ID sets cost about one bit per
+ * value and sparse ones about two bytes per value, while set operations process whole chunks at a time.
+ * 
+ * Values are ordered as signed ints. Bitmaps can be written to a ByteBuffer and read back, e.g. from a memory-mapped file.
+ */
+public final class RoaringBitmap
+    implements ReifiedIterable<Integer>
+{
+  /**
+   * The maximum cardinality of an array container, above which a bitmap container is smaller
+   */
+  static final int ARRAY_MAX_SIZE = 4096;
+  private static final int SERIAL_COOKIE = 0x524F4152;
+  private static final byte ARRAY = 0;
+  private static final byte BITMAP = 1;
+  private static final byte RUN = 2;
+  // upper 16 bits of each chunk, with the sign bit flipped so that chunks sort in signed order
+  private char[] keys;
+  private Container[] containers;
+  private int size;
+
+  /**
+   * Default constructor, creates an empty set
+   */
+  public RoaringBitmap()
+  {
+    keys = new char[4];
+    containers = new Container[4];
+  }
+
+  /**
+   * Constructor initializes with the given values
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public RoaringBitmap(int[] values)
+  {
+    this();
+    if (values == null)
+      throw new NullPointerException("values");
+
+    for (int value : values)
+      add(value);
+  }
+
+  /**
+   * Constructor initializes with the values of another bitmap
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public RoaringBitmap(RoaringBitmap other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+
+    keys = Arrays.copyOf(other.keys, Math.max(other.size, 4));
+    containers = new Container[keys.length];
+    size = other.size;
+    for (int i = 0; i < size; i++)
+      containers[i] = other.containers[i].copy();
+  }
+
+  /**
+   * Adds a value. This is an O(log2(c)) operation, where c is the number of chunks, plus O(4096) when inserting in an array container.
+   * 
+   * @return True if the value was not already present.
+   */
+  public boolean add(int value)
+  {
+    char key = highOf(value);
+    int index = indexOf(key);
+
+    if (index < 0)
+    {
+      index = -index - 1;
+      insertAt(index, key, new ArrayContainer());
+    }
+
+    Container container = containers[index];
+    int cardinality = container.cardinality();
+    containers[index] = container.add(lowOf(value));
+    return containers[index].cardinality() != cardinality;
+  }
+
+  /**
+   * Removes a value. This is an O(log2(c)) operation, where c is the number of chunks, plus O(4096) when removing from an array container.
+   * 
+   * @return True if the value was present.
+   */
+  public boolean remove(int value)
+  {
+    int index = indexOf(highOf(value));
+    if (index < 0)
+      return false;
+
+    Container container = containers[index];
+    int cardinality = container.cardinality();
+    container = container.remove(lowOf(value));
+    if (container.cardinality() == cardinality)
+      return false;
+
+    if (container.cardinality() == 0)
+      removeAt(index);
+    else
+      containers[index] = container;
+
+    return true;
+  }
+
+  /**
+   * Returns true if the value is present. This is an O(log2(c)) operation, where c is the number of chunks, plus O(log2(4096)) for array
+   * and run containers.
+   */
+  public boolean contains(int value)
+  {
+    int index = indexOf(highOf(value));
+    return index >= 0 && containers[index].contains(lowOf(value));
+  }
+
+  /**
+   * Removes all values. This is an O(1) operation.
+   */
+  public void clear()
+  {
+    keys = new char[4];
+    containers = new Container[4];
+    size = 0;
+  }
+
+  /**
+   * Returns the number of values. This is an O(c) operation, where c is the number of chunks.
+   */
+  public long cardinality()
+  {
+    long result = 0;
+    for (int i = 0; i < size; i++)
+      result += containers[i].cardinality();
+
+    return result;
+  }
+
+  /**
+   * Returns true if there are no values. This is an O(1) operation.
+   */
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Returns the number of values less than or equal to the given value. This is an O(c) operation, where c is the number of chunks.
+   */
+  public long rank(int value)
+  {
+    char key = highOf(value);
+    long result = 0;
+
+    for (int i = 0; i < size; i++)
+    {
+      if (keys[i] < key)
+        result += containers[i].cardinality();
+      else
+      {
+        if (keys[i] == key)
+          result += containers[i].rank(lowOf(value));
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the value at the given zero-based position in ascending order. This is an O(c) operation, where c is the number of chunks.
+   * 
+   * @throws IndexOutOfBoundsException When the index is negative or not less than the cardinality.
+   */
+  public int select(long index)
+  {
+    if (index >= 0)
+    {
+      long remaining = index;
+      for (int i = 0; i < size; i++)
+      {
+        int cardinality = containers[i].cardinality();
+        if (remaining < cardinality)
+          return valueOf(keys[i], containers[i].select((int) remaining));
+
+        remaining -= cardinality;
+      }
+    }
+
+    throw new IndexOutOfBoundsException("index=" + index + " cardinality=" + cardinality());
+  }
+
+  /**
+   * Returns the least value.
+   * 
+   * @throws NoSuchElementException When the set is empty.
+   */
+  public int first()
+  {
+    if (size == 0)
+      throw new NoSuchElementException("The set is empty.");
+
+    return valueOf(keys[0], containers[0].select(0));
+  }
+
+  /**
+   * Returns the greatest value.
+   * 
+   * @throws NoSuchElementException When the set is empty.
+   */
+  public int last()
+  {
+    if (size == 0)
+      throw new NoSuchElementException("The set is empty.");
+
+    Container container = containers[size - 1];
+    return valueOf(keys[size - 1], container.select(container.cardinality() - 1));
+  }
+
+  /**
+   * Returns the intersection of this and another bitmap, as a new bitmap. This is an O(c1 + c2) operation in the number of chunks, each
+   * pair of chunks being combined word by word or by merging arrays.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public RoaringBitmap and(RoaringBitmap other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+
+    RoaringBitmap result = new RoaringBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size)
+    {
+      if (keys[i] < other.keys[j])
+        i++;
+      else if (keys[i] > other.keys[j])
+        j++;
+      else
+      {
+        result.append(keys[i], and(containers[i], other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the union of this and another bitmap, as a new bitmap. This is an O(c1 + c2) operation in the number of chunks.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public RoaringBitmap or(RoaringBitmap other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+
+    RoaringBitmap result = new RoaringBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < size || j < other.size)
+    {
+      if (j == other.size || (i < size && keys[i] < other.keys[j]))
+      {
+        result.append(keys[i], containers[i].copy());
+        i++;
+      } else if (i == size || keys[i] > other.keys[j])
+      {
+        result.append(other.keys[j], other.containers[j].copy());
+        j++;
+      } else
+      {
+        result.append(keys[i], or(containers[i], other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the values of this bitmap that are not in the other bitmap, as a new bitmap. This is an O(c1 + c2) operation in the number of
+   * chunks.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public RoaringBitmap andNot(RoaringBitmap other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+
+    RoaringBitmap result = new RoaringBitmap();
+    int j = 0;
+    for (int i = 0; i < size; i++)
+    {
+      while (j < other.size && other.keys[j] < keys[i])
+        j++;
+
+      if (j < other.size && other.keys[j] == keys[i])
+        result.append(keys[i], andNot(containers[i], other.containers[j]));
+      else
+        result.append(keys[i], containers[i].copy());
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the values present in exactly one of this and another bitmap, as a new bitmap. This is an O(c1 + c2) operation in the number
+   * of chunks.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public RoaringBitmap xor(RoaringBitmap other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+
+    RoaringBitmap result = new RoaringBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < size || j < other.size)
+    {
+      if (j == other.size || (i < size && keys[i] < other.keys[j]))
+      {
+        result.append(keys[i], containers[i].copy());
+        i++;
+      } else if (i == size || keys[i] > other.keys[j])
+      {
+        result.append(other.keys[j], other.containers[j].copy());
+        j++;
+      } else
+      {
+        result.append(keys[i], xor(containers[i], other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Converts chunks made of long runs of consecutive values to run containers, where that is more compact. Run containers are converted
+   * back to array or bitmap containers when modified. This is an O(n) operation.
+   * 
+   * @return True if any chunk was converted.
+   */
+  public boolean runOptimize()
+  {
+    boolean result = false;
+    for (int i = 0; i < size; i++)
+    {
+      Container optimized = containers[i].runOptimize();
+      if (optimized != containers[i])
+      {
+        containers[i] = optimized;
+        result = true;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the values in ascending order. This is an O(n) operation.
+   * 
+   * @throws IllegalStateException When the set holds more values than an array can.
+   */
+  public int[] toArray()
+  {
+    long cardinality = cardinality();
+    if (cardinality > Integer.MAX_VALUE - 8)
+      throw new IllegalStateException("The set is too large for an array: " + cardinality);
+
+    int[] result = new int[(int) cardinality];
+    int count = 0;
+    for (int i = 0; i < size; i++)
+    {
+      int high = valueOf(keys[i], (char) 0);
+      CharIterator iterator = containers[i].iterator();
+      while (iterator.hasNext())
+        result[count++] = high | iterator.next();
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns an iterator of the values in ascending order. The iterator does not support concurrent modification of the set.
+   */
+  @Override
+  public Iterator<Integer> iterator()
+  {
+    return new Iterator<Integer>() {
+      private int chunk;
+      private CharIterator current = size > 0 ? containers[0].iterator() : null;
+
+      @Override
+      public boolean hasNext()
+      {
+        while (current != null && !current.hasNext())
+          current = ++chunk < size ? containers[chunk].iterator() : null;
+
+        return current != null;
+      }
+
+      @Override
+      public Integer next()
+      {
+        if (!hasNext())
+          throw new NoSuchElementException("There is no next element.");
+
+        return valueOf(keys[chunk], current.next());
+      }
+
+      @Override
+      @Deprecated
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * Returns the number of bytes written by serialize(). This is an O(c) operation, where c is the number of chunks.
+   */
+  public int serializedSizeInBytes()
+  {
+    int result = 8;
+    for (int i = 0; i < size; i++)
+      result += 7 + containers[i].payloadSize();
+
+    return result;
+  }
+
+  /**
+   * Writes this bitmap at the buffer's position, advancing the position by serializedSizeInBytes(). This is an O(n) operation.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws java.nio.BufferOverflowException When the buffer has insufficient space remaining.
+   */
+  public void serialize(ByteBuffer buffer)
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    buffer.putInt(SERIAL_COOKIE);
+    buffer.putInt(size);
+    for (int i = 0; i < size; i++)
+    {
+      Container container = containers[i];
+      buffer.putChar(keys[i]);
+      buffer.put(container.type());
+      buffer.putInt(container.payloadSize());
+      container.write(buffer);
+    }
+  }
+
+  /**
+   * Reads a bitmap written by serialize(), starting at the buffer's position and advancing it past the bitmap. The buffer may be a
+   * memory-mapped file region. This is an O(n) operation.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized bitmap.
+   */
+  public static RoaringBitmap deserialize(ByteBuffer buffer)
+      throws IOException
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    if (buffer.remaining() < 8 || buffer.getInt() != SERIAL_COOKIE)
+      throw new IOException("The buffer does not contain a serialized bitmap.");
+
+    int count = buffer.getInt();
+    if (count < 0 || count > 65536)
+      throw new IOException("Invalid number of chunks: " + count);
+
+    RoaringBitmap result = new RoaringBitmap();
+    for (int i = 0; i < count; i++)
+    {
+      if (buffer.remaining() < 7)
+        throw new IOException("The serialized bitmap is truncated.");
+
+      char key = buffer.getChar();
+      byte type = buffer.get();
+      int payloadSize = buffer.getInt();
+      if (payloadSize < 0 || payloadSize > buffer.remaining() || (i > 0 && key <= result.keys[i - 1]))
+        throw new IOException("The serialized bitmap is corrupt.");
+
+      Container container;
+      switch(type)
+      {
+        case ARRAY:
+          container = ArrayContainer.read(buffer, payloadSize);
+          break;
+        case BITMAP:
+          container = BitmapContainer.read(buffer, payloadSize);
+          break;
+        case RUN:
+          container = RunContainer.read(buffer, payloadSize);
+          break;
+        default:
+          throw new IOException("Unknown container type: " + type);
+      }
+
+      if (container == null)
+        throw new IOException("The serialized bitmap is corrupt.");
+
+      result.append(key, container);
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameter()
+  {
+    return Integer.class;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof RoaringBitmap))
+      return false;
+
+    RoaringBitmap other = (RoaringBitmap) obj;
+    if (size != other.size)
+      return false;
+
+    for (int i = 0; i < size; i++)
+    {
+      if (keys[i] != other.keys[i] || containers[i].cardinality() != other.containers[i].cardinality())
+        return false;
+
+      CharIterator a = containers[i].iterator();
+      CharIterator b = other.containers[i].iterator();
+      while (a.hasNext())
+        if (a.next() != b.next())
+          return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode()
+  {
+    int result = 0;
+    for (int i = 0; i < size; i++)
+    {
+      int high = valueOf(keys[i], (char) 0);
+      CharIterator iterator = containers[i].iterator();
+      while (iterator.hasNext())
+        result += high | iterator.next();
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  private int indexOf(char key)
+  {
+    // appending in ascending order is the common case
+    if (size > 0 && keys[size - 1] == key)
+      return size - 1;
+
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  private void insertAt(int index, char key, Container container)
+  {
+    if (size == keys.length)
+    {
+      keys = Arrays.copyOf(keys, size << 1);
+      containers = Arrays.copyOf(containers, size << 1);
+    }
+
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(containers, index, containers, index + 1, size - index);
+    keys[index] = key;
+    containers[index] = container;
+    size++;
+  }
+
+  private void removeAt(int index)
+  {
+    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+    size--;
+    containers[size] = null;
+  }
+
+  /**
+   * Appends a chunk with a key greater than all existing ones, unless the container is null or empty
+   */
+  private void append(char key, Container container)
+  {
+    if (container != null && container.cardinality() > 0)
+      insertAt(size, key, container);
+  }
+
+  private static char highOf(int value)
+  {
+    return (char) ((value >>> 16) ^ 0x8000);
+  }
+
+  private static char lowOf(int value)
+  {
+    return (char) value;
+  }
+
+  private static int valueOf(char key, char low)
+  {
+    return ((key ^ 0x8000) << 16) | low;
+  }
+
+  private static Container and(Container a, Container b)
+  {
+    if (a instanceof ArrayContainer)
+      return ((ArrayContainer) a).filter(b, true);
+    if (b instanceof ArrayContainer)
+      return ((ArrayContainer) b).filter(a, true);
+
+    BitmapContainer result = a.toBitmap();
+    BitmapContainer other = b.toBitmap();
+    for (int i = 0; i < BitmapContainer.WORDS; i++)
+      result.words[i] &= other.words[i];
+
+    return result.recount().normalize();
+  }
+
+  private static Container or(Container a, Container b)
+  {
+    if (a instanceof ArrayContainer && b instanceof ArrayContainer && a.cardinality() + b.cardinality() <= ARRAY_MAX_SIZE)
+      return ((ArrayContainer) a).merge((ArrayContainer) b, false);
+
+    BitmapContainer result = a.toBitmap();
+    b.orInto(result.words);
+    return result.recount().normalize();
+  }
+
+  private static Container andNot(Container a, Container b)
+  {
+    if (a instanceof ArrayContainer)
+      return ((ArrayContainer) a).filter(b, false);
+
+    BitmapContainer result = a.toBitmap();
+    BitmapContainer other = b.toBitmap();
+    for (int i = 0; i < BitmapContainer.WORDS; i++)
+      result.words[i] &= ~other.words[i];
+
+    return result.recount().normalize();
+  }
+
+  private static Container xor(Container a, Container b)
+  {
+    if (a instanceof ArrayContainer && b instanceof ArrayContainer && a.cardinality() + b.cardinality() <= ARRAY_MAX_SIZE)
+      return ((ArrayContainer) a).merge((ArrayContainer) b, true);
+
+    BitmapContainer result = a.toBitmap();
+    BitmapContainer other = b.toBitmap();
+    for (int i = 0; i < BitmapContainer.WORDS; i++)
+      result.words[i] ^= other.words[i];
+
+    return result.recount().normalize();
+  }
+
+  /**
+   * Iterates over the 16-bit values of a container
+   */
+  private interface CharIterator
+  {
+    boolean hasNext();
+
+    char next();
+  }
+
+  /**
+   * Holds the lower 16 bits of the values of a chunk. Mutators return the container to replace this one with, which may be this one.
+   */
+  private abstract static class Container
+  {
+    abstract Container add(char value);
+
+    abstract Container remove(char value);
+
+    abstract boolean contains(char value);
+
+    abstract int cardinality();
+
+    /**
+     * Returns the number of values less than or equal to the given value
+     */
+    abstract int rank(char value);
+
+    abstract char select(int index);
+
+    abstract CharIterator iterator();
+
+    /**
+     * Returns a new bitmap container holding the same values
+     */
+    abstract BitmapContainer toBitmap();
+
+    /**
+     * Sets the bits of all values in the given bitmap words
+     */
+    abstract void orInto(long[] words);
+
+    abstract Container runOptimize();
+
+    abstract Container copy();
+
+    abstract byte type();
+
+    abstract int payloadSize();
+
+    abstract void write(ByteBuffer buffer);
+  }
+
+  /**
+   * A sorted array of up to ARRAY_MAX_SIZE values
+   */
+  private static final class ArrayContainer
+      extends Container
+  {
+    char[] content;
+    int cardinality;
+
+    ArrayContainer()
+    {
+      content = new char[4];
+    }
+
+    ArrayContainer(char[] content, int cardinality)
+    {
+      this.content = content;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char value)
+    {
+      int index = Arrays.binarySearch(content, 0, cardinality, value);
+      if (index >= 0)
+        return this;
+
+      if (cardinality == ARRAY_MAX_SIZE)
+        return toBitmap().add(value);
+
+      index = -index - 1;
+      if (cardinality == content.length)
+        content = Arrays.copyOf(content, Math.min(cardinality << 1, ARRAY_MAX_SIZE));
+
+      System.arraycopy(content, index, content, index + 1, cardinality - index);
+      content[index] = value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char value)
+    {
+      int index = Arrays.binarySearch(content, 0, cardinality, value);
+      if (index >= 0)
+      {
+        System.arraycopy(content, index + 1, content, index, cardinality - index - 1);
+        cardinality--;
+      }
+
+      return this;
+    }
+
+    @Override
+    boolean contains(char value)
+    {
+      return Arrays.binarySearch(content, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    int rank(char value)
+    {
+      int index = Arrays.binarySearch(content, 0, cardinality, value);
+      return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    @Override
+    char select(int index)
+    {
+      return content[index];
+    }
+
+    @Override
+    CharIterator iterator()
+    {
+      return new CharIterator() {
+        private int position;
+
+        @Override
+        public boolean hasNext()
+        {
+          return position < cardinality;
+        }
+
+        @Override
+        public char next()
+        {
+          return content[position++];
+        }
+      };
+    }
+
+    @Override
+    BitmapContainer toBitmap()
+    {
+      BitmapContainer result = new BitmapContainer();
+      orInto(result.words);
+      result.cardinality = cardinality;
+      return result;
+    }
+
+    @Override
+    void orInto(long[] words)
+    {
+      for (int i = 0; i < cardinality; i++)
+        words[content[i] >>> 6] |= 1L << content[i];
+    }
+
+    @Override
+    Container runOptimize()
+    {
+      int runs = 0;
+      for (int i = 0; i < cardinality; i++)
+        if (i == 0 || content[i] != content[i - 1] + 1)
+          runs++;
+
+      if (4 * runs >= 2 * cardinality)
+        return this;
+
+      RunContainer result = new RunContainer(new char[2 * runs], runs);
+      int run = -1;
+      for (int i = 0; i < cardinality; i++)
+        if (i == 0 || content[i] != content[i - 1] + 1)
+          result.runs[2 * ++run] = content[i];
+        else
+          result.runs[2 * run + 1]++;
+
+      return result;
+    }
+
+    @Override
+    Container copy()
+    {
+      return new ArrayContainer(Arrays.copyOf(content, Math.max(cardinality, 4)), cardinality);
+    }
+
+    @Override
+    byte type()
+    {
+      return ARRAY;
+    }
+
+    @Override
+    int payloadSize()
+    {
+      return 2 * cardinality;
+    }
+
+    @Override
+    void write(ByteBuffer buffer)
+    {
+      for (int i = 0; i < cardinality; i++)
+        buffer.putChar(content[i]);
+    }
+
+    static ArrayContainer read(ByteBuffer buffer, int payloadSize)
+    {
+      int cardinality = payloadSize / 2;
+      if (payloadSize % 2 != 0 || cardinality == 0 || cardinality > ARRAY_MAX_SIZE)
+        return null;
+
+      char[] content = new char[cardinality];
+      for (int i = 0; i < cardinality; i++)
+      {
+        content[i] = buffer.getChar();
+        if (i > 0 && content[i] <= content[i - 1])
+          return null;
+      }
+
+      return new ArrayContainer(content, cardinality);
+    }
+
+    /**
+     * Returns the values of this container that are (or are not) contained in the other
+     */
+    Container filter(Container other, boolean contained)
+    {
+      char[] result = new char[Math.max(cardinality, 1)];
+      int count = 0;
+      for (int i = 0; i < cardinality; i++)
+        if (other.contains(content[i]) == contained)
+          result[count++] = content[i];
+
+      return new ArrayContainer(result, count);
+    }
+
+    /**
+     * Merges two sorted arrays, into their union or symmetric difference
+     */
+    Container merge(ArrayContainer other, boolean exclusive)
+    {
+      char[] result = new char[Math.max(cardinality + other.cardinality, 1)];
+      int count = 0;
+      int i = 0;
+      int j = 0;
+      while (i < cardinality || j < other.cardinality)
+      {
+        if (j == other.cardinality || (i < cardinality && content[i] < other.content[j]))
+          result[count++] = content[i++];
+        else if (i == cardinality || content[i] > other.content[j])
+          result[count++] = other.content[j++];
+        else
+        {
+          if (!exclusive)
+            result[count++] = content[i];
+          i++;
+          j++;
+        }
+      }
+
+      return new ArrayContainer(result, count);
+    }
+  }
+
+  /**
+   * A bitmap of all 65536 possible values
+   */
+  private static final class BitmapContainer
+      extends Container
+  {
+    static final int WORDS = 1024;
+    final long[] words;
+    int cardinality;
+
+    BitmapContainer()
+    {
+      words = new long[WORDS];
+    }
+
+    BitmapContainer(long[] words, int cardinality)
+    {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char value)
+    {
+      long word = words[value >>> 6];
+      long bit = 1L << value;
+      if ((word & bit) == 0)
+      {
+        words[value >>> 6] = word | bit;
+        cardinality++;
+      }
+
+      return this;
+    }
+
+    @Override
+    Container remove(char value)
+    {
+      long word = words[value >>> 6];
+      long bit = 1L << value;
+      if ((word & bit) != 0)
+      {
+        words[value >>> 6] = word & ~bit;
+        cardinality--;
+      }
+
+      return normalize();
+    }
+
+    @Override
+    boolean contains(char value)
+    {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    int rank(char value)
+    {
+      int result = 0;
+      int word = value >>> 6;
+      for (int i = 0; i < word; i++)
+        result += Long.bitCount(words[i]);
+
+      // the bits up to and including the value
+      return result + Long.bitCount(words[word] & (-1L >>> (63 - (value & 63))));
+    }
+
+    @Override
+    char select(int index)
+    {
+      for (int i = 0; i < WORDS; i++)
+      {
+        int count = Long.bitCount(words[i]);
+        if (index < count)
+        {
+          long word = words[i];
+          for (int j = 0; j < index; j++)
+            word &= word - 1;
+
+          return (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+        }
+
+        index -= count;
+      }
+
+      throw new IndexOutOfBoundsException("index=" + index);
+    }
+
+    @Override
+    CharIterator iterator()
+    {
+      return new CharIterator() {
+        private int word;
+        private long bits = words[0];
+
+        @Override
+        public boolean hasNext()
+        {
+          while (bits == 0 && word < WORDS - 1)
+            bits = words[++word];
+
+          return bits != 0;
+        }
+
+        @Override
+        public char next()
+        {
+          hasNext();
+          char result = (char) ((word << 6) + Long.numberOfTrailingZeros(bits));
+          bits &= bits - 1;
+          return result;
+        }
+      };
+    }
+
+    @Override
+    BitmapContainer toBitmap()
+    {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    void orInto(long[] target)
+    {
+      for (int i = 0; i < WORDS; i++)
+        target[i] |= words[i];
+    }
+
+    @Override
+    Container runOptimize()
+    {
+      int runs = 0;
+      for (int i = 0; i < WORDS; i++)
+      {
+        long word = words[i];
+        // count the starts of runs, i.e. set bits whose preceding bit is clear
+        long previous = (word << 1) | (i > 0 ? words[i - 1] >>> 63 : 0);
+        runs += Long.bitCount(word & ~previous);
+      }
+
+      if (4 * runs >= 8 * WORDS)
+        return this;
+
+      RunContainer result = new RunContainer(new char[2 * runs], 0);
+      int start = -1;
+      for (int value = 0; value <= 65536; value++)
+      {
+        boolean set = value < 65536 && contains((char) value);
+        if (set && start < 0)
+          start = value;
+        else if (!set && start >= 0)
+        {
+          result.runs[2 * result.count] = (char) start;
+          result.runs[2 * result.count + 1] = (char) (value - 1 - start);
+          result.count++;
+          start = -1;
+        }
+      }
+
+      return result;
+    }
+
+    @Override
+    Container copy()
+    {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    byte type()
+    {
+      return BITMAP;
+    }
+
+    @Override
+    int payloadSize()
+    {
+      return 8 * WORDS;
+    }
+
+    @Override
+    void write(ByteBuffer buffer)
+    {
+      for (long word : words)
+        buffer.putLong(word);
+    }
+
+    static Container read(ByteBuffer buffer, int payloadSize)
+    {
+      if (payloadSize != 8 * WORDS)
+        return null;
+
+      BitmapContainer result = new BitmapContainer();
+      for (int i = 0; i < WORDS; i++)
+        result.words[i] = buffer.getLong();
+
+      return result.recount().cardinality <= ARRAY_MAX_SIZE ? null : result;
+    }
+
+    BitmapContainer recount()
+    {
+      cardinality = 0;
+      for (long word : words)
+        cardinality += Long.bitCount(word);
+
+      return this;
+    }
+
+    /**
+     * Returns an array container if that is more compact
+     */
+    Container normalize()
+    {
+      if (cardinality > ARRAY_MAX_SIZE)
+        return this;
+
+      char[] content = new char[Math.max(cardinality, 4)];
+      int count = 0;
+      CharIterator iterator = iterator();
+      while (iterator.hasNext())
+        content[count++] = iterator.next();
+
+      return new ArrayContainer(content, count);
+    }
+  }
+
+  /**
+   * A sorted list of runs of consecutive values, each stored as its start and its length minus one. Mutations convert it to an array or
+   * bitmap container.
+   */
+  private static final class RunContainer
+      extends Container
+  {
+    final char[] runs;
+    int count;
+
+    RunContainer(char[] runs, int count)
+    {
+      this.runs = runs;
+      this.count = count;
+    }
+
+    @Override
+    Container add(char value)
+    {
+      return contains(value) ? this : toBitmap().normalize().add(value);
+    }
+
+    @Override
+    Container remove(char value)
+    {
+      return contains(value) ? toBitmap().normalize().remove(value) : this;
+    }
+
+    @Override
+    boolean contains(char value)
+    {
+      int run = runOf(value);
+      return run >= 0 && value - runs[2 * run] <= runs[2 * run + 1];
+    }
+
+    @Override
+    int cardinality()
+    {
+      int result = 0;
+      for (int i = 0; i < count; i++)
+        result += runs[2 * i + 1] + 1;
+
+      return result;
+    }
+
+    @Override
+    int rank(char value)
+    {
+      int result = 0;
+      for (int i = 0; i < count; i++)
+      {
+        int start = runs[2 * i];
+        if (value < start)
+          break;
+
+        result += Math.min(value - start, runs[2 * i + 1]) + 1;
+      }
+
+      return result;
+    }
+
+    @Override
+    char select(int index)
+    {
+      for (int i = 0; i < count; i++)
+      {
+        int length = runs[2 * i + 1] + 1;
+        if (index < length)
+          return (char) (runs[2 * i] + index);
+
+        index -= length;
+      }
+
+      throw new IndexOutOfBoundsException("index=" + index);
+    }
+
+    @Override
+    CharIterator iterator()
+    {
+      return new CharIterator() {
+        private int run;
+        private int offset;
+
+        @Override
+        public boolean hasNext()
+        {
+          return run < count;
+        }
+
+        @Override
+        public char next()
+        {
+          char result = (char) (runs[2 * run] + offset);
+          if (offset++ == runs[2 * run + 1])
+          {
+            run++;
+            offset = 0;
+          }
+
+          return result;
+        }
+      };
+    }
+
+    @Override
+    BitmapContainer toBitmap()
+    {
+      BitmapContainer result = new BitmapContainer();
+      orInto(result.words);
+      return result.recount();
+    }
+
+    @Override
+    void orInto(long[] words)
+    {
+      for (int i = 0; i < count; i++)
+      {
+        int start = runs[2 * i];
+        int end = start + runs[2 * i + 1];
+        for (int value = start; value <= end; value++)
+          words[value >>> 6] |= 1L << value;
+      }
+    }
+
+    @Override
+    Container runOptimize()
+    {
+      return this;
+    }
+
+    @Override
+    Container copy()
+    {
+      return new RunContainer(Arrays.copyOf(runs, 2 * count), count);
+    }
+
+    @Override
+    byte type()
+    {
+      return RUN;
+    }
+
+    @Override
+    int payloadSize()
+    {
+      return 4 * count;
+    }
+
+    @Override
+    void write(ByteBuffer buffer)
+    {
+      for (int i = 0; i < 2 * count; i++)
+        buffer.putChar(runs[i]);
+    }
+
+    static Container read(ByteBuffer buffer, int payloadSize)
+    {
+      if (payloadSize % 4 != 0 || payloadSize == 0)
+        return null;
+
+      int count = payloadSize / 4;
+      char[] runs = new char[2 * count];
+      int previousEnd = -2;
+      for (int i = 0; i < count; i++)
+      {
+        runs[2 * i] = buffer.getChar();
+        runs[2 * i + 1] = buffer.getChar();
+        // runs must be sorted, disjoint, non-adjacent and within range
+        if (runs[2 * i] <= previousEnd + 1 || runs[2 * i] + runs[2 * i + 1] > 0xFFFF)
+          return null;
+
+        previousEnd = runs[2 * i] + runs[2 * i + 1];
+      }
+
+      return new RunContainer(runs, count);
+    }
+
+    /**
+     * Returns the index of the last run starting at or before the value, or -1 if none
+     */
+    private int runOf(char value)
+    {
+      int low = 0;
+      int high = count - 1;
+      while (low <= high)
+      {
+        int middle = (low + high) >>> 1;
+        if (runs[2 * middle] <= value)
+          low = middle + 1;
+        else
+          high = middle - 1;
+      }
+
+      return high;
+    }
+  }
+}
@@ -286,6 +286,23 @@ public class SharedAvlTreeSet<T extends Comparable<T>>
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void union(AvlTreeSet<T> otherSet)
+  {
+    lock();
+    try
+    {
+      super.union(otherSet);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -303,6 +320,23 @@ public class SharedAvlTreeSet<T extends Comparable<T>>
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void intersect(AvlTreeSet<T> otherSet)
+  {
+    lock();
+    try
+    {
+      super.intersect(otherSet);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -320,6 +354,312 @@ public class SharedAvlTreeSet<T extends Comparable<T>>
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void difference(AvlTreeSet<T> otherSet)
+  {
+    lock();
+    try
+    {
+      super.difference(otherSet);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T first()
+  {
+    lock();
+    try
+    {
+      return super.first();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T last()
+  {
+    lock();
+    try
+    {
+      return super.last();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T floor(T item)
+  {
+    lock();
+    try
+    {
+      return super.floor(item);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T ceiling(T item)
+  {
+    lock();
+    try
+    {
+      return super.ceiling(item);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T lower(T item)
+  {
+    lock();
+    try
+    {
+      return super.lower(item);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T higher(T item)
+  {
+    lock();
+    try
+    {
+      return super.higher(item);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int rank(T item)
+  {
+    lock();
+    try
+    {
+      return super.rank(item);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T select(int index)
+  {
+    lock();
+    try
+    {
+      return super.select(index);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a descending order enumerator of a copy of the collection. This is an O(n) operation
+   */
+  @Override
+  public Iterator<T> descendingIterator()
+  {
+    lock();
+    try
+    {
+      ReifiedList<T> list = super.toList();
+      Collections.reverse(list);
+      return list.iterator();
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the items ranging fromItem (inclusive) to toItem (exclusive), as a live view cannot be guarded by the
+   * collection lock. Changes to this set are not reflected in the view and vice-versa. This is an O(log2(n) + m) operation, where m is the
+   * number of items in the range.
+   * 
+   * @throws NullPointerException When an item is null.
+   * @throws IllegalArgumentException When fromItem is greater than toItem.
+   */
+  @Override
+  public AvlSubSet<T> subSet(T fromItem, T toItem)
+  {
+    lock();
+    try
+    {
+      AvlTreeSet<T> copy = new AvlTreeSet<T>(super.subSet(fromItem, toItem));
+      return copy.subSet(fromItem, toItem);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the items ranging fromItem to toItem, as a live view cannot be guarded by the collection lock. Changes to
+   * this set are not reflected in the view and vice-versa. This is an O(log2(n) + m) operation, where m is the number of items in the
+   * range.
+   * 
+   * @throws NullPointerException When an item is null.
+   * @throws IllegalArgumentException When fromItem is greater than toItem.
+   */
+  @Override
+  public AvlSubSet<T> subSet(T fromItem, boolean fromInclusive, T toItem, boolean toInclusive)
+  {
+    lock();
+    try
+    {
+      AvlTreeSet<T> copy = new AvlTreeSet<T>(super.subSet(fromItem, fromInclusive, toItem, toInclusive));
+      return copy.subSet(fromItem, fromInclusive, toItem, toInclusive);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the items strictly less than toItem, as a live view cannot be guarded by the collection lock. Changes to
+   * this set are not reflected in the view and vice-versa. This is an O(log2(n) + m) operation, where m is the number of items in the
+   * range.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  @Override
+  public AvlSubSet<T> headSet(T toItem)
+  {
+    lock();
+    try
+    {
+      AvlTreeSet<T> copy = new AvlTreeSet<T>(super.headSet(toItem));
+      return copy.headSet(toItem);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the items less than (or equal to, if inclusive is true) toItem, as a live view cannot be guarded by the
+   * collection lock. Changes to this set are not reflected in the view and vice-versa. This is an O(log2(n) + m) operation, where m is the
+   * number of items in the range.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  @Override
+  public AvlSubSet<T> headSet(T toItem, boolean inclusive)
+  {
+    lock();
+    try
+    {
+      AvlTreeSet<T> copy = new AvlTreeSet<T>(super.headSet(toItem, inclusive));
+      return copy.headSet(toItem, inclusive);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the items greater than or equal to fromItem, as a live view cannot be guarded by the collection lock.
+   * Changes to this set are not reflected in the view and vice-versa. This is an O(log2(n) + m) operation, where m is the number of items
+   * in the range.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  @Override
+  public AvlSubSet<T> tailSet(T fromItem)
+  {
+    lock();
+    try
+    {
+      AvlTreeSet<T> copy = new AvlTreeSet<T>(super.tailSet(fromItem));
+      return copy.tailSet(fromItem);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a view of a copy of the items greater than (or equal to, if inclusive is true) fromItem, as a live view cannot be guarded by
+   * the collection lock. Changes to this set are not reflected in the view and vice-versa. This is an O(log2(n) + m) operation, where m is
+   * the number of items in the range.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  @Override
+  public AvlSubSet<T> tailSet(T fromItem, boolean inclusive)
+  {
+    lock();
+    try
+    {
+      AvlTreeSet<T> copy = new AvlTreeSet<T>(super.tailSet(fromItem, inclusive));
+      return copy.tailSet(fromItem, inclusive);
+    }
+    finally
+    {
+      unlock();
+    }
+  }
+
   /**
    * Locks the collection
    */
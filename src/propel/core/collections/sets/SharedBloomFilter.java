@@ -0,0 +1,160 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.functional.Functions.Function1;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter, backed by an AtomicLongArray. Bits are set with compare-and-set, so adds and lookups never block and an item is
+ * visible to all threads once add() has returned. clear() is not atomic with respect to concurrent adds.
+ * 
+ * @param <T> The item type.
+ */
+public final class SharedBloomFilter<T>
+    extends AbstractBloomFilter<T>
+{
+  private final AtomicLongArray words;
+
+  /**
+   * Constructor initializes a filter sized for the expected number of items at the given false positive probability, hashing items with
+   * HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive, or the probability is not between 0 and 1 exclusive.
+   */
+  public SharedBloomFilter(long expectedInsertions, double fpp)
+  {
+    this(expectedInsertions, fpp, null);
+  }
+
+  /**
+   * Constructor initializes a filter sized for the expected number of items at the given false positive probability, hashing items with
+   * the given function.
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive, or the probability is not between 0 and 1 exclusive.
+   */
+  public SharedBloomFilter(long expectedInsertions, double fpp, Function1<T, Long> hasher)
+  {
+    this(optimalBitCount(expectedInsertions, fpp), optimalHashCount(expectedInsertions, optimalBitCount(expectedInsertions, fpp)), hasher);
+  }
+
+  /**
+   * Constructor initializes a filter with the given dimensions.
+   * 
+   * @param bitCount The number of bits, a positive multiple of 64.
+   * @param hashCount The number of bits per item.
+   * @param hasher The item hash function, or null to use HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the bit count or hash count are out of range.
+   */
+  public SharedBloomFilter(long bitCount, int hashCount, Function1<T, Long> hasher)
+  {
+    super(bitCount, hashCount, hasher);
+    words = new AtomicLongArray(getWordCount());
+  }
+
+  /**
+   * Reads a filter written by serialize(), starting at the buffer's position and advancing it past the filter. Items are hashed with
+   * HashingUtils.objectToInt64(). This is an O(m) operation.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  public static <T> SharedBloomFilter<T> deserialize(ByteBuffer buffer)
+      throws IOException
+  {
+    return deserialize(buffer, null);
+  }
+
+  /**
+   * Reads a filter written by serialize(), starting at the buffer's position and advancing it past the filter. Items are hashed with the
+   * given function, which should be the one the filter was built with. This is an O(m) operation.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  public static <T> SharedBloomFilter<T> deserialize(ByteBuffer buffer, Function1<T, Long> hasher)
+      throws IOException
+  {
+    checkHeader(buffer);
+    buffer.getInt();
+    int hashCount = buffer.getInt();
+    long bitCount = buffer.getLong();
+
+    SharedBloomFilter<T> result = new SharedBloomFilter<T>(bitCount, hashCount, hasher);
+    result.readWords(buffer);
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear()
+  {
+    int length = words.length();
+    for (int i = 0; i < length; i++)
+      words.set(i, 0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected long getWord(int index)
+  {
+    return words.get(index);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected boolean setBit(long index)
+  {
+    int word = (int) (index >>> 6);
+    long bit = 1L << index;
+
+    while (true)
+    {
+      long value = words.get(word);
+      if ((value & bit) != 0)
+        return false;
+
+      if (words.compareAndSet(word, value, value | bit))
+        return true;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void orWord(int index, long value)
+  {
+    while (true)
+    {
+      long current = words.get(index);
+      if ((current | value) == current || words.compareAndSet(index, current, current | value))
+        return;
+    }
+  }
+}
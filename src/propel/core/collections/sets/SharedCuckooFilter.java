@@ -0,0 +1,253 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.functional.Functions.Function1;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe cuckoo filter, backed by an AtomicLongArray with one long per bucket. Lookups never block, and neither do adds while one of
+ * the item's buckets has a free slot, these are stored with compare-and-set. Adds which must move fingerprints to make room, removals and
+ * clearing are serialised by a lock. Lookups which overlap with fingerprints being moved are retried, so that no added item is missed.
+ * 
+ * @param <T> The item type.
+ */
+public final class SharedCuckooFilter<T>
+    extends AbstractCuckooFilter<T>
+{
+  private final AtomicLongArray buckets;
+  private final AtomicLong size;
+  private final ReentrantLock lock;
+  // odd while fingerprints are being moved
+  private final AtomicInteger relocations;
+
+  /**
+   * Constructor initializes a filter sized for the expected number of items, hashing items with HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive or too large.
+   */
+  public SharedCuckooFilter(long expectedInsertions)
+  {
+    this(optimalBucketCount(expectedInsertions), null);
+  }
+
+  /**
+   * Constructor initializes a filter sized for the expected number of items, hashing items with the given function.
+   * 
+   * @throws IllegalArgumentException When the expected insertions are not positive or too large.
+   */
+  public SharedCuckooFilter(long expectedInsertions, Function1<T, Long> hasher)
+  {
+    this(optimalBucketCount(expectedInsertions), hasher);
+  }
+
+  /**
+   * Constructor initializes a filter with the given number of buckets, a power of two greater than one, and item hash function, which may
+   * be null to use HashingUtils.objectToInt64().
+   * 
+   * @throws IllegalArgumentException When the bucket count is not a power of two greater than one.
+   */
+  public SharedCuckooFilter(int bucketCount, Function1<T, Long> hasher)
+  {
+    super(bucketCount, hasher);
+    buckets = new AtomicLongArray(bucketCount);
+    size = new AtomicLong();
+    lock = new ReentrantLock();
+    relocations = new AtomicInteger();
+  }
+
+  /**
+   * Reads a filter written by serialize(), starting at the buffer's position and advancing it past the filter. Items are hashed with
+   * HashingUtils.objectToInt64(). This is an O(m) operation in the number of buckets.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  public static <T> SharedCuckooFilter<T> deserialize(ByteBuffer buffer)
+      throws IOException
+  {
+    return deserialize(buffer, null);
+  }
+
+  /**
+   * Reads a filter written by serialize(), starting at the buffer's position and advancing it past the filter. Items are hashed with the
+   * given function, which should be the one the filter was built with. This is an O(m) operation in the number of buckets.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized filter.
+   */
+  public static <T> SharedCuckooFilter<T> deserialize(ByteBuffer buffer, Function1<T, Long> hasher)
+      throws IOException
+  {
+    checkHeader(buffer);
+    buffer.getInt();
+    int bucketCount = buffer.getInt();
+
+    SharedCuckooFilter<T> result = new SharedCuckooFilter<T>(bucketCount, hasher);
+    result.size.set(buffer.getLong());
+    for (int i = 0; i < bucketCount; i++)
+      result.buckets.set(i, buffer.getLong());
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean addHash(long hash)
+  {
+    int index1 = primaryIndex(hash);
+    char fingerprint = fingerprint(hash);
+    int index2 = alternateIndex(index1, fingerprint);
+
+    if (insertIntoFreeSlot(index1, fingerprint) || insertIntoFreeSlot(index2, fingerprint))
+    {
+      size.incrementAndGet();
+      return true;
+    }
+
+    lock.lock();
+    try
+    {
+      // slots may have been freed while waiting
+      if (!insertIntoFreeSlot(index1, fingerprint) && !insertIntoFreeSlot(index2, fingerprint))
+      {
+        relocations.incrementAndGet();
+        try
+        {
+          if (!relocate(index1, index2, fingerprint))
+            return false;
+        }
+        finally
+        {
+          relocations.incrementAndGet();
+        }
+      }
+
+      size.incrementAndGet();
+      return true;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean mightContainHash(long hash)
+  {
+    int index1 = primaryIndex(hash);
+    char fingerprint = fingerprint(hash);
+    int index2 = alternateIndex(index1, fingerprint);
+
+    while (true)
+    {
+      int version = relocations.get();
+      if (bucketContains(buckets.get(index1), fingerprint) || bucketContains(buckets.get(index2), fingerprint))
+        return true;
+
+      // a miss is only reliable if no fingerprints moved while looking
+      if ((version & 1) == 0 && relocations.get() == version)
+        return false;
+
+      Thread.yield();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean removeHash(long hash)
+  {
+    int index1 = primaryIndex(hash);
+    char fingerprint = fingerprint(hash);
+
+    lock.lock();
+    try
+    {
+      if (removeFromBucket(index1, fingerprint) || removeFromBucket(alternateIndex(index1, fingerprint), fingerprint))
+      {
+        size.decrementAndGet();
+        return true;
+      }
+
+      return false;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long size()
+  {
+    return size.get();
+  }
+
+  /**
+   * Removes all items. This is not atomic with respect to concurrent adds, which may or may not be retained.
+   */
+  @Override
+  public void clear()
+  {
+    lock.lock();
+    try
+    {
+      for (int i = 0; i < bucketCount; i++)
+        buckets.set(i, 0);
+      size.set(0);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected long getBucket(int index)
+  {
+    return buckets.get(index);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected boolean compareAndSetBucket(int index, long expected, long value)
+  {
+    return buckets.compareAndSet(index, expected, value);
+  }
+}
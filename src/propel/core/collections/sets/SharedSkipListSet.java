@@ -0,0 +1,532 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sets;
+
+import propel.core.collections.ReifiedIterable;
+import propel.core.collections.lists.ReifiedArrayList;
+import propel.core.collections.lists.ReifiedList;
+import propel.core.utils.Linq;
+import propel.core.utils.SuperTypeToken;
+import propel.core.utils.SuperTypeTokenException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A type-aware thread-safe ordered set backed by a lock-free skip list, suited to many threads inserting and removing concurrently, e.g.
+ * timestamps or identifiers. Unlike SharedAvlTreeSet, which serializes all access, single-item operations never lock and scale with the
+ * number of threads. Iterators and range scans are weakly consistent: they never throw ConcurrentModificationException, and reflect some
+ * of the modifications made after their creation. This collection does not allow null items to be inserted.
+ * 
+ * The set cannot be locked, as an exclusive lock would have to be acquired by every operation: it does not implement IShared. Bulk
+ * operations (replaceAll, union, intersect and difference) are therefore not atomic, concurrent operations may observe them partially
+ * applied.
+ * 
+ * Instantiate using e.g.: new SharedSkipListSet&lt;String&gt;(){}; -OR- new SharedSkipListSet&lt;String&gt;(String.class);
+ */
+public class SharedSkipListSet<T extends Comparable<T>>
+    implements ReifiedSet<T>
+{
+  private final ConcurrentSkipListSet<T> set = new ConcurrentSkipListSet<T>();
+  private final AtomicInteger count = new AtomicInteger();
+  private final Class<?> genericTypeParameter;
+
+  /**
+   * Default constructor
+   * 
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public SharedSkipListSet()
+  {
+    genericTypeParameter = SuperTypeToken.getClazz(this.getClass());
+  }
+
+  /**
+   * Constructor for initializing with the generic type parameter
+   * 
+   * @throws NullPointerException When the generic type parameter is null.
+   */
+  public SharedSkipListSet(Class<?> genericTypeParameter)
+  {
+    if (genericTypeParameter == null)
+      throw new NullPointerException("genericTypeParameter");
+
+    this.genericTypeParameter = genericTypeParameter;
+  }
+
+  /**
+   * Constructor initializes from another reified collection
+   * 
+   * @throws NullPointerException When the argument is null, or an item in the collection is null.
+   */
+  public SharedSkipListSet(ReifiedIterable<T> iterable)
+  {
+    if (iterable == null)
+      throw new NullPointerException("iterable");
+
+    genericTypeParameter = iterable.getGenericTypeParameter();
+    addAll(iterable);
+  }
+
+  /**
+   * Constructor initializes with an initial collection and this class's generic type parameter
+   * 
+   * @throws NullPointerException When the argument is null, or an item in the collection is null.
+   * @throws SuperTypeTokenException When called without using anonymous class semantics.
+   */
+  public SharedSkipListSet(Iterable<? extends T> iterable)
+  {
+    this();
+    if (iterable == null)
+      throw new NullPointerException("iterable");
+
+    addAll(iterable);
+  }
+
+  /**
+   * Constructor initializes with an initial collection and the generic type parameter
+   * 
+   * @throws NullPointerException When an argument is null, or an item in the collection is null.
+   */
+  public SharedSkipListSet(Iterable<? extends T> iterable, Class<?> genericTypeParameter)
+  {
+    this(genericTypeParameter);
+    if (iterable == null)
+      throw new NullPointerException("iterable");
+
+    addAll(iterable);
+  }
+
+  /**
+   * Constructor initializes with an array
+   * 
+   * @throws NullPointerException When the argument is null, or an item in the array is null.
+   */
+  public SharedSkipListSet(T[] array)
+  {
+    if (array == null)
+      throw new NullPointerException("array");
+
+    genericTypeParameter = array.getClass().getComponentType();
+    for (T item : array)
+      add(item);
+  }
+
+  /**
+   * Adds an item, returning true if it was not already contained. This is an expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  @Override
+  public boolean add(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    if (!set.add(item))
+      return false;
+
+    count.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Removes all items. This is an O(n) operation and does not lock.
+   */
+  @Override
+  public void clear()
+  {
+    while (set.pollFirst() != null)
+      count.decrementAndGet();
+  }
+
+  /**
+   * Returns true if the item is contained. This is an expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  @Override
+  public boolean contains(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    return set.contains(item);
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the items, in ascending order. No copy is made and no lock is taken.
+   */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return Collections.unmodifiableSet(set).iterator();
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the items, in descending order. No copy is made and no lock is taken.
+   */
+  public Iterator<T> descendingIterator()
+  {
+    return Collections.unmodifiableSet(set.descendingSet()).iterator();
+  }
+
+  /**
+   * Removes an item, returning true if it was found. This is an expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  @Override
+  public boolean remove(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    if (!set.remove(item))
+      return false;
+
+    count.decrementAndGet();
+    return true;
+  }
+
+  /**
+   * Clears the set and adds the given items. Returns true for items that were added, false for duplicates. Concurrent readers may observe
+   * the set partially cleared or filled. This is an expected O(mlog2(m)) operation where m is the provided element count.
+   * 
+   * @throws NullPointerException When the argument is null, or an item is null.
+   */
+  public Iterable<Boolean> replaceAll(Collection<? extends T> items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    clear();
+    return addAll(items);
+  }
+
+  /**
+   * Returns the number of items. This is an O(1) operation and does not lock.
+   */
+  @Override
+  public int size()
+  {
+    return count.get();
+  }
+
+  /**
+   * Puts all items in an array and returns them, in ascending order. This is an O(n) operation and does not lock.
+   */
+  @Override
+  public T[] toArray()
+  {
+    return toList().toArray();
+  }
+
+  /**
+   * Puts all items in a list and returns them, in ascending order. This is an O(n) operation and does not lock.
+   */
+  @Override
+  public ReifiedList<T> toList()
+  {
+    return new ReifiedArrayList<T>(set, genericTypeParameter);
+  }
+
+  /**
+   * This operation combines this set with another set i.e. this set will add to this collection all non-preexisting items found in the
+   * other set. This is an expected O(mlog2(n)) operation.
+   * 
+   * @throws NullPointerException If the other set is null, or contains a null item.
+   */
+  @Override
+  public void union(Set<? extends T> otherSet)
+  {
+    if (otherSet == null)
+      throw new NullPointerException("otherSet");
+
+    addAll(otherSet);
+  }
+
+  /**
+   * This operation only keeps elements that are common between the two sets. This is an O(nlog2(n)) operation, assuming an O(1) lookup in
+   * the other set.
+   * 
+   * @throws NullPointerException When the other set is null.
+   */
+  @Override
+  public void intersect(Set<? extends T> otherSet)
+  {
+    if (otherSet == null)
+      throw new NullPointerException("otherSet");
+
+    for (T item : set)
+      if (!otherSet.contains(item))
+        remove(item);
+  }
+
+  /**
+   * This operation removes from this set all items that are common between both sets. This is an expected O(mlog2(n)) operation.
+   * 
+   * @throws NullPointerException If the other set is null, or contains a null item.
+   */
+  @Override
+  public void difference(Set<? extends T> otherSet)
+  {
+    if (otherSet == null)
+      throw new NullPointerException("otherSet");
+
+    for (T item : otherSet)
+      remove(item);
+  }
+
+  /**
+   * Returns the least item, or null if empty. This is an O(1) operation and does not lock.
+   */
+  public T first()
+  {
+    return firstOrNull(set);
+  }
+
+  /**
+   * Returns the greatest item, or null if empty. This is an expected O(log2(n)) operation and does not lock.
+   */
+  public T last()
+  {
+    return firstOrNull(set.descendingSet());
+  }
+
+  /**
+   * Returns the greatest item less than or equal to the given item, or null if there is no such item. This is an expected O(log2(n))
+   * operation and does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T floor(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    return set.floor(item);
+  }
+
+  /**
+   * Returns the least item greater than or equal to the given item, or null if there is no such item. This is an expected O(log2(n))
+   * operation and does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T ceiling(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    return set.ceiling(item);
+  }
+
+  /**
+   * Returns the greatest item strictly less than the given item, or null if there is no such item. This is an expected O(log2(n))
+   * operation and does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T lower(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    return set.lower(item);
+  }
+
+  /**
+   * Returns the least item strictly greater than the given item, or null if there is no such item. This is an expected O(log2(n))
+   * operation and does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public T higher(T item)
+  {
+    if (item == null)
+      throw new NullPointerException("item");
+
+    return set.higher(item);
+  }
+
+  /**
+   * Removes and returns the least item, or null if empty. This is an expected O(log2(n)) operation and does not lock.
+   */
+  public T pollFirst()
+  {
+    T result = set.pollFirst();
+    if (result != null)
+      count.decrementAndGet();
+
+    return result;
+  }
+
+  /**
+   * Returns the items ranging from fromItem (inclusive) to toItem (exclusive), in ascending order. The range is scanned lazily and weakly
+   * consistently, concurrently with modifications. This does not lock.
+   * 
+   * @throws NullPointerException When an item is null.
+   * @throws IllegalArgumentException When fromItem is greater than toItem.
+   */
+  public ReifiedIterable<T> subSet(T fromItem, T toItem)
+  {
+    return subSet(fromItem, true, toItem, false);
+  }
+
+  /**
+   * Returns the items ranging from fromItem to toItem, in ascending order. The range is scanned lazily and weakly consistently,
+   * concurrently with modifications. Locating the start of the range is an expected O(log2(n)) operation and does not lock.
+   * 
+   * @throws NullPointerException When an item is null.
+   * @throws IllegalArgumentException When fromItem is greater than toItem.
+   */
+  public ReifiedIterable<T> subSet(T fromItem, boolean fromInclusive, T toItem, boolean toInclusive)
+  {
+    if (fromItem == null)
+      throw new NullPointerException("fromItem");
+    if (toItem == null)
+      throw new NullPointerException("toItem");
+    if (fromItem.compareTo(toItem) > 0)
+      throw new IllegalArgumentException("fromItem=" + fromItem + " toItem=" + toItem);
+
+    return new SkipListRange<T>(set.subSet(fromItem, fromInclusive, toItem, toInclusive), genericTypeParameter);
+  }
+
+  /**
+   * Returns the items strictly less than toItem, in ascending order, scanned lazily and weakly consistently. This does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public ReifiedIterable<T> headSet(T toItem)
+  {
+    return headSet(toItem, false);
+  }
+
+  /**
+   * Returns the items less than (or equal to, if inclusive is true) toItem, in ascending order, scanned lazily and weakly consistently.
+   * This does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public ReifiedIterable<T> headSet(T toItem, boolean inclusive)
+  {
+    if (toItem == null)
+      throw new NullPointerException("toItem");
+
+    return new SkipListRange<T>(set.headSet(toItem, inclusive), genericTypeParameter);
+  }
+
+  /**
+   * Returns the items greater than or equal to fromItem, in ascending order, scanned lazily and weakly consistently. This does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public ReifiedIterable<T> tailSet(T fromItem)
+  {
+    return tailSet(fromItem, true);
+  }
+
+  /**
+   * Returns the items greater than (or equal to, if inclusive is true) fromItem, in ascending order, scanned lazily and weakly
+   * consistently. This does not lock.
+   * 
+   * @throws NullPointerException When the item is null.
+   */
+  public ReifiedIterable<T> tailSet(T fromItem, boolean inclusive)
+  {
+    if (fromItem == null)
+      throw new NullPointerException("fromItem");
+
+    return new SkipListRange<T>(set.tailSet(fromItem, inclusive), genericTypeParameter);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getGenericTypeParameter()
+  {
+    return genericTypeParameter;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Linq.toString(this);
+  }
+
+  private List<Boolean> addAll(Iterable<? extends T> items)
+  {
+    List<Boolean> result = new ArrayList<Boolean>(64);
+    for (T item : items)
+      result.add(add(item));
+
+    return result;
+  }
+
+  private static <T> T firstOrNull(NavigableSet<T> set)
+  {
+    Iterator<T> iterator = set.iterator();
+    return iterator.hasNext() ? iterator.next() : null;
+  }
+
+  /**
+   * A read-only, weakly consistent range of a skip list set
+   */
+  private static final class SkipListRange<T>
+      implements ReifiedIterable<T>
+  {
+    private final NavigableSet<T> range;
+    private final Class<?> genericTypeParameter;
+
+    SkipListRange(NavigableSet<T> range, Class<?> genericTypeParameter)
+    {
+      this.range = range;
+      this.genericTypeParameter = genericTypeParameter;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+      return Collections.unmodifiableSet(range).iterator();
+    }
+
+    @Override
+    public Class<?> getGenericTypeParameter()
+    {
+      return genericTypeParameter;
+    }
+
+    @Override
+    public String toString()
+    {
+      return Linq.toString(this);
+    }
+  }
+}
@@ -0,0 +1,305 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sketches;
+
+import propel.core.functional.Functions.Function1;
+import propel.core.utils.HashingUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Estimates the frequencies of the items of a stream in constant memory, using a Count-Min sketch. Estimates never undercount; with
+ * probability 1 - delta they overcount by at most epsilon times the total count of all items. The sketch holds ceil(ln(1 / delta)) rows of
+ * ceil(e / epsilon) counters.
+ * 
+ * Items are hashed to 64 bits, by default using HashingUtils.objectToInt64(), and their counter in each row is derived by double hashing.
+ * This class is not thread-safe.
+ * 
+ * @param <T> The item type.
+ */
+public final class CountMinSketch<T>
+{
+  private static final int SERIAL_COOKIE = 0x434D5331;
+  private final int depth;
+  private final int width;
+  private final long[] counters;
+  private final Function1<T, Long> hasher;
+  private long totalCount;
+
+  /**
+   * Constructor initializes a sketch with the given error bounds, hashing items with HashingUtils.objectToInt64().
+   * 
+   * @param epsilon The maximum overcount, as a fraction of the total count.
+   * @param delta The probability of exceeding the maximum overcount.
+   * 
+   * @throws IllegalArgumentException When a probability is not between 0 and 1 exclusive, or the sketch would be too large.
+   */
+  public CountMinSketch(double epsilon, double delta)
+  {
+    this(epsilon, delta, null);
+  }
+
+  /**
+   * Constructor initializes a sketch with the given error bounds, hashing items with the given function, or HashingUtils.objectToInt64()
+   * if null.
+   * 
+   * @param epsilon The maximum overcount, as a fraction of the total count.
+   * @param delta The probability of exceeding the maximum overcount.
+   * 
+   * @throws IllegalArgumentException When a probability is not between 0 and 1 exclusive, or the sketch would be too large.
+   */
+  public CountMinSketch(double epsilon, double delta, Function1<T, Long> hasher)
+  {
+    this(depthOf(delta), widthOf(epsilon), hasher);
+  }
+
+  /**
+   * Constructor initializes a sketch with the given dimensions, hashing items with the given function, or HashingUtils.objectToInt64() if
+   * null.
+   * 
+   * @throws IllegalArgumentException When a dimension is not positive, or the sketch would be too large.
+   */
+  public CountMinSketch(int depth, int width, Function1<T, Long> hasher)
+  {
+    if (depth <= 0 || depth > 64)
+      throw new IllegalArgumentException("depth=" + depth);
+    if (width <= 0 || (long) depth * width > Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("width=" + width);
+
+    this.depth = depth;
+    this.width = width;
+    this.hasher = hasher;
+    counters = new long[depth * width];
+  }
+
+  /**
+   * Counts one occurrence of an item. This is an O(d) operation in the depth of the sketch.
+   */
+  public void add(T item)
+  {
+    addHash(hash(item), 1);
+  }
+
+  /**
+   * Counts a number of occurrences of an item. This is an O(d) operation in the depth of the sketch.
+   * 
+   * @throws IllegalArgumentException When the count is negative.
+   */
+  public void add(T item, long count)
+  {
+    addHash(hash(item), count);
+  }
+
+  /**
+   * Counts a number of occurrences of an item by its 64-bit hash. This is an O(d) operation in the depth of the sketch.
+   * 
+   * @throws IllegalArgumentException When the count is negative.
+   */
+  public void addHash(long hash, long count)
+  {
+    if (count < 0)
+      throw new IllegalArgumentException("count=" + count);
+
+    long h2 = HashingUtils.secondHash(hash);
+    long combined = hash;
+    for (int row = 0; row < depth; row++)
+    {
+      counters[row * width + (int) ((combined & Long.MAX_VALUE) % width)] += count;
+      combined += h2;
+    }
+
+    totalCount += count;
+  }
+
+  /**
+   * Counts one occurrence of each item. This is an O(nd) operation.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void addAll(Iterable<? extends T> items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    for (T item : items)
+      add(item);
+  }
+
+  /**
+   * Returns the estimated number of occurrences of an item, which is never less than the actual number. This is an O(d) operation in the
+   * depth of the sketch.
+   */
+  public long estimateCount(T item)
+  {
+    return estimateCountHash(hash(item));
+  }
+
+  /**
+   * Returns the estimated number of occurrences of an item by its 64-bit hash, which is never less than the actual number. This is an O(d)
+   * operation in the depth of the sketch.
+   */
+  public long estimateCountHash(long hash)
+  {
+    long h2 = HashingUtils.secondHash(hash);
+    long combined = hash;
+    long result = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++)
+    {
+      result = Math.min(result, counters[row * width + (int) ((combined & Long.MAX_VALUE) % width)]);
+      combined += h2;
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds the counts of another sketch of the same dimensions to this one. This is an O(dw) operation.
+   * 
+   * @throws NullPointerException When the argument is null.
+   * @throws IllegalArgumentException When the sketches have different dimensions.
+   */
+  public void merge(CountMinSketch<T> other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+    if (other.depth != depth || other.width != width)
+      throw new IllegalArgumentException("depth=" + other.depth + " width=" + other.width);
+
+    for (int i = 0; i < counters.length; i++)
+      counters[i] += other.counters[i];
+
+    totalCount += other.totalCount;
+  }
+
+  /**
+   * Resets all counts
+   */
+  public void clear()
+  {
+    Arrays.fill(counters, 0);
+    totalCount = 0;
+  }
+
+  /**
+   * Returns the sum of all counts added
+   */
+  public long getTotalCount()
+  {
+    return totalCount;
+  }
+
+  /**
+   * Returns the number of rows of counters
+   */
+  public int getDepth()
+  {
+    return depth;
+  }
+
+  /**
+   * Returns the number of counters per row
+   */
+  public int getWidth()
+  {
+    return width;
+  }
+
+  /**
+   * Returns the number of bytes written by serialize()
+   */
+  public int serializedSizeInBytes()
+  {
+    return 20 + 8 * counters.length;
+  }
+
+  /**
+   * Writes this sketch at the buffer's position, advancing the position by serializedSizeInBytes(). This is an O(dw) operation.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws java.nio.BufferOverflowException When the buffer has insufficient space remaining.
+   */
+  public void serialize(ByteBuffer buffer)
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    buffer.putInt(SERIAL_COOKIE);
+    buffer.putInt(depth);
+    buffer.putInt(width);
+    buffer.putLong(totalCount);
+    for (long counter : counters)
+      buffer.putLong(counter);
+  }
+
+  /**
+   * Reads a sketch written by serialize(), starting at the buffer's position and advancing it past the sketch. Items are hashed with the
+   * given function, which should be the one the sketch was built with, or HashingUtils.objectToInt64() if null.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized sketch.
+   */
+  public static <T> CountMinSketch<T> deserialize(ByteBuffer buffer, Function1<T, Long> hasher)
+      throws IOException
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    if (buffer.remaining() < 20 || buffer.getInt() != SERIAL_COOKIE)
+      throw new IOException("The buffer does not contain a serialized Count-Min sketch.");
+
+    int depth = buffer.getInt();
+    int width = buffer.getInt();
+    long totalCount = buffer.getLong();
+    if (depth <= 0 || depth > 64 || width <= 0 || (long) depth * width * 8 > buffer.remaining())
+      throw new IOException("The serialized Count-Min sketch is corrupt.");
+
+    CountMinSketch<T> result = new CountMinSketch<T>(depth, width, hasher);
+    result.totalCount = totalCount;
+    for (int i = 0; i < result.counters.length; i++)
+      result.counters[i] = buffer.getLong();
+
+    return result;
+  }
+
+  private long hash(T item)
+  {
+    return hasher == null ? HashingUtils.objectToInt64(item) : hasher.apply(item);
+  }
+
+  private static int depthOf(double delta)
+  {
+    if (!(delta > 0 && delta < 1))
+      throw new IllegalArgumentException("delta=" + delta);
+
+    return (int) Math.ceil(Math.log(1 / delta));
+  }
+
+  private static int widthOf(double epsilon)
+  {
+    if (!(epsilon > 0 && epsilon < 1))
+      throw new IllegalArgumentException("epsilon=" + epsilon);
+
+    double width = Math.ceil(Math.E / epsilon);
+    if (width > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("epsilon=" + epsilon);
+
+    return (int) width;
+  }
+}
@@ -0,0 +1,457 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sketches;
+
+import propel.core.functional.Functions.Function1;
+import propel.core.utils.HashingUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Estimates the number of distinct items of a stream in constant memory, using the HyperLogLog algorithm. The relative standard error is
+ * about 1.04 / sqrt(2^p) for precision p, e.g. 0.8% at the default precision of 14, using 16KB.
+ * 
+ * Small sketches use a sparse encoding, a sorted list of the registers that are set at a higher precision of 25 bits, which is both
+ * smaller and more accurate while few distinct items have been seen. Sketches switch to the dense encoding, one byte per register, when that
+ * becomes smaller. Sketches of the same precision can be merged, e.g. to combine per-thread or per-node counts.
+ * 
+ * Items are hashed to 64 bits, by default using HashingUtils.objectToInt64(). This class is not thread-safe.
+ * 
+ * @param <T> The item type.
+ */
+public final class HyperLogLog<T>
+{
+  /**
+   * The default precision
+   */
+  public static final int DEFAULT_PRECISION = 14;
+  /**
+   * The minimum precision
+   */
+  public static final int MIN_PRECISION = 4;
+  /**
+   * The maximum precision
+   */
+  public static final int MAX_PRECISION = 18;
+  private static final int SPARSE_PRECISION = 25;
+  private static final int SERIAL_COOKIE = 0x484C4C31;
+  private final int precision;
+  private final Function1<T, Long> hasher;
+  // dense registers, or null while sparse
+  private byte[] registers;
+  // sorted sparse entries, each a 25-bit register index followed by a 6-bit register value, and unsorted entries pending a merge
+  private int[] sparse;
+  private int sparseCount;
+  private int[] pending;
+  private int pendingCount;
+
+  /**
+   * Default constructor, creates a sketch of the default precision, hashing items with HashingUtils.objectToInt64()
+   */
+  public HyperLogLog()
+  {
+    this(DEFAULT_PRECISION, null);
+  }
+
+  /**
+   * Constructor initializes a sketch of the given precision, hashing items with the given function, or HashingUtils.objectToInt64() if
+   * null.
+   * 
+   * @throws IllegalArgumentException When the precision is out of range.
+   */
+  public HyperLogLog(int precision, Function1<T, Long> hasher)
+  {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+      throw new IllegalArgumentException("precision=" + precision);
+
+    this.precision = precision;
+    this.hasher = hasher;
+    sparse = new int[0];
+    pending = new int[16];
+  }
+
+  /**
+   * Adds an item. This is an O(1) operation, amortised in the sparse encoding.
+   */
+  public void add(T item)
+  {
+    addHash(hasher == null ? HashingUtils.objectToInt64(item) : hasher.apply(item));
+  }
+
+  /**
+   * Adds an item by its 64-bit hash. This is an O(1) operation, amortised in the sparse encoding.
+   */
+  public void addHash(long hash)
+  {
+    if (registers != null)
+    {
+      int index = (int) (hash >>> (64 - precision));
+      byte rank = (byte) rank(hash << precision, 64 - precision);
+      if (registers[index] < rank)
+        registers[index] = rank;
+    } else
+    {
+      int index = (int) (hash >>> (64 - SPARSE_PRECISION));
+      int rank = rank(hash << SPARSE_PRECISION, 64 - SPARSE_PRECISION);
+      addSparseEntry((index << 6) | rank);
+    }
+  }
+
+  /**
+   * Adds all items. This is an O(n) operation.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void addAll(Iterable<? extends T> items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    for (T item : items)
+      add(item);
+  }
+
+  /**
+   * Adds all items. This is an O(n) operation.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void addAll(T[] items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    for (T item : items)
+      add(item);
+  }
+
+  /**
+   * Returns the estimated number of distinct items added. This is an O(2^p) operation.
+   */
+  public long cardinality()
+  {
+    if (registers == null)
+    {
+      mergePending();
+
+      // linear counting over the sparse registers, which is accurate while few of them are set
+      double m = 1 << SPARSE_PRECISION;
+      return Math.round(m * Math.log(m / (m - sparseCount)));
+    }
+
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers)
+    {
+      sum += 1.0 / (1L << register);
+      if (register == 0)
+        zeros++;
+    }
+
+    double estimate = alpha(m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0)
+      estimate = m * Math.log((double) m / zeros);
+
+    return Math.round(estimate);
+  }
+
+  /**
+   * Adds the items of another sketch of the same precision to this one. This is an O(2^p) operation.
+   * 
+   * @throws NullPointerException When the argument is null.
+   * @throws IllegalArgumentException When the sketches have different precisions.
+   */
+  public void merge(HyperLogLog<T> other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+    if (other.precision != precision)
+      throw new IllegalArgumentException("precision=" + other.precision);
+
+    if (other.registers == null)
+    {
+      other.mergePending();
+      for (int i = 0; i < other.sparseCount; i++)
+        if (registers != null)
+          addSparseEntryToDense(other.sparse[i]);
+        else
+          addSparseEntry(other.sparse[i]);
+
+      return;
+    }
+
+    if (registers == null)
+      toDense();
+
+    for (int i = 0; i < registers.length; i++)
+      if (registers[i] < other.registers[i])
+        registers[i] = other.registers[i];
+  }
+
+  /**
+   * Removes all items, reverting to the sparse encoding
+   */
+  public void clear()
+  {
+    registers = null;
+    sparse = new int[0];
+    sparseCount = 0;
+    pending = new int[16];
+    pendingCount = 0;
+  }
+
+  /**
+   * Returns the precision, i.e. the base-2 logarithm of the number of registers
+   */
+  public int getPrecision()
+  {
+    return precision;
+  }
+
+  /**
+   * Returns true while the sketch uses the sparse encoding
+   */
+  public boolean isSparse()
+  {
+    return registers == null;
+  }
+
+  /**
+   * Returns the relative standard error of the estimate of a sketch of this precision
+   */
+  public double relativeStandardError()
+  {
+    return 1.04 / Math.sqrt(1 << precision);
+  }
+
+  /**
+   * Returns the number of bytes written by serialize()
+   */
+  public int serializedSizeInBytes()
+  {
+    if (registers != null)
+      return 12 + registers.length;
+
+    mergePending();
+    return 12 + 4 * sparseCount;
+  }
+
+  /**
+   * Writes this sketch at the buffer's position, advancing the position by serializedSizeInBytes(). This is an O(2^p) operation.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws java.nio.BufferOverflowException When the buffer has insufficient space remaining.
+   */
+  public void serialize(ByteBuffer buffer)
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    buffer.putInt(SERIAL_COOKIE);
+    buffer.put((byte) precision);
+    buffer.put((byte) (registers == null ? 0 : 1));
+    buffer.putShort((short) 0);
+    if (registers != null)
+    {
+      buffer.putInt(registers.length);
+      buffer.put(registers);
+    } else
+    {
+      mergePending();
+      buffer.putInt(sparseCount);
+      for (int i = 0; i < sparseCount; i++)
+        buffer.putInt(sparse[i]);
+    }
+  }
+
+  /**
+   * Reads a sketch written by serialize(), starting at the buffer's position and advancing it past the sketch. Items are hashed with
+   * HashingUtils.objectToInt64().
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized sketch.
+   */
+  public static <T> HyperLogLog<T> deserialize(ByteBuffer buffer)
+      throws IOException
+  {
+    return deserialize(buffer, null);
+  }
+
+  /**
+   * Reads a sketch written by serialize(), starting at the buffer's position and advancing it past the sketch. Items are hashed with the
+   * given function, which should be the one the sketch was built with.
+   * 
+   * @throws NullPointerException When the buffer is null.
+   * @throws IOException When the buffer does not contain a serialized sketch.
+   */
+  public static <T> HyperLogLog<T> deserialize(ByteBuffer buffer, Function1<T, Long> hasher)
+      throws IOException
+  {
+    if (buffer == null)
+      throw new NullPointerException("buffer");
+
+    if (buffer.remaining() < 12 || buffer.getInt() != SERIAL_COOKIE)
+      throw new IOException("The buffer does not contain a serialized HyperLogLog sketch.");
+
+    int precision = buffer.get();
+    boolean dense = buffer.get() != 0;
+    buffer.getShort();
+    int count = buffer.getInt();
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION || count < 0 || count > (dense ? 1 : 4) * (long) buffer.remaining()
+        || (dense && count != 1 << precision))
+      throw new IOException("The serialized HyperLogLog sketch is corrupt.");
+
+    HyperLogLog<T> result = new HyperLogLog<T>(precision, hasher);
+    if (dense)
+    {
+      result.registers = new byte[count];
+      buffer.get(result.registers);
+    } else
+    {
+      result.sparse = new int[count];
+      for (int i = 0; i < count; i++)
+      {
+        result.sparse[i] = buffer.getInt();
+        if (result.sparse[i] < 0 || (i > 0 && (result.sparse[i] >>> 6) <= (result.sparse[i - 1] >>> 6)))
+          throw new IOException("The serialized HyperLogLog sketch is corrupt.");
+      }
+
+      result.sparseCount = count;
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "HyperLogLog(precision=" + precision + (registers == null ? " sparse" : " dense") + ", cardinality=" + cardinality() + ")";
+  }
+
+  /**
+   * Returns the register value for the remaining hash bits, i.e. the position of their leftmost set bit, up to the number of bits plus one
+   */
+  private static int rank(long bits, int bitCount)
+  {
+    return Math.min(Long.numberOfLeadingZeros(bits), bitCount) + 1;
+  }
+
+  private static double alpha(int m)
+  {
+    switch(m)
+    {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1 + 1.079 / m);
+    }
+  }
+
+  /**
+   * Adds an entry to the sparse encoding, switching to the dense encoding when that becomes smaller
+   */
+  private void addSparseEntry(int entry)
+  {
+    if (pendingCount == pending.length)
+    {
+      mergePending();
+      if (4 * sparseCount > 1 << precision)
+      {
+        toDense();
+        addSparseEntryToDense(entry);
+        return;
+      }
+    }
+
+    pending[pendingCount++] = entry;
+  }
+
+  /**
+   * Sorts the pending sparse entries and merges them with the sorted ones, keeping the greatest value per register
+   */
+  private void mergePending()
+  {
+    if (pendingCount == 0)
+      return;
+
+    Arrays.sort(pending, 0, pendingCount);
+    int[] merged = new int[sparseCount + pendingCount];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < sparseCount || j < pendingCount)
+    {
+      int entry;
+      if (j == pendingCount || (i < sparseCount && sparse[i] < pending[j]))
+        entry = sparse[i++];
+      else
+        entry = pending[j++];
+
+      // entries of the same register sort by ascending value, so the last one wins
+      if (count > 0 && (merged[count - 1] >>> 6) == (entry >>> 6))
+        merged[count - 1] = entry;
+      else
+        merged[count++] = entry;
+    }
+
+    sparse = merged;
+    sparseCount = count;
+    pendingCount = 0;
+
+    if (pending.length < sparseCount && pending.length < 1 << 12)
+      pending = new int[pending.length << 1];
+  }
+
+  private void toDense()
+  {
+    mergePending();
+    registers = new byte[1 << precision];
+    for (int i = 0; i < sparseCount; i++)
+      addSparseEntryToDense(sparse[i]);
+
+    sparse = null;
+    sparseCount = 0;
+    pending = null;
+  }
+
+  /**
+   * Converts a sparse entry to the register index and value it has at the dense precision
+   */
+  private void addSparseEntryToDense(int entry)
+  {
+    int sparseIndex = entry >>> 6;
+    int extraBits = SPARSE_PRECISION - precision;
+    int index = sparseIndex >>> extraBits;
+    int low = sparseIndex & ((1 << extraBits) - 1);
+
+    // the extra index bits are the leading bits of the dense register's remaining hash bits
+    int rank = low != 0 ? Integer.numberOfLeadingZeros(low) - (32 - extraBits) + 1 : extraBits + (entry & 63);
+    if (registers[index] < rank)
+      registers[index] = (byte) rank;
+  }
+}
@@ -0,0 +1,291 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.collections.sketches;
+
+import propel.core.collections.KeyValuePair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks the most frequent items of a stream in constant memory, using the Space-Saving algorithm. At most a given number of items are
+ * counted at a time; an untracked item takes over the counter of the least frequent tracked item, inheriting its count as an error bound.
+ * Any item occurring more than totalCount / capacity times is guaranteed to be tracked, and tracked counts overestimate by at most the
+ * least tracked count.
+ * 
+ * This class is not thread-safe.
+ * 
+ * @param <T> The item type.
+ */
+public final class SpaceSaving<T>
+{
+  private final int capacity;
+  private final Map<T, Counter<T>> counters;
+  // min-heap of the counters by count
+  private final Counter<T>[] heap;
+  private int size;
+  private long totalCount;
+
+  /**
+   * Constructor initializes with the maximum number of items tracked at a time, which should be a few times larger than the number of top
+   * items needed.
+   * 
+   * @throws IllegalArgumentException When the capacity is not positive.
+   */
+  public SpaceSaving(int capacity)
+  {
+    if (capacity <= 0)
+      throw new IllegalArgumentException("capacity=" + capacity);
+
+    this.capacity = capacity;
+    counters = new HashMap<T, Counter<T>>(capacity * 2);
+    @SuppressWarnings("unchecked")
+    Counter<T>[] table = (Counter<T>[]) new Counter<?>[capacity];
+    heap = table;
+  }
+
+  /**
+   * Counts one occurrence of an item. This is an O(log2(k)) operation in the capacity.
+   */
+  public void add(T item)
+  {
+    add(item, 1);
+  }
+
+  /**
+   * Counts a number of occurrences of an item. This is an O(log2(k)) operation in the capacity.
+   * 
+   * @throws IllegalArgumentException When the count is negative.
+   */
+  public void add(T item, long count)
+  {
+    if (count < 0)
+      throw new IllegalArgumentException("count=" + count);
+
+    totalCount += count;
+    Counter<T> counter = counters.get(item);
+    if (counter == null && size < capacity)
+    {
+      counter = new Counter<T>(item, count, size);
+      counters.put(item, counter);
+      heap[size++] = counter;
+      siftUp(counter.heapIndex);
+      return;
+    }
+
+    if (counter == null)
+    {
+      // replace the least frequent item
+      counter = heap[0];
+      counters.remove(counter.item);
+      counter.item = item;
+      counter.error = counter.count;
+      counters.put(item, counter);
+    }
+
+    counter.count += count;
+    siftDown(counter.heapIndex);
+  }
+
+  /**
+   * Counts one occurrence of each item. This is an O(n log2(k)) operation.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public void addAll(Iterable<? extends T> items)
+  {
+    if (items == null)
+      throw new NullPointerException("items");
+
+    for (T item : items)
+      add(item);
+  }
+
+  /**
+   * Returns the estimated number of occurrences of a tracked item, which is at most the least tracked count above the actual number, or
+   * zero if the item is not tracked. This is an O(1) operation.
+   */
+  public long estimateCount(T item)
+  {
+    Counter<T> counter = counters.get(item);
+    return counter == null ? 0 : counter.count;
+  }
+
+  /**
+   * Returns the maximum overestimate of the count of a tracked item, or zero if the item is not tracked. This is an O(1) operation.
+   */
+  public long getError(T item)
+  {
+    Counter<T> counter = counters.get(item);
+    return counter == null ? 0 : counter.error;
+  }
+
+  /**
+   * Returns up to k tracked items and their estimated counts, in descending count order. Estimated counts are overestimates, so items which
+   * entered the tracker late may outrank more frequent ones; use topGuaranteed() to rank by the guaranteed counts. This is an O(c log2(c))
+   * operation, where c is the capacity.
+   * 
+   * @throws IllegalArgumentException When k is negative.
+   */
+  public List<KeyValuePair<T, Long>> top(int k)
+  {
+    return top(k, false);
+  }
+
+  /**
+   * Returns up to k tracked items and their guaranteed counts, i.e. the estimated count minus the error, in descending guaranteed count
+   * order. Each item occurred at least as many times as its guaranteed count. This is an O(c log2(c)) operation, where c is the capacity.
+   * 
+   * @throws IllegalArgumentException When k is negative.
+   */
+  public List<KeyValuePair<T, Long>> topGuaranteed(int k)
+  {
+    return top(k, true);
+  }
+
+  private List<KeyValuePair<T, Long>> top(int k, final boolean guaranteed)
+  {
+    if (k < 0)
+      throw new IllegalArgumentException("k=" + k);
+
+    Counter<T>[] sorted = Arrays.copyOf(heap, size);
+    Arrays.sort(sorted, new Comparator<Counter<T>>() {
+      @Override
+      public int compare(Counter<T> a, Counter<T> b)
+      {
+        long x = guaranteed ? a.count - a.error : a.count;
+        long y = guaranteed ? b.count - b.error : b.count;
+        return x < y ? 1 : (x > y ? -1 : 0);
+      }
+    });
+
+    int count = Math.min(k, size);
+    List<KeyValuePair<T, Long>> result = new ArrayList<KeyValuePair<T, Long>>(count);
+    for (int i = 0; i < count; i++)
+      result.add(new KeyValuePair<T, Long>(sorted[i].item, guaranteed ? sorted[i].count - sorted[i].error : sorted[i].count));
+
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Returns the maximum number of items tracked
+   */
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of items currently tracked
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the sum of all counts added
+   */
+  public long getTotalCount()
+  {
+    return totalCount;
+  }
+
+  /**
+   * Removes all items
+   */
+  public void clear()
+  {
+    counters.clear();
+    Arrays.fill(heap, null);
+    size = 0;
+    totalCount = 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return top(size).toString();
+  }
+
+  private void siftUp(int index)
+  {
+    Counter<T> counter = heap[index];
+    while (index > 0)
+    {
+      int parent = (index - 1) >>> 1;
+      if (heap[parent].count <= counter.count)
+        break;
+
+      heap[index] = heap[parent];
+      heap[index].heapIndex = index;
+      index = parent;
+    }
+
+    heap[index] = counter;
+    counter.heapIndex = index;
+  }
+
+  private void siftDown(int index)
+  {
+    Counter<T> counter = heap[index];
+    while (true)
+    {
+      int child = 2 * index + 1;
+      if (child >= size)
+        break;
+      if (child + 1 < size && heap[child + 1].count < heap[child].count)
+        child++;
+      if (heap[child].count >= counter.count)
+        break;
+
+      heap[index] = heap[child];
+      heap[index].heapIndex = index;
+      index = child;
+    }
+
+    heap[index] = counter;
+    counter.heapIndex = index;
+  }
+
+  /**
+   * The count of a tracked item
+   */
+  private static final class Counter<T>
+  {
+    T item;
+    long count;
+    long error;
+    int heapIndex;
+
+    Counter(T item, long count, int heapIndex)
+    {
+      this.item = item;
+      this.count = count;
+      this.heapIndex = heapIndex;
+    }
+  }
+}
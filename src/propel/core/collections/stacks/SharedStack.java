@@ -19,8 +19,8 @@
 package propel.core.collections.stacks;
 
 import propel.core.collections.ReifiedIterable;
-import propel.core.collections.lists.ReifiedLinkedList;
 import propel.core.collections.lists.ReifiedList;
+import propel.core.collections.queues.ReifiedArrayDeque;
 import propel.core.utils.Linq;
 import propel.core.utils.SuperTypeToken;
 import propel.core.utils.SuperTypeTokenException;
@@ -41,7 +41,7 @@ public class SharedStack<T>
 {
   private final ReentrantLock lockObject;
   protected final Condition notEmpty;
-  private final ReifiedLinkedList<T> stack;
+  private final ReifiedArrayDeque<T> stack;
 
   /**
    * Default constructor.
@@ -50,7 +50,7 @@ public class SharedStack<T>
    */
   public SharedStack()
   {
-    stack = new ReifiedLinkedList<T>(SuperTypeToken.getClazz(this.getClass()));
+    stack = new ReifiedArrayDeque<T>(SuperTypeToken.getClazz(this.getClass()));
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
   }
@@ -65,7 +65,7 @@ public class SharedStack<T>
     if (genericTypeParameter == null)
       throw new NullPointerException("genericTypeParameter");
 
-    stack = new ReifiedLinkedList<T>(genericTypeParameter);
+    stack = new ReifiedArrayDeque<T>(genericTypeParameter);
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
   }
@@ -80,7 +80,7 @@ public class SharedStack<T>
     if (iterable == null)
       throw new NullPointerException("iterable");
 
-    stack = new ReifiedLinkedList<T>(iterable.getGenericTypeParameter());
+    stack = new ReifiedArrayDeque<T>(iterable.getGenericTypeParameter());
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
 
@@ -99,7 +99,7 @@ public class SharedStack<T>
     if (iterable == null)
       throw new NullPointerException("iterable");
 
-    stack = new ReifiedLinkedList<T>(SuperTypeToken.getClazz(this.getClass()));
+    stack = new ReifiedArrayDeque<T>(SuperTypeToken.getClazz(this.getClass()));
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
 
@@ -119,7 +119,7 @@ public class SharedStack<T>
     if (genericTypeParameter == null)
       throw new NullPointerException("genericTypeParameter");
 
-    stack = new ReifiedLinkedList<T>(genericTypeParameter);
+    stack = new ReifiedArrayDeque<T>(genericTypeParameter);
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
 
@@ -137,12 +137,9 @@ public class SharedStack<T>
     if (array == null)
       throw new NullPointerException("array");
 
-    stack = new ReifiedLinkedList<T>(array.getClass().getComponentType());
+    stack = new ReifiedArrayDeque<T>(array);
     lockObject = new ReentrantLock();
     notEmpty = lockObject.newCondition();
-
-    for (T item : array)
-      stack.add(item);
   }
 
   /**
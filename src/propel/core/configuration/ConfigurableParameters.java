@@ -24,6 +24,8 @@ import propel.core.TryResult;
 import propel.core.collections.KeyValuePair;
 import propel.core.collections.ReifiedIterable;
 import propel.core.collections.maps.avl.AvlHashtable;
+import propel.core.collections.maps.trie.ITrie;
+import propel.core.collections.maps.trie.ImmutableRadixTrie;
 import propel.core.common.CONSTANT;
 import propel.core.common.StackTraceLogger;
 import propel.core.userTypes.UnsignedByte;
@@ -54,7 +56,7 @@ public final class ConfigurableParameters
   private static final String SEP_PREFIX = "(sep=";
   // type casting header
   private static final String CAST_PREFIX = "(cast=";
-  private static AvlHashtable<String, String> lookup;
+  private static ITrie<String> lookup;
 
   private ConfigurableParameters()
   {
@@ -63,11 +65,11 @@ public final class ConfigurableParameters
   // static constructor
   static
   {
-    lookup = new AvlHashtable<String, String>(String.class, String.class);
+    AvlHashtable<String, String> section = new AvlHashtable<String, String>(String.class, String.class);
 
     try
     {
-      lookup = (AvlHashtable<String, String>) ConfigurationManager.getSection(FILENAME);
+      section = (AvlHashtable<String, String>) ConfigurationManager.getSection(FILENAME);
     }
     catch(FileNotFoundException e)
     {
@@ -77,6 +79,9 @@ public final class ConfigurableParameters
     {
       logError("There was an error while parsing configurable parameters: " + new StackTraceLogger(e));
     }
+
+    // keys are looked up on every parameter read, so they are held in a compact trie
+    lookup = new ImmutableRadixTrie<String>(section, StringComparison.Ordinal);
   }
 
   /**
@@ -84,7 +89,7 @@ public final class ConfigurableParameters
    */
   public static Long getInt64(KeyValuePair<String, Long> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<Long> result = StringUtils.tryParseInt64(lookup.get(key));
@@ -103,7 +108,7 @@ public final class ConfigurableParameters
    */
   public static UnsignedLong getUInt64(KeyValuePair<String, UnsignedLong> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<UnsignedLong> result = StringUtils.tryParseUInt64(lookup.get(key));
@@ -122,7 +127,7 @@ public final class ConfigurableParameters
    */
   public static int getInt32(KeyValuePair<String, Integer> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<Integer> result = StringUtils.tryParseInt32(lookup.get(key));
@@ -141,7 +146,7 @@ public final class ConfigurableParameters
    */
   public static UnsignedInteger getUInt32(KeyValuePair<String, UnsignedInteger> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<UnsignedInteger> result = StringUtils.tryParseUInt32(lookup.get(key));
@@ -160,7 +165,7 @@ public final class ConfigurableParameters
    */
   public static Short getInt16(KeyValuePair<String, Short> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<Short> result = StringUtils.tryParseInt16(lookup.get(key));
@@ -179,7 +184,7 @@ public final class ConfigurableParameters
    */
   public static UnsignedShort getUInt16(KeyValuePair<String, UnsignedShort> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<UnsignedShort> result = StringUtils.tryParseUInt16(lookup.get(key));
@@ -198,7 +203,7 @@ public final class ConfigurableParameters
    */
   public static UnsignedByte getUInt8(KeyValuePair<String, UnsignedByte> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<UnsignedByte> result = StringUtils.tryParseUInt8(lookup.get(key));
@@ -217,7 +222,7 @@ public final class ConfigurableParameters
    */
   public static Byte getInt8(KeyValuePair<String, Byte> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<Byte> result = StringUtils.tryParseInt8(lookup.get(key));
@@ -236,7 +241,7 @@ public final class ConfigurableParameters
    */
   public static Boolean getBool(KeyValuePair<String, Boolean> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<Boolean> result = StringUtils.tryParseBool(lookup.get(key));
@@ -255,7 +260,7 @@ public final class ConfigurableParameters
    */
   public static Character getChar(KeyValuePair<String, Character> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<Character> result = StringUtils.tryParseChar(lookup.get(key));
@@ -274,7 +279,7 @@ public final class ConfigurableParameters
    */
   public static LocalDateTime getDateTime(KeyValuePair<String, LocalDateTime> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<LocalDateTime> result = StringUtils.tryParseDateTime(lookup.get(key));
@@ -293,7 +298,7 @@ public final class ConfigurableParameters
    */
   public static BigDecimal getDecimal(KeyValuePair<String, BigDecimal> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<BigDecimal> result = StringUtils.tryParseDecimal(lookup.get(key));
@@ -312,7 +317,7 @@ public final class ConfigurableParameters
    */
   public static Double getDouble(KeyValuePair<String, Double> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<Double> result = StringUtils.tryParseDouble(lookup.get(key));
@@ -331,7 +336,7 @@ public final class ConfigurableParameters
    */
   public static Float getFloat(KeyValuePair<String, Float> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<Float> result = StringUtils.tryParseFloat(lookup.get(key));
@@ -350,7 +355,7 @@ public final class ConfigurableParameters
    */
   public static UUID getUuid(KeyValuePair<String, UUID> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<UUID> result = StringUtils.tryParseUuid(lookup.get(key));
@@ -369,7 +374,7 @@ public final class ConfigurableParameters
    */
   public static InetAddress getIPAddress(KeyValuePair<String, InetAddress> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<InetAddress> result = StringUtils.tryParseIpAddress(lookup.get(key));
@@ -388,7 +393,7 @@ public final class ConfigurableParameters
    */
   public static String getString(KeyValuePair<String, String> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
       return lookup.get(kvp.getKey());
 
     return kvp.getValue();
@@ -399,7 +404,7 @@ public final class ConfigurableParameters
    */
   public static Duration getTimeSpan(KeyValuePair<String, Duration> kvp)
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String key = kvp.getKey();
       TryResult<Duration> result = StringUtils.tryParseTimeSpan(lookup.get(key));
@@ -422,7 +427,7 @@ public final class ConfigurableParameters
   public static Object getObject(KeyValuePair<String, String> kvp, Object[] constructorArgs)
       throws ConfigurationErrorsException
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       try
       {
@@ -459,7 +464,7 @@ public final class ConfigurableParameters
   public static Class<?> getType(KeyValuePair<String, String> kvp)
       throws ConfigurationErrorsException
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       try
       {
@@ -528,7 +533,7 @@ public final class ConfigurableParameters
   public static <T> Iterable<T> getIterable(KeyValuePair<String, ReifiedIterable<T>> kvp)
       throws ConfigurationErrorsException
   {
-    if (StringUtils.contains(lookup.getKeys(), kvp.getKey(), StringComparison.Ordinal))
+    if (lookup.containsKey(kvp.getKey()))
     {
       String value = lookup.get(kvp.getKey());
       if (value != null && value.length() > SEP_PREFIX.length() + 2
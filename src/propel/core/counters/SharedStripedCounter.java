@@ -0,0 +1,213 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.counters;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe modulo counter which spreads increments over a number of cache-line padded cells, so that threads updating the counter
+ * concurrently rarely touch the same memory. Each thread updates the cell chosen by its probe, moving to another cell when it encounters
+ * contention; the value is obtained by summing all cells. Should be preferred over SharedModuloCounter and SharedModuloCounterLight in
+ * medium/high contention scenarios where the counter is updated far more often than it is read, e.g. statistics.
+ * 
+ * Increments are never lost, however the value is not an atomic snapshot: increments made while the cells are summed may or may not be
+ * reflected. As a result, next() values are not unique across threads; use SharedModuloCounter if unique values are required, or
+ * SharedStripedIndexer for contention-free unique array indices.
+ */
+public final class SharedStripedCounter
+    extends ModuloCounter
+{
+  /**
+   * The number of longs between adjacent cells, spanning two 64-byte cache lines to defeat adjacent line prefetching
+   */
+  private static final int PADDING = 16;
+  /**
+   * The maximum number of cells
+   */
+  private static final int MAX_STRIPES = 256;
+  /**
+   * Each thread's probe, used to choose a cell
+   */
+  private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue()
+    {
+      // spread sequential thread identifiers, avoiding the zero probe which xor-shifting cannot leave
+      long id = Thread.currentThread().getId();
+      return new int[] {(int) ((id * 0x9E3779B97F4A7C15L) >>> 32) | 1};
+    }
+  };
+  private final AtomicLongArray cells;
+  private final int mask;
+
+  /**
+   * Default constructor, initializes a counter that practically never wraps around, with one cell per available processor.
+   */
+  public SharedStripedCounter()
+  {
+    this(Long.MAX_VALUE - 1);
+  }
+
+  /**
+   * Initializes counter with a specified maximum value, with one cell per available processor.
+   * 
+   * @param maxValue The maximum counter value.
+   * 
+   * @throws IllegalArgumentException When the maximum is less than or equal to minimum, or equal to Long.MAX_VALUE
+   */
+  public SharedStripedCounter(long maxValue)
+  {
+    this(maxValue, DEFAULT_MIN_VALUE);
+  }
+
+  /**
+   * Initializes counter with a specified maximum value and minimum value, with one cell per available processor.
+   * 
+   * @param maxValue The maximum counter value.
+   * @param minValue The minimum counter value.
+   * 
+   * @throws IllegalArgumentException When the maximum is less than or equal to minimum, or equal to Long.MAX_VALUE
+   */
+  public SharedStripedCounter(long maxValue, long minValue)
+  {
+    this(maxValue, minValue, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Initializes counter with a specified maximum value, minimum value and number of cells.
+   * 
+   * @param maxValue The maximum counter value.
+   * @param minValue The minimum counter value.
+   * @param stripes The number of cells, rounded up to a power of two and capped to 256.
+   * 
+   * @throws IllegalArgumentException When the maximum is less than or equal to minimum, or equal to Long.MAX_VALUE, or the number of
+   *           cells is not positive.
+   */
+  public SharedStripedCounter(long maxValue, long minValue, int stripes)
+  {
+    super(maxValue, minValue);
+    if (stripes <= 0)
+      throw new IllegalArgumentException("stripes=" + stripes);
+
+    int count = 1;
+    while (count < stripes && count < MAX_STRIPES)
+      count <<= 1;
+
+    // leading padding keeps the first cell away from the array header
+    cells = new AtomicLongArray((count + 1) * PADDING);
+    mask = count - 1;
+  }
+
+  /**
+   * Increments the counter. This does not read the other cells and is the cheapest way to count.
+   */
+  public void increment()
+  {
+    add(1);
+  }
+
+  /**
+   * Adds the given non-negative amount to the counter.
+   * 
+   * @throws IllegalArgumentException When the amount is negative.
+   */
+  public void add(long delta)
+  {
+    if (delta < 0)
+      throw new IllegalArgumentException("delta=" + delta);
+
+    int[] probe = PROBE.get();
+    int index = ((probe[0] & mask) + 1) * PADDING;
+
+    long current = cells.get(index);
+    if (!cells.compareAndSet(index, current, current + delta))
+    {
+      // another thread shares this cell, move elsewhere for next time
+      probe[0] = advanceProbe(probe[0]);
+      cells.getAndAdd(index, delta);
+    }
+  }
+
+  /**
+   * Increments the counter and returns the value, which also reflects the concurrent increments of other threads. This is an O(c)
+   * operation, where c is the number of cells.
+   */
+  @Override
+  public long next()
+  {
+    add(1);
+    return getValue();
+  }
+
+  /**
+   * Resets the counter to the minimum value. Increments made concurrently with the reset may or may not be retained.
+   */
+  @Override
+  public void reset()
+  {
+    for (int i = 0; i <= mask; i++)
+      cells.set((i + 1) * PADDING, 0);
+  }
+
+  /**
+   * Returns the counter value, wrapped around the minimum and maximum values. This is an O(c) operation, where c is the number of cells.
+   */
+  @Override
+  public long getValue()
+  {
+    long count = getCount();
+    long range = maxValue - minValue + 1;
+
+    // when the range is wider than a long, increments simply wrap around the long range
+    if (range <= 0)
+      return minValue + count;
+
+    long remainder = count % range;
+    return minValue + (remainder < 0 ? remainder + range : remainder);
+  }
+
+  /**
+   * Returns the total number of increments since construction or the last reset, without wrapping around. This is an O(c) operation,
+   * where c is the number of cells.
+   */
+  public long getCount()
+  {
+    long result = 0;
+    for (int i = 0; i <= mask; i++)
+      result += cells.get((i + 1) * PADDING);
+
+    return result;
+  }
+
+  /**
+   * Returns the number of cells
+   */
+  public int getStripes()
+  {
+    return mask + 1;
+  }
+
+  private static int advanceProbe(int probe)
+  {
+    probe ^= probe << 13;
+    probe ^= probe >>> 17;
+    probe ^= probe << 5;
+    return probe;
+  }
+}
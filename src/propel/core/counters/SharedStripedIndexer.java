@@ -0,0 +1,164 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.counters;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe class providing round-robin array indexing functionality without contention. Each thread reserves a block of consecutive
+ * indices from a shared sequence with a single atomic operation, then hands them out from its own block. Should be preferred over
+ * SharedModuloIndexer and SharedModuloIndexerLight in medium/high contention scenarios, e.g. many writers of a circular buffer or many
+ * callers of a load balancer.
+ * 
+ * Every index is handed out exactly once per lap around the array, however indices are only handed out in order within a thread: the
+ * blocks of different threads interleave.
+ */
+public final class SharedStripedIndexer
+    implements IModuloIndexer
+{
+  /**
+   * The default number of indices reserved by a thread at a time
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 64;
+  private final int startingIndex;
+  private final int length;
+  private final int blockSize;
+  private final AtomicLong sequence;
+  /**
+   * Incremented by reset(), invalidating the blocks reserved beforehand
+   */
+  private volatile int epoch;
+  /**
+   * Each thread's block, holding the next sequence number, the end of the block (exclusive) and the epoch it was reserved in
+   */
+  private final ThreadLocal<long[]> block = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue()
+    {
+      return new long[] {0, 0, -1};
+    }
+  };
+
+  /**
+   * Initializes indexer with a specified length
+   * 
+   * @param length The array length
+   * 
+   * @throws IllegalArgumentException When the maximum is less than or equal to minimum, or equal to Integer.MAX_VALUE
+   */
+  public SharedStripedIndexer(int length)
+  {
+    this(0, length);
+  }
+
+  /**
+   * Initializes indexer with a starting index and the length
+   * 
+   * @param startingIndex The starting index
+   * @param length The array length
+   * 
+   * @throws IllegalArgumentException When the maximum is less than or equal to minimum, or equal to Integer.MAX_VALUE
+   */
+  public SharedStripedIndexer(int startingIndex, int length)
+  {
+    this(startingIndex, length, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Initializes indexer with a starting index, the length and the number of indices reserved by a thread at a time
+   * 
+   * @param startingIndex The starting index
+   * @param length The array length
+   * @param blockSize The number of indices reserved by a thread at a time, capped to the array length. Larger blocks reduce contention,
+   *          smaller blocks keep indices closer to round-robin order.
+   * 
+   * @throws IllegalArgumentException When the maximum is less than or equal to minimum, or equal to Integer.MAX_VALUE, or the block size
+   *           is not positive.
+   */
+  public SharedStripedIndexer(int startingIndex, int length, int blockSize)
+  {
+    if (startingIndex < 0)
+      throw new IllegalArgumentException("startingIndex=" + startingIndex);
+    if (startingIndex >= length)
+      throw new IllegalArgumentException("startingIndex=" + startingIndex + " length=" + length);
+    if (length == Integer.MAX_VALUE)
+      throw new IllegalArgumentException("length=" + length);
+    if (blockSize <= 0)
+      throw new IllegalArgumentException("blockSize=" + blockSize);
+
+    this.startingIndex = startingIndex;
+    this.length = length;
+    this.blockSize = Math.min(blockSize, length);
+    this.sequence = new AtomicLong();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int next()
+  {
+    long[] current = block.get();
+    int currentEpoch = epoch;
+
+    if (current[0] >= current[1] || current[2] != currentEpoch)
+    {
+      long start = sequence.getAndAdd(blockSize);
+      current[0] = start;
+      current[1] = start + blockSize;
+      current[2] = currentEpoch;
+    }
+
+    return indexOf(current[0]++);
+  }
+
+  /**
+   * Resets to the initial value. Blocks reserved by other threads beforehand are discarded; indices handed out concurrently with the reset
+   * may belong to either lap.
+   */
+  @Override
+  public void reset()
+  {
+    epoch++;
+    sequence.set(0);
+  }
+
+  /**
+   * Returns the last index reserved by any thread, which may not have been handed out yet.
+   */
+  @Override
+  public int getValue()
+  {
+    long reserved = sequence.get();
+    return reserved == 0 ? startingIndex - 1 : indexOf(reserved - 1);
+  }
+
+  /**
+   * Returns the number of indices reserved by a thread at a time
+   */
+  public int getBlockSize()
+  {
+    return blockSize;
+  }
+
+  private int indexOf(long position)
+  {
+    return (int) ((startingIndex + position) % length);
+  }
+}
@@ -0,0 +1,127 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import propel.core.common.PropelLog;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Base class of reporters, scheduling periodic reports on a background daemon thread. Failures of a report are logged and do not prevent
+ * subsequent reports.
+ */
+public abstract class AbstractMetricReporter
+    implements IMetricReporter
+{
+  /**
+   * The registry whose metrics are reported
+   */
+  protected final MetricRegistry registry;
+  private final ReentrantLock lock;
+  private ScheduledExecutorService executor;
+
+  /**
+   * Initializes with the registry whose metrics are reported
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  protected AbstractMetricReporter(MetricRegistry registry)
+  {
+    if (registry == null)
+      throw new NullPointerException("registry");
+
+    this.registry = registry;
+    lock = new ReentrantLock();
+  }
+
+  /**
+   * Starts reporting periodically, the first report taking place after one period.
+   * 
+   * @throws NullPointerException When the unit is null.
+   * @throws IllegalArgumentException When the period is not positive.
+   * @throws IllegalStateException When the reporter is already started.
+   */
+  @Override
+  public void start(long period, TimeUnit unit)
+  {
+    if (unit == null)
+      throw new NullPointerException("unit");
+    if (period <= 0)
+      throw new IllegalArgumentException("period=" + period);
+
+    lock.lock();
+    try
+    {
+      if (executor != null)
+        throw new IllegalStateException("The reporter is already started");
+
+      executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+          Thread thread = new Thread(runnable, "propel-metrics-" + AbstractMetricReporter.this.getClass().getSimpleName());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      executor.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run()
+        {
+          try
+          {
+            report();
+          }
+          catch(RuntimeException e)
+          {
+            PropelLog.warn("Could not report metrics: " + e);
+          }
+        }
+      }, period, period, unit);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops reporting periodically. Does nothing if not started.
+   */
+  @Override
+  public void stop()
+  {
+    lock.lock();
+    try
+    {
+      if (executor != null)
+      {
+        executor.shutdown();
+        executor = null;
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+}
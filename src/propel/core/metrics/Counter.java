@@ -0,0 +1,82 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import propel.core.counters.SharedStripedCounter;
+
+/**
+ * Thread-safe metric counting events, e.g. cache misses or bytes written. Increments are spread over striped cells, so that many threads
+ * may count concurrently without contending; reads sum the cells. Incrementing does not allocate.
+ */
+public final class Counter
+    implements IMetric
+{
+  private final SharedStripedCounter counter;
+
+  /**
+   * Default constructor
+   */
+  public Counter()
+  {
+    counter = new SharedStripedCounter();
+  }
+
+  /**
+   * Increments the count by one. This is an O(1) operation.
+   */
+  public void increment()
+  {
+    counter.increment();
+  }
+
+  /**
+   * Increments the count by the given non-negative amount. This is an O(1) operation.
+   * 
+   * @throws IllegalArgumentException When the amount is negative.
+   */
+  public void increment(long amount)
+  {
+    counter.add(amount);
+  }
+
+  /**
+   * Returns the count. This is an O(c) operation, where c is the number of striped cells.
+   */
+  public long getCount()
+  {
+    return counter.getCount();
+  }
+
+  /**
+   * Resets the count to zero. Increments made concurrently with the reset may or may not be retained.
+   */
+  public void reset()
+  {
+    counter.reset();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return Long.toString(getCount());
+  }
+}
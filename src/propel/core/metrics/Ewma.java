@@ -0,0 +1,63 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+/**
+ * Exponentially-weighted moving average of an event rate, updated at a fixed interval. Only one thread may tick at a time; any thread may
+ * read the rate.
+ */
+final class Ewma
+{
+  private final double alpha;
+  private final double intervalSeconds;
+  private volatile double rate;
+  private volatile boolean initialized;
+
+  /**
+   * Initializes with the number of minutes the average spans and the tick interval
+   */
+  Ewma(int minutes, long intervalNanos)
+  {
+    intervalSeconds = intervalNanos / 1e9;
+    alpha = 1 - Math.exp(-intervalSeconds / (60.0 * minutes));
+  }
+
+  /**
+   * Folds the number of events that occurred during the last interval into the average
+   */
+  void tick(long count)
+  {
+    double instantRate = count / intervalSeconds;
+    if (initialized)
+      rate += alpha * (instantRate - rate);
+    else
+    {
+      rate = instantRate;
+      initialized = true;
+    }
+  }
+
+  /**
+   * Returns the average rate, in events per second
+   */
+  double getRate()
+  {
+    return rate;
+  }
+}
@@ -0,0 +1,63 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import propel.core.functional.Functions.Function0;
+
+/**
+ * Metric reporting an instantaneous value obtained on demand, e.g. the size of a collection or the hit rate of a cache. The value function
+ * is invoked every time the gauge is read, so it should be cheap and thread-safe.
+ * 
+ * @param <T> The value type
+ */
+public final class Gauge<T>
+    implements IMetric
+{
+  private final Function0<T> function;
+
+  /**
+   * Initializes with the function returning the value
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public Gauge(Function0<T> function)
+  {
+    if (function == null)
+      throw new NullPointerException("function");
+
+    this.function = function;
+  }
+
+  /**
+   * Returns the current value
+   */
+  public T getValue()
+  {
+    return function.apply();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return String.valueOf(getValue());
+  }
+}
@@ -0,0 +1,207 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import propel.core.counters.SharedStripedCounter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe metric recording the distribution of non-negative values, e.g. latencies or payload sizes, in logarithmic buckets. Values
+ * below 2^p are counted exactly; larger values are counted in 2^(p-1) buckets per power of two, so that any recorded value is reported
+ * within a relative error of 2^(1-p), where p is the precision. Recording is lock-free and does not allocate.
+ * 
+ * Snapshots are copies of the bucket counts taken while recording continues, which may be merged with snapshots of other histograms of
+ * the same precision, e.g. to aggregate the distributions of several servers.
+ */
+public final class Histogram
+    implements IMetric
+{
+  /**
+   * The default precision, in bits, bounding the relative error to roughly 3%
+   */
+  public static final int DEFAULT_PRECISION = 6;
+  /**
+   * The maximum precision, in bits
+   */
+  public static final int MAX_PRECISION = 16;
+  private final int precision;
+  private final AtomicLongArray buckets;
+  private final SharedStripedCounter count;
+  private final SharedStripedCounter sum;
+  private final AtomicLong min;
+  private final AtomicLong max;
+
+  /**
+   * Default constructor, initializes with the default precision
+   */
+  public Histogram()
+  {
+    this(DEFAULT_PRECISION);
+  }
+
+  /**
+   * Initializes with the given precision, which bounds the relative error of reported values to 2^(1-precision). The histogram occupies
+   * roughly 4 * (65 - precision) * 2^precision bytes.
+   * 
+   * @param precision The number of significant bits kept, from 1 to 16.
+   * 
+   * @throws IllegalArgumentException When the precision is out of range.
+   */
+  public Histogram(int precision)
+  {
+    if (precision < 1 || precision > MAX_PRECISION)
+      throw new IllegalArgumentException("precision=" + precision);
+
+    this.precision = precision;
+    buckets = new AtomicLongArray(bucketCount(precision));
+    count = new SharedStripedCounter();
+    sum = new SharedStripedCounter();
+    min = new AtomicLong(Long.MAX_VALUE);
+    max = new AtomicLong(Long.MIN_VALUE);
+  }
+
+  /**
+   * Records a value. This is an O(1) operation.
+   * 
+   * @throws IllegalArgumentException When the value is negative.
+   */
+  public void update(long value)
+  {
+    if (value < 0)
+      throw new IllegalArgumentException("value=" + value);
+
+    // bounds first, so that snapshots counting this value also see them
+    long current;
+    while (value < (current = min.get()))
+      if (min.compareAndSet(current, value))
+        break;
+    while (value > (current = max.get()))
+      if (max.compareAndSet(current, value))
+        break;
+
+    buckets.incrementAndGet(indexOf(value, precision));
+    count.increment();
+    sum.add(value);
+  }
+
+  /**
+   * Returns the number of values recorded. This is an O(c) operation, where c is the number of striped cells.
+   */
+  public long getCount()
+  {
+    return count.getCount();
+  }
+
+  /**
+   * Returns the precision, in bits
+   */
+  public int getPrecision()
+  {
+    return precision;
+  }
+
+  /**
+   * Returns a copy of the distribution recorded so far. Values recorded while the copy is taken may or may not be included. This is an
+   * O(b) operation, where b is the number of buckets.
+   */
+  public HistogramSnapshot getSnapshot()
+  {
+    long[] counts = new long[buckets.length()];
+    long total = 0;
+    for (int i = 0; i < counts.length; i++)
+    {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+
+    if (total == 0)
+      return new HistogramSnapshot(precision, counts, 0, 0, 0, 0);
+
+    return new HistogramSnapshot(precision, counts, total, sum.getCount(), min.get(), max.get());
+  }
+
+  /**
+   * Discards all recorded values. Values recorded concurrently with the reset may or may not be retained.
+   */
+  public void reset()
+  {
+    for (int i = 0; i < buckets.length(); i++)
+      buckets.set(i, 0);
+
+    count.reset();
+    sum.reset();
+    min.set(Long.MAX_VALUE);
+    max.set(Long.MIN_VALUE);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return MetricFormat.format(getSnapshot(), 1);
+  }
+
+  /**
+   * Returns the number of buckets needed to cover all non-negative long values with the given precision
+   */
+  static int bucketCount(int precision)
+  {
+    return (65 - precision) << (precision - 1);
+  }
+
+  /**
+   * Returns the bucket of a non-negative value. Values below 2^precision have their own bucket, larger ones share a bucket with the
+   * values having the same precision - 1 leading bits after the most significant one.
+   */
+  static int indexOf(long value, int precision)
+  {
+    if (value < (1L << precision))
+      return (int) value;
+
+    int shift = 63 - Long.numberOfLeadingZeros(value) - (precision - 1);
+    return (shift << (precision - 1)) + (int) (value >>> shift);
+  }
+
+  /**
+   * Returns the smallest value counted in a bucket
+   */
+  static long lowestValueOf(int index, int precision)
+  {
+    if (index < (1 << precision))
+      return index;
+
+    int shift = (index >>> (precision - 1)) - 1;
+    return (long) (index - (shift << (precision - 1))) << shift;
+  }
+
+  /**
+   * Returns the largest value counted in a bucket
+   */
+  static long highestValueOf(int index, int precision)
+  {
+    if (index < (1 << precision))
+      return index;
+
+    int shift = (index >>> (precision - 1)) - 1;
+    return ((long) (index - (shift << (precision - 1)) + 1) << shift) - 1;
+  }
+}
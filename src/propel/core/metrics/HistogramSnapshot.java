@@ -0,0 +1,191 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+/**
+ * An immutable copy of the distribution recorded by a Histogram, providing percentiles and summary statistics. Snapshots of histograms
+ * with the same precision can be merged.
+ */
+public final class HistogramSnapshot
+{
+  private final int precision;
+  private final long[] counts;
+  private final long count;
+  private final long sum;
+  private final long min;
+  private final long max;
+
+  /**
+   * Initializes with the bucket counts and the summary statistics, taking ownership of the counts array
+   */
+  HistogramSnapshot(int precision, long[] counts, long count, long sum, long min, long max)
+  {
+    this.precision = precision;
+    this.counts = counts;
+    this.count = count;
+    this.sum = sum;
+    this.min = min;
+    this.max = max;
+  }
+
+  /**
+   * Returns the number of values
+   */
+  public long getCount()
+  {
+    return count;
+  }
+
+  /**
+   * Returns the sum of all values
+   */
+  public long getSum()
+  {
+    return sum;
+  }
+
+  /**
+   * Returns the smallest value, or zero if empty
+   */
+  public long getMin()
+  {
+    return min;
+  }
+
+  /**
+   * Returns the largest value, or zero if empty
+   */
+  public long getMax()
+  {
+    return max;
+  }
+
+  /**
+   * Returns the arithmetic mean of the values, or zero if empty
+   */
+  public double getMean()
+  {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * Returns the standard deviation of the values, estimated from the bucket mid-points, or zero if empty. This is an O(b) operation, where
+   * b is the number of buckets.
+   */
+  public double getStdDev()
+  {
+    if (count == 0)
+      return 0;
+
+    double mean = getMean();
+    double variance = 0;
+    for (int i = 0; i < counts.length; i++)
+      if (counts[i] != 0)
+      {
+        double deviation = midValueOf(i) - mean;
+        variance += deviation * deviation * counts[i];
+      }
+
+    return Math.sqrt(variance / count);
+  }
+
+  /**
+   * Returns the value below which the given percentage of values fall, e.g. 99.9 for the 99.9th percentile, or zero if empty. The result
+   * is the largest value of the bucket holding the percentile, capped to the largest value recorded. This is an O(b) operation, where b is
+   * the number of buckets.
+   * 
+   * @throws IllegalArgumentException When the percentile is not between 0 and 100.
+   */
+  public long getValueAtPercentile(double percentile)
+  {
+    if (!(percentile >= 0 && percentile <= 100))
+      throw new IllegalArgumentException("percentile=" + percentile);
+    if (count == 0)
+      return 0;
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++)
+    {
+      seen += counts[i];
+      if (seen >= rank)
+        return Math.max(min, Math.min(max, Histogram.highestValueOf(i, precision)));
+    }
+
+    return max;
+  }
+
+  /**
+   * Returns the median, i.e. the 50th percentile
+   */
+  public long getMedian()
+  {
+    return getValueAtPercentile(50);
+  }
+
+  /**
+   * Returns the precision of the histogram the snapshot was taken from
+   */
+  public int getPrecision()
+  {
+    return precision;
+  }
+
+  /**
+   * Returns a new snapshot combining the values of this and another snapshot. This is an O(b) operation, where b is the number of
+   * buckets.
+   * 
+   * @throws NullPointerException When the argument is null.
+   * @throws IllegalArgumentException When the snapshots were taken from histograms of different precision.
+   */
+  public HistogramSnapshot merge(HistogramSnapshot other)
+  {
+    if (other == null)
+      throw new NullPointerException("other");
+    if (other.precision != precision)
+      throw new IllegalArgumentException("precision=" + precision + " otherPrecision=" + other.precision);
+
+    if (other.count == 0)
+      return this;
+    if (count == 0)
+      return other;
+
+    long[] merged = new long[counts.length];
+    for (int i = 0; i < merged.length; i++)
+      merged[i] = counts[i] + other.counts[i];
+
+    return new HistogramSnapshot(precision, merged, count + other.count, sum + other.sum, Math.min(min, other.min), Math.max(max,
+                                                                                                                              other.max));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return MetricFormat.format(this, 1);
+  }
+
+  private double midValueOf(int index)
+  {
+    long lowest = Histogram.lowestValueOf(index, precision);
+    return lowest + (Histogram.highestValueOf(index, precision) - lowest) / 2.0;
+  }
+}
@@ -0,0 +1,42 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The interface of a reporter, publishing the metrics of a registry on demand or periodically
+ */
+public interface IMetricReporter
+{
+  /**
+   * Publishes the current values of all metrics
+   */
+  void report();
+
+  /**
+   * Starts publishing periodically, using a background daemon thread.
+   */
+  void start(long period, TimeUnit unit);
+
+  /**
+   * Stops publishing periodically
+   */
+  void stop();
+}
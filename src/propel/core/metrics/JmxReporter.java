@@ -0,0 +1,547 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import propel.core.common.PropelLog;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Reporter exposing metrics as JMX MBeans, named e.g. propel.metrics:type=Timer,name="com.acme.FileCache.reads". Metric values are read
+ * when the MBean attributes are accessed; reporting only registers MBeans for metrics added to the registry since the last report, and
+ * unregisters those of removed metrics. Starting the reporter registers all metrics immediately, stopping it unregisters them.
+ */
+public final class JmxReporter
+    extends AbstractMetricReporter
+{
+  /**
+   * The default domain of the MBean names
+   */
+  public static final String DEFAULT_DOMAIN = "propel.metrics";
+  private static final double NANOS_PER_MILLI = 1e6;
+  private final MBeanServer server;
+  private final String domain;
+  private final ReentrantLock lock;
+  /**
+   * The metrics registered, by MBean name
+   */
+  private final Map<ObjectName, IMetric> registered;
+
+  /**
+   * Initializes with the registry whose metrics are exposed through the platform MBean server, in the default domain
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public JmxReporter(MetricRegistry registry)
+  {
+    this(registry, ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+  }
+
+  /**
+   * Initializes with the registry whose metrics are exposed, the MBean server and the domain of the MBean names
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  public JmxReporter(MetricRegistry registry, MBeanServer server, String domain)
+  {
+    super(registry);
+    if (server == null)
+      throw new NullPointerException("server");
+    if (domain == null)
+      throw new NullPointerException("domain");
+
+    this.server = server;
+    this.domain = domain;
+    lock = new ReentrantLock();
+    registered = new HashMap<ObjectName, IMetric>();
+  }
+
+  /**
+   * Registers MBeans for metrics added to the registry and unregisters those of metrics removed from it, since the last report.
+   */
+  @Override
+  public void report()
+  {
+    lock.lock();
+    try
+    {
+      Map<ObjectName, IMetric> current = new HashMap<ObjectName, IMetric>();
+      for (Map.Entry<String, IMetric> entry : registry.getMetrics().entrySet())
+      {
+        ObjectName name = nameOf(entry.getKey(), entry.getValue());
+        if (name != null)
+          current.put(name, entry.getValue());
+      }
+
+      Iterator<Map.Entry<ObjectName, IMetric>> iterator = registered.entrySet().iterator();
+      while (iterator.hasNext())
+      {
+        Map.Entry<ObjectName, IMetric> entry = iterator.next();
+        if (current.get(entry.getKey()) != entry.getValue())
+        {
+          unregister(entry.getKey());
+          iterator.remove();
+        }
+      }
+
+      for (Map.Entry<ObjectName, IMetric> entry : current.entrySet())
+        if (!registered.containsKey(entry.getKey()) && register(entry.getKey(), entry.getValue()))
+          registered.put(entry.getKey(), entry.getValue());
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Registers all metrics, then keeps the MBeans in line with the registry periodically.
+   * 
+   * @throws NullPointerException When the unit is null.
+   * @throws IllegalArgumentException When the period is not positive.
+   * @throws IllegalStateException When the reporter is already started.
+   */
+  @Override
+  public void start(long period, TimeUnit unit)
+  {
+    super.start(period, unit);
+    report();
+  }
+
+  /**
+   * Stops reporting periodically and unregisters all MBeans.
+   */
+  @Override
+  public void stop()
+  {
+    super.stop();
+
+    lock.lock();
+    try
+    {
+      for (ObjectName name : registered.keySet())
+        unregister(name);
+
+      registered.clear();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  private ObjectName nameOf(String name, IMetric metric)
+  {
+    try
+    {
+      return new ObjectName(domain + ":type=" + metric.getClass().getSimpleName() + ",name=" + ObjectName.quote(name));
+    }
+    catch(JMException e)
+    {
+      PropelLog.warn("Could not name the MBean of metric " + name + ": " + e);
+      return null;
+    }
+  }
+
+  private boolean register(ObjectName name, IMetric metric)
+  {
+    try
+    {
+      if (metric instanceof Counter)
+        server.registerMBean(new StandardMBean(new CounterAdapter((Counter) metric), CounterMBean.class), name);
+      else if (metric instanceof Gauge<?>)
+        server.registerMBean(new StandardMBean(new GaugeAdapter((Gauge<?>) metric), GaugeMBean.class), name);
+      else if (metric instanceof Meter)
+        server.registerMBean(new StandardMBean(new MeterAdapter((Meter) metric), MeterMBean.class), name);
+      else if (metric instanceof Histogram)
+        server.registerMBean(new StandardMBean(new HistogramAdapter((Histogram) metric), HistogramMBean.class), name);
+      else if (metric instanceof Timer)
+        server.registerMBean(new StandardMBean(new TimerAdapter((Timer) metric), TimerMBean.class), name);
+      else
+        return false;
+
+      return true;
+    }
+    catch(JMException e)
+    {
+      PropelLog.warn("Could not register the MBean " + name + ": " + e);
+      return false;
+    }
+  }
+
+  private void unregister(ObjectName name)
+  {
+    try
+    {
+      server.unregisterMBean(name);
+    }
+    catch(JMException e)
+    {
+      PropelLog.warn("Could not unregister the MBean " + name + ": " + e);
+    }
+  }
+
+  /**
+   * The management interface of a Counter
+   */
+  public interface CounterMBean
+  {
+    long getCount();
+  }
+
+  /**
+   * The management interface of a Gauge
+   */
+  public interface GaugeMBean
+  {
+    Object getValue();
+  }
+
+  /**
+   * The management interface of a Meter, with rates in events per second
+   */
+  public interface MeterMBean
+  {
+    long getCount();
+
+    double getMeanRate();
+
+    double getOneMinuteRate();
+
+    double getFiveMinuteRate();
+
+    double getFifteenMinuteRate();
+  }
+
+  /**
+   * The management interface of a Histogram
+   */
+  public interface HistogramMBean
+  {
+    long getCount();
+
+    long getMin();
+
+    long getMax();
+
+    double getMean();
+
+    double getStdDev();
+
+    long get50thPercentile();
+
+    long get75thPercentile();
+
+    long get95thPercentile();
+
+    long get98thPercentile();
+
+    long get99thPercentile();
+
+    long get999thPercentile();
+  }
+
+  /**
+   * The management interface of a Timer, with durations in milliseconds and rates in calls per second
+   */
+  public interface TimerMBean
+      extends MeterMBean
+  {
+    double getMin();
+
+    double getMax();
+
+    double getMean();
+
+    double getStdDev();
+
+    double get50thPercentile();
+
+    double get75thPercentile();
+
+    double get95thPercentile();
+
+    double get98thPercentile();
+
+    double get99thPercentile();
+
+    double get999thPercentile();
+  }
+
+  private static final class CounterAdapter
+      implements CounterMBean
+  {
+    private final Counter counter;
+
+    CounterAdapter(Counter counter)
+    {
+      this.counter = counter;
+    }
+
+    @Override
+    public long getCount()
+    {
+      return counter.getCount();
+    }
+  }
+
+  private static final class GaugeAdapter
+      implements GaugeMBean
+  {
+    private final Gauge<?> gauge;
+
+    GaugeAdapter(Gauge<?> gauge)
+    {
+      this.gauge = gauge;
+    }
+
+    @Override
+    public Object getValue()
+    {
+      return gauge.getValue();
+    }
+  }
+
+  private static final class MeterAdapter
+      implements MeterMBean
+  {
+    private final Meter meter;
+
+    MeterAdapter(Meter meter)
+    {
+      this.meter = meter;
+    }
+
+    @Override
+    public long getCount()
+    {
+      return meter.getCount();
+    }
+
+    @Override
+    public double getMeanRate()
+    {
+      return meter.getMeanRate();
+    }
+
+    @Override
+    public double getOneMinuteRate()
+    {
+      return meter.getOneMinuteRate();
+    }
+
+    @Override
+    public double getFiveMinuteRate()
+    {
+      return meter.getFiveMinuteRate();
+    }
+
+    @Override
+    public double getFifteenMinuteRate()
+    {
+      return meter.getFifteenMinuteRate();
+    }
+  }
+
+  private static final class HistogramAdapter
+      implements HistogramMBean
+  {
+    private final Histogram histogram;
+
+    HistogramAdapter(Histogram histogram)
+    {
+      this.histogram = histogram;
+    }
+
+    @Override
+    public long getCount()
+    {
+      return histogram.getCount();
+    }
+
+    @Override
+    public long getMin()
+    {
+      return histogram.getSnapshot().getMin();
+    }
+
+    @Override
+    public long getMax()
+    {
+      return histogram.getSnapshot().getMax();
+    }
+
+    @Override
+    public double getMean()
+    {
+      return histogram.getSnapshot().getMean();
+    }
+
+    @Override
+    public double getStdDev()
+    {
+      return histogram.getSnapshot().getStdDev();
+    }
+
+    @Override
+    public long get50thPercentile()
+    {
+      return histogram.getSnapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long get75thPercentile()
+    {
+      return histogram.getSnapshot().getValueAtPercentile(75);
+    }
+
+    @Override
+    public long get95thPercentile()
+    {
+      return histogram.getSnapshot().getValueAtPercentile(95);
+    }
+
+    @Override
+    public long get98thPercentile()
+    {
+      return histogram.getSnapshot().getValueAtPercentile(98);
+    }
+
+    @Override
+    public long get99thPercentile()
+    {
+      return histogram.getSnapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long get999thPercentile()
+    {
+      return histogram.getSnapshot().getValueAtPercentile(99.9);
+    }
+  }
+
+  private static final class TimerAdapter
+      implements TimerMBean
+  {
+    private final Timer timer;
+
+    TimerAdapter(Timer timer)
+    {
+      this.timer = timer;
+    }
+
+    @Override
+    public long getCount()
+    {
+      return timer.getCount();
+    }
+
+    @Override
+    public double getMeanRate()
+    {
+      return timer.getMeanRate();
+    }
+
+    @Override
+    public double getOneMinuteRate()
+    {
+      return timer.getOneMinuteRate();
+    }
+
+    @Override
+    public double getFiveMinuteRate()
+    {
+      return timer.getFiveMinuteRate();
+    }
+
+    @Override
+    public double getFifteenMinuteRate()
+    {
+      return timer.getFifteenMinuteRate();
+    }
+
+    @Override
+    public double getMin()
+    {
+      return timer.getSnapshot().getMin() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMax()
+    {
+      return timer.getSnapshot().getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMean()
+    {
+      return timer.getSnapshot().getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getStdDev()
+    {
+      return timer.getSnapshot().getStdDev() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double get50thPercentile()
+    {
+      return timer.getSnapshot().getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double get75thPercentile()
+    {
+      return timer.getSnapshot().getValueAtPercentile(75) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double get95thPercentile()
+    {
+      return timer.getSnapshot().getValueAtPercentile(95) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double get98thPercentile()
+    {
+      return timer.getSnapshot().getValueAtPercentile(98) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double get99thPercentile()
+    {
+      return timer.getSnapshot().getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double get999thPercentile()
+    {
+      return timer.getSnapshot().getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import propel.core.counters.SharedStripedCounter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe metric measuring the rate of events, e.g. requests per second. Reports the mean rate since creation as well as 1, 5 and 15
+ * minute exponentially-weighted moving average rates, which are updated every 5 seconds by whichever thread marks or reads the meter first.
+ * Marking does not allocate and does not contend, as events are counted in striped cells.
+ */
+public final class Meter
+    implements IMetric
+{
+  private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+  private final SharedStripedCounter count;
+  private final long startNanos;
+  private final AtomicLong lastTick;
+  /**
+   * The count at the last tick, only accessed by the thread which won the tick
+   */
+  private volatile long lastTickCount;
+  private final Ewma oneMinute;
+  private final Ewma fiveMinute;
+  private final Ewma fifteenMinute;
+
+  /**
+   * Default constructor
+   */
+  public Meter()
+  {
+    count = new SharedStripedCounter();
+    startNanos = System.nanoTime();
+    lastTick = new AtomicLong(startNanos);
+    oneMinute = new Ewma(1, TICK_INTERVAL);
+    fiveMinute = new Ewma(5, TICK_INTERVAL);
+    fifteenMinute = new Ewma(15, TICK_INTERVAL);
+  }
+
+  /**
+   * Marks the occurrence of an event. This is an O(1) operation.
+   */
+  public void mark()
+  {
+    mark(1);
+  }
+
+  /**
+   * Marks the occurrence of the given non-negative number of events. This is an O(1) operation.
+   * 
+   * @throws IllegalArgumentException When the number of events is negative.
+   */
+  public void mark(long events)
+  {
+    tickIfNecessary();
+    count.add(events);
+  }
+
+  /**
+   * Returns the number of events marked
+   */
+  public long getCount()
+  {
+    return count.getCount();
+  }
+
+  /**
+   * Returns the mean rate since creation, in events per second
+   */
+  public double getMeanRate()
+  {
+    long elapsed = System.nanoTime() - startNanos;
+    return elapsed <= 0 ? 0 : getCount() / (elapsed / 1e9);
+  }
+
+  /**
+   * Returns the one-minute exponentially-weighted moving average rate, in events per second
+   */
+  public double getOneMinuteRate()
+  {
+    tickIfNecessary();
+    return oneMinute.getRate();
+  }
+
+  /**
+   * Returns the five-minute exponentially-weighted moving average rate, in events per second
+   */
+  public double getFiveMinuteRate()
+  {
+    tickIfNecessary();
+    return fiveMinute.getRate();
+  }
+
+  /**
+   * Returns the fifteen-minute exponentially-weighted moving average rate, in events per second
+   */
+  public double getFifteenMinuteRate()
+  {
+    tickIfNecessary();
+    return fifteenMinute.getRate();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return MetricFormat.format(this);
+  }
+
+  private void tickIfNecessary()
+  {
+    long oldTick = lastTick.get();
+    long now = System.nanoTime();
+    long age = now - oldTick;
+
+    if (age > TICK_INTERVAL && lastTick.compareAndSet(oldTick, now - age % TICK_INTERVAL))
+    {
+      // the events counted since the last tick are attributed to the first elapsed interval
+      long current = count.getCount();
+      long events = current - lastTickCount;
+      lastTickCount = current;
+
+      for (long ticks = age / TICK_INTERVAL; ticks > 0; ticks--)
+      {
+        oneMinute.tick(events);
+        fiveMinute.tick(events);
+        fifteenMinute.tick(events);
+        events = 0;
+      }
+    }
+  }
+}
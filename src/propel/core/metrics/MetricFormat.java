@@ -0,0 +1,114 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import java.util.Locale;
+
+/**
+ * Formats metrics as single lines of plain text, used by the text and slf4j reporters. Rates are in events per second and timer durations
+ * in milliseconds.
+ */
+final class MetricFormat
+{
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  /**
+   * Private constructor
+   */
+  private MetricFormat()
+  {
+  }
+
+  /**
+   * Returns a line describing a named metric
+   */
+  static String format(String name, IMetric metric)
+  {
+    return name + " " + format(metric);
+  }
+
+  /**
+   * Returns a line describing a metric
+   */
+  static String format(IMetric metric)
+  {
+    if (metric instanceof Counter)
+      return "count=" + ((Counter) metric).getCount();
+    if (metric instanceof Gauge<?>)
+      return "value=" + ((Gauge<?>) metric).getValue();
+    if (metric instanceof Meter)
+      return format((Meter) metric);
+    if (metric instanceof Histogram)
+      return format(((Histogram) metric).getSnapshot(), 1);
+    if (metric instanceof Timer)
+      return format((Timer) metric);
+
+    return String.valueOf(metric);
+  }
+
+  /**
+   * Returns a line describing a meter
+   */
+  static String format(Meter meter)
+  {
+    return "count=" + meter.getCount() + rates(meter.getMeanRate(), meter.getOneMinuteRate(), meter.getFiveMinuteRate(),
+                                                meter.getFifteenMinuteRate());
+  }
+
+  /**
+   * Returns a line describing a timer, with durations in milliseconds
+   */
+  static String format(Timer timer)
+  {
+    return format(timer.getSnapshot(), NANOS_PER_MILLI)
+           + rates(timer.getMeanRate(), timer.getOneMinuteRate(), timer.getFiveMinuteRate(), timer.getFifteenMinuteRate());
+  }
+
+  /**
+   * Returns a line describing a distribution, dividing values by the given divisor
+   */
+  static String format(HistogramSnapshot snapshot, double divisor)
+  {
+    StringBuilder sb = new StringBuilder(192);
+    sb.append("count=").append(snapshot.getCount());
+    sb.append(" min=").append(decimal(snapshot.getMin() / divisor));
+    sb.append(" max=").append(decimal(snapshot.getMax() / divisor));
+    sb.append(" mean=").append(decimal(snapshot.getMean() / divisor));
+    sb.append(" stddev=").append(decimal(snapshot.getStdDev() / divisor));
+    sb.append(" p50=").append(decimal(snapshot.getValueAtPercentile(50) / divisor));
+    sb.append(" p75=").append(decimal(snapshot.getValueAtPercentile(75) / divisor));
+    sb.append(" p95=").append(decimal(snapshot.getValueAtPercentile(95) / divisor));
+    sb.append(" p98=").append(decimal(snapshot.getValueAtPercentile(98) / divisor));
+    sb.append(" p99=").append(decimal(snapshot.getValueAtPercentile(99) / divisor));
+    sb.append(" p999=").append(decimal(snapshot.getValueAtPercentile(99.9) / divisor));
+
+    return sb.toString();
+  }
+
+  private static String rates(double mean, double oneMinute, double fiveMinute, double fifteenMinute)
+  {
+    return " mean_rate=" + decimal(mean) + " m1_rate=" + decimal(oneMinute) + " m5_rate=" + decimal(fiveMinute) + " m15_rate="
+           + decimal(fifteenMinute);
+  }
+
+  private static String decimal(double value)
+  {
+    return String.format(Locale.ENGLISH, "%.3f", value);
+  }
+}
@@ -0,0 +1,245 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import propel.core.functional.Functions.Function0;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe registry of named metrics, e.g. to instrument collections, caches and I/O and publish the measurements through reporters.
+ * Metrics are created on first use and shared by all callers using the same name, e.g.
+ * 
+ * <pre>
+ * Timer reads = registry.timer(MetricRegistry.name(FileCache.class, &quot;reads&quot;));
+ * </pre>
+ * 
+ * Obtain and keep hold of metric references, rather than looking them up on every measurement.
+ */
+public final class MetricRegistry
+{
+  private static final Function0<Counter> NEW_COUNTER = new Function0<Counter>() {
+    @Override
+    public Counter apply()
+    {
+      return new Counter();
+    }
+  };
+  private static final Function0<Meter> NEW_METER = new Function0<Meter>() {
+    @Override
+    public Meter apply()
+    {
+      return new Meter();
+    }
+  };
+  private static final Function0<Histogram> NEW_HISTOGRAM = new Function0<Histogram>() {
+    @Override
+    public Histogram apply()
+    {
+      return new Histogram();
+    }
+  };
+  private static final Function0<Timer> NEW_TIMER = new Function0<Timer>() {
+    @Override
+    public Timer apply()
+    {
+      return new Timer();
+    }
+  };
+  private final ConcurrentMap<String, IMetric> metrics;
+
+  /**
+   * Default constructor
+   */
+  public MetricRegistry()
+  {
+    metrics = new ConcurrentHashMap<String, IMetric>();
+  }
+
+  /**
+   * Returns a dotted metric name made of the given class name and name parts, skipping null parts, e.g. "com.acme.FileCache.reads".
+   * 
+   * @throws NullPointerException When the type is null.
+   */
+  public static String name(Class<?> type, String... names)
+  {
+    if (type == null)
+      throw new NullPointerException("type");
+
+    StringBuilder sb = new StringBuilder(type.getName());
+    if (names != null)
+      for (String name : names)
+        if (name != null)
+          sb.append('.').append(name);
+
+    return sb.toString();
+  }
+
+  /**
+   * Registers a metric under the given name, returning it.
+   * 
+   * @throws NullPointerException When an argument is null.
+   * @throws IllegalArgumentException When a metric with the same name is already registered.
+   */
+  public <T extends IMetric> T register(String name, T metric)
+  {
+    if (name == null)
+      throw new NullPointerException("name");
+    if (metric == null)
+      throw new NullPointerException("metric");
+
+    if (metrics.putIfAbsent(name, metric) != null)
+      throw new IllegalArgumentException("name=" + name);
+
+    return metric;
+  }
+
+  /**
+   * Removes the metric with the given name. Returns true if found and removed.
+   * 
+   * @throws NullPointerException When the name is null.
+   */
+  public boolean remove(String name)
+  {
+    if (name == null)
+      throw new NullPointerException("name");
+
+    return metrics.remove(name) != null;
+  }
+
+  /**
+   * Returns the metric with the given name, or null if not found.
+   * 
+   * @throws NullPointerException When the name is null.
+   */
+  public IMetric get(String name)
+  {
+    if (name == null)
+      throw new NullPointerException("name");
+
+    return metrics.get(name);
+  }
+
+  /**
+   * Returns the counter with the given name, creating it if necessary.
+   * 
+   * @throws NullPointerException When the name is null.
+   * @throws IllegalArgumentException When a metric of another type is registered with the same name.
+   */
+  public Counter counter(String name)
+  {
+    return getOrAdd(name, Counter.class, NEW_COUNTER);
+  }
+
+  /**
+   * Returns the meter with the given name, creating it if necessary.
+   * 
+   * @throws NullPointerException When the name is null.
+   * @throws IllegalArgumentException When a metric of another type is registered with the same name.
+   */
+  public Meter meter(String name)
+  {
+    return getOrAdd(name, Meter.class, NEW_METER);
+  }
+
+  /**
+   * Returns the histogram with the given name, creating it with the default precision if necessary.
+   * 
+   * @throws NullPointerException When the name is null.
+   * @throws IllegalArgumentException When a metric of another type is registered with the same name.
+   */
+  public Histogram histogram(String name)
+  {
+    return getOrAdd(name, Histogram.class, NEW_HISTOGRAM);
+  }
+
+  /**
+   * Returns the timer with the given name, creating it with the default precision if necessary.
+   * 
+   * @throws NullPointerException When the name is null.
+   * @throws IllegalArgumentException When a metric of another type is registered with the same name.
+   */
+  public Timer timer(String name)
+  {
+    return getOrAdd(name, Timer.class, NEW_TIMER);
+  }
+
+  /**
+   * Registers a gauge under the given name, reporting the value returned by the function, e.g. the size of a collection.
+   * 
+   * @throws NullPointerException When an argument is null.
+   * @throws IllegalArgumentException When a metric with the same name is already registered.
+   */
+  public <T> Gauge<T> gauge(String name, Function0<T> function)
+  {
+    return register(name, new Gauge<T>(function));
+  }
+
+  /**
+   * Returns a copy of all metrics, sorted by name. This is an O(nlog2(n)) operation.
+   */
+  public SortedMap<String, IMetric> getMetrics()
+  {
+    return new TreeMap<String, IMetric>(metrics);
+  }
+
+  /**
+   * Returns the number of metrics
+   */
+  public int size()
+  {
+    return metrics.size();
+  }
+
+  /**
+   * Returns all metrics formatted as text, one line per metric, sorted by name
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder(256);
+    for (Map.Entry<String, IMetric> entry : getMetrics().entrySet())
+      sb.append(MetricFormat.format(entry.getKey(), entry.getValue())).append('\n');
+
+    return sb.toString();
+  }
+
+  private <T extends IMetric> T getOrAdd(String name, Class<T> type, Function0<T> factory)
+  {
+    if (name == null)
+      throw new NullPointerException("name");
+
+    IMetric metric = metrics.get(name);
+    if (metric == null)
+    {
+      metric = factory.apply();
+      IMetric existing = metrics.putIfAbsent(name, metric);
+      if (existing != null)
+        metric = existing;
+    }
+
+    if (!type.isInstance(metric))
+      throw new IllegalArgumentException("name=" + name + " type=" + metric.getClass().getSimpleName());
+
+    return type.cast(metric);
+  }
+}
@@ -0,0 +1,74 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reporter logging all metrics through slf4j at INFO level, one message per metric sorted by name. Nothing is formatted when INFO is
+ * disabled for the logger.
+ */
+public final class Slf4jReporter
+    extends AbstractMetricReporter
+{
+  /**
+   * The name of the default logger
+   */
+  public static final String DEFAULT_LOGGER_NAME = "propel.metrics";
+  private final Logger logger;
+
+  /**
+   * Initializes with the registry whose metrics are reported to the default logger
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public Slf4jReporter(MetricRegistry registry)
+  {
+    this(registry, LoggerFactory.getLogger(DEFAULT_LOGGER_NAME));
+  }
+
+  /**
+   * Initializes with the registry whose metrics are reported and the logger to use
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  public Slf4jReporter(MetricRegistry registry, Logger logger)
+  {
+    super(registry);
+    if (logger == null)
+      throw new NullPointerException("logger");
+
+    this.logger = logger;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void report()
+  {
+    if (!logger.isInfoEnabled())
+      return;
+
+    for (Map.Entry<String, IMetric> entry : registry.getMetrics().entrySet())
+      logger.info(MetricFormat.format(entry.getKey(), entry.getValue()));
+  }
+}
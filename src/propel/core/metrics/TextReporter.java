@@ -0,0 +1,66 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import java.io.PrintStream;
+import java.util.Date;
+
+/**
+ * Reporter writing all metrics as plain text to a stream, one line per metric sorted by name, preceded by a time stamp line.
+ */
+public final class TextReporter
+    extends AbstractMetricReporter
+{
+  private final PrintStream out;
+
+  /**
+   * Initializes with the registry whose metrics are reported to the standard output
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public TextReporter(MetricRegistry registry)
+  {
+    this(registry, System.out);
+  }
+
+  /**
+   * Initializes with the registry whose metrics are reported and the stream to write to
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  public TextReporter(MetricRegistry registry, PrintStream out)
+  {
+    super(registry);
+    if (out == null)
+      throw new NullPointerException("out");
+
+    this.out = out;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void report()
+  {
+    // a single write keeps the lines of concurrent reports together
+    out.print("-- " + new Date() + " --\n" + registry);
+    out.flush();
+  }
+}
@@ -0,0 +1,178 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.metrics;
+
+import propel.core.functional.Functions.Function0;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe metric measuring both the rate at which a piece of code is called and the distribution of its duration, in nanoseconds.
+ * Recording is lock-free and does not allocate: obtain a start time using start() and pass it to stop() once done, e.g.
+ * 
+ * <pre>
+ * long start = timer.start();
+ * try
+ * {
+ *   ...
+ * }
+ * finally
+ * {
+ *   timer.stop(start);
+ * }
+ * </pre>
+ */
+public final class Timer
+    implements IMetric
+{
+  private final Meter meter;
+  private final Histogram histogram;
+
+  /**
+   * Default constructor, initializes with the default histogram precision
+   */
+  public Timer()
+  {
+    this(Histogram.DEFAULT_PRECISION);
+  }
+
+  /**
+   * Initializes with the given histogram precision
+   * 
+   * @throws IllegalArgumentException When the precision is out of range.
+   */
+  public Timer(int precision)
+  {
+    meter = new Meter();
+    histogram = new Histogram(precision);
+  }
+
+  /**
+   * Returns the current time, to be passed to stop()
+   */
+  public long start()
+  {
+    return System.nanoTime();
+  }
+
+  /**
+   * Records the time elapsed since the given start time, and returns it in nanoseconds. This is an O(1) operation.
+   */
+  public long stop(long startNanos)
+  {
+    long elapsed = Math.max(0, System.nanoTime() - startNanos);
+    update(elapsed, TimeUnit.NANOSECONDS);
+
+    return elapsed;
+  }
+
+  /**
+   * Records a duration. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the unit is null.
+   * @throws IllegalArgumentException When the duration is negative.
+   */
+  public void update(long duration, TimeUnit unit)
+  {
+    if (unit == null)
+      throw new NullPointerException("unit");
+    if (duration < 0)
+      throw new IllegalArgumentException("duration=" + duration);
+
+    histogram.update(unit.toNanos(duration));
+    meter.mark();
+  }
+
+  /**
+   * Invokes the function, records its duration and returns its result. The duration is recorded even if the function throws.
+   * 
+   * @throws NullPointerException When the argument is null.
+   */
+  public <T> T time(Function0<T> function)
+  {
+    if (function == null)
+      throw new NullPointerException("function");
+
+    long start = start();
+    try
+    {
+      return function.apply();
+    }
+    finally
+    {
+      stop(start);
+    }
+  }
+
+  /**
+   * Returns the number of durations recorded
+   */
+  public long getCount()
+  {
+    return histogram.getCount();
+  }
+
+  /**
+   * Returns a copy of the distribution of durations recorded so far, in nanoseconds
+   */
+  public HistogramSnapshot getSnapshot()
+  {
+    return histogram.getSnapshot();
+  }
+
+  /**
+   * Returns the mean rate since creation, in calls per second
+   */
+  public double getMeanRate()
+  {
+    return meter.getMeanRate();
+  }
+
+  /**
+   * Returns the one-minute exponentially-weighted moving average rate, in calls per second
+   */
+  public double getOneMinuteRate()
+  {
+    return meter.getOneMinuteRate();
+  }
+
+  /**
+   * Returns the five-minute exponentially-weighted moving average rate, in calls per second
+   */
+  public double getFiveMinuteRate()
+  {
+    return meter.getFiveMinuteRate();
+  }
+
+  /**
+   * Returns the fifteen-minute exponentially-weighted moving average rate, in calls per second
+   */
+  public double getFifteenMinuteRate()
+  {
+    return meter.getFifteenMinuteRate();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return MetricFormat.format(this);
+  }
+}
@@ -22,6 +22,7 @@ import propel.core.collections.lists.ReifiedArrayList;
 import propel.core.collections.lists.ReifiedLinkedList;
 import propel.core.collections.lists.ReifiedList;
 import propel.core.collections.lists.SortedList;
+import propel.core.collections.queues.ReifiedArrayDeque;
 import propel.core.common.CONSTANT;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
@@ -842,12 +843,19 @@ public final class ArrayUtils
   @Validate
   public static <T> ReifiedLinkedList<T> toLinkedList(@NotNull final T[] array)
   {
-    val result = new ReifiedLinkedList<T>(array);
-
-    for (T item : array)
-      result.addLast(item);
+    return new ReifiedLinkedList<T>(array);
+  }
 
-    return result;
+  /**
+   * Returns the given array as an ArrayDeque (a class operating as a Queue or Stack). This is preferable to a LinkedList, as elements are
+   * stored contiguously rather than in one node each.
+   * 
+   * @throws NullPointerException The array is null.
+   */
+  @Validate
+  public static <T> ReifiedArrayDeque<T> toArrayDeque(@NotNull final T[] array)
+  {
+    return new ReifiedArrayDeque<T>(array);
   }
 
   /**
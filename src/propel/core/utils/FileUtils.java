@@ -34,6 +34,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -47,6 +49,8 @@ import lombok.SneakyThrows;
 import lombok.Validate;
 import lombok.Validate.NotNull;
 import lombok.val;
+import propel.core.collections.buffers.BufferAllocator;
+import propel.core.collections.buffers.PooledBuffer;
 import propel.core.collections.lists.ReifiedArrayList;
 import propel.core.collections.lists.ReifiedList;
 import propel.core.common.CONSTANT;
@@ -321,6 +325,67 @@ public final class FileUtils
     }
   }
 
+  /**
+   * Copies a file from source to destination, through a direct buffer obtained from the given allocator
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws IOException An I/O error occurs
+   * @throws FileNotFoundException The file specified is a directory, it does not exist or cannot be read/created.
+   * @throws SecurityException Access to filesystem is denied by a SecurityManager
+   */
+  @Validate
+  public static void copyFile(@NotNull final File originatingFile, @NotNull final String destinationPath,
+                              @NotNull final BufferAllocator allocator)
+      throws IOException
+  {
+    copyFile(originatingFile.getAbsolutePath(), destinationPath, allocator);
+  }
+
+  /**
+   * Copies a file from source to destination, through a direct buffer obtained from the given allocator
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws IOException An I/O error occurs
+   * @throws FileNotFoundException The file specified is a directory, it does not exist or cannot be read/created.
+   * @throws SecurityException Access to filesystem is denied by a SecurityManager
+   */
+  @Validate
+  public static void copyFile(@NotNull final String originatingPath, @NotNull final String destinationPath,
+                              @NotNull final BufferAllocator allocator)
+      throws IOException
+  {
+    val source = new File(originatingPath);
+    val dest = new File(destinationPath);
+
+    FileInputStream fis = null;
+    FileOutputStream fos = null;
+    PooledBuffer buffer = allocator.allocateDirect(64 * 1024);
+
+    try
+    {
+      fis = new FileInputStream(source);
+      fos = new FileOutputStream(dest);
+
+      FileChannel in = fis.getChannel();
+      FileChannel out = fos.getChannel();
+      ByteBuffer buf = buffer.getBuffer();
+      while (in.read(buf) != -1 || buf.position() > 0)
+      {
+        buf.flip();
+        out.write(buf);
+        buf.compact();
+      }
+    }
+    finally
+    {
+      buffer.release();
+      if (fis != null)
+        fis.close();
+      if (fos != null)
+        fos.close();
+    }
+  }
+
   /**
    * Copies a file from source to destination, returning true if the operation was successful. The file is not copied if any exception
    * occurs. No exception is thrown under any circumstance.
@@ -879,6 +944,53 @@ public final class FileUtils
     return result;
   }
 
+  /**
+   * Reads the entire contents of a file to a heap buffer obtained from the given allocator and returns it. The caller must release the
+   * buffer. The data read ends at the buffer's limit.
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws IOException An I/O error occurs
+   * @throws FileNotFoundException The file was not found, or it was a directory
+   * @throws SecurityException Access to filesystem is denied by a SecurityManager
+   */
+  @Validate
+  public static PooledBuffer readFileInMemory(@NotNull final File file, @NotNull final BufferAllocator allocator)
+      throws IOException
+  {
+    return readFileInMemory(file.getAbsolutePath(), allocator);
+  }
+
+  /**
+   * Reads the entire contents of a file to a heap buffer obtained from the given allocator and returns it. The caller must release the
+   * buffer. The data read ends at the buffer's limit.
+   * 
+   * @throws NullPointerException An argument is null
+   * @throws IOException An I/O error occurs
+   * @throws FileNotFoundException The file was not found, or it was a directory
+   * @throws SecurityException Access to filesystem is denied by a SecurityManager
+   */
+  @Validate
+  public static PooledBuffer readFileInMemory(@NotNull final String fileAbsPath, @NotNull final BufferAllocator allocator)
+      throws IOException
+  {
+    val file = new File(fileAbsPath);
+    if (!file.exists())
+      throw new FileNotFoundException("The file was not found: " + fileAbsPath);
+    if (!file.isFile())
+      throw new FileNotFoundException("The specified path is not referring to a file: " + fileAbsPath);
+
+    // the stream is not buffered, as the data is read in as few calls as possible
+    val fis = new FileInputStream(file);
+    try
+    {
+      return StreamUtils.readFully(fis, file.length(), allocator);
+    }
+    finally
+    {
+      fis.close();
+    }
+  }
+
   /**
    * Enumerates the contents of a file line by line (reads the entire contents of a file in memory to do so).
    * 
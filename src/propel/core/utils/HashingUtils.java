@@ -29,6 +29,9 @@ import java.util.UUID;
  */
 public final class HashingUtils
 {
+  private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+  private static final long FNV_PRIME = 0x100000001B3L;
+
   /**
    * Private constructor
    */
@@ -110,6 +113,98 @@ public final class HashingUtils
     return unique;
   }
 
+  /**
+   * Scrambles the bits of a long, so that every input bit affects every output bit. This is the finalizer of MurmurHash3.
+   */
+  public static long mix64(long key)
+  {
+    key ^= key >>> 33;
+    key *= 0xFF51AFD7ED558CCDL;
+    key ^= key >>> 33;
+    key *= 0xC4CEB9FE1A85EC53L;
+    key ^= key >>> 33;
+    return key;
+  }
+
+  /**
+   * Spreads the bits of a hash code, so that hash table indices taken from its low bits depend on all of its bits. Uses Fibonacci hashing.
+   */
+  public static int spread(int hashCode)
+  {
+    int h = hashCode * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Derives a second hash from a 64-bit hash, e.g. the stride of double hashing. The result is odd, so that it never degenerates to zero.
+   */
+  public static long secondHash(long hash)
+  {
+    return mix64(hash ^ 0x9E3779B97F4A7C15L) | 1;
+  }
+
+  /**
+   * A fast 64-bit hash of a byte array, with good distribution. Uses FNV-1a, with its result mixed by mix64().
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  public static long fnv1a64(byte[] ba)
+  {
+    if (ba == null)
+      throw new NullPointerException("ba");
+
+    long hash = FNV_OFFSET_BASIS;
+    for (byte b : ba)
+      hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+
+    return mix64(hash);
+  }
+
+  /**
+   * A fast 64-bit hash of the characters of a string, with good distribution. Uses FNV-1a, with its result mixed by mix64().
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  public static long fnv1a64(String str)
+  {
+    if (str == null)
+      throw new NullPointerException("str");
+
+    long hash = FNV_OFFSET_BASIS;
+    int length = str.length();
+    for (int i = 0; i < length; i++)
+      hash = (hash ^ str.charAt(i)) * FNV_PRIME;
+
+    return mix64(hash);
+  }
+
+  /**
+   * Hashes an object to an Int64. Strings, byte arrays, UUIDs and boxed primitives are hashed by value, other objects by mixing their
+   * hashCode(). Null hashes to zero.
+   */
+  public static long objectToInt64(Object obj)
+  {
+    if (obj == null)
+      return 0;
+    if (obj instanceof String)
+      return fnv1a64((String) obj);
+    if (obj instanceof byte[])
+      return fnv1a64((byte[]) obj);
+    if (obj instanceof Long || obj instanceof Integer || obj instanceof Short || obj instanceof Byte)
+      return mix64(((Number) obj).longValue());
+    if (obj instanceof Character)
+      return mix64((Character) obj);
+    if (obj instanceof Double)
+      return mix64(Double.doubleToLongBits((Double) obj));
+    if (obj instanceof UUID)
+    {
+      UUID uuid = (UUID) obj;
+      return mix64(uuid.getMostSignificantBits() ^ mix64(uuid.getLeastSignificantBits()));
+    }
+
+    return mix64(obj.hashCode());
+  }
+
   // Djb2 algorithm taken from http://www.cse.yorku.ca/~oz/hash.html
 
   // TODO: Test toInt functions work with "from UInt".intValue() conversion
@@ -27,6 +27,8 @@ import java.util.concurrent.ConcurrentMap;
 import lombok.Validate;
 import lombok.Validate.NotNull;
 import propel.core.collections.arrays.ReifiedArray;
+import propel.core.collections.frozen.FrozenHashtable;
+import propel.core.collections.frozen.FrozenSet;
 import propel.core.collections.lists.ISharedList;
 import propel.core.collections.lists.ReifiedList;
 import propel.core.collections.maps.IHashtable;
@@ -257,6 +259,30 @@ public final class ImmutableUtils
     return ReflectionUtils.proxy(set, ReifiedSet.class, reifiedSetSuppressed);
   }
 
+  /**
+   * Returns an immutable copy of the given collection, indexed by a minimal perfect hash function for fast lookups. Unlike toReadOnly(),
+   * later changes to the given collection are not reflected in the copy.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static <K extends Comparable<K>, V> FrozenHashtable<K, V> toFrozen(@NotNull final IHashtable<K, V> map)
+  {
+    return new FrozenHashtable<K, V>(map);
+  }
+
+  /**
+   * Returns an immutable copy of the given collection, indexed by a minimal perfect hash function for fast lookups. Unlike toReadOnly(),
+   * later changes to the given collection are not reflected in the copy.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static <T extends Comparable<T>> FrozenSet<T> toFrozen(@NotNull final ReifiedSet<T> set)
+  {
+    return new FrozenSet<T>(set);
+  }
+
   /**
    * Private constructor
    */
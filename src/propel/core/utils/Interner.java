@@ -0,0 +1,285 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.utils;
+
+import propel.core.counters.SharedStripedCounter;
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe interner, returning a canonical instance for each distinct value so that equal values parsed many times over share a
+ * single instance on the heap. This is the generalisation of String.intern() to any immutable value type, without its permanent retention.
+ * 
+ * In strong mode the canonical instances are retained until clear() is called; in weak mode an instance is retained only while referenced
+ * elsewhere. Once the interner holds its maximum number of values, further new values are returned as-is, without being retained. The hit
+ * rate reports the fraction of interned values that were found, i.e. the allocations saved.
+ * 
+ * @param <T> The value type, which must implement equals() and hashCode().
+ */
+public final class Interner<T>
+{
+  private static final int STRIPE_COUNT = 16;
+  private final boolean weakValues;
+  private final int maxSize;
+  // strong mode
+  private final ConcurrentHashMap<T, T> strongValues;
+  private final AtomicInteger strongCount;
+  // weak mode, striped by hash to reduce lock contention
+  private final WeakHashMap<T, WeakReference<T>>[] weakStripes;
+  private final ReentrantLock[] locks;
+  private final int stripeMaxSize;
+  private final SharedStripedCounter hits;
+  private final SharedStripedCounter misses;
+
+  /**
+   * Default constructor, initializes an unbounded interner retaining values strongly
+   */
+  public Interner()
+  {
+    this(false, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Constructor initializes an unbounded interner
+   * 
+   * @param weakValues True to retain values only while referenced elsewhere.
+   */
+  public Interner(boolean weakValues)
+  {
+    this(weakValues, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Constructor initializes an interner holding up to a maximum number of values. In weak mode the bound is applied per lock stripe, so it
+   * is approximate.
+   * 
+   * @param weakValues True to retain values only while referenced elsewhere.
+   * @param maxSize The maximum number of values retained.
+   * 
+   * @throws IllegalArgumentException When the maximum size is not positive.
+   */
+  public Interner(boolean weakValues, int maxSize)
+  {
+    if (maxSize <= 0)
+      throw new IllegalArgumentException("maxSize=" + maxSize);
+
+    this.weakValues = weakValues;
+    this.maxSize = maxSize;
+    hits = new SharedStripedCounter();
+    misses = new SharedStripedCounter();
+
+    if (weakValues)
+    {
+      strongValues = null;
+      strongCount = null;
+      @SuppressWarnings("unchecked")
+      WeakHashMap<T, WeakReference<T>>[] stripes = (WeakHashMap<T, WeakReference<T>>[]) new WeakHashMap<?, ?>[STRIPE_COUNT];
+      weakStripes = stripes;
+      locks = new ReentrantLock[STRIPE_COUNT];
+      for (int i = 0; i < STRIPE_COUNT; i++)
+      {
+        weakStripes[i] = new WeakHashMap<T, WeakReference<T>>();
+        locks[i] = new ReentrantLock();
+      }
+      stripeMaxSize = (int) (((long) maxSize + STRIPE_COUNT - 1) / STRIPE_COUNT);
+    } else
+    {
+      strongValues = new ConcurrentHashMap<T, T>();
+      strongCount = new AtomicInteger();
+      weakStripes = null;
+      locks = null;
+      stripeMaxSize = 0;
+    }
+  }
+
+  /**
+   * Returns the canonical instance equal to the given value, retaining the value as canonical if there is none and the interner is not
+   * full. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the value is null.
+   */
+  public T intern(T value)
+  {
+    if (value == null)
+      throw new NullPointerException("value");
+
+    return weakValues ? internWeak(value) : internStrong(value);
+  }
+
+  /**
+   * Removes all values. Previously returned instances remain valid but are no longer canonical. This is an O(n) operation.
+   */
+  public void clear()
+  {
+    if (weakValues)
+      for (int i = 0; i < STRIPE_COUNT; i++)
+      {
+        locks[i].lock();
+        try
+        {
+          weakStripes[i].clear();
+        }
+        finally
+        {
+          locks[i].unlock();
+        }
+      }
+    else
+    {
+      strongValues.clear();
+      strongCount.set(0);
+    }
+  }
+
+  /**
+   * Returns the number of values retained. In weak mode, values no longer referenced elsewhere may be counted until the garbage collector
+   * has reclaimed them.
+   */
+  public int size()
+  {
+    if (!weakValues)
+      return strongValues.size();
+
+    int result = 0;
+    for (int i = 0; i < STRIPE_COUNT; i++)
+    {
+      locks[i].lock();
+      try
+      {
+        result += weakStripes[i].size();
+      }
+      finally
+      {
+        locks[i].unlock();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns true if values are retained only while referenced elsewhere
+   */
+  public boolean isWeakValues()
+  {
+    return weakValues;
+  }
+
+  /**
+   * Returns the maximum number of values retained
+   */
+  public int getMaxSize()
+  {
+    return maxSize;
+  }
+
+  /**
+   * Returns the number of interned values for which a canonical instance was found
+   */
+  public long getHitCount()
+  {
+    return hits.getCount();
+  }
+
+  /**
+   * Returns the number of interned values for which no canonical instance was found
+   */
+  public long getMissCount()
+  {
+    return misses.getCount();
+  }
+
+  /**
+   * Returns the fraction of interned values for which a canonical instance was found, or 0 if nothing has been interned
+   */
+  public double getHitRate()
+  {
+    return hitRate(getHitCount(), getMissCount());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "size=" + size() + " hitRate=" + getHitRate();
+  }
+
+  /**
+   * Returns the hit rate for the given hit and miss counts
+   */
+  static double hitRate(long hitCount, long missCount)
+  {
+    long total = hitCount + missCount;
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  private T internStrong(T value)
+  {
+    T existing = strongValues.get(value);
+    if (existing != null)
+    {
+      hits.increment();
+      return existing;
+    }
+
+    misses.increment();
+    if (strongCount.get() >= maxSize)
+      return value;
+
+    existing = strongValues.putIfAbsent(value, value);
+    if (existing != null)
+      return existing;
+
+    strongCount.incrementAndGet();
+    return value;
+  }
+
+  private T internWeak(T value)
+  {
+    int stripe = HashingUtils.spread(value.hashCode()) & (STRIPE_COUNT - 1);
+    WeakHashMap<T, WeakReference<T>> map = weakStripes[stripe];
+
+    locks[stripe].lock();
+    try
+    {
+      WeakReference<T> reference = map.get(value);
+      T existing = reference == null ? null : reference.get();
+      if (existing != null)
+      {
+        hits.increment();
+        return existing;
+      }
+
+      misses.increment();
+      if (map.size() < stripeMaxSize)
+        map.put(value, new WeakReference<T>(value));
+
+      return value;
+    }
+    finally
+    {
+      locks[stripe].unlock();
+    }
+  }
+}
@@ -37,12 +37,19 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import lombok.Validate;
 import lombok.Validate.NotNull;
+import propel.core.collections.KeyValuePair;
 import propel.core.collections.ReifiedIterable;
 import propel.core.collections.arrays.ReifiedArray;
 import propel.core.collections.lists.ReifiedArrayList;
 import propel.core.collections.lists.ReifiedList;
+import propel.core.collections.lists.primitive.DoubleList;
+import propel.core.collections.lists.primitive.IntList;
+import propel.core.collections.lists.primitive.LongList;
 import propel.core.collections.maps.ReifiedMap;
 import propel.core.collections.maps.avl.AvlHashtable;
+import propel.core.collections.sets.RoaringBitmap;
+import propel.core.collections.sketches.HyperLogLog;
+import propel.core.collections.sketches.SpaceSaving;
 import propel.core.common.CONSTANT;
 import propel.core.configuration.ConfigurableConsts;
 import propel.core.configuration.ConfigurableParameters;
@@ -197,6 +204,73 @@ public final class Linq
     return false;
   }
 
+  /**
+   * Returns an estimate of the number of distinct items in a sequence, within about 0.8% of the exact count. Unlike counting the results of
+   * distinct(), this runs in constant memory (a HyperLogLog sketch of up to 16KB), so suits unbounded sequences. Items are hashed by value
+   * using HashingUtils.objectToInt64().
+   * 
+   * @throws NullPointerException An argument is null.
+   */
+  @Validate
+  public static <T> long approxCountDistinct(@NotNull final Iterable<T> values)
+  {
+    HyperLogLog<T> sketch = new HyperLogLog<T>();
+    sketch.addAll(values);
+    return sketch.cardinality();
+  }
+
+  /**
+   * Returns an estimate of the number of distinct items in an array, within about 0.8% of the exact count. This runs in constant memory (a
+   * HyperLogLog sketch of up to 16KB). Items are hashed by value using HashingUtils.objectToInt64().
+   * 
+   * @throws NullPointerException An argument is null.
+   */
+  @Validate
+  public static <T> long approxCountDistinct(@NotNull final T[] values)
+  {
+    HyperLogLog<T> sketch = new HyperLogLog<T>();
+    sketch.addAll(values);
+    return sketch.cardinality();
+  }
+
+  /**
+   * Returns up to k of the most frequently occurring items in a sequence, in descending order of guaranteed occurrences. Unlike
+   * maxOccurring(), this runs in constant memory (a Space-Saving tracker of 8k counters), so suits unbounded sequences. Items occurring
+   * more often than 1/(8k) of the time are tracked, however their counts are estimates, so they may be outranked and not returned. Items
+   * are grouped by equals() and hashCode().
+   * 
+   * @throws NullPointerException An argument is null.
+   * @throws IllegalArgumentException When k is negative.
+   */
+  @Validate
+  public static <T> List<T> approxTopOccurring(@NotNull final Iterable<T> values, final int k)
+  {
+    if (k < 0)
+      throw new IllegalArgumentException("k=" + k);
+
+    SpaceSaving<T> tracker = new SpaceSaving<T>(Math.max(8 * k, 1));
+    tracker.addAll(values);
+
+    List<T> result = new ArrayList<T>(k);
+    for (KeyValuePair<T, Long> kvp : tracker.topGuaranteed(k))
+      result.add(kvp.getKey());
+
+    return result;
+  }
+
+  /**
+   * Returns up to k of the most frequently occurring items in an array, in descending order of guaranteed occurrences. This runs in
+   * constant memory (a Space-Saving tracker of 8k counters). Items are grouped by equals() and hashCode().
+   * 
+   * @throws NullPointerException An argument is null.
+   * @throws IllegalArgumentException When k is negative.
+   */
+  @Validate
+  public static <T> List<T> approxTopOccurring(@NotNull final T[] values, final int k)
+  {
+    return approxTopOccurring(Arrays.asList(values), k);
+  }
+
   /**
    * Casts a sequence of values of a certain type to a sequence of values of another type. Uses InvalidCastBehaviour.Remove i.e. excluding
    * any elements that do not successfully cast, without throwing exceptions. This operates differently to OfType, in that it forces a cast
@@ -1265,9 +1339,28 @@ public final class Linq
   @Validate
   public static <T> Iterable<T> intersect(@NotNull final Iterable<T> first, @NotNull final Iterable<T> second)
   {
+    if (first instanceof RoaringBitmap && second instanceof RoaringBitmap)
+    {
+      @SuppressWarnings("unchecked")
+      Iterable<T> result = (Iterable<T>) ((RoaringBitmap) first).and((RoaringBitmap) second);
+      return result;
+    }
+
     return intersect(first, second, null);
   }
 
+  /**
+   * Returns the intersection of two compressed bitmaps, as a new bitmap. Chunks are intersected word by word, rather than element by
+   * element.
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  @Validate
+  public static RoaringBitmap intersect(@NotNull final RoaringBitmap first, @NotNull final RoaringBitmap second)
+  {
+    return first.and(second);
+  }
+
   /**
    * Returns the intersection of the distinct elements of two sequences.
    * 
@@ -1669,15 +1762,7 @@ public final class Linq
   @Validate
   public static int max(@NotNull final int[] items)
   {
-    if (items.length <= 0)
-      return 0;
-
-    int max = items[0];
-    for (int item : items)
-      if (max < item)
-        max = item;
-
-    return max;
+    return max(items, items.length);
   }
 
   /**
@@ -1688,15 +1773,51 @@ public final class Linq
   @Validate
   public static long max(@NotNull final long[] items)
   {
-    if (items.length <= 0)
-      return 0;
+    return max(items, items.length);
+  }
 
-    long max = items[0];
-    for (long item : items)
-      if (max < item)
-        max = item;
+  /**
+   * Returns the maximum of the given values. If no values are given, 0 is returned. NaN values are ignored, unless all values are NaN.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static double max(@NotNull final double[] items)
+  {
+    return max(items, items.length);
+  }
 
-    return max;
+  /**
+   * Returns the maximum of the values in the given list, without boxing them. If the list is empty, 0 is returned.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static int max(@NotNull final IntList list)
+  {
+    return max(list.array(), list.size());
+  }
+
+  /**
+   * Returns the maximum of the values in the given list, without boxing them. If the list is empty, 0 is returned.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static long max(@NotNull final LongList list)
+  {
+    return max(list.array(), list.size());
+  }
+
+  /**
+   * Returns the maximum of the values in the given list, without boxing them. If the list is empty, 0 is returned.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static double max(@NotNull final DoubleList list)
+  {
+    return max(list.array(), list.size());
   }
 
   /**
@@ -1726,15 +1847,7 @@ public final class Linq
   @Validate
   public static int min(@NotNull final int[] items)
   {
-    if (items.length <= 0)
-      return 0;
-
-    int min = items[0];
-    for (int item : items)
-      if (min > item)
-        min = item;
-
-    return min;
+    return min(items, items.length);
   }
 
   /**
@@ -1745,15 +1858,51 @@ public final class Linq
   @Validate
   public static long min(@NotNull final long[] items)
   {
-    if (items.length <= 0)
-      return 0;
+    return min(items, items.length);
+  }
 
-    long min = items[0];
-    for (long item : items)
-      if (min > item)
-        min = item;
+  /**
+   * Returns the minimum of the given values. If no values are given, 0 is returned. NaN values are ignored, unless all values are NaN.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static double min(@NotNull final double[] items)
+  {
+    return min(items, items.length);
+  }
 
-    return min;
+  /**
+   * Returns the minimum of the values in the given list, without boxing them. If the list is empty, 0 is returned.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static int min(@NotNull final IntList list)
+  {
+    return min(list.array(), list.size());
+  }
+
+  /**
+   * Returns the minimum of the values in the given list, without boxing them. If the list is empty, 0 is returned.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static long min(@NotNull final LongList list)
+  {
+    return min(list.array(), list.size());
+  }
+
+  /**
+   * Returns the minimum of the values in the given list, without boxing them. If the list is empty, 0 is returned.
+   * 
+   * @throws NullPointerException An argument is null
+   */
+  @Validate
+  public static double min(@NotNull final DoubleList list)
+  {
+    return min(list.array(), list.size());
   }
 
   /**
@@ -3223,7 +3372,7 @@ public final class Linq
 
   /**
    * Converts a sequence of items into a key/value AVL tree. Items from which duplicate keys are derived will be skipped. Null keys are not
-   * allowed.
+   * allowed. The tree is bulk-built, which is an O(n) operation if the derived keys are already in ascending order.
    * 
    * @throws NullPointerException When an argument is null.
    */
@@ -3232,16 +3381,18 @@ public final class Linq
       toAvlHashtable(@NotNull final Iterable<T> values, @NotNull final Function1<T, TKey> keySelector,
                      @NotNull final Function1<T, TValue> valueSelector)
   {
-    val result = new AvlHashtable<TKey, TValue>(keySelector.getReturnType(), valueSelector.getReturnType());
+    val pairs = new ArrayList<KeyValuePair<TKey, TValue>>();
     for (T item : values)
-      result.add(keySelector.apply(item), valueSelector.apply(item));
+      pairs.add(new KeyValuePair<TKey, TValue>(keySelector.apply(item), valueSelector.apply(item)));
 
+    val result = new AvlHashtable<TKey, TValue>(keySelector.getReturnType(), valueSelector.getReturnType());
+    result.addAll(pairs);
     return result;
   }
 
   /**
    * Converts a sequence of items into a key/value AVL hashtable. Items from which duplicate keys are derived will be skipped. Null keys are
-   * not allowed by the AVLHashtable.
+   * not allowed by the AVLHashtable. The tree is bulk-built, which is an O(n) operation if the derived keys are already in ascending order.
    * 
    * @throws NullPointerException When an argument is null.
    */
@@ -3250,11 +3401,13 @@ public final class Linq
       toAvlHashtable(@NotNull final T[] values, @NotNull final Function1<T, TKey> keySelector,
                      @NotNull final Function1<T, TValue> valueSelector)
   {
-    val result = new AvlHashtable<TKey, TValue>(keySelector.getReturnType(), valueSelector.getReturnType());
     val count = values.length;
+    val pairs = new ArrayList<KeyValuePair<TKey, TValue>>(count);
     for (int i = 0; i < count; i++)
-      result.add(keySelector.apply(values[i]), valueSelector.apply(values[i]));
+      pairs.add(new KeyValuePair<TKey, TValue>(keySelector.apply(values[i]), valueSelector.apply(values[i])));
 
+    val result = new AvlHashtable<TKey, TValue>(keySelector.getReturnType(), valueSelector.getReturnType());
+    result.addAll(pairs);
     return result;
   }
 
@@ -3375,9 +3528,27 @@ public final class Linq
   @Validate
   public static <T> Iterable<T> union(@NotNull final Iterable<T> first, @NotNull final Iterable<T> second)
   {
+    if (first instanceof RoaringBitmap && second instanceof RoaringBitmap)
+    {
+      @SuppressWarnings("unchecked")
+      Iterable<T> result = (Iterable<T>) ((RoaringBitmap) first).or((RoaringBitmap) second);
+      return result;
+    }
+
     return union(first, second, null);
   }
 
+  /**
+   * Produces the union of two compressed bitmaps, as a new bitmap. Chunks are merged word by word, rather than element by element.
+   * 
+   * @throws NullPointerException When an argument is null.
+   */
+  @Validate
+  public static RoaringBitmap union(@NotNull final RoaringBitmap first, @NotNull final RoaringBitmap second)
+  {
+    return first.or(second);
+  }
+
   /**
    * Produces the union of two sequences.
    * 
@@ -4048,6 +4219,96 @@ public final class Linq
     return -1;
   }
 
+  /**
+   * Returns the maximum of the first count values of the array, or 0 if count is not positive.
+   */
+  private static int max(final int[] items, int count)
+  {
+    if (count <= 0)
+      return 0;
+
+    int max = items[0];
+    for (int i = 1; i < count; i++)
+      if (max < items[i])
+        max = items[i];
+
+    return max;
+  }
+
+  /**
+   * Returns the maximum of the first count values of the array, or 0 if count is not positive.
+   */
+  private static long max(final long[] items, int count)
+  {
+    if (count <= 0)
+      return 0;
+
+    long max = items[0];
+    for (int i = 1; i < count; i++)
+      if (max < items[i])
+        max = items[i];
+
+    return max;
+  }
+
+  /**
+   * Returns the maximum of the first count values of the array, or 0 if count is not positive.
+   */
+  private static double max(final double[] items, int count)
+  {
+    double result = Double.NaN;
+    for (int i = 0; i < count; i++)
+      if (Double.isNaN(result) || result < items[i])
+        result = items[i];
+
+    return count <= 0 ? 0 : result;
+  }
+
+  /**
+   * Returns the minimum of the first count values of the array, or 0 if count is not positive.
+   */
+  private static int min(final int[] items, int count)
+  {
+    if (count <= 0)
+      return 0;
+
+    int min = items[0];
+    for (int i = 1; i < count; i++)
+      if (min > items[i])
+        min = items[i];
+
+    return min;
+  }
+
+  /**
+   * Returns the minimum of the first count values of the array, or 0 if count is not positive.
+   */
+  private static long min(final long[] items, int count)
+  {
+    if (count <= 0)
+      return 0;
+
+    long min = items[0];
+    for (int i = 1; i < count; i++)
+      if (min > items[i])
+        min = items[i];
+
+    return min;
+  }
+
+  /**
+   * Returns the minimum of the first count values of the array, or 0 if count is not positive.
+   */
+  private static double min(final double[] items, int count)
+  {
+    double result = Double.NaN;
+    for (int i = 0; i < count; i++)
+      if (Double.isNaN(result) || result > items[i])
+        result = items[i];
+
+    return count <= 0 ? 0 : result;
+  }
+
   private Linq()
   {
   }
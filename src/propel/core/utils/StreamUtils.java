@@ -30,6 +30,8 @@ import java.nio.charset.Charset;
 import lombok.Validate;
 import lombok.Validate.NotNull;
 import lombok.val;
+import propel.core.collections.buffers.BufferAllocator;
+import propel.core.collections.buffers.PooledBuffer;
 import propel.core.common.CONSTANT;
 
 /**
@@ -47,6 +49,10 @@ public final class StreamUtils
    */
   public static final String EOF_EXCEPTION_MESSAGE_CHARACTERS = "The stream " + CONSTANT.EOF
       + "ed unexpectedly, while %d extra characters were expected.";
+  /**
+   * The largest buffer allocated when copying between streams
+   */
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
 
   /**
    * Copies data from one stream to another. Reads all data from source stream, then writes it to destination, then the destination stream
@@ -68,6 +74,45 @@ public final class StreamUtils
     writeFully(to, readFully(from, length));
   }
 
+  /**
+   * Copies data from one stream to another. Data is transferred in chunks through a buffer obtained from the given allocator, rather than
+   * read in memory all at once, then the destination stream is flushed.
+   * 
+   * @throws NullPointerException An argument is null.
+   * @throws IllegalArgumentException An argument is out of range.
+   * @throws IOException An I/O exception occurred.
+   */
+  @Validate
+  public static void copy(@NotNull final InputStream from, @NotNull final OutputStream to, final long length,
+                          @NotNull final BufferAllocator allocator)
+      throws IOException
+  {
+    if (length < 0)
+      throw new IllegalArgumentException("length=" + length);
+    if (length == 0)
+      return;
+
+    PooledBuffer buffer = allocator.allocateHeap((int) Math.min(length, COPY_BUFFER_SIZE));
+    try
+    {
+      byte[] data = buffer.getArray();
+      long remaining = length;
+      while (remaining > 0)
+      {
+        int count = (int) Math.min(remaining, data.length);
+        readFully(from, data, count);
+        to.write(data, 0, count);
+        remaining -= count;
+      }
+
+      to.flush();
+    }
+    finally
+    {
+      buffer.release();
+    }
+  }
+
   /**
    * Blocks until all data is written to the given stream. The stream is flushed.
    * 
@@ -197,6 +242,36 @@ public final class StreamUtils
     return buffer;
   }
 
+  /**
+   * Blocks until a specified amount of bytes is read from a stream. Returns the data read in a heap buffer obtained from the given
+   * allocator, which the caller must release. The buffer's array may be longer than the data read, which ends at the buffer's limit.
+   * 
+   * @throws NullPointerException An argument is null.
+   * @throws IllegalArgumentException An argument is out of range.
+   * @throws IOException An I/O exception occurred.
+   */
+  @Validate
+  public static PooledBuffer readFully(@NotNull final InputStream stream, final long length, @NotNull final BufferAllocator allocator)
+      throws IOException
+  {
+    if (length < 0 || length > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("length=" + length);
+
+    PooledBuffer result = allocator.allocateHeap((int) length);
+    boolean completed = false;
+    try
+    {
+      readFully(stream, result.getArray(), length);
+      completed = true;
+      return result;
+    }
+    finally
+    {
+      if (!completed)
+        result.release();
+    }
+  }
+
   /**
    * Blocks until a specified amount of bytes is read from a stream. Puts the data read into the specified array. Performs 'chunked'
    * transfer if size if bigger than the maximum allowed packet size.
@@ -0,0 +1,258 @@
+// /////////////////////////////////////////////////////////
+// This file is part of Propel.
+//
+// Propel is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Propel is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with Propel. If not, see <http://www.gnu.org/licenses/>.
+// /////////////////////////////////////////////////////////
+// Authored by: Nikolaos Tountas -> salam.kaser-at-gmail.com
+// /////////////////////////////////////////////////////////
+package propel.core.utils;
+
+import propel.core.common.CONSTANT;
+import propel.core.counters.SharedStripedCounter;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe string interner, for de-duplicating the many equal strings produced when parsing large inputs, e.g. status codes, host
+ * names or enumeration-like fields. Besides strings, character and UTF8 byte ranges of a parse buffer can be interned directly: a small
+ * direct-mapped cache of recently interned strings is probed first, so that a recurring value is returned without allocating a String
+ * for it at all.
+ * 
+ * Canonical instances are retained strongly or weakly, as by Interner. The cache holds strong references to at most cacheSize strings.
+ */
+public final class StringInterner
+{
+  private static final int DEFAULT_CACHE_SIZE = 1024;
+  private final Interner<String> interner;
+  private final AtomicReferenceArray<String> cache;
+  private final int cacheMask;
+  private final SharedStripedCounter cacheHits;
+
+  /**
+   * Default constructor, initializes an unbounded interner retaining strings strongly
+   */
+  public StringInterner()
+  {
+    this(false, Integer.MAX_VALUE, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Constructor initializes an unbounded interner
+   * 
+   * @param weakValues True to retain strings only while referenced elsewhere.
+   */
+  public StringInterner(boolean weakValues)
+  {
+    this(weakValues, Integer.MAX_VALUE, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Constructor initializes an interner holding up to a maximum number of strings
+   * 
+   * @param weakValues True to retain strings only while referenced elsewhere.
+   * @param maxSize The maximum number of strings retained.
+   * 
+   * @throws IllegalArgumentException When the maximum size is not positive.
+   */
+  public StringInterner(boolean weakValues, int maxSize)
+  {
+    this(weakValues, maxSize, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Constructor initializes an interner holding up to a maximum number of strings, with the given number of cache entries for interning
+   * character and byte ranges. The cache size is rounded up to a power of two.
+   * 
+   * @param weakValues True to retain strings only while referenced elsewhere.
+   * @param maxSize The maximum number of strings retained.
+   * @param cacheSize The number of cache entries.
+   * 
+   * @throws IllegalArgumentException When the maximum size or the cache size is not positive, or the cache size is too large.
+   */
+  public StringInterner(boolean weakValues, int maxSize, int cacheSize)
+  {
+    if (cacheSize <= 0 || cacheSize > 1 << 30)
+      throw new IllegalArgumentException("cacheSize=" + cacheSize);
+
+    interner = new Interner<String>(weakValues, maxSize);
+    int capacity = Integer.highestOneBit(cacheSize);
+    if (capacity < cacheSize)
+      capacity <<= 1;
+    cache = new AtomicReferenceArray<String>(capacity);
+    cacheMask = capacity - 1;
+    cacheHits = new SharedStripedCounter();
+  }
+
+  /**
+   * Returns the canonical instance equal to the given string. This is an O(1) operation.
+   * 
+   * @throws NullPointerException When the string is null.
+   */
+  public String intern(String value)
+  {
+    return interner.intern(value);
+  }
+
+  /**
+   * Returns the canonical instance of the string formed by a range of characters, allocating a String only if the range is not cached.
+   * This is an O(k) operation in the length of the range.
+   * 
+   * @throws NullPointerException When the array is null.
+   * @throws IndexOutOfBoundsException When the range is outside the array.
+   */
+  public String intern(char[] chars, int offset, int length)
+  {
+    if (chars == null)
+      throw new NullPointerException("chars");
+    if (offset < 0 || length < 0 || offset > chars.length - length)
+      throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " size=" + chars.length);
+
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++)
+      hash = 31 * hash + chars[i];
+
+    int slot = slotOf(hash);
+    String cached = cache.get(slot);
+    if (cached != null && matches(cached, chars, offset, length))
+    {
+      cacheHits.increment();
+      return cached;
+    }
+
+    String result = interner.intern(new String(chars, offset, length));
+    cache.set(slot, result);
+    return result;
+  }
+
+  /**
+   * Returns the canonical instance of the string formed by a range of UTF8-encoded bytes. Ranges of ASCII characters are first looked up in
+   * the cache, allocating a String only if not cached; other ranges are decoded and interned. This is an O(k) operation in the length of the
+   * range.
+   * 
+   * @throws NullPointerException When the array is null.
+   * @throws IndexOutOfBoundsException When the range is outside the array.
+   */
+  public String intern(byte[] bytes, int offset, int length)
+  {
+    if (bytes == null)
+      throw new NullPointerException("bytes");
+    if (offset < 0 || length < 0 || offset > bytes.length - length)
+      throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " size=" + bytes.length);
+
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++)
+    {
+      if (bytes[i] < 0)
+        return interner.intern(new String(bytes, offset, length, CONSTANT.UTF8));
+
+      hash = 31 * hash + bytes[i];
+    }
+
+    int slot = slotOf(hash);
+    String cached = cache.get(slot);
+    if (cached != null && matches(cached, bytes, offset, length))
+    {
+      cacheHits.increment();
+      return cached;
+    }
+
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++)
+      chars[i] = (char) bytes[offset + i];
+
+    String result = interner.intern(new String(chars));
+    cache.set(slot, result);
+    return result;
+  }
+
+  /**
+   * Removes all strings. Previously returned instances remain valid but are no longer canonical. This is an O(n) operation.
+   */
+  public void clear()
+  {
+    for (int i = 0; i <= cacheMask; i++)
+      cache.set(i, null);
+
+    interner.clear();
+  }
+
+  /**
+   * Returns the number of strings retained, excluding the cache
+   */
+  public int size()
+  {
+    return interner.size();
+  }
+
+  /**
+   * Returns the number of interned values for which a canonical instance was found, in the cache or otherwise
+   */
+  public long getHitCount()
+  {
+    return cacheHits.getCount() + interner.getHitCount();
+  }
+
+  /**
+   * Returns the number of interned values for which no canonical instance was found
+   */
+  public long getMissCount()
+  {
+    return interner.getMissCount();
+  }
+
+  /**
+   * Returns the fraction of interned values for which a canonical instance was found, or 0 if nothing has been interned
+   */
+  public double getHitRate()
+  {
+    return Interner.hitRate(getHitCount(), getMissCount());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "size=" + size() + " hitRate=" + getHitRate();
+  }
+
+  private int slotOf(int hash)
+  {
+    return HashingUtils.spread(hash) & cacheMask;
+  }
+
+  private static boolean matches(String value, char[] chars, int offset, int length)
+  {
+    if (value.length() != length)
+      return false;
+
+    for (int i = 0; i < length; i++)
+      if (value.charAt(i) != chars[offset + i])
+        return false;
+
+    return true;
+  }
+
+  private static boolean matches(String value, byte[] bytes, int offset, int length)
+  {
+    if (value.length() != length)
+      return false;
+
+    for (int i = 0; i < length; i++)
+      if (value.charAt(i) != bytes[offset + i])
+        return false;
+
+    return true;
+  }
+}